@@ -36,6 +36,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.extension.ExtensionException;
@@ -85,6 +86,8 @@ public class XarExtensionHandler extends AbstractExtensionHandler
 
     private static final String CONTEXTKEY_PACKAGECONFIGURATION = "extension.xar.packageconfiguration";
 
+    private static final String PROPERTY_PREFETCHTHREADS = "extension.xar.prefetchThreads";
+
     @Inject
     private Packager packager;
 
@@ -101,6 +104,9 @@ public class XarExtensionHandler extends AbstractExtensionHandler
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    private ConfigurationSource configurationSource;
+
     /**
      * Used to access the execution context.
      */
@@ -276,6 +282,7 @@ private void initJobPackageConfiguration(Request request, boolean defaultConflic
                 configuration.setUser(userReference);
                 configuration.setVerbose(request.isVerbose());
                 configuration.setSkipMandatorytDocuments(true);
+                configuration.setPrefetchThreads(this.configurationSource.getProperty(PROPERTY_PREFETCHTHREADS, 0));
                 configuration.setXarExtensionPlan(getXARExtensionPlan());
 
                 configuration.setJobStatus(currentJob.getStatus());
@@ -338,6 +345,7 @@ private PackageConfiguration createPackageConfiguration(LocalExtension extension
             configuration.setUser(userReference);
             configuration.setVerbose(request.isVerbose());
             configuration.setSkipMandatorytDocuments(true);
+            configuration.setPrefetchThreads(this.configurationSource.getProperty(PROPERTY_PREFETCHTHREADS, 0));
         }
 
         configuration.setWiki(wiki);
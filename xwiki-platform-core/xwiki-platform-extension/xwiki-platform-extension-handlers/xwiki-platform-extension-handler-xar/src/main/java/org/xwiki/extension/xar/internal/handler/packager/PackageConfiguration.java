@@ -51,6 +51,8 @@ public class PackageConfiguration implements Cloneable
 
     private boolean skipMandatorytDocuments = true;
 
+    private int prefetchThreads;
+
     private final Map<ConflictType, GlobalAction> conflictActions = new HashMap<>();
 
     public PackageConfiguration()
@@ -151,6 +153,24 @@ public void setSkipMandatorytDocuments(boolean skipMandatorytDocuments)
         this.skipMandatorytDocuments = skipMandatorytDocuments;
     }
 
+    /**
+     * @return the number of threads used to load the documents in advance, 0 to load them when needed
+     * @since 9.7RC1
+     */
+    public int getPrefetchThreads()
+    {
+        return this.prefetchThreads;
+    }
+
+    /**
+     * @param prefetchThreads the number of threads used to load the documents in advance, 0 to load them when needed
+     * @since 9.7RC1
+     */
+    public void setPrefetchThreads(int prefetchThreads)
+    {
+        this.prefetchThreads = prefetchThreads;
+    }
+
     /**
      * @since 9.2RC1
      */
@@ -23,9 +23,15 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,9 +40,13 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
 import org.xwiki.extension.xar.XarExtensionExtension;
@@ -126,10 +136,31 @@
     @Inject
     private WikiDescriptorManager wikiDescriptors;
 
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
     @Inject
     @Named(XarExtensionHandler.TYPE)
     private InstalledExtensionRepository installedXARs;
 
+    /**
+     * A document read from the package and waiting to be merged and saved.
+     */
+    private static class DocumentImport
+    {
+        private final XWikiDocument nextDocument;
+
+        private Future<XWikiDocument> previousDocument;
+
+        DocumentImport(XWikiDocument nextDocument)
+        {
+            this.nextDocument = nextDocument;
+        }
+    }
+
     private XarInstalledExtensionRepository getXarInstalledExtensionRepository()
     {
         return (XarInstalledExtensionRepository) this.installedXARs;
@@ -171,26 +202,44 @@ private XarMergeResult importXARToWiki(String comment, InputStream xarInputStrea
 
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        ExecutorService prefetchExecutor = createPrefetchExecutor(configuration);
+
         String currentWiki = xcontext.getWikiId();
         try {
             xcontext.setWikiId(wikiReference.getName());
 
             this.observation.notify(new XARImportingEvent(), null, xcontext);
 
+            // The documents read from the package and waiting to be merged and saved (in the package order)
+            Deque<DocumentImport> documentImports = new ArrayDeque<>();
+
             for (ArchiveEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
                 if (!entry.isDirectory()) {
                     // Only import what should be imported
                     if (!entry.getName().equals(XarModel.PATH_PACKAGE) && (configuration.getEntriesToImport() == null
                         || configuration.getEntriesToImport().contains(entry.getName()))) {
-                        XarEntryMergeResult entityMergeResult =
-                            importDocumentToWiki(comment, wikiReference, zis, configuration);
-                        if (entityMergeResult != null) {
-                            mergeResult.addMergeResult(entityMergeResult);
+                        DocumentImport documentImport =
+                            prepareDocumentImport(wikiReference, zis, configuration, prefetchExecutor);
+                        if (documentImport != null) {
+                            documentImports.add(documentImport);
+                        }
+
+                        // Make sure to not load too many documents in advance
+                        if (documentImports.size() > configuration.getPrefetchThreads() * 2) {
+                            importDocumentToWiki(comment, documentImports.poll(), configuration, mergeResult);
                         }
                     }
                 }
             }
+
+            while (!documentImports.isEmpty()) {
+                importDocumentToWiki(comment, documentImports.poll(), configuration, mergeResult);
+            }
         } finally {
+            if (prefetchExecutor != null) {
+                prefetchExecutor.shutdownNow();
+            }
+
             this.observation.notify(new XARImportedEvent(), null, xcontext);
 
             xcontext.setWikiId(currentWiki);
@@ -199,12 +248,21 @@ private XarMergeResult importXARToWiki(String comment, InputStream xarInputStrea
         return mergeResult;
     }
 
-    private XarEntryMergeResult importDocumentToWiki(String comment, WikiReference wikiReference,
-        InputStream inputStream, PackageConfiguration configuration)
-        throws XWikiException, FilterException, ComponentLookupException, IOException
+    private ExecutorService createPrefetchExecutor(PackageConfiguration configuration)
     {
-        XWikiContext xcontext = this.xcontextProvider.get();
+        if (configuration.getPrefetchThreads() > 0) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki XAR install prefetch thread %d").daemon(true).build();
+
+            return Executors.newFixedThreadPool(configuration.getPrefetchThreads(), factory);
+        }
 
+        return null;
+    }
+
+    private DocumentImport prepareDocumentImport(WikiReference wikiReference, InputStream inputStream,
+        PackageConfiguration configuration, ExecutorService prefetchExecutor)
+    {
         XWikiDocument nextDocument;
         try {
             nextDocument = getXWikiDocument(inputStream, wikiReference);
@@ -214,17 +272,70 @@ private XarEntryMergeResult importDocumentToWiki(String comment, WikiReference w
             return null;
         }
 
-        DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
-        XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
-        currentDocument.loadAttachmentsContent(xcontext);
-        XWikiDocument previousDocument;
+        DocumentImport documentImport = new DocumentImport(nextDocument);
+
+        if (prefetchExecutor != null) {
+            DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
+            XarExtensionPlan xarExtensionPlan = configuration.getXarExtensionPlan();
+
+            documentImport.previousDocument = prefetchExecutor.submit(() -> {
+                this.executionContextManager.initialize(new ExecutionContext());
+
+                try {
+                    XWikiContext xcontext = this.xcontextProvider.get();
+                    xcontext.setWikiReference(wikiReference);
+
+                    // Load the current document in the document cache (it will be taken from there when its turn comes)
+                    xcontext.getWiki().getDocument(reference, xcontext).loadAttachmentsContent(xcontext);
+
+                    return xarExtensionPlan != null ? xarExtensionPlan.getPreviousXWikiDocument(reference, this)
+                        : null;
+                } finally {
+                    this.execution.removeContext();
+                }
+            });
+        }
+
+        return documentImport;
+    }
+
+    private XWikiDocument getPreviousDocument(DocumentImport documentImport, PackageConfiguration configuration)
+        throws FilterException, ComponentLookupException, IOException
+    {
+        if (documentImport.previousDocument != null) {
+            try {
+                return documentImport.previousDocument.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                this.logger.debug("Failed to prefetch the documents for [{}], trying again",
+                    documentImport.nextDocument.getDocumentReferenceWithLocale(), e);
+            }
+        }
+
         XarExtensionPlan xarExtensionPlan = configuration.getXarExtensionPlan();
         if (xarExtensionPlan != null) {
-            previousDocument = xarExtensionPlan.getPreviousXWikiDocument(reference, this);
-        } else {
-            previousDocument = null;
+            return xarExtensionPlan
+                .getPreviousXWikiDocument(documentImport.nextDocument.getDocumentReferenceWithLocale(), this);
         }
 
+        return null;
+    }
+
+    private void importDocumentToWiki(String comment, DocumentImport documentImport,
+        PackageConfiguration configuration, XarMergeResult mergeResult)
+        throws XWikiException, FilterException, ComponentLookupException, IOException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        XWikiDocument nextDocument = documentImport.nextDocument;
+
+        XWikiDocument previousDocument = getPreviousDocument(documentImport, configuration);
+
+        DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
+        XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
+        currentDocument.loadAttachmentsContent(xcontext);
+
         if (configuration.isVerbose()) {
             this.logger.info(LOG_INSTALLDOCUMENT_BEGIN, "Installing document [{}]",
                 nextDocument.getDocumentReferenceWithLocale());
@@ -239,15 +350,15 @@ private XarEntryMergeResult importDocumentToWiki(String comment, WikiReference w
                     nextDocument.getDocumentReferenceWithLocale());
             }
 
-            return entityMergeResult;
+            if (entityMergeResult != null) {
+                mergeResult.addMergeResult(entityMergeResult);
+            }
         } catch (Exception e) {
             if (configuration.isVerbose()) {
                 this.logger.error(LOG_INSTALLDOCUMENT_FAILURE_END, "Failed to install document [{}]",
                     nextDocument.getDocumentReferenceWithLocale(), e);
             }
         }
-
-        return null;
     }
 
     public void unimportPages(Collection<XarEntry> pages, PackageConfiguration configuration)
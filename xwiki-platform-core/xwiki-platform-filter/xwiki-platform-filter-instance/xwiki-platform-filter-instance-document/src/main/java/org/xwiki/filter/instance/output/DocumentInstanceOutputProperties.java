@@ -76,6 +76,11 @@ public class DocumentInstanceOutputProperties extends InstanceOutputProperties
      */
     private boolean stoppedWhenSaveFail = true;
 
+    /**
+     * @see #getSaveThreads()
+     */
+    private int saveThreads = 1;
+
     /**
      * @return The base reference to use to resolve reference from events
      */
@@ -237,4 +242,26 @@ public void setStoppedWhenSaveFail(boolean stoppedWhenSaveFail)
     {
         this.stoppedWhenSaveFail = stoppedWhenSaveFail;
     }
+
+    /**
+     * @return the number of threads used to save the documents, 1 (the default) means that documents are saved
+     *         sequentially by the thread producing the events
+     * @since 9.7RC1
+     */
+    @PropertyName("Save threads")
+    @PropertyDescription("The number of threads used to save the documents (1 means that documents are saved in the "
+        + "thread reading the input)")
+    public int getSaveThreads()
+    {
+        return this.saveThreads;
+    }
+
+    /**
+     * @param saveThreads the number of threads used to save the documents
+     * @since 9.7RC1
+     */
+    public void setSaveThreads(int saveThreads)
+    {
+        this.saveThreads = saveThreads;
+    }
 }
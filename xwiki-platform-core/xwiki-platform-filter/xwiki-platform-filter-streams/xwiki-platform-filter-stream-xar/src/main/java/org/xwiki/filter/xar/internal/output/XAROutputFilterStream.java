@@ -31,6 +31,7 @@
 import javax.inject.Named;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -102,7 +103,7 @@ public class XAROutputFilterStream extends AbstractBeanOutputFilterStream<XAROut
      * the size of the chunks used when attachments are streamed. As the attachment data is base64 encoded in the
      * process, this size must be a multiple of three to prevent padding between the chunks; see XWIKI-9830
      */
-    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 4095;
+    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 3 * 8192;
 
     @Override
     public void close() throws IOException
@@ -428,7 +429,9 @@ public void onWikiAttachment(String name, InputStream content, Long size, Filter
                 int readSize;
                 do {
                     try {
-                        readSize = content.read(buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
+                        // Make sure to always fill the buffer (a stream can return less than asked before its end)
+                        // since only the last chunk is allowed to produce base64 padding
+                        readSize = IOUtils.read(content, buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
                     } catch (IOException e) {
                         throw new FilterException("Failed to read content stream", e);
                     }
@@ -0,0 +1,105 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.filter.xar;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.output.BeanOutputFilterStreamFactory;
+import org.xwiki.filter.output.OutputFilterStream;
+import org.xwiki.filter.output.OutputFilterStreamFactory;
+import org.xwiki.filter.output.StringWriterOutputTarget;
+import org.xwiki.filter.type.FilterStreamType;
+import org.xwiki.filter.xar.internal.XARFilter;
+import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.mockito.MockitoComponentManagerRule;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validate {@link org.xwiki.filter.xar.internal.output.XAROutputFilterStream}.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class XAROutputFilterStreamTest
+{
+    @Rule
+    public MockitoComponentManagerRule mocker = new MockitoComponentManagerRule();
+
+    /**
+     * A stream returning less bytes than asked, like most network or decompressing streams.
+     */
+    private static class PartialReadInputStream extends FilterInputStream
+    {
+        PartialReadInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return super.read(b, off, Math.min(len, 1000));
+        }
+    }
+
+    @Test
+    public void writeAttachmentFromPartialReadStream() throws Exception
+    {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) i;
+        }
+
+        StringWriterOutputTarget target = new StringWriterOutputTarget();
+
+        XAROutputProperties properties = new XAROutputProperties();
+        properties.setTarget(target);
+
+        BeanOutputFilterStreamFactory<XAROutputProperties> outputFilterStreamFactory =
+            this.mocker.getInstance(OutputFilterStreamFactory.class, FilterStreamType.XWIKI_XAR_CURRENT.serialize());
+        OutputFilterStream outputFilterStream = outputFilterStreamFactory.createOutputFilterStream(properties);
+
+        XARFilter filter = (XARFilter) outputFilterStream;
+        filter.beginWikiSpace("space", FilterEventParameters.EMPTY);
+        filter.beginWikiDocument("page", FilterEventParameters.EMPTY);
+        filter.beginWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+        filter.beginWikiDocumentRevision("1.1", FilterEventParameters.EMPTY);
+        filter.onWikiAttachment("file.bin", new PartialReadInputStream(new ByteArrayInputStream(content)),
+            Long.valueOf(content.length), FilterEventParameters.EMPTY);
+        filter.endWikiDocumentRevision("1.1", FilterEventParameters.EMPTY);
+        filter.endWikiDocumentLocale(Locale.ROOT, FilterEventParameters.EMPTY);
+        filter.endWikiDocument("page", FilterEventParameters.EMPTY);
+        filter.endWikiSpace("space", FilterEventParameters.EMPTY);
+
+        outputFilterStream.close();
+
+        assertTrue(target.getBuffer().toString().contains(Base64.encodeBase64String(content)));
+    }
+}
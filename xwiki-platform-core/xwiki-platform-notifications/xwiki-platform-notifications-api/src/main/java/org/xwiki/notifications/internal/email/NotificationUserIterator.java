@@ -22,6 +22,7 @@
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 
 import javax.inject.Inject;
@@ -57,8 +58,11 @@ public class NotificationUserIterator implements Iterator<DocumentReference>
     private static final String XWQL_QUERY = "select distinct doc.fullName from Document doc, "
             + "doc.object(XWiki.XWikiUsers) objUser, "
             + "doc.object(XWiki.Notifications.Code.NotificationPreferenceClass) objNotifPref "
-            + "where objNotifPref.notificationEnabled <> 0 and objNotifPref.format = 'email' "
-            + "order by doc.fullName";
+            + "where objNotifPref.notificationEnabled <> 0 and objNotifPref.format = 'email' ";
+
+    private static final String XWQL_QUERY_AFTER = "and doc.fullName > :lastUser ";
+
+    private static final String XWQL_QUERY_ORDER = "order by doc.fullName";
 
     @Inject
     private QueryManager queryManager;
@@ -79,7 +83,10 @@ public class NotificationUserIterator implements Iterator<DocumentReference>
 
     private NotificationEmailInterval interval;
 
-    private int offset;
+    /**
+     * The last user returned by the query, the next batch starts after it.
+     */
+    private String lastUser;
 
     private DocumentReference nextUser;
 
@@ -90,6 +97,7 @@ public class NotificationUserIterator implements Iterator<DocumentReference>
     public void initialize(NotificationEmailInterval interval)
     {
         this.interval = interval;
+        this.lastUser = null;
         getNext();
     }
 
@@ -124,11 +132,21 @@ private void getNext()
 
     private void doQuery() throws QueryException
     {
-        Query query = queryManager.createQuery(XWQL_QUERY, Query.XWQL);
+        // Start from the last user of the previous batch instead of using an offset, which makes the database go
+        // through all the previous users again for each batch
+        Query query;
+        if (lastUser == null) {
+            query = queryManager.createQuery(XWQL_QUERY + XWQL_QUERY_ORDER, Query.XWQL);
+        } else {
+            query = queryManager.createQuery(XWQL_QUERY + XWQL_QUERY_AFTER + XWQL_QUERY_ORDER, Query.XWQL);
+            query.bindValue("lastUser", lastUser);
+        }
         query.setLimit(BATCH_SIZE);
-        query.setOffset(offset);
-        users.addAll(query.execute());
-        offset += BATCH_SIZE;
+        List<String> results = query.execute();
+        if (!results.isEmpty()) {
+            lastUser = results.get(results.size() - 1);
+        }
+        users.addAll(results);
     }
 
     private boolean isDefaultInterval(Object interval)
@@ -38,10 +38,12 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -120,13 +122,13 @@ public void test() throws Exception
 
         // Checks
         verify(query1, atLeastOnce()).setLimit(50);
-        verify(query1, atLeastOnce()).setOffset(0);
+        verify(query1, never()).bindValue(eq("lastUser"), any());
 
         verify(query2, atLeastOnce()).setLimit(50);
-        verify(query2, atLeastOnce()).setOffset(50);
+        verify(query2, atLeastOnce()).bindValue("lastUser", "XWiki.UserC");
 
         verify(query3, atLeastOnce()).setLimit(50);
-        verify(query3, atLeastOnce()).setOffset(100);
+        verify(query3, atLeastOnce()).bindValue("lastUser", "XWiki.UserD");
     }
 
 }
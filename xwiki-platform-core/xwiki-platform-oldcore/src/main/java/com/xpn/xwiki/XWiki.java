@@ -38,7 +38,6 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -53,7 +52,6 @@
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipOutputStream;
 
-import javax.annotation.Priority;
 import javax.inject.Provider;
 import javax.mail.Message;
 import javax.mail.Session;
@@ -181,6 +179,7 @@
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
 import com.xpn.xwiki.internal.WikiInitializerJob;
 import com.xpn.xwiki.internal.WikiInitializerRequest;
+import com.xpn.xwiki.internal.WikiWarmUpScheduler;
 import com.xpn.xwiki.internal.XWikiCfgConfigurationSource;
 import com.xpn.xwiki.internal.XWikiConfigDelegate;
 import com.xpn.xwiki.internal.XWikiInitializerJob;
@@ -188,6 +187,7 @@
 import com.xpn.xwiki.internal.event.XObjectPropertyDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectPropertyEvent;
 import com.xpn.xwiki.internal.event.XObjectPropertyUpdatedEvent;
+import com.xpn.xwiki.internal.mandatory.MandatoryDocumentInitializerRunner;
 import com.xpn.xwiki.internal.mandatory.XWikiPreferencesDocumentInitializer;
 import com.xpn.xwiki.internal.render.OldRendering;
 import com.xpn.xwiki.internal.render.groovy.ParseGroovyFromString;
@@ -369,8 +369,6 @@ public class XWiki implements EventListener
      */
     private DocumentReferenceResolver<String> currentMixedDocumentReferenceResolver;
 
-    private DocumentReferenceResolver<EntityReference> currentReferenceDocumentReferenceResolver;
-
     private EntityReferenceResolver<String> currentMixedEntityReferenceResolver;
 
     private EntityReferenceResolver<String> relativeEntityReferenceResolver;
@@ -412,6 +410,10 @@ public class XWiki implements EventListener
 
     private ContextualLocalizationManager localization;
 
+    private MandatoryDocumentInitializerRunner mandatoryDocumentInitializerRunner;
+
+    private WikiWarmUpScheduler wikiWarmUpScheduler;
+
     private Provider<OldRendering> oldRenderingProvider;
 
     private ParseGroovyFromString parseGroovyFromString;
@@ -539,6 +541,24 @@ private ContextualLocalizationManager getLocalization()
         return this.localization;
     }
 
+    private WikiWarmUpScheduler getWikiWarmUpScheduler()
+    {
+        if (this.wikiWarmUpScheduler == null) {
+            this.wikiWarmUpScheduler = Utils.getComponent(WikiWarmUpScheduler.class);
+        }
+
+        return this.wikiWarmUpScheduler;
+    }
+
+    private MandatoryDocumentInitializerRunner getMandatoryDocumentInitializerRunner()
+    {
+        if (this.mandatoryDocumentInitializerRunner == null) {
+            this.mandatoryDocumentInitializerRunner = Utils.getComponent(MandatoryDocumentInitializerRunner.class);
+        }
+
+        return this.mandatoryDocumentInitializerRunner;
+    }
+
     private OldRendering getOldRendering()
     {
         if (this.oldRenderingProvider == null) {
@@ -614,16 +634,6 @@ private DocumentReferenceResolver<String> getCurrentMixedDocumentReferenceResolv
         return this.currentMixedDocumentReferenceResolver;
     }
 
-    private DocumentReferenceResolver<EntityReference> getCurrentReferenceDocumentReferenceResolver()
-    {
-        if (this.currentReferenceDocumentReferenceResolver == null) {
-            this.currentReferenceDocumentReferenceResolver =
-                Utils.getComponent(DocumentReferenceResolver.TYPE_REFERENCE, "current");
-        }
-
-        return this.currentReferenceDocumentReferenceResolver;
-    }
-
     private EntityReferenceResolver<String> getCurrentMixedEntityReferenceResolver()
     {
         if (this.currentMixedEntityReferenceResolver == null) {
@@ -826,6 +836,9 @@ public static XWiki getXWiki(boolean wait, XWikiContext xcontext) throws XWikiEx
                 String.format("The wiki [%s] does not exist", wikiId));
         }
 
+        // Used to warm up the most visited wikis first at next restart
+        xwiki.getWikiWarmUpScheduler().recordAccess(wikiId);
+
         // Initialize wiki
 
         xcontext.setWikiId(wikiId);
@@ -848,6 +861,24 @@ public Job getWikiInitializerJob(String wikiId)
         return this.initializedWikis.get(wikiId);
     }
 
+    /**
+     * @param wikiId the identifier of the wiki
+     * @return true if the passed wiki is fully initialized, false if it was not initialized yet, is still initializing
+     *         or failed to initialize
+     * @since 9.7RC1
+     */
+    public boolean isWikiReady(String wikiId)
+    {
+        if (getXWikiContext().isMainWiki(wikiId)) {
+            return true;
+        }
+
+        Job wikiJob = this.initializedWikis.get(wikiId);
+
+        return wikiJob != null && wikiJob.getStatus().getState() == State.FINISHED
+            && wikiJob.getStatus().getError() == null;
+    }
+
     /**
      * Make sure the wiki is initializing or wait for it.
      * 
@@ -1235,32 +1266,7 @@ public void initXWiki(XWikiConfig config, XWikiContext context, XWikiEngineConte
     public void initializeMandatoryDocuments(XWikiContext context)
     {
         if (context.get("initdone") == null) {
-            @SuppressWarnings("deprecation")
-            List<MandatoryDocumentInitializer> initializers =
-                Utils.getComponentList(MandatoryDocumentInitializer.class);
-
-            // Sort the initializers based on priority. Lower priority values are first.
-            Collections.sort(initializers, new Comparator<MandatoryDocumentInitializer>()
-            {
-                @Override
-                public int compare(MandatoryDocumentInitializer left, MandatoryDocumentInitializer right)
-                {
-                    Priority leftPriority = left.getClass().getAnnotation(Priority.class);
-                    int leftPriorityValue =
-                        leftPriority != null ? leftPriority.value() : MandatoryDocumentInitializer.DEFAULT_PRIORITY;
-
-                    Priority rightPriority = right.getClass().getAnnotation(Priority.class);
-                    int rightPriorityValue =
-                        rightPriority != null ? rightPriority.value() : MandatoryDocumentInitializer.DEFAULT_PRIORITY;
-
-                    // Compare the two.
-                    return leftPriorityValue - rightPriorityValue;
-                }
-            });
-
-            for (MandatoryDocumentInitializer initializer : initializers) {
-                initializeMandatoryDocument(initializer, context);
-            }
+            getMandatoryDocumentInitializerRunner().initializeMandatoryDocuments(context);
         }
     }
 
@@ -1272,31 +1278,12 @@ private void initializeMandatoryDocument(String wiki, MandatoryDocumentInitializ
         try {
             context.setWikiId(wiki);
 
-            initializeMandatoryDocument(initializer, context);
+            getMandatoryDocumentInitializerRunner().initializeMandatoryDocument(initializer, context);
         } finally {
             context.setWikiId(currentWiki);
         }
     }
 
-    private void initializeMandatoryDocument(MandatoryDocumentInitializer initializer, XWikiContext context)
-    {
-        try {
-            DocumentReference documentReference =
-                getCurrentReferenceDocumentReferenceResolver().resolve(initializer.getDocumentReference());
-
-            if (documentReference.getWikiReference().getName().equals(context.getWikiId())) {
-                XWikiDocument document = context.getWiki().getDocument(documentReference, context);
-
-                if (initializer.updateDocument(document)) {
-                    saveDocument(document,
-                        localizePlainOrKey("core.model.xclass.mandatoryUpdateProperty.versionSummary"), context);
-                }
-            }
-        } catch (XWikiException e) {
-            LOGGER.error("Failed to initialize mandatory document", e);
-        }
-    }
-
     public XWikiStoreInterface getNotCacheStore()
     {
         XWikiStoreInterface store = getStore();
@@ -1386,6 +1386,19 @@ public boolean hasSubWikis()
         return getWikiNames().size() > 1;
     }
 
+    /**
+     * API to check if a wiki is fully initialized. Sub wikis are initialized the first time they are accessed, or in
+     * the background after startup when the warm-up is enabled (see xwiki.virtual.warmup.threads in xwiki.cfg).
+     *
+     * @param wikiId the identifier of the wiki
+     * @return true if the wiki is ready to be used, false if it's not initialized yet
+     * @since 9.7RC1
+     */
+    public boolean isWikiReady(String wikiId)
+    {
+        return this.xwiki.isWikiReady(wikiId);
+    }
+
     /**
      * API to check is wiki is multi-lingual
      *
@@ -22,6 +22,7 @@
 import java.io.ByteArrayInputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.Date;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -56,6 +57,12 @@ public class XWikiAttachmentArchive implements Cloneable
     /** The underlying JRCS archive. */
     private Archive archive;
 
+    /**
+     * The serialized JRCS archive as it was loaded from the store, only parsed when the history is actually needed
+     * since exporting it does not require to build the JRCS archive.
+     */
+    private byte[] archiveData;
+
     /**
      * @return the id of the attachment which this archive is associated with.
      */
@@ -86,7 +93,12 @@ public Object clone()
         }
 
         attachmentarchive.setAttachment(getAttachment());
-        attachmentarchive.setRCSArchive(getRCSArchive());
+        if (this.archiveData != null) {
+            // The serialized archive is never modified so it can be shared
+            attachmentarchive.archiveData = this.archiveData;
+        } else {
+            attachmentarchive.setRCSArchive(getRCSArchive());
+        }
 
         return attachmentarchive;
     }
@@ -98,6 +110,12 @@ public Object clone()
     @Deprecated
     public Archive getRCSArchive()
     {
+        try {
+            parseArchiveData();
+        } catch (XWikiException e) {
+            LOGGER.error("Failed to parse the archive of attachment [{}]", getAttachment().getFilename(), e);
+        }
+
         return this.archive;
     }
 
@@ -109,6 +127,29 @@ public Archive getRCSArchive()
     public void setRCSArchive(final Archive archive)
     {
         this.archive = archive;
+        this.archiveData = null;
+    }
+
+    /**
+     * Parse the archive loaded from the store, if it was not already.
+     *
+     * @throws XWikiException if the loaded archive is malformed
+     */
+    private void parseArchiveData() throws XWikiException
+    {
+        if (this.archiveData != null) {
+            byte[] data = this.archiveData;
+            // Don't try again if the archive is malformed
+            this.archiveData = null;
+
+            try (ByteArrayInputStream is = new ByteArrayInputStream(data)) {
+                this.archive = new Archive(getAttachment().getFilename(), is);
+            } catch (Exception e) {
+                Object[] args = {getAttachment().getFilename()};
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_ATTACHMENT_ARCHIVEFORMAT, GENERIC_EXCEPTION_MESSAGE, e, args);
+            }
+        }
     }
 
     /**
@@ -120,7 +161,10 @@ public void setRCSArchive(final Archive archive)
      */
     public String getArchiveAsString() throws XWikiException
     {
-        if (this.archive == null) {
+        if (this.archiveData != null) {
+            // JRCS reads and writes the archives with the default charset
+            return new String(this.archiveData, Charset.defaultCharset());
+        } else if (this.archive == null) {
             return "";
         } else {
             return this.archive.toString(Archive.RCS_NEWLINE);
@@ -137,7 +181,7 @@ public String getArchiveAsString() throws XWikiException
      */
     public String getArchiveAsString(final XWikiContext context) throws XWikiException
     {
-        if (this.archive == null) {
+        if (this.archive == null && this.archiveData == null) {
             if (context != null) {
                 updateArchive(context);
             }
@@ -155,7 +199,9 @@ public String getArchiveAsString(final XWikiContext context) throws XWikiExcepti
      */
     public byte[] getArchive() throws XWikiException
     {
-        if (this.archive == null) {
+        if (this.archiveData != null) {
+            return this.archiveData;
+        } else if (this.archive == null) {
             return new byte[0];
         } else {
             return this.archive.toByteArray();
@@ -171,7 +217,7 @@ public byte[] getArchive() throws XWikiException
      */
     public byte[] getArchive(final XWikiContext context) throws XWikiException
     {
-        if (this.archive == null) {
+        if (this.archive == null && this.archiveData == null) {
             if (context != null) {
                 updateArchive(context);
             }
@@ -181,24 +227,16 @@ public byte[] getArchive(final XWikiContext context) throws XWikiException
     }
 
     /**
-     * Set the archive from a byte array representation of a JRCS archive.
+     * Set the archive from a byte array representation of a JRCS archive. The data is only parsed when the history is
+     * needed, {@link #getArchive()} and {@link #getArchiveAsString()} return it as is until then.
      *
      * @param data a byte array representation of a JRCS archive.
      * @throws XWikiException if anything goes wrong.
      */
     public void setArchive(final byte[] data) throws XWikiException
     {
-        if (ArrayUtils.isEmpty(data)) {
-            this.archive = null;
-        } else {
-            try (ByteArrayInputStream is = new ByteArrayInputStream(data)) {
-                this.archive = new Archive(getAttachment().getFilename(), is);
-            } catch (Exception e) {
-                Object[] args = {getAttachment().getFilename()};
-                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                    XWikiException.ERROR_XWIKI_STORE_ATTACHMENT_ARCHIVEFORMAT, GENERIC_EXCEPTION_MESSAGE, e, args);
-            }
-        }
+        this.archive = null;
+        this.archiveData = ArrayUtils.isEmpty(data) ? null : data;
     }
 
     /**
@@ -210,6 +248,8 @@ public void setArchive(final byte[] data) throws XWikiException
      */
     public void setArchive(final String data) throws XWikiException
     {
+        this.archiveData = null;
+
         if (StringUtils.isEmpty(data)) {
             this.archive = null;
         } else {
@@ -246,6 +286,8 @@ public void updateArchive(final byte[] data, final XWikiContext context) throws
      */
     public void updateArchive(final XWikiContext context) throws XWikiException
     {
+        parseArchiveData();
+
         try {
             this.attachment.incrementVersion();
             this.attachment.setDate(new Date());
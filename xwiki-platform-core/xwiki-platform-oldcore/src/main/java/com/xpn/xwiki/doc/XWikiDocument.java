@@ -76,6 +76,8 @@
 import org.suigeneris.jrcs.rcs.Version;
 import org.suigeneris.jrcs.util.ToString;
 import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContextException;
@@ -165,6 +167,7 @@
 import com.xpn.xwiki.internal.render.OldRendering;
 import com.xpn.xwiki.internal.xml.DOMXMLWriter;
 import com.xpn.xwiki.internal.xml.XMLWriter;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.objects.BaseCollection;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseObjectReference;
@@ -538,6 +541,11 @@ public void onUpdate()
      */
     private DocumentDisplayer documentDisplayer;
 
+    /**
+     * Used to measure the time spent rendering this document, looked up the first time the document is displayed.
+     */
+    private RequestProfiler requestProfiler;
+
     /**
      * @see #getDefaultEntityReferenceSerializer()
      */
@@ -1103,6 +1111,25 @@ private DocumentDisplayer getDocumentDisplayer()
         return this.documentDisplayer;
     }
 
+    /**
+     * @return the request profiler or {@code null} if none is available (e.g. in some unit tests)
+     */
+    private RequestProfiler getRequestProfiler()
+    {
+        if (this.requestProfiler == null) {
+            ComponentManager componentManager = Utils.getContextComponentManager();
+            if (componentManager != null && componentManager.hasComponent(RequestProfiler.class)) {
+                try {
+                    this.requestProfiler = componentManager.getInstance(RequestProfiler.class);
+                } catch (ComponentLookupException e) {
+                    LOGGER.debug("Failed to lookup the request profiler", e);
+                }
+            }
+        }
+
+        return this.requestProfiler;
+    }
+
     private Syntax getOutputSyntax()
     {
         return getRenderingContext().getTargetSyntax();
@@ -1131,6 +1158,11 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
         getProgress().startStep(this, "document.progress.render", "Render document [{}] in syntax [{}]",
             getDocumentReference(), targetSyntax);
 
+        RequestProfiler profiler = getRequestProfiler();
+        if (profiler != null) {
+            profiler.startTimer(RequestProfiler.RENDERING);
+        }
+
         try {
             getProgress().pushLevelProgress(3, getDocumentReference());
 
@@ -1172,6 +1204,10 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
 
             return renderedContent;
         } finally {
+            if (profiler != null) {
+                profiler.endTimer(RequestProfiler.RENDERING);
+            }
+
             getProgress().popLevelProgress(getDocumentReference());
             getProgress().endStep(this);
         }
@@ -3947,6 +3983,12 @@ private void clone(XWikiDocument document)
         this.originalDocument = document.originalDocument;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The objects, the class and the attachments metadata of the clone are deep copies. Only the state derived from the
+     * content and the reference (the parsed content, the keys and the parent reference) is shared with this document.
+     */
     @Override
     public XWikiDocument clone()
     {
@@ -4021,6 +4063,10 @@ private XWikiDocument cloneInternal(DocumentReference newDocumentReference, bool
             doc.elements = this.elements;
 
             doc.originalDocument = this.originalDocument;
+
+            if (keepsIdentity) {
+                shareImmutableState(doc);
+            }
         } catch (Exception e) {
             // This should not happen
             LOGGER.error("Exception while cloning document", e);
@@ -4028,6 +4074,26 @@ private XWikiDocument cloneInternal(DocumentReference newDocumentReference, bool
         return doc;
     }
 
+    /**
+     * Share with a clone of this document the state which is derived from fields the clone has the same values for and
+     * which is never modified, only replaced, so that the clone does not have to compute it again.
+     * <p>
+     * The objects, the class and the attachments are not part of it: they are mutable and commonly modified in place,
+     * including on documents held by the document cache.
+     *
+     * @param clone the clone of this document, with the same reference, locale, syntax and content
+     */
+    private void shareImmutableState(XWikiDocument clone)
+    {
+        // getXDOM() only exposes copies of the parsed content so it's safe to share the parsed content instead of
+        // parsing it again for each clone
+        clone.xdomCache = this.xdomCache;
+
+        clone.keyCache = this.keyCache;
+        clone.localKeyCache = this.localKeyCache;
+        clone.parentReferenceCache = this.parentReferenceCache;
+    }
+
     /**
      * Clone attachments from another document. This implementation expects that this document is the same as the other
      * document and thus attachments will be saved in the database in the same place as the ones which they are cloning.
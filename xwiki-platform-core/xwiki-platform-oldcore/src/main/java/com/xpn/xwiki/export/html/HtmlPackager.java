@@ -22,21 +22,34 @@
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.inject.Provider;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.filefilter.NotFileFilter;
 import org.apache.commons.io.filefilter.SuffixFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.util.DefaultParameterizedType;
@@ -45,6 +58,7 @@
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.environment.Environment;
+import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
@@ -110,9 +124,14 @@
     private String description = "";
 
     /**
-     * The references to the pages to export.
+     * The references to the pages to export, in the order they are added to the package.
      */
-    private Set<DocumentReference> pageReferences = new HashSet<>();
+    private Set<DocumentReference> pageReferences = new LinkedHashSet<>();
+
+    /**
+     * The number of threads used to render the pages, 0 to use the configuration.
+     */
+    private int threads;
 
     /**
      * Used to get the temporary directory.
@@ -122,6 +141,148 @@
     private EntityReferenceSerializer<String> pathEntityReferenceSerializer =
         Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "path");
 
+    private Execution execution = Utils.getComponent(Execution.class);
+
+    private ExecutionContextManager ecm = Utils.getComponent(ExecutionContextManager.class);
+
+    private JobProgressManager progressManager = Utils.getComponent(JobProgressManager.class);
+
+    private Provider<FilesystemExportContext> exportContextProvider =
+        Utils.getComponent(new DefaultParameterizedType(null, Provider.class, FilesystemExportContext.class));
+
+    /**
+     * A document rendered in a temporary file.
+     */
+    private static final class RenderedPage
+    {
+        private final String zipName;
+
+        private final File file;
+
+        private RenderedPage(String zipName, File file)
+        {
+            this.zipName = zipName;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Renders documents in the thread which started it, with its own URL factory and export context.
+     */
+    private final class RenderWorker
+    {
+        private final List<DocumentReference> references;
+
+        private final File exportDir;
+
+        private final File pagesDir;
+
+        private final XWikiContext context;
+
+        private final ExportURLFactory urlf = new ExportURLFactory();
+
+        private boolean started;
+
+        private RenderWorker(List<DocumentReference> references, File exportDir, File pagesDir, XWikiContext context)
+        {
+            this.references = references;
+            this.exportDir = exportDir;
+            this.pagesDir = pagesDir;
+            this.context = context;
+        }
+
+        private void start(ExecutionContext parentContext) throws XWikiException
+        {
+            ExecutionContext executionContext;
+            try {
+                executionContext = ecm.clone(parentContext);
+            } catch (ExecutionContextException e) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
+                    "Failed to initialize Execution Context", e);
+            }
+            execution.pushContext(executionContext);
+            this.started = true;
+
+            // The parent context doesn't contain any FilesystemExportContext so a new one is put in the context of the
+            // worker, which is then cloned for each document rendered by this worker.
+            FilesystemExportContext exportContext = exportContextProvider.get();
+
+            new File(this.exportDir, "attachment").mkdirs();
+            this.urlf.init(this.references, this.exportDir, exportContext, this.context);
+        }
+
+        private void stop()
+        {
+            if (this.started) {
+                execution.popContext();
+                this.started = false;
+            }
+        }
+
+        private RenderedPage render(int index) throws XWikiException, IOException
+        {
+            File file = new File(this.pagesDir, index + ".html");
+
+            String zipName;
+            try (OutputStream out = new FileOutputStream(file)) {
+                // Isolate and initialize Contexts
+                XWikiContext renderContext = initializeContexts(ecm, execution, this.urlf, this.context);
+
+                try {
+                    zipName =
+                        renderDocument(this.references.get(index), out, this.urlf.getFilesystemExportContext(),
+                            renderContext);
+                } finally {
+                    // Clean up context
+                    execution.popContext();
+                }
+            } catch (ExecutionContextException e) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
+                    "Failed to initialize Execution Context", e);
+            }
+
+            if (zipName == null) {
+                file.delete();
+
+                return null;
+            }
+
+            return new RenderedPage(zipName, file);
+        }
+
+        private void run(ExecutionContext parentContext, AtomicInteger nextPage,
+            List<CompletableFuture<RenderedPage>> pages)
+        {
+            Exception failure = null;
+            try {
+                start(parentContext);
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            try {
+                for (int index = nextPage.getAndIncrement(); index < pages.size(); index = nextPage.getAndIncrement()) {
+                    CompletableFuture<RenderedPage> page = pages.get(index);
+                    try {
+                        if (failure != null) {
+                            page.completeExceptionally(failure);
+                        } else {
+                            page.complete(render(index));
+                        }
+                    } catch (Exception e) {
+                        page.completeExceptionally(e);
+                    } finally {
+                        if (!page.isDone()) {
+                            page.completeExceptionally(new IOException("Unexpected error while rendering a page"));
+                        }
+                    }
+                }
+            } finally {
+                stop();
+            }
+        }
+    }
+
     /**
      * Modify the name of the package for which packager append ".zip".
      *
@@ -216,23 +377,50 @@ private DocumentReference resolvePage(String pageName)
     }
 
     /**
-     * Add rendered document to ZIP stream.
+     * @param threads the number of threads used to render the pages, 0 to use the
+     *            {@code xwiki.export.html.threads} configuration
+     * @since 9.7RC1
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * @param context the XWiki context
+     * @return the number of threads used to render the pages
+     * @since 9.7RC1
+     */
+    public int getThreads(XWikiContext context)
+    {
+        if (this.threads > 0) {
+            return this.threads;
+        }
+
+        long configured = context.getWiki().ParamAsLong("xwiki.export.html.threads", 0);
+
+        return configured > 0 ? (int) configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Render a document.
      *
      * @param pageReference the reference of the page to render.
-     * @param zos the ZIP output stream.
+     * @param out where to write the rendered document.
      * @param exportContext the context object for the export
      * @param context the clean XWiki context for rendering
+     * @return the location of the page inside the zip or {@code null} if the document does not exist
      * @throws XWikiException error when rendering document.
      * @throws IOException error when rendering document.
      */
-    private void renderDocument(DocumentReference pageReference, ZipOutputStream zos,
+    private String renderDocument(DocumentReference pageReference, OutputStream out,
         FilesystemExportContext exportContext, XWikiContext context) throws XWikiException, IOException
     {
         XWikiDocument doc = context.getWiki().getDocument(pageReference, context);
 
         if (doc.isNew()) {
             // Skip non-existing documents.
-            return;
+            return null;
         }
 
         // Compute the location of the page inside the zip. We put pages inside directories for scalability as
@@ -244,9 +432,6 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
         }
         zipname += ".html";
 
-        ZipEntry zipentry = new ZipEntry(zipname);
-        zos.putNextEntry(zipentry);
-
         try {
             context.setWikiId(doc.getDocumentReference().getWikiReference().getName());
             context.setDoc(doc);
@@ -261,11 +446,12 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
 
             String content = evaluateDocumentContent(context);
 
-            zos.write(content.getBytes(context.getWiki().getEncoding()));
-            zos.closeEntry();
+            out.write(content.getBytes(context.getWiki().getEncoding()));
         } catch (Exception e) {
             throw new IOException(String.format("Failed to render document [%s] for HTML export", pageReference), e);
         }
+
+        return zipname;
     }
 
     private int computeDocumentDepth(EntityReference reference)
@@ -295,34 +481,123 @@ private String evaluateDocumentContent(XWikiContext context) throws IOException
     }
 
     /**
-     * Init provided {@link ExportURLFactory} and add rendered documents to ZIP stream.
+     * Render the documents to export and add them to the ZIP stream, in the order they were added to the packager.
+     * <p>
+     * The documents are rendered by {@link #getThreads(XWikiContext) several threads}. Each thread has its own
+     * {@link ExportURLFactory}, {@link FilesystemExportContext} and export directory since they are not thread safe,
+     * and renders each document in a clean Execution Context and XWiki Context. The rendered documents are written to
+     * temporary files which are added to the ZIP stream by the calling thread, which is also the one reporting the
+     * progress.
      *
      * @param zos the ZIP output stream.
-     * @param urlf the {@link com.xpn.xwiki.web.XWikiURLFactory} used to render the documents.
+     * @param tempdir the directory where to put the files generated during the export
      * @param context the XWiki context.
+     * @return the workers which rendered the documents, to collect the files they generated
      * @throws XWikiException error when render documents.
      * @throws IOException error when render documents.
      */
-    private void renderDocuments(ZipOutputStream zos, ExportURLFactory urlf, XWikiContext context)
+    private List<RenderWorker> renderDocuments(ZipOutputStream zos, File tempdir, XWikiContext context)
         throws XWikiException, IOException
     {
-        ExecutionContextManager ecm = Utils.getComponent(ExecutionContextManager.class);
-        Execution execution = Utils.getComponent(Execution.class);
+        List<DocumentReference> references = new ArrayList<>(this.pageReferences);
+        int threadCount = Math.max(1, Math.min(getThreads(context), references.size()));
 
-        for (DocumentReference pageReference : this.pageReferences) {
-            try {
-                // Isolate and initialize Contexts
-                XWikiContext renderContext = initializeContexts(ecm, execution, urlf, context);
+        File pagesDir = new File(tempdir, "pages");
+        pagesDir.mkdirs();
 
-                renderDocument(pageReference, zos, urlf.getFilesystemExportContext(), renderContext);
-            } catch (ExecutionContextException e) {
-                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
-                    "Failed to initialize Execution Context", e);
-            } finally {
-                // Clean up context
-                execution.popContext();
+        List<RenderWorker> workers = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; ++i) {
+            workers.add(new RenderWorker(references, new File(tempdir, String.valueOf(i)), pagesDir, context));
+        }
+
+        ExecutionContext parentContext = this.execution.getContext();
+        AtomicInteger nextPage = new AtomicInteger();
+        List<CompletableFuture<RenderedPage>> pages = new ArrayList<>(references.size());
+        ExecutorService executor = null;
+
+        if (threadCount > 1) {
+            for (int i = 0; i < references.size(); ++i) {
+                pages.add(new CompletableFuture<RenderedPage>());
+            }
+
+            executor = Executors.newFixedThreadPool(threadCount,
+                new BasicThreadFactory.Builder().namingPattern("XWiki HTML export thread %d").daemon(true).build());
+            for (RenderWorker worker : workers) {
+                executor.execute(() -> worker.run(parentContext, nextPage, pages));
             }
         }
+
+        this.progressManager.pushLevelProgress(references.size(), this);
+
+        try {
+            if (executor == null) {
+                workers.get(0).start(parentContext);
+            }
+
+            for (int i = 0; i < references.size(); ++i) {
+                this.progressManager.startStep(this);
+
+                RenderedPage page = executor != null ? getRenderedPage(pages.get(i)) : workers.get(0).render(i);
+                if (page != null) {
+                    addPageToZip(page, zos);
+                }
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+
+            if (executor != null) {
+                // Make sure the workers don't start rendering new pages if something went wrong
+                nextPage.set(references.size());
+                executor.shutdown();
+                awaitTermination(executor);
+            } else {
+                workers.get(0).stop();
+            }
+        }
+
+        return workers;
+    }
+
+    private RenderedPage getRenderedPage(CompletableFuture<RenderedPage> page) throws XWikiException, IOException
+    {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for a page to be rendered", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Failed to render a page", e.getCause());
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor)
+    {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addPageToZip(RenderedPage page, ZipOutputStream zos) throws IOException
+    {
+        try {
+            zos.putNextEntry(new ZipEntry(page.zipName));
+            FileUtils.copyFile(page.file, zos);
+            zos.closeEntry();
+        } finally {
+            page.file.delete();
+        }
     }
 
     private XWikiContext initializeContexts(ExecutionContextManager ecm, Execution execution, ExportURLFactory urlf,
@@ -367,47 +642,63 @@ public void export(XWikiContext context) throws IOException, XWikiException
             "attachment; filename=" + Util.encodeURI(this.name, context) + ".zip");
         context.setFinished(true);
 
-        ZipOutputStream zos = new ZipOutputStream(context.getResponse().getOutputStream());
+        export(context.getResponse().getOutputStream(), context);
+    }
+
+    /**
+     * Apply export and write the ZIP package to the passed stream.
+     *
+     * @param out where to write the ZIP package
+     * @param context the XWiki context used to render pages.
+     * @throws IOException error when creating the package.
+     * @throws XWikiException error when render the pages.
+     * @since 9.7RC1
+     */
+    public void export(OutputStream out, XWikiContext context) throws IOException, XWikiException
+    {
+        ZipOutputStream zos = new ZipOutputStream(out);
 
         File dir = this.environment.getTemporaryDirectory();
         File tempdir = new File(dir, RandomStringUtils.randomAlphanumeric(8));
         tempdir.mkdirs();
-        File attachmentDir = new File(tempdir, "attachment");
-        attachmentDir.mkdirs();
-
-        // Create and initialize a custom URL factory
-        ExportURLFactory urlf = new ExportURLFactory();
-        Provider<FilesystemExportContext> exportContextProvider = Utils.getComponent(
-            new DefaultParameterizedType(null, Provider.class, FilesystemExportContext.class));
-        // Note that the following line will set a FilesystemExportContext instance in the Execution Context
-        // and this Execution Context will be cloned for each document rendered below.
-        // TODO: to be cleaner we should set the FilesystemExportContext in the EC used to render each document.
-        // However we also need to initialize the ExportURLFactory.
-        FilesystemExportContext exportContext = exportContextProvider.get();
-        urlf.init(this.pageReferences, tempdir, exportContext, context);
-
-        // Render pages to export
-        renderDocuments(zos, urlf, context);
-
-        // Add required skins to ZIP file
-        for (String skinName : urlf.getFilesystemExportContext().getNeededSkins()) {
-            addSkinToZip(skinName, zos, urlf.getFilesystemExportContext().getExportedSkinFiles(), context);
-        }
 
-        // Copy generated files in the ZIP file.
-        addDirToZip(tempdir, TrueFileFilter.TRUE, zos, "", null);
+        try {
+            // Render pages to export
+            List<RenderWorker> workers = renderDocuments(zos, tempdir, context);
+
+            // Merge what was needed by the pages rendered by each worker
+            Set<String> neededSkins = new LinkedHashSet<>();
+            Set<String> exportedSkinFiles = new HashSet<>();
+            for (RenderWorker worker : workers) {
+                neededSkins.addAll(worker.urlf.getFilesystemExportContext().getNeededSkins());
+                exportedSkinFiles.addAll(worker.urlf.getFilesystemExportContext().getExportedSkinFiles());
+            }
 
-        // Generate an index page
-        generateIndexPage(zos, context);
+            // Files generated by several workers (skin files, attachments) must be added only once
+            Set<String> zipEntries = new HashSet<>();
 
-        zos.setComment(this.description);
+            // Add required skins to ZIP file
+            for (String skinName : neededSkins) {
+                addSkinToZip(skinName, zos, exportedSkinFiles, zipEntries, context);
+            }
 
-        // Finish ZIP file
-        zos.finish();
-        zos.flush();
+            // Copy generated files in the ZIP file.
+            for (RenderWorker worker : workers) {
+                addDirToZip(worker.exportDir, TrueFileFilter.TRUE, zos, "", null, zipEntries);
+            }
 
-        // Delete temporary directory
-        deleteDirectory(tempdir);
+            // Generate an index page
+            generateIndexPage(zos, context);
+
+            zos.setComment(this.description);
+
+            // Finish ZIP file
+            zos.finish();
+            zos.flush();
+        } finally {
+            // Delete temporary directory
+            deleteDirectory(tempdir);
+        }
     }
 
     private void generateIndexPage(ZipOutputStream zos, XWikiContext context) throws IOException
@@ -479,18 +770,21 @@ private static void deleteDirectory(File directory)
      *
      * @param skinName the name of the skin.
      * @param out the ZIP output stream where to put the skin.
+     * @param exportedSkinFiles the skin files which are rendered and added from the export directory
+     * @param zipEntries the entries already added to the package, updated with the added files
      * @param context the XWiki context.
      * @throws IOException error when adding the skin to package.
      */
     private static void addSkinToZip(String skinName, ZipOutputStream out, Collection<String> exportedSkinFiles,
-        XWikiContext context) throws IOException
+        Set<String> zipEntries, XWikiContext context) throws IOException
     {
         File file = new File(context.getWiki().getEngineContext().getRealPath("/skins/" + skinName));
 
         // Don't include vm and LESS files by default
         FileFilter filter = new NotFileFilter(new SuffixFileFilter(new String[] { ".vm", ".less", "skin.properties" }));
 
-        addDirToZip(file, filter, out, "skins" + ZIPPATH_SEPARATOR + skinName + ZIPPATH_SEPARATOR, exportedSkinFiles);
+        addDirToZip(file, filter, out, "skins" + ZIPPATH_SEPARATOR + skinName + ZIPPATH_SEPARATOR, exportedSkinFiles,
+            zipEntries);
     }
 
     /**
@@ -500,10 +794,12 @@ private static void addSkinToZip(String skinName, ZipOutputStream out, Collectio
      * @param filter the files to include or exclude from the copy
      * @param out the ZIP output stream where to put the skin.
      * @param basePath the path where to put the directory in the package.
+     * @param exportedSkinFiles the files to skip, because they are rendered and added from the export directory
+     * @param zipEntries the entries already added to the package, updated with the added files
      * @throws IOException error when adding the directory to package.
      */
     private static void addDirToZip(File directory, FileFilter filter, ZipOutputStream out, String basePath,
-        Collection<String> exportedSkinFiles) throws IOException
+        Collection<String> exportedSkinFiles, Set<String> zipEntries) throws IOException
     {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Adding dir [" + directory.getPath() + "] to the Zip file being generated.");
@@ -521,11 +817,12 @@ private static void addDirToZip(File directory, FileFilter filter, ZipOutputStre
 
         for (File file : files) {
             if (file.isDirectory()) {
-                addDirToZip(file, filter, out, basePath + file.getName() + ZIPPATH_SEPARATOR, exportedSkinFiles);
+                addDirToZip(file, filter, out, basePath + file.getName() + ZIPPATH_SEPARATOR, exportedSkinFiles,
+                    zipEntries);
             } else {
                 String path = basePath + file.getName();
 
-                if (exportedSkinFiles != null && exportedSkinFiles.contains(path)) {
+                if ((exportedSkinFiles != null && exportedSkinFiles.contains(path)) || !zipEntries.add(path)) {
                     continue;
                 }
 
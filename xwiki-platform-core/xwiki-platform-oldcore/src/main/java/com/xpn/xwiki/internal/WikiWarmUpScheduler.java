@@ -0,0 +1,306 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.environment.Environment;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Initialize the sub wikis in the background once XWiki is ready, so that the first visitors of each wiki don't have
+ * to wait for its initialization.
+ * <p>
+ * The number of wikis initialized at the same time is controlled by {@code xwiki.virtual.warmup.threads} (xwiki.cfg), 0
+ * disabling the warm-up. The most visited wikis are initialized first: the accesses to each wiki are counted and
+ * stored in the permanent directory when XWiki is stopped, the previous counts being halved at each restart so that
+ * the recent traffic matters more. A request to a wiki which is being warmed up waits for the same initialization job
+ * (see {@link XWiki#initializeWiki(String, boolean, XWikiContext)}).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = WikiWarmUpScheduler.class)
+@Singleton
+public class WikiWarmUpScheduler implements Initializable, Disposable
+{
+    private static final String SCORES_FILE = "wikiwarmup.properties";
+
+    private static final double DECAY = 0.5;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private int threads;
+
+    private File scoresFile;
+
+    /**
+     * The decayed scores of the previous executions.
+     */
+    private final Map<String, Double> previousScores = new HashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> accesses = new ConcurrentHashMap<>();
+
+    private final Set<String> pendingWikis = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    @Override
+    public void initialize()
+    {
+        this.threads = this.configuration.getProperty("xwiki.virtual.warmup.threads", 0);
+        this.scoresFile = new File(this.environment.getPermanentDirectory(), SCORES_FILE);
+
+        if (isEnabled()) {
+            loadScores();
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        synchronized (this) {
+            if (this.executor != null) {
+                this.executor.shutdownNow();
+            }
+        }
+
+        if (isEnabled()) {
+            storeScores();
+        }
+    }
+
+    /**
+     * @return true if the wikis are initialized in the background
+     */
+    public boolean isEnabled()
+    {
+        return this.threads > 0;
+    }
+
+    /**
+     * Count an access to the passed wiki.
+     *
+     * @param wikiId the identifier of the wiki
+     */
+    public void recordAccess(String wikiId)
+    {
+        if (isEnabled()) {
+            this.accesses.computeIfAbsent(wikiId, key -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Forget the passed wiki.
+     *
+     * @param wikiId the identifier of the deleted wiki
+     */
+    public void removeWiki(String wikiId)
+    {
+        this.accesses.remove(wikiId);
+        this.pendingWikis.remove(wikiId);
+
+        synchronized (this.previousScores) {
+            this.previousScores.remove(wikiId);
+        }
+    }
+
+    /**
+     * @return the identifiers of the wikis which are waiting to be initialized or being initialized by the warm-up
+     */
+    public Set<String> getPendingWikis()
+    {
+        return Collections.unmodifiableSet(new HashSet<>(this.pendingWikis));
+    }
+
+    /**
+     * Start initializing the sub wikis in the background, the most visited first. Does nothing if the warm-up is
+     * disabled or was already started.
+     *
+     * @param xwiki the XWiki instance
+     */
+    public synchronized void start(XWiki xwiki)
+    {
+        if (!isEnabled() || this.executor != null) {
+            return;
+        }
+
+        List<String> wikis;
+        try {
+            wikis = new ArrayList<>(this.wikiDescriptorManager.getAllIds());
+        } catch (WikiManagerException e) {
+            this.logger.error("Failed to get the wikis to warm up", e);
+
+            return;
+        }
+        wikis.remove(this.wikiDescriptorManager.getMainWikiId());
+
+        // The most visited wikis first, the others keep the order of the descriptors
+        Map<String, Double> scores = getScores();
+        wikis.sort(Comparator.comparingDouble((String wiki) -> -scores.getOrDefault(wiki, 0D)));
+
+        this.logger.info("Warming up [{}] wikis", wikis.size());
+
+        this.pendingWikis.addAll(wikis);
+
+        BasicThreadFactory factory =
+            new BasicThreadFactory.Builder().namingPattern("XWiki wiki warm-up thread %d").daemon(true).build();
+        this.executor = Executors.newFixedThreadPool(this.threads, factory);
+        for (String wiki : wikis) {
+            this.executor.execute(() -> warmUp(xwiki, wiki));
+        }
+        this.executor.shutdown();
+    }
+
+    private void warmUp(XWiki xwiki, String wikiId)
+    {
+        // The wiki may have been deleted in the meantime
+        if (!this.pendingWikis.contains(wikiId)) {
+            return;
+        }
+
+        try {
+            this.executionContextManager.initialize(new ExecutionContext());
+
+            XWikiContext xcontext = this.xcontextProvider.get();
+            xcontext.setWiki(xwiki);
+            xcontext.setWikiId(wikiId);
+            xcontext.setOriginalWikiId(wikiId);
+
+            // Join the job started by a request if any
+            xwiki.initializeWiki(wikiId, true, xcontext);
+        } catch (Exception e) {
+            this.logger.warn("Failed to warm up wiki [{}]: {}", wikiId, ExceptionUtils.getRootCauseMessage(e));
+        } finally {
+            this.pendingWikis.remove(wikiId);
+            this.execution.removeContext();
+        }
+    }
+
+    private Map<String, Double> getScores()
+    {
+        Map<String, Double> scores;
+        synchronized (this.previousScores) {
+            scores = new HashMap<>(this.previousScores);
+        }
+
+        for (Map.Entry<String, LongAdder> entry : this.accesses.entrySet()) {
+            scores.merge(entry.getKey(), entry.getValue().doubleValue(), Double::sum);
+        }
+
+        return scores;
+    }
+
+    private void loadScores()
+    {
+        if (this.scoresFile.exists()) {
+            Properties properties = new Properties();
+            try (InputStream stream = new FileInputStream(this.scoresFile)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the wiki access scores from [{}]: {}", this.scoresFile,
+                    e.getMessage());
+            }
+
+            synchronized (this.previousScores) {
+                for (String wiki : properties.stringPropertyNames()) {
+                    try {
+                        this.previousScores.put(wiki, Double.parseDouble(properties.getProperty(wiki)) * DECAY);
+                    } catch (NumberFormatException e) {
+                        // Ignore invalid scores
+                    }
+                }
+            }
+        }
+    }
+
+    private void storeScores()
+    {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Double> entry : getScores().entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+
+        this.scoresFile.getParentFile().mkdirs();
+        try (OutputStream stream = new FileOutputStream(this.scoresFile)) {
+            properties.store(stream, null);
+        } catch (IOException e) {
+            this.logger.warn("Failed to write the wiki access scores in [{}]: {}", this.scoresFile, e.getMessage());
+        }
+    }
+}
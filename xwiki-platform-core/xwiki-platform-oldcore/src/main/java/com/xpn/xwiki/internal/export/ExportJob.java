@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.export;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.Request;
+import org.xwiki.resource.temporary.TemporaryResourceStore;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.export.html.HtmlPackager;
+import com.xpn.xwiki.pdf.api.PdfExport;
+import com.xpn.xwiki.pdf.api.PdfExport.ExportType;
+import com.xpn.xwiki.pdf.impl.PdfExportImpl;
+import com.xpn.xwiki.pdf.impl.PdfURLFactory;
+import com.xpn.xwiki.web.XWikiURLFactory;
+
+/**
+ * Exports documents in HTML, PDF or any format supported by the office server in the background. The exported file is
+ * stored as a temporary resource (see {@link ExportRequest#getResourceReference()}) which can be downloaded once the
+ * job is finished.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(ExportJob.JOBTYPE)
+public class ExportJob extends AbstractJob<ExportRequest, DefaultJobStatus<ExportRequest>>
+{
+    /**
+     * The id of the job.
+     */
+    public static final String JOBTYPE = "export";
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private TemporaryResourceStore temporaryResourceStore;
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected ExportRequest castRequest(Request request)
+    {
+        ExportRequest exportRequest;
+        if (request instanceof ExportRequest) {
+            exportRequest = (ExportRequest) request;
+        } else {
+            exportRequest = new ExportRequest(request);
+        }
+
+        return exportRequest;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        // The URL factories are initialized from the URL of the request which started the export
+        if (xcontext.getRequest() != null && xcontext.getRequest().getRequestURL() != null) {
+            xcontext.setURL(new URL(xcontext.getRequest().getRequestURL().toString()));
+        }
+
+        File file = this.temporaryResourceStore.getTemporaryFile(getRequest().getResourceReference());
+        file.getParentFile().mkdirs();
+
+        // Write the export next to its final location so that it's never downloaded partially
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                if ("html".equals(getRequest().getFormat())) {
+                    exportHTML(out, xcontext);
+                } else {
+                    export(out, xcontext);
+                }
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+            this.logger.info("Export available in [{}]", file.getName());
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+
+    private void exportHTML(OutputStream out, XWikiContext xcontext) throws Exception
+    {
+        HtmlPackager packager = new HtmlPackager();
+
+        if (StringUtils.isNotBlank(getRequest().getName())) {
+            packager.setName(getRequest().getName());
+        }
+
+        if (getRequest().getDescription() != null) {
+            packager.setDescription(getRequest().getDescription());
+        }
+
+        packager.addPageReferences(getRequest().getPages());
+
+        packager.export(out, xcontext);
+    }
+
+    private void export(OutputStream out, XWikiContext xcontext) throws Exception
+    {
+        String format = getRequest().getFormat();
+
+        // We currently use the PDF export infrastructure but we have to redesign the export code.
+        XWikiURLFactory urlFactory;
+        PdfExport exporter;
+        ExportType exportType;
+        if ("pdf".equalsIgnoreCase(format)) {
+            urlFactory = new PdfURLFactory();
+            exporter = new PdfExportImpl();
+            exportType = ExportType.PDF;
+        } else {
+            OfficeExporter officeExporter = new OfficeExporter();
+            urlFactory = new OfficeExporterURLFactory();
+            exporter = officeExporter;
+            exportType = officeExporter.getExportType(format);
+            if (exportType == null) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_APP_EXPORT,
+                    String.format("Unsupported export format [%s]", format));
+            }
+        }
+
+        urlFactory.init(xcontext);
+        xcontext.setURLFactory(urlFactory);
+
+        exporter.export(xcontext.getDoc(), out, exportType, xcontext);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.export;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.resource.temporary.TemporaryResourceReference;
+
+/**
+ * Request to use with {@link ExportJob}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class ExportRequest extends AbstractRequest
+{
+    /**
+     * The identifier of the module owning the temporary resources holding the exports.
+     */
+    public static final String TEMPORARY_RESOURCE_MODULE = "export";
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_FORMAT = "format";
+
+    private static final String PROPERTY_DOCUMENT = "document";
+
+    private static final String PROPERTY_PAGES = "pages";
+
+    private static final String PROPERTY_NAME = "name";
+
+    private static final String PROPERTY_DESCRIPTION = "description";
+
+    private static final String PROPERTY_FILENAME = "fileName";
+
+    /**
+     * @param format the export format (html, pdf or any format supported by the office server)
+     * @param documentReference the document from which the export is started, owner of the exported file
+     * @param fileName the name of the exported file
+     */
+    public ExportRequest(String format, DocumentReference documentReference, String fileName)
+    {
+        setId(Arrays.asList(ExportJob.JOBTYPE, RandomStringUtils.randomAlphanumeric(16)));
+        setInteractive(false);
+
+        setProperty(PROPERTY_FORMAT, format);
+        setProperty(PROPERTY_DOCUMENT, documentReference);
+        setProperty(PROPERTY_FILENAME, fileName);
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public ExportRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @return the export format (html, pdf or any format supported by the office server)
+     */
+    public String getFormat()
+    {
+        return getProperty(PROPERTY_FORMAT);
+    }
+
+    /**
+     * @return the document from which the export is started, owner of the exported file
+     */
+    public DocumentReference getDocumentReference()
+    {
+        return getProperty(PROPERTY_DOCUMENT);
+    }
+
+    /**
+     * @return the name of the exported file
+     */
+    public String getFileName()
+    {
+        return getProperty(PROPERTY_FILENAME);
+    }
+
+    /**
+     * @return the pages to include in an HTML export
+     */
+    public List<DocumentReference> getPages()
+    {
+        return getProperty(PROPERTY_PAGES);
+    }
+
+    /**
+     * @param pages the pages to include in an HTML export
+     */
+    public void setPages(List<DocumentReference> pages)
+    {
+        setProperty(PROPERTY_PAGES, pages);
+    }
+
+    /**
+     * @return the name of the HTML export package
+     */
+    public String getName()
+    {
+        return getProperty(PROPERTY_NAME);
+    }
+
+    /**
+     * @param name the name of the HTML export package
+     */
+    public void setName(String name)
+    {
+        setProperty(PROPERTY_NAME, name);
+    }
+
+    /**
+     * @return the description of the HTML export package
+     */
+    public String getDescription()
+    {
+        return getProperty(PROPERTY_DESCRIPTION);
+    }
+
+    /**
+     * @param description the description of the HTML export package
+     */
+    public void setDescription(String description)
+    {
+        setProperty(PROPERTY_DESCRIPTION, description);
+    }
+
+    /**
+     * @return the temporary resource where the exported file is stored once the export is done
+     */
+    public TemporaryResourceReference getResourceReference()
+    {
+        return new TemporaryResourceReference(TEMPORARY_RESOURCE_MODULE, Arrays.asList(getId().get(1), getFileName()),
+            getDocumentReference());
+    }
+}
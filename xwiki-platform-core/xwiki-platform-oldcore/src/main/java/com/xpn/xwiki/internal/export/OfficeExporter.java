@@ -28,6 +28,8 @@
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.transform.Templates;
+
 import org.artofsolving.jodconverter.document.DocumentFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -145,11 +147,12 @@ private void addEmbeddedObjects(Map<String, InputStream> inputStreams, XWikiCont
      * Get the XSLT for preparing a (valid) XHTML to be converted to an office format.
      *
      * @param context the current request context
-     * @return the content of the XSLT as a byte stream
-     * @see PdfExportImpl#getXslt(String, String, XWikiContext)
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT can't be compiled
+     * @see PdfExportImpl#getXsltTemplates(String, String, XWikiContext)
      */
-    private InputStream getOfficeExportXSLT(XWikiContext context)
+    private Templates getOfficeExportXSLT(XWikiContext context) throws XWikiException
     {
-        return getXslt("officeExportXSLT", "officeExport.xsl", context);
+        return getXsltTemplates("officeExportXSLT", "officeExport.xsl", context);
     }
 }
@@ -27,6 +27,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -73,6 +74,12 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        // Remember if the content and history were already loaded so that we know if we can release them once the
+        // attachment has been written (the attachment might come from the document cache and we don't want to keep the
+        // content of all the exported attachments in memory)
+        boolean contentLoaded = attachment.getAttachment_content() != null;
+        boolean archiveLoaded = attachment.getAttachment_archive() != null;
+
         FilterEventParameters attachmentParameters = new FilterEventParameters();
 
         if (attachment.getAuthor() != null) {
@@ -119,6 +126,17 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
 
         // WikiAttachment
 
-        attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        try {
+            attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        } finally {
+            IOUtils.closeQuietly(content);
+
+            if (!contentLoaded) {
+                attachment.setAttachment_content(null);
+            }
+            if (!archiveLoaded) {
+                attachment.setAttachment_archive(null);
+            }
+        }
     }
 }
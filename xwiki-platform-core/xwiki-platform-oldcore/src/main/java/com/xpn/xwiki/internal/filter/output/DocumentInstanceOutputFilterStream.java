@@ -20,24 +20,41 @@
 package com.xpn.xwiki.internal.filter.output;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.filter.FilterDescriptorManager;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.output.AbstractBeanOutputFilterStream;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.logging.marker.TranslationMarker;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -89,15 +106,46 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     @Inject
     private EntityOutputFilterStream<XWikiDocument> documentListener;
 
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private LoggerManager loggerManager;
+
     @Inject
     private Logger logger;
 
-    private boolean documentDeleted;
+    private AtomicBoolean documentDeleted = new AtomicBoolean();
 
     private FilterEventParameters currentLocaleParameters;
 
     private FilterEventParameters currentRevisionParameters;
 
+    /**
+     * The single thread executors used to save the documents when
+     * {@link DocumentInstanceOutputProperties#getSaveThreads()} is greater than 1. All the locales and revisions of a
+     * given document are always saved by the same executor so that they are saved in the right order.
+     */
+    private List<ExecutorService> saveExecutors;
+
+    /**
+     * Limit the number of documents waiting to be saved so that the input is not entirely loaded in memory when it's
+     * read faster than it's saved.
+     */
+    private Semaphore pendingSaves;
+
+    private final AtomicReference<Exception> saveFailure = new AtomicReference<>();
+
+    /**
+     * The logs produced while saving the documents in the background. They are replayed in the thread reading the input
+     * since the log listeners (like the one isolating the logs of an import) are bound to the thread which registered
+     * them.
+     */
+    private final LogQueue saveLogs = new LogQueue();
+
     private XWikiDocumentOutputFilterStream getXWikiDocumentOutputFilterStream()
     {
         return (XWikiDocumentOutputFilterStream) this.documentListener;
@@ -112,7 +160,30 @@ protected Object createFilter() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Nothing to close
+        if (this.saveExecutors != null) {
+            // Wait for all the documents to be saved
+            for (ExecutorService executor : this.saveExecutors) {
+                executor.shutdown();
+            }
+            try {
+                for (ExecutorService executor : this.saveExecutors) {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while waiting for the documents to be saved", e);
+            } finally {
+                this.saveExecutors = null;
+
+                flushSaveLogs();
+            }
+
+            Exception failure = this.saveFailure.get();
+            if (failure != null) {
+                throw new IOException("Failed to save documents", failure);
+            }
+        }
     }
 
     @Override
@@ -128,7 +199,8 @@ public void setProperties(DocumentInstanceOutputProperties properties) throws Fi
     @Override
     public void beginWikiDocument(String name, FilterEventParameters parameters) throws FilterException
     {
-        this.documentDeleted = false;
+        // Not a simple boolean since it's shared with the thread saving the document
+        this.documentDeleted = new AtomicBoolean();
 
         this.currentLocaleParameters = parameters;
         this.currentRevisionParameters = parameters;
@@ -185,8 +257,78 @@ private void maybeSaveDocument() throws FilterException
             return;
         }
 
+        if (this.properties.getSaveThreads() > 1) {
+            saveDocumentAsync(inputDocument, this.documentDeleted);
+        } else {
+            saveDocument(inputDocument, this.documentDeleted, this.xcontextProvider.get());
+        }
+    }
+
+    private void saveDocumentAsync(XWikiDocument inputDocument, AtomicBoolean deleted) throws FilterException
+    {
+        flushSaveLogs();
+
+        // Stop reading the input as soon as possible when a save failed
+        Exception failure = this.saveFailure.get();
+        if (failure != null) {
+            throw new FilterException("Failed to save document", failure);
+        }
+
+        if (this.saveExecutors == null) {
+            int threads = this.properties.getSaveThreads();
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki document import thread %d").daemon(true).build();
+            this.saveExecutors = new ArrayList<>(threads);
+            for (int i = 0; i < threads; ++i) {
+                this.saveExecutors.add(Executors.newSingleThreadExecutor(factory));
+            }
+            this.pendingSaves = new Semaphore(threads * 2);
+        }
+
         XWikiContext xcontext = this.xcontextProvider.get();
+        WikiReference wikiReference = xcontext.getWikiReference();
+        DocumentReference userReference = xcontext.getUserReference();
+
+        try {
+            this.pendingSaves.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
 
+            throw new FilterException("Interrupted while waiting to save document", e);
+        }
+
+        int executorIndex =
+            Math.floorMod(inputDocument.getDocumentReference().hashCode(), this.saveExecutors.size());
+        this.saveExecutors.get(executorIndex).execute(() -> {
+            this.loggerManager.pushLogListener(new LoggerListener(UUID.randomUUID().toString(), this.saveLogs));
+            try {
+                this.executionContextManager.initialize(new ExecutionContext());
+
+                XWikiContext threadContext = this.xcontextProvider.get();
+                threadContext.setWikiReference(wikiReference);
+                threadContext.setUserReference(userReference);
+
+                saveDocument(inputDocument, deleted, threadContext);
+            } catch (Exception e) {
+                this.saveFailure.compareAndSet(null, e);
+            } finally {
+                this.execution.removeContext();
+                this.loggerManager.popLogListener();
+                this.pendingSaves.release();
+            }
+        });
+    }
+
+    private void flushSaveLogs()
+    {
+        for (LogEvent logEvent = this.saveLogs.poll(); logEvent != null; logEvent = this.saveLogs.poll()) {
+            logEvent.log(this.logger);
+        }
+    }
+
+    private void saveDocument(XWikiDocument inputDocument, AtomicBoolean deleted, XWikiContext xcontext)
+        throws FilterException
+    {
         try {
             XWikiDocument document =
                 xcontext.getWiki().getDocument(inputDocument.getDocumentReferenceWithLocale(), xcontext);
@@ -196,7 +338,7 @@ private void maybeSaveDocument() throws FilterException
             if (document.isNew()) {
                 document = inputDocument;
             } else {
-                if (this.properties.isPreviousDeleted() && !this.documentDeleted) {
+                if (this.properties.isPreviousDeleted() && !deleted.get()) {
                     // Save current context wiki
                     WikiReference currentWiki = xcontext.getWikiReference();
                     try {
@@ -216,7 +358,7 @@ private void maybeSaveDocument() throws FilterException
                         xcontext.setWikiReference(currentWiki);
                     }
 
-                    this.documentDeleted = true;
+                    deleted.set(true);
                     document = inputDocument;
                 } else {
                     // Safer to clone for thread safety and in case the save fail
@@ -0,0 +1,468 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.mandatory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.environment.Environment;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.MandatoryDocumentInitializer;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Execute the {@link MandatoryDocumentInitializer}s of a wiki.
+ * <p>
+ * Initializers are executed by increasing priority. When {@code xwiki.mandatoryDocuments.threads} (xwiki.cfg) is
+ * greater than 1, the documents of a given priority are initialized in parallel, each in its own execution context,
+ * and the next priority is only started once they are all done. Initializers of the same document are always executed
+ * one after another.
+ * <p>
+ * When {@code xwiki.mandatoryDocuments.skipUnchanged} is enabled, a fingerprint of the initializers (class and jar)
+ * and of the current version of their documents (loaded with a single query) is stored in the permanent directory
+ * after the initialization of a wiki. The initialization is skipped as long as that fingerprint doesn't change, since
+ * the initializers would then not modify anything. The fingerprint is only stored when all the initializers of the wiki
+ * succeeded, so that a failing one is executed again on the next start.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = MandatoryDocumentInitializerRunner.class)
+@Singleton
+public class MandatoryDocumentInitializerRunner implements Initializable
+{
+    private static final String FINGERPRINTS_FILE = "mandatorydocuments.properties";
+
+    private static final String VERSIONS_QUERY = "select doc.fullName, doc.version, doc.date from XWikiDocument doc "
+        + "where doc.translation = 0 and doc.fullName in (:names)";
+
+    private static final String NEW_DOCUMENT = "new";
+
+    private static final char SEPARATOR = '|';
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<EntityReference> resolver;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private ContextualLocalizationManager localization;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private int threads;
+
+    private boolean skipUnchanged;
+
+    private File fingerprintsFile;
+
+    private Properties fingerprints;
+
+    @Override
+    public void initialize()
+    {
+        this.threads = this.configuration.getProperty("xwiki.mandatoryDocuments.threads", 1);
+        this.skipUnchanged = this.configuration.getProperty("xwiki.mandatoryDocuments.skipUnchanged", false);
+        this.fingerprintsFile = new File(this.environment.getPermanentDirectory(), FINGERPRINTS_FILE);
+    }
+
+    /**
+     * Execute all the initializers of the current wiki.
+     *
+     * @param xcontext the XWiki context
+     */
+    public void initializeMandatoryDocuments(XWikiContext xcontext)
+    {
+        String wiki = xcontext.getWikiId();
+
+        SortedMap<Integer, Map<DocumentReference, List<MandatoryDocumentInitializer>>> initializers =
+            getInitializers(wiki);
+
+        if (this.skipUnchanged) {
+            String fingerprint = getFingerprint(wiki, initializers);
+            if (fingerprint != null && fingerprint.equals(getStoredFingerprint(wiki))) {
+                this.logger.debug("The mandatory documents of wiki [{}] are unchanged, skipping their initialization",
+                    wiki);
+
+                return;
+            }
+        }
+
+        boolean success = true;
+        for (Map<DocumentReference, List<MandatoryDocumentInitializer>> group : initializers.values()) {
+            if (this.threads > 1 && group.size() > 1) {
+                success &= initializeInParallel(wiki, group.values(), xcontext);
+            } else {
+                for (List<MandatoryDocumentInitializer> documentInitializers : group.values()) {
+                    success &= initializeDocument(documentInitializers, xcontext);
+                }
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                // Don't start the next priority while the documents of this one might still be initialized
+                return;
+            }
+        }
+
+        if (this.skipUnchanged && success) {
+            // The initializers may have modified the documents
+            String fingerprint = getFingerprint(wiki, initializers);
+            if (fingerprint != null) {
+                storeFingerprint(wiki, fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Execute the passed initializer in the current wiki.
+     *
+     * @param initializer the initializer
+     * @param xcontext the XWiki context
+     */
+    public void initializeMandatoryDocument(MandatoryDocumentInitializer initializer, XWikiContext xcontext)
+    {
+        initialize(initializer, xcontext);
+    }
+
+    /**
+     * @return {@code false} if the initializer failed
+     */
+    private boolean initialize(MandatoryDocumentInitializer initializer, XWikiContext xcontext)
+    {
+        DocumentReference documentReference = this.resolver.resolve(initializer.getDocumentReference());
+
+        if (documentReference.getWikiReference().getName().equals(xcontext.getWikiId())) {
+            return initializeDocument(documentReference, initializer, xcontext);
+        }
+
+        return true;
+    }
+
+    private boolean initializeDocument(DocumentReference documentReference, MandatoryDocumentInitializer initializer,
+        XWikiContext xcontext)
+    {
+        try {
+            XWikiDocument document = xcontext.getWiki().getDocument(documentReference, xcontext);
+
+            if (initializer.updateDocument(document)) {
+                xcontext.getWiki().saveDocument(document,
+                    localizePlainOrKey("core.model.xclass.mandatoryUpdateProperty.versionSummary"), xcontext);
+            }
+
+            return true;
+        } catch (XWikiException e) {
+            this.logger.error("Failed to initialize mandatory document", e);
+
+            return false;
+        }
+    }
+
+    private boolean initializeDocument(List<MandatoryDocumentInitializer> initializers, XWikiContext xcontext)
+    {
+        boolean success = true;
+        for (MandatoryDocumentInitializer initializer : initializers) {
+            success &= initialize(initializer, xcontext);
+        }
+
+        return success;
+    }
+
+    /**
+     * @return {@code false} if one of the initializers failed or if the thread has been interrupted
+     */
+    private boolean initializeInParallel(String wiki, Iterable<List<MandatoryDocumentInitializer>> documents,
+        XWikiContext xcontext)
+    {
+        XWiki xwiki = xcontext.getWiki();
+        DocumentReference userReference = xcontext.getUserReference();
+
+        // A new pool for each call since an initializer can trigger the initialization of another wiki
+        BasicThreadFactory factory = new BasicThreadFactory.Builder()
+            .namingPattern("XWiki mandatory document initialization thread %d").daemon(true).build();
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads, factory);
+
+        boolean success = true;
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (List<MandatoryDocumentInitializer> initializers : documents) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        this.executionContextManager.initialize(new ExecutionContext());
+
+                        XWikiContext threadContext = this.xcontextProvider.get();
+                        threadContext.setWiki(xwiki);
+                        threadContext.setWikiId(wiki);
+                        threadContext.setUserReference(userReference);
+
+                        return initializeDocument(initializers, threadContext);
+                    } catch (ExecutionContextException e) {
+                        this.logger.error("Failed to initialize the execution context of mandatory documents", e);
+
+                        return false;
+                    } finally {
+                        this.execution.removeContext();
+                    }
+                }));
+            }
+
+            // Wait for all the documents, even when one of them failed, so that the next priority is not started
+            // before they are all done
+            for (Future<Boolean> future : futures) {
+                try {
+                    success &= future.get();
+                } catch (ExecutionException e) {
+                    this.logger.error("Failed to initialize mandatory document", e.getCause());
+
+                    success = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            this.logger.warn("Interrupted while initializing the mandatory documents of wiki [{}]", wiki);
+
+            success = false;
+        } finally {
+            executor.shutdown();
+        }
+
+        return success;
+    }
+
+    private SortedMap<Integer, Map<DocumentReference, List<MandatoryDocumentInitializer>>> getInitializers(
+        String wiki)
+    {
+        List<MandatoryDocumentInitializer> initializers;
+        try {
+            initializers = this.componentManagerProvider.get().getInstanceList(MandatoryDocumentInitializer.class);
+        } catch (ComponentLookupException e) {
+            this.logger.error("Failed to lookup the mandatory document initializers", e);
+
+            initializers = new ArrayList<>();
+        }
+
+        // Lower priority values are first, and the documents of a priority keep the order of the components
+        SortedMap<Integer, Map<DocumentReference, List<MandatoryDocumentInitializer>>> groups = new TreeMap<>();
+        for (MandatoryDocumentInitializer initializer : initializers) {
+            DocumentReference documentReference = this.resolver.resolve(initializer.getDocumentReference());
+
+            if (documentReference.getWikiReference().getName().equals(wiki)) {
+                Priority priority = initializer.getClass().getAnnotation(Priority.class);
+                int priorityValue =
+                    priority != null ? priority.value() : MandatoryDocumentInitializer.DEFAULT_PRIORITY;
+
+                groups.computeIfAbsent(priorityValue, key -> new LinkedHashMap<>())
+                    .computeIfAbsent(documentReference, key -> new ArrayList<>()).add(initializer);
+            }
+        }
+
+        return groups;
+    }
+
+    private String getFingerprint(String wiki,
+        SortedMap<Integer, Map<DocumentReference, List<MandatoryDocumentInitializer>>> initializers)
+    {
+        List<String> names = new ArrayList<>();
+        for (Map<DocumentReference, List<MandatoryDocumentInitializer>> group : initializers.values()) {
+            for (DocumentReference documentReference : group.keySet()) {
+                names.add(this.localSerializer.serialize(documentReference));
+            }
+        }
+
+        Map<String, String> versions = new HashMap<>();
+        if (!names.isEmpty()) {
+            try {
+                Query query = this.queryManager.createQuery(VERSIONS_QUERY, Query.HQL);
+                query.setWiki(wiki);
+                query.bindValue("names", names);
+                for (Object[] result : query.<Object[]>execute()) {
+                    versions.put((String) result[0], String.valueOf(result[1]) + '@' + ((Date) result[2]).getTime());
+                }
+            } catch (QueryException e) {
+                this.logger.warn("Failed to get the versions of the mandatory documents of wiki [{}]: {}", wiki,
+                    e.getMessage());
+
+                return null;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Integer, Map<DocumentReference, List<MandatoryDocumentInitializer>>> group : initializers
+            .entrySet()) {
+            for (Map.Entry<DocumentReference, List<MandatoryDocumentInitializer>> document : group.getValue()
+                .entrySet()) {
+                String name = this.localSerializer.serialize(document.getKey());
+                builder.append(group.getKey()).append(SEPARATOR).append(name).append(SEPARATOR);
+                builder.append(StringUtils.defaultString(versions.get(name), NEW_DOCUMENT));
+                for (MandatoryDocumentInitializer initializer : document.getValue()) {
+                    builder.append(SEPARATOR).append(initializer.getClass().getName());
+                    builder.append(SEPARATOR).append(getCodeVersion(initializer.getClass()));
+                }
+                builder.append('\n');
+            }
+        }
+
+        return DigestUtils.sha1Hex(builder.toString());
+    }
+
+    /**
+     * @return the location of the jar containing the passed class, and its modification date when it's a file, so that
+     *         the fingerprint changes when an extension is upgraded (or a snapshot is rebuilt)
+     */
+    private String getCodeVersion(Class<?> initializerClass)
+    {
+        CodeSource codeSource = initializerClass.getProtectionDomain().getCodeSource();
+        URL location = codeSource != null ? codeSource.getLocation() : null;
+
+        if (location == null) {
+            return "";
+        }
+
+        String version = location.toExternalForm();
+        if ("file".equals(location.getProtocol())) {
+            try {
+                version += '@' + new File(location.toURI()).lastModified();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Keep the location only
+            }
+        }
+
+        return version;
+    }
+
+    private Properties getFingerprints()
+    {
+        if (this.fingerprints == null) {
+            this.fingerprints = new Properties();
+
+            if (this.fingerprintsFile.exists()) {
+                try (InputStream stream = new FileInputStream(this.fingerprintsFile)) {
+                    this.fingerprints.load(stream);
+                } catch (IOException e) {
+                    this.logger.warn("Failed to read the mandatory document fingerprints from [{}]: {}",
+                        this.fingerprintsFile, e.getMessage());
+                }
+            }
+        }
+
+        return this.fingerprints;
+    }
+
+    private synchronized String getStoredFingerprint(String wiki)
+    {
+        return getFingerprints().getProperty(wiki);
+    }
+
+    private synchronized void storeFingerprint(String wiki, String fingerprint)
+    {
+        Properties properties = getFingerprints();
+        properties.setProperty(wiki, fingerprint);
+
+        this.fingerprintsFile.getParentFile().mkdirs();
+        try (OutputStream stream = new FileOutputStream(this.fingerprintsFile)) {
+            properties.store(stream, null);
+        } catch (IOException e) {
+            this.logger.warn("Failed to write the mandatory document fingerprints in [{}]: {}",
+                this.fingerprintsFile, e.getMessage());
+        }
+    }
+
+    private String localizePlainOrKey(String key)
+    {
+        return StringUtils.defaultString(this.localization.getTranslationPlain(key), key);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+
+import com.xpn.xwiki.monitor.ProfilerHistogram;
+import com.xpn.xwiki.monitor.RequestProfiler;
+
+/**
+ * Default {@link RequestProfiler}, keeping the timers of the current request in a thread local and exposing the
+ * aggregated statistics through JMX as {@value #JMX_NAME}.
+ * <p>
+ * The profiler is disabled with {@code xwiki.profiler=0} and the breakdown of the requests taking more than
+ * {@code xwiki.profiler.slowRequestThreshold} milliseconds is logged (xwiki.cfg).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@Singleton
+public class DefaultRequestProfiler implements RequestProfiler, RequestProfilerMBean, Initializable, Disposable
+{
+    private static final String JMX_NAME = "org.xwiki:type=RequestProfiler";
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private boolean enabled;
+
+    private long slowRequestThreshold;
+
+    private final ThreadLocal<RequestProfile> currentProfile = new ThreadLocal<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, ProfilerHistogram>> histograms =
+        new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CacheCounter> caches = new ConcurrentHashMap<>();
+
+    private static class CacheCounter
+    {
+        private final LongAdder hits = new LongAdder();
+
+        private final LongAdder misses = new LongAdder();
+    }
+
+    private static class CategoryTimer
+    {
+        private int depth;
+
+        private long start;
+
+        private long total;
+
+        private int calls;
+    }
+
+    private static class RequestProfile
+    {
+        private final String action;
+
+        private final String wiki;
+
+        private final String description;
+
+        private final long start = System.nanoTime();
+
+        // Only accessed by the thread of the request
+        private final Map<String, CategoryTimer> timers = new LinkedHashMap<>();
+
+        RequestProfile(String action, String wiki, String description)
+        {
+            this.action = action;
+            this.wiki = wiki;
+            this.description = description;
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        this.enabled = this.configuration.getProperty("xwiki.profiler", 1) == 1;
+        this.slowRequestThreshold = this.configuration.getProperty("xwiki.profiler.slowRequestThreshold", 0L);
+
+        if (this.enabled) {
+            try {
+                MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName(JMX_NAME);
+                if (mbs.isRegistered(objectName)) {
+                    mbs.unregisterMBean(objectName);
+                }
+                mbs.registerMBean(new StandardMBean(this, RequestProfilerMBean.class), objectName);
+            } catch (Exception e) {
+                this.logger.warn("Failed to register the request profiler against the JMX Server", e);
+            }
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.enabled) {
+            try {
+                MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName(JMX_NAME);
+                if (mbs.isRegistered(objectName)) {
+                    mbs.unregisterMBean(objectName);
+                }
+            } catch (Exception e) {
+                this.logger.warn("Failed to unregister the request profiler from the JMX Server", e);
+            }
+        }
+    }
+
+    @Override
+    public void startRequest(String action, String wiki, String description)
+    {
+        if (this.enabled) {
+            // Replace any request which was not properly ended
+            this.currentProfile.set(new RequestProfile(action, wiki, description));
+        }
+    }
+
+    @Override
+    public void endRequest()
+    {
+        RequestProfile profile = this.currentProfile.get();
+        if (profile == null) {
+            return;
+        }
+        this.currentProfile.remove();
+
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - profile.start);
+
+        Map<String, ProfilerHistogram> requestHistograms =
+            this.histograms.computeIfAbsent(profile.action + '@' + profile.wiki, key -> new ConcurrentHashMap<>());
+        getHistogram(requestHistograms, REQUEST).add(duration);
+        for (Map.Entry<String, CategoryTimer> entry : profile.timers.entrySet()) {
+            getHistogram(requestHistograms, entry.getKey())
+                .add(TimeUnit.NANOSECONDS.toMillis(entry.getValue().total));
+        }
+
+        if (this.slowRequestThreshold > 0 && duration >= this.slowRequestThreshold) {
+            logSlowRequest(profile, duration);
+        }
+    }
+
+    private ProfilerHistogram getHistogram(Map<String, ProfilerHistogram> requestHistograms, String category)
+    {
+        return requestHistograms.computeIfAbsent(category, key -> new ProfilerHistogram());
+    }
+
+    private void logSlowRequest(RequestProfile profile, long duration)
+    {
+        StringBuilder breakdown = new StringBuilder();
+        for (Map.Entry<String, CategoryTimer> entry : profile.timers.entrySet()) {
+            breakdown.append("\n  ").append(entry.getKey()).append(": ")
+                .append(TimeUnit.NANOSECONDS.toMillis(entry.getValue().total)).append("ms (")
+                .append(entry.getValue().calls).append(" calls)");
+        }
+
+        this.logger.warn("Slow request [{}] (action [{}], wiki [{}]) took [{}]ms:{}", profile.description,
+            profile.action, profile.wiki, duration, breakdown);
+    }
+
+    @Override
+    public void startTimer(String category)
+    {
+        RequestProfile profile = this.currentProfile.get();
+        if (profile != null) {
+            CategoryTimer timer = profile.timers.computeIfAbsent(category, key -> new CategoryTimer());
+            if (timer.depth++ == 0) {
+                timer.start = System.nanoTime();
+                timer.calls++;
+            }
+        }
+    }
+
+    @Override
+    public void endTimer(String category)
+    {
+        RequestProfile profile = this.currentProfile.get();
+        if (profile != null) {
+            CategoryTimer timer = profile.timers.get(category);
+            if (timer != null && timer.depth > 0 && --timer.depth == 0) {
+                timer.total += System.nanoTime() - timer.start;
+            }
+        }
+    }
+
+    @Override
+    public void recordCacheAccess(String cache, boolean hit)
+    {
+        if (this.enabled) {
+            CacheCounter counter = this.caches.computeIfAbsent(cache, key -> new CacheCounter());
+            if (hit) {
+                counter.hits.increment();
+            } else {
+                counter.misses.increment();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, ProfilerHistogram>> getHistograms()
+    {
+        Map<String, Map<String, ProfilerHistogram>> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, ProfilerHistogram>> entry : this.histograms.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRatios()
+    {
+        Map<String, Double> ratios = new TreeMap<>();
+        for (Map.Entry<String, CacheCounter> entry : this.caches.entrySet()) {
+            long hits = entry.getValue().hits.sum();
+            long accesses = hits + entry.getValue().misses.sum();
+            if (accesses > 0) {
+                ratios.put(entry.getKey(), (double) hits / accesses);
+            }
+        }
+
+        return ratios;
+    }
+
+    @Override
+    public List<String> getSummary()
+    {
+        List<String> summary = new ArrayList<>();
+        for (Map.Entry<String, Map<String, ProfilerHistogram>> request : getHistograms().entrySet()) {
+            for (Map.Entry<String, ProfilerHistogram> category : request.getValue().entrySet()) {
+                summary.add(request.getKey() + ' ' + category.getKey() + ": " + category.getValue());
+            }
+        }
+
+        return summary;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.histograms.clear();
+        this.caches.clear();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.objects.classes;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+/**
+ * Cache of the classes parsed from the XML stored with the class documents, shared by all the instances of those
+ * documents.
+ * <p>
+ * Parsing the XML of a class is done every time its document is loaded from the database. Since the XML only changes
+ * when the class is modified, the parsed class is kept and each loaded document receives a copy of it (so that it can
+ * still be modified without affecting the other instances). The cached class is also used read only by the store to
+ * check the custom mapping and the property types of the class when loading objects, without loading the class
+ * document.
+ * <p>
+ * The entries are removed when the class documents are modified (see {@link XClassCacheListener}), and a parsed class
+ * is only reused for exactly the same XML, so it's never possible to get an outdated class when loading a document.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = XClassCache.class)
+@Singleton
+public class XClassCache implements Initializable
+{
+    private static final String CACHE_ID = "xwiki.store.xclasscache";
+
+    private static final int DEFAULT_CAPACITY = 500;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private static final class Entry
+    {
+        private final String xml;
+
+        private final BaseClass xclass;
+
+        private Entry(String xml, BaseClass xclass)
+        {
+            this.xml = xml;
+            this.xclass = xclass;
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int capacity = this.configuration.getProperty("store.xclassCache.capacity", DEFAULT_CAPACITY);
+
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration(CACHE_ID, capacity));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the class cache", e);
+        }
+    }
+
+    /**
+     * @param classReference the reference of the class document
+     * @param xml the XML of the class, as stored in the class document
+     * @return a new copy of the class parsed from the passed XML
+     * @throws XWikiException when failing to parse the XML
+     */
+    public BaseClass getXClass(DocumentReference classReference, String xml) throws XWikiException
+    {
+        String key = this.serializer.serialize(classReference);
+
+        Entry entry = this.cache.get(key);
+        if (entry != null && entry.xml.equals(xml)) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+
+            BaseClass xclass = new BaseClass();
+            xclass.fromXML(xml);
+            xclass.setDocumentReference(classReference);
+            xclass.setDirty(false);
+
+            entry = new Entry(xml, xclass);
+            this.cache.set(key, entry);
+        }
+
+        return entry.xclass.clone();
+    }
+
+    /**
+     * @param classReference the reference of the class document
+     * @return the class last loaded from the database, which must not be modified, or null if it's not in the cache
+     */
+    public BaseClass get(DocumentReference classReference)
+    {
+        Entry entry = this.cache.get(this.serializer.serialize(classReference));
+
+        return entry != null ? entry.xclass : null;
+    }
+
+    /**
+     * @param classReference the reference of the class document which has been modified
+     */
+    public void remove(DocumentReference classReference)
+    {
+        this.cache.remove(this.serializer.serialize(classReference));
+    }
+
+    /**
+     * Remove all the classes.
+     */
+    public void removeAll()
+    {
+        this.cache.removeAll();
+    }
+
+    /**
+     * @return the number of times a class was copied instead of being parsed
+     */
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of times a class had to be parsed
+     */
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+}
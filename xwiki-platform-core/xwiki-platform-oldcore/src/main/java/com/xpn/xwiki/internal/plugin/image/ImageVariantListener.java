@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AbstractAttachmentEvent;
+import com.xpn.xwiki.internal.event.AttachmentAddedEvent;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
+import com.xpn.xwiki.plugin.XWikiPluginInterface;
+import com.xpn.xwiki.plugin.image.ImagePlugin;
+
+/**
+ * Remove the stored variants of the image attachments which are modified or deleted and generate the common thumbnails
+ * of the new ones.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@Named(ImageVariantListener.NAME)
+@Singleton
+public class ImageVariantListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "imagevariants";
+
+    @Inject
+    private Provider<ImageVariantStore> storeProvider;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    /**
+     * Default constructor.
+     */
+    public ImageVariantListener()
+    {
+        super(NAME, new AttachmentAddedEvent(), new AttachmentUpdatedEvent(), new AttachmentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+        String fileName = ((AbstractAttachmentEvent) event).getName();
+
+        if (!(event instanceof AttachmentAddedEvent)) {
+            this.storeProvider.get()
+                .deleteVariants(new AttachmentReference(fileName, document.getDocumentReference()));
+        }
+
+        if (!(event instanceof AttachmentDeletedEvent)) {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            XWikiAttachment attachment = document.getAttachment(fileName);
+            XWikiPluginInterface plugin = xcontext.getWiki().getPluginManager().getPlugin(ImagePlugin.PLUGIN_NAME);
+            if (attachment != null && plugin instanceof ImagePlugin) {
+                ((ImagePlugin) plugin).pregenerateThumbnails(attachment, xcontext);
+            }
+        }
+    }
+}
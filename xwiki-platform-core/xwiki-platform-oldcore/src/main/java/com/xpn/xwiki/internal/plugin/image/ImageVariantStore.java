@@ -0,0 +1,316 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+/**
+ * Persistent store for the variants (thumbnails, etc.) of the image attachments.
+ * <p>
+ * Variants are stored in the permanent directory so that they survive restarts (and can be shared by the members of a
+ * cluster using a shared permanent directory). Each attachment has its own directory and each variant file is named
+ * after the version of the attachment it was computed from and the parameters of the transformation, so a new version
+ * of the attachment never reuses an old variant.
+ * <p>
+ * Variants are computed by a bounded pool of threads to limit the CPU used for scaling images, and a variant requested
+ * several times while it's being computed is computed only once. Variants generated in advance (when an image is
+ * attached) are computed by a single thread with a bounded queue, so that a bulk upload doesn't delay the variants
+ * requested by the users nor pile up pending work: when the queue is full the variant is simply computed on its first
+ * request.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = ImageVariantStore.class)
+@Singleton
+public class ImageVariantStore implements Initializable, Disposable
+{
+    /**
+     * Write the content of a variant.
+     *
+     * @version $Id$
+     * @since 9.7RC1
+     */
+    @FunctionalInterface
+    public interface VariantWriter
+    {
+        /**
+         * @param out the stream where to write the variant
+         * @return false if the variant would be identical to the original image, in which case nothing is stored
+         * @throws Exception when failing to compute the variant
+         */
+        boolean write(OutputStream out) throws Exception;
+    }
+
+    private static final String DIRECTORY = "image-variants";
+
+    private static final char SEPARATOR = '-';
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    private ExecutorService executor;
+
+    private ExecutorService pregenerationExecutor;
+
+    private final ConcurrentMap<File, Computation> computations = new ConcurrentHashMap<>();
+
+    /**
+     * The computation of a variant, which can be executed by several threads but is run only once.
+     */
+    private final class Computation implements Runnable
+    {
+        private final File file;
+
+        private final VariantWriter writer;
+
+        private final CompletableFuture<File> future = new CompletableFuture<>();
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Computation(File file, VariantWriter writer)
+        {
+            this.file = file;
+            this.writer = writer;
+        }
+
+        @Override
+        public void run()
+        {
+            if (this.started.compareAndSet(false, true)) {
+                compute(this);
+            }
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        this.directory = new File(this.environment.getPermanentDirectory(), DIRECTORY);
+
+        int threads = this.configuration.getProperty("xwiki.plugin.image.variants.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        BasicThreadFactory factory =
+            new BasicThreadFactory.Builder().namingPattern("XWiki image variant thread %d").daemon(true).build();
+        this.executor = Executors.newFixedThreadPool(threads, factory);
+
+        int queueSize =
+            Math.max(1, this.configuration.getProperty("xwiki.plugin.image.variants.pregenerate.queueSize", 100));
+        BasicThreadFactory pregenerationFactory = new BasicThreadFactory.Builder()
+            .namingPattern("XWiki image variant pregeneration thread %d").daemon(true).build();
+        this.pregenerationExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), pregenerationFactory);
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.executor.shutdownNow();
+        this.pregenerationExecutor.shutdownNow();
+    }
+
+    private File getAttachmentDirectory(AttachmentReference reference)
+    {
+        String hash = DigestUtils.sha1Hex(this.serializer.serialize(reference));
+
+        return new File(new File(this.directory, hash.substring(0, 2)), hash);
+    }
+
+    private File getVariantFile(XWikiAttachment attachment, String variant)
+    {
+        return new File(getAttachmentDirectory(attachment.getReference()),
+            attachment.getVersion() + SEPARATOR + variant);
+    }
+
+    /**
+     * @param attachment the image attachment
+     * @param variant the identifier of the variant (made of the transformation parameters), must be usable in a file
+     *            name
+     * @return the file containing the variant or null if it was not computed yet
+     */
+    public File getVariant(XWikiAttachment attachment, String variant)
+    {
+        File file = getVariantFile(attachment, variant);
+
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Compute a variant in the background, unless it's already being computed.
+     *
+     * @param attachment the image attachment
+     * @param variant the identifier of the variant (made of the transformation parameters), must be usable in a file
+     *            name
+     * @param writer writes the content of the variant, called from another thread (so it should not need the XWiki
+     *            context) and not called at all if the same variant is already being computed
+     * @return the file containing the variant, or null if the variant is identical to the original image
+     */
+    public CompletableFuture<File> computeVariant(XWikiAttachment attachment, String variant, VariantWriter writer)
+    {
+        Computation computation = new Computation(getVariantFile(attachment, variant), writer);
+        Computation current = this.computations.putIfAbsent(computation.file, computation);
+        if (current == null) {
+            execute(computation, this.executor);
+
+            return computation.future;
+        }
+
+        if (!current.started.get()) {
+            // The variant is still waiting in the pregeneration queue: don't make the request wait for it
+            execute(current, this.executor);
+        }
+
+        return current.future;
+    }
+
+    /**
+     * Compute a variant in the background with a low priority, unless it's already being computed. The variant is not
+     * computed (and the returned future fails with a {@link RejectedExecutionException}) when too many variants are
+     * already waiting to be generated.
+     *
+     * @param attachment the image attachment
+     * @param variant the identifier of the variant (made of the transformation parameters), must be usable in a file
+     *            name
+     * @param writer writes the content of the variant, called from another thread (so it should not need the XWiki
+     *            context) and not called at all if the same variant is already being computed
+     * @return the file containing the variant, or null if the variant is identical to the original image
+     */
+    public CompletableFuture<File> pregenerateVariant(XWikiAttachment attachment, String variant,
+        VariantWriter writer)
+    {
+        Computation computation = new Computation(getVariantFile(attachment, variant), writer);
+        Computation current = this.computations.putIfAbsent(computation.file, computation);
+        if (current == null) {
+            execute(computation, this.pregenerationExecutor);
+
+            return computation.future;
+        }
+
+        return current.future;
+    }
+
+    private void execute(Computation computation, ExecutorService executorService)
+    {
+        try {
+            executorService.execute(computation);
+        } catch (RejectedExecutionException e) {
+            // Fail the computation, unless it's already taken care of by another thread
+            if (computation.started.compareAndSet(false, true)) {
+                this.computations.remove(computation.file, computation);
+                computation.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void compute(Computation computation)
+    {
+        File file = computation.file;
+        CompletableFuture<File> future = computation.future;
+
+        File temporaryFile = null;
+        try {
+            file.getParentFile().mkdirs();
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+
+            boolean written;
+            try (OutputStream out = new FileOutputStream(temporaryFile)) {
+                written = computation.writer.write(out);
+            }
+
+            if (written) {
+                // Readers only see complete variants
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+                future.complete(file);
+            } else {
+                future.complete(null);
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            this.computations.remove(file, computation);
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Remove all the stored variants of an attachment.
+     *
+     * @param reference the reference of the attachment
+     */
+    public void deleteVariants(AttachmentReference reference)
+    {
+        File attachmentDirectory = getAttachmentDirectory(reference);
+        if (attachmentDirectory.exists()) {
+            try {
+                FileUtils.deleteDirectory(attachmentDirectory);
+            } catch (IOException e) {
+                this.logger.warn("Failed to delete the variants of image [{}]: {}", reference, e.getMessage());
+            }
+        }
+    }
+}
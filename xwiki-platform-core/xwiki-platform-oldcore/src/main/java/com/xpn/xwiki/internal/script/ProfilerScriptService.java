@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.script;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.script.service.ScriptService;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import com.xpn.xwiki.monitor.ProfilerHistogram;
+import com.xpn.xwiki.monitor.RequestProfiler;
+
+/**
+ * Expose the statistics of the {@link RequestProfiler} to the scripts with programming right, since they cover all
+ * the wikis.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@Singleton
+@Named("profiler")
+public class ProfilerScriptService implements ScriptService
+{
+    @Inject
+    private RequestProfiler profiler;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    /**
+     * @return the histograms of the requests, indexed by {@code <action>@<wiki>} and then by category, empty if the
+     *         current author doesn't have programming right
+     * @see RequestProfiler#getHistograms()
+     */
+    public Map<String, Map<String, ProfilerHistogram>> getHistograms()
+    {
+        if (this.authorization.hasAccess(Right.PROGRAM)) {
+            return this.profiler.getHistograms();
+        }
+
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @return the ratio of hits of each cache, empty if the current author doesn't have programming right
+     * @see RequestProfiler#getCacheHitRatios()
+     */
+    public Map<String, Double> getCacheHitRatios()
+    {
+        if (this.authorization.hasAccess(Right.PROGRAM)) {
+            return this.profiler.getCacheHitRatios();
+        }
+
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Forget the aggregated statistics, if the current author has programming right.
+     */
+    public void reset()
+    {
+        if (this.authorization.hasAccess(Right.PROGRAM)) {
+            this.profiler.reset();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statistics of a database connection pool: waiting time to borrow a connection, holding time per action and the
+ * connections held for too long.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class ConnectionPoolStatistics implements ConnectionPoolStatisticsMBean
+{
+    /**
+     * The action associated to the connections borrowed outside of a request.
+     */
+    public static final String NO_ACTION = "none";
+
+    /**
+     * The upper bounds of the ranges of the waiting time histogram, in milliseconds.
+     */
+    private static final long[] WAIT_TIME_BOUNDS = new long[] { 1, 10, 100, 1000, 10000 };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolStatistics.class);
+
+    private final BasicDataSource dataSource;
+
+    private final long longHeldThreshold;
+
+    private final LongAdder[] waitTimeHistogram = new LongAdder[WAIT_TIME_BOUNDS.length + 1];
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder borrowFailureCount = new LongAdder();
+
+    private final LongAdder waitTime = new LongAdder();
+
+    private final ConcurrentMap<String, HoldTime> holdTimes = new ConcurrentHashMap<>();
+
+    // Connections don't have any identity contract so they are compared by reference
+    private final Map<Connection, Borrow> borrowedConnections = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private static class HoldTime
+    {
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+    }
+
+    private static class Borrow
+    {
+        private final long start = System.nanoTime();
+
+        private final String action;
+
+        private final String thread = Thread.currentThread().getName();
+
+        private final Throwable stackTrace;
+
+        Borrow(String action, boolean withStackTrace)
+        {
+            this.action = action;
+            this.stackTrace = withStackTrace ? new Throwable("Connection borrowed here") : null;
+        }
+
+        long getHoldTime(long now)
+        {
+            return TimeUnit.NANOSECONDS.toMillis(now - this.start);
+        }
+    }
+
+    /**
+     * @param dataSource the pool
+     * @param longHeldThreshold the time in milliseconds after which a borrowed connection is considered held for too
+     *            long, 0 to disable the tracking of the borrowing code
+     */
+    public ConnectionPoolStatistics(BasicDataSource dataSource, long longHeldThreshold)
+    {
+        this.dataSource = dataSource;
+        this.longHeldThreshold = longHeldThreshold;
+
+        for (int i = 0; i < this.waitTimeHistogram.length; ++i) {
+            this.waitTimeHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the pool
+     */
+    public BasicDataSource getDataSource()
+    {
+        return this.dataSource;
+    }
+
+    /**
+     * Record a connection borrowed from the pool.
+     *
+     * @param connection the connection
+     * @param waitNanos the time spent waiting for the connection, in nanoseconds
+     * @param action the action of the current request, null if outside of a request
+     */
+    public void onBorrow(Connection connection, long waitNanos, String action)
+    {
+        this.borrowCount.increment();
+        recordWaitTime(waitNanos);
+
+        this.borrowedConnections.put(connection,
+            new Borrow(action != null ? action : NO_ACTION, this.longHeldThreshold > 0));
+    }
+
+    /**
+     * Record a failure to borrow a connection from the pool.
+     *
+     * @param waitNanos the time spent waiting for the connection, in nanoseconds
+     */
+    public void onBorrowFailure(long waitNanos)
+    {
+        this.borrowFailureCount.increment();
+        recordWaitTime(waitNanos);
+    }
+
+    private void recordWaitTime(long waitNanos)
+    {
+        this.waitTime.add(waitNanos);
+
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int index = 0;
+        while (index < WAIT_TIME_BOUNDS.length && waitMillis >= WAIT_TIME_BOUNDS[index]) {
+            ++index;
+        }
+        this.waitTimeHistogram[index].increment();
+    }
+
+    /**
+     * Record a connection given back to the pool and log the code which borrowed it if it was held for too long.
+     *
+     * @param connection the connection
+     * @return false if the connection was not borrowed from this pool
+     */
+    public boolean onReturn(Connection connection)
+    {
+        Borrow borrow = this.borrowedConnections.remove(connection);
+        if (borrow == null) {
+            return false;
+        }
+
+        long holdTime = borrow.getHoldTime(System.nanoTime());
+        HoldTime actionHoldTime = this.holdTimes.computeIfAbsent(borrow.action, key -> new HoldTime());
+        actionHoldTime.count.increment();
+        actionHoldTime.total.add(holdTime);
+
+        if (borrow.stackTrace != null && holdTime >= this.longHeldThreshold) {
+            LOGGER.warn("Database connection held for [{}]ms by thread [{}] (action [{}])", holdTime, borrow.thread,
+                borrow.action, borrow.stackTrace);
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getNumActive()
+    {
+        return this.dataSource.getNumActive();
+    }
+
+    @Override
+    public int getNumIdle()
+    {
+        return this.dataSource.getNumIdle();
+    }
+
+    @Override
+    public int getMaxTotal()
+    {
+        return this.dataSource.getMaxTotal();
+    }
+
+    @Override
+    public long getBorrowCount()
+    {
+        return this.borrowCount.sum();
+    }
+
+    @Override
+    public long getBorrowFailureCount()
+    {
+        return this.borrowFailureCount.sum();
+    }
+
+    @Override
+    public double getAverageBorrowWaitTime()
+    {
+        long count = this.borrowCount.sum() + this.borrowFailureCount.sum();
+
+        return count > 0 ? (double) this.waitTime.sum() / count / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    @Override
+    public Map<String, Long> getBorrowWaitTimeHistogram()
+    {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < WAIT_TIME_BOUNDS.length; ++i) {
+            histogram.put("< " + WAIT_TIME_BOUNDS[i] + "ms", this.waitTimeHistogram[i].sum());
+        }
+        histogram.put(">= " + WAIT_TIME_BOUNDS[WAIT_TIME_BOUNDS.length - 1] + "ms",
+            this.waitTimeHistogram[WAIT_TIME_BOUNDS.length].sum());
+
+        return histogram;
+    }
+
+    @Override
+    public Map<String, Double> getAverageHoldTimeByAction()
+    {
+        Map<String, Double> averages = new TreeMap<>();
+        for (Map.Entry<String, HoldTime> entry : this.holdTimes.entrySet()) {
+            long count = entry.getValue().count.sum();
+            if (count > 0) {
+                averages.put(entry.getKey(), (double) entry.getValue().total.sum() / count);
+            }
+        }
+
+        return averages;
+    }
+
+    @Override
+    public List<String> getLongHeldConnections()
+    {
+        List<String> connections = new ArrayList<>();
+        if (this.longHeldThreshold > 0) {
+            long now = System.nanoTime();
+            synchronized (this.borrowedConnections) {
+                for (Borrow borrow : this.borrowedConnections.values()) {
+                    long holdTime = borrow.getHoldTime(now);
+                    if (holdTime >= this.longHeldThreshold) {
+                        connections.add(String.format("Held for %dms by thread [%s] (action [%s]): %s", holdTime,
+                            borrow.thread, borrow.action, ExceptionUtils.getStackTrace(borrow.stackTrace)));
+                    }
+                }
+            }
+        }
+
+        return connections;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (LongAdder counter : this.waitTimeHistogram) {
+            counter.reset();
+        }
+        this.borrowCount.reset();
+        this.borrowFailureCount.reset();
+        this.waitTime.reset();
+        this.holdTimes.clear();
+    }
+}
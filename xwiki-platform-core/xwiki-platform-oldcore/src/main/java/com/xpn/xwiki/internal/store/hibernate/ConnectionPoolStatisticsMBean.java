@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of a database connection pool, see {@link ConnectionPoolStatistics}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public interface ConnectionPoolStatisticsMBean
+{
+    /**
+     * @return the number of connections currently borrowed from the pool
+     */
+    int getNumActive();
+
+    /**
+     * @return the number of connections currently idle in the pool
+     */
+    int getNumIdle();
+
+    /**
+     * @return the maximum number of connections of the pool
+     */
+    int getMaxTotal();
+
+    /**
+     * @return the number of connections borrowed since the pool was created or the statistics reset
+     */
+    long getBorrowCount();
+
+    /**
+     * @return the number of failed attempts to borrow a connection (timeout, database not reachable, etc.)
+     */
+    long getBorrowFailureCount();
+
+    /**
+     * @return the average time spent waiting for a connection, in milliseconds
+     */
+    double getAverageBorrowWaitTime();
+
+    /**
+     * @return the number of borrowed connections for each range of waiting time, from the shortest to the longest
+     */
+    Map<String, Long> getBorrowWaitTimeHistogram();
+
+    /**
+     * @return the average time a connection is held, in milliseconds, for each action (the XWiki action of the
+     *         request, or {@value ConnectionPoolStatistics#NO_ACTION} for code running outside of a request)
+     */
+    Map<String, Double> getAverageHoldTimeByAction();
+
+    /**
+     * @return a description of the connections which are currently held longer than the configured threshold,
+     *         including the stack trace of the code which borrowed them
+     */
+    List<String> getLongHeldConnections();
+
+    /**
+     * Reset the counters.
+     */
+    void reset();
+}
@@ -0,0 +1,253 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate.query;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.query.Query;
+import org.xwiki.query.internal.DefaultQueryParameter;
+import org.xwiki.query.internal.ParameterPart;
+import org.xwiki.query.internal.QueryResultCacheStatistics;
+
+/**
+ * Cache for the results of the queries marked as cacheable.
+ * <p>
+ * Entries are indexed by wiki, final statement (after the filters are applied), parameters, offset and limit. Each
+ * wiki also has a generation number which is part of the key and which is incremented every time something is
+ * modified in the wiki (see {@link QueryResultCacheListener}): the entries of the previous generation can't be reached
+ * anymore and are progressively evicted from the cache.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = { QueryResultCache.class, QueryResultCacheStatistics.class })
+@Singleton
+public class QueryResultCache implements QueryResultCacheStatistics, Initializable
+{
+    private static final String CACHE_ID = "xwiki.store.querycache";
+
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    private static final char SEPARATOR = '\u0000';
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    private int capacity;
+
+    private volatile Cache<List<Object>> cache;
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private Map<String, AtomicLong[]> statistics;
+
+    @Override
+    public void initialize()
+    {
+        this.capacity = this.configuration.getProperty("query.resultCache.capacity", DEFAULT_CAPACITY);
+
+        this.statistics = Collections.synchronizedMap(new LRUMap<String, AtomicLong[]>(this.capacity));
+    }
+
+    private Cache<List<Object>> getCache()
+    {
+        // The cache is created only when a cacheable query is executed for the first time, until then invalidating
+        // the results is just incrementing a counter.
+        if (this.cache == null) {
+            synchronized (this) {
+                if (this.cache == null) {
+                    try {
+                        this.cache =
+                            this.cacheManager.createNewCache(new LRUCacheConfiguration(CACHE_ID, this.capacity));
+                    } catch (CacheException e) {
+                        throw new RuntimeException("Failed to create the query result cache", e);
+                    }
+                }
+            }
+        }
+
+        return this.cache;
+    }
+
+    /**
+     * Compute the key of a query. The generation of the wiki is read at this moment so the key must be computed before
+     * executing the query to make sure results computed while the wiki was being modified are never reused.
+     *
+     * @param wiki the wiki where the query is executed
+     * @param statement the final statement of the query
+     * @param query the query, to get parameters, offset and limit
+     * @return the key of the query in the cache
+     */
+    public String getKey(String wiki, String statement, Query query)
+    {
+        StringBuilder key = new StringBuilder();
+
+        key.append(wiki).append(SEPARATOR);
+        key.append(getGeneration(wiki).get()).append(SEPARATOR);
+        key.append(statement).append(SEPARATOR);
+        key.append(query.getOffset()).append(SEPARATOR);
+        key.append(query.getLimit()).append(SEPARATOR);
+        for (Map.Entry<String, Object> parameter : new TreeMap<>(query.getNamedParameters()).entrySet()) {
+            key.append(parameter.getKey()).append('=');
+            appendValue(parameter.getValue(), key);
+            key.append(SEPARATOR);
+        }
+        for (Map.Entry<Integer, Object> parameter : new TreeMap<>(query.getPositionalParameters()).entrySet()) {
+            key.append(parameter.getKey()).append('=');
+            appendValue(parameter.getValue(), key);
+            key.append(SEPARATOR);
+        }
+
+        return key.toString();
+    }
+
+    private void appendValue(Object value, StringBuilder key)
+    {
+        if (value == null) {
+            key.append("null");
+        } else {
+            key.append(value.getClass().getName()).append(':');
+            if (value instanceof DefaultQueryParameter) {
+                for (ParameterPart part : ((DefaultQueryParameter) value).getParts()) {
+                    key.append(part.getClass().getSimpleName()).append('(').append(part.getValue()).append(')');
+                }
+            } else if (value instanceof Collection) {
+                key.append(value);
+            } else if (value instanceof Object[]) {
+                key.append(Arrays.deepToString((Object[]) value));
+            } else {
+                key.append(value);
+            }
+        }
+    }
+
+    private AtomicLong getGeneration(String wiki)
+    {
+        AtomicLong generation = this.generations.get(wiki);
+        if (generation == null) {
+            generation = new AtomicLong();
+            AtomicLong previous = this.generations.putIfAbsent(wiki, generation);
+            if (previous != null) {
+                generation = previous;
+            }
+        }
+
+        return generation;
+    }
+
+    /**
+     * @param <T> the type of the results
+     * @param key the key of the query, see {@link #getKey(String, String, Query)}
+     * @param statement the statement of the query, for the statistics
+     * @return the cached results or null if there are none
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(String key, String statement)
+    {
+        List<Object> results = getCache().get(key);
+
+        AtomicLong[] counters = getCounters(statement);
+        (results != null ? counters[0] : counters[1]).incrementAndGet();
+
+        return (List<T>) results;
+    }
+
+    /**
+     * @param key the key of the query, see {@link #getKey(String, String, Query)}
+     * @param results the results of the query, should not be modified anymore
+     */
+    @SuppressWarnings("unchecked")
+    public void set(String key, List<?> results)
+    {
+        getCache().set(key, Collections.unmodifiableList((List<Object>) results));
+    }
+
+    /**
+     * Make sure the results cached so far for the passed wiki are not used anymore.
+     *
+     * @param wiki the wiki where something was modified
+     */
+    public void invalidate(String wiki)
+    {
+        getGeneration(wiki).incrementAndGet();
+    }
+
+    private AtomicLong[] getCounters(String statement)
+    {
+        synchronized (this.statistics) {
+            AtomicLong[] counters = this.statistics.get(statement);
+            if (counters == null) {
+                counters = new AtomicLong[] { new AtomicLong(), new AtomicLong() };
+                this.statistics.put(statement, counters);
+            }
+
+            return counters;
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getStatistics()
+    {
+        Map<String, Map<String, Long>> result = new HashMap<>();
+
+        synchronized (this.statistics) {
+            for (Map.Entry<String, AtomicLong[]> entry : this.statistics.entrySet()) {
+                Map<String, Long> counters = new HashMap<>();
+                counters.put(HITS, entry.getValue()[0].get());
+                counters.put(MISSES, entry.getValue()[1].get());
+                result.put(entry.getKey(), counters);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        if (this.cache != null) {
+            this.cache.removeAll();
+        }
+        this.statistics.clear();
+    }
+}
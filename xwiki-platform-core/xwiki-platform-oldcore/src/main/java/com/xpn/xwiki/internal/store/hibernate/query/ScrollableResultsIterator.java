@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.query.QueryFilter;
+
+/**
+ * Iterates over the results of a Hibernate query through a database cursor, reading them by chunks.
+ * <p>
+ * The session is cleared before reading each chunk so that the entities of the previous chunks can be garbage
+ * collected (they are detached from the session at that point) and the filters of the query are applied on each
+ * chunk. The iterator owns the session and the cursor and releases them in {@link #close()}.
+ *
+ * @param <T> the type of the results
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class ScrollableResultsIterator<T> implements Iterator<T>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScrollableResultsIterator.class);
+
+    private final Session session;
+
+    private final ScrollableResults results;
+
+    private final List<QueryFilter> filters;
+
+    private final int chunkSize;
+
+    private Iterator<T> chunk = Collections.emptyIterator();
+
+    private boolean exhausted;
+
+    /**
+     * @param session the session dedicated to the query, closed with the iterator
+     * @param results the cursor over the results of the query
+     * @param filters the filters to apply on the results, can be null
+     * @param chunkSize the number of results to read from the cursor at once
+     */
+    public ScrollableResultsIterator(Session session, ScrollableResults results, List<QueryFilter> filters,
+        int chunkSize)
+    {
+        this.session = session;
+        this.results = results;
+        this.filters = filters != null ? filters : Collections.<QueryFilter>emptyList();
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while (!this.chunk.hasNext() && !this.exhausted) {
+            this.chunk = readChunk();
+        }
+
+        return this.chunk.hasNext();
+    }
+
+    @Override
+    public T next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return this.chunk.next();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<T> readChunk()
+    {
+        // Forget the entities of the previous chunk
+        this.session.clear();
+
+        List<T> rows = new ArrayList<>(this.chunkSize);
+        while (rows.size() < this.chunkSize) {
+            if (!this.results.next()) {
+                this.exhausted = true;
+                break;
+            }
+
+            // Same as Query#list(): a single selected field is not wrapped in an array
+            Object[] row = this.results.get();
+            rows.add((T) (row.length == 1 ? row[0] : row));
+        }
+
+        for (QueryFilter filter : this.filters) {
+            rows = filter.filterResults(rows);
+        }
+
+        return rows.iterator();
+    }
+
+    /**
+     * Release the cursor and the session.
+     */
+    public void close()
+    {
+        try {
+            this.results.close();
+        } catch (HibernateException e) {
+            LOGGER.warn("Failed to close the query cursor: {}", e.getMessage());
+        }
+
+        try {
+            Transaction transaction = this.session.getTransaction();
+            if (transaction != null && transaction.isActive()) {
+                // Nothing was modified
+                transaction.rollback();
+            }
+        } catch (HibernateException e) {
+            LOGGER.warn("Failed to end the query transaction: {}", e.getMessage());
+        } finally {
+            this.session.close();
+        }
+    }
+}
@@ -88,6 +88,7 @@
 import com.xpn.xwiki.internal.skin.AbstractEnvironmentResource;
 import com.xpn.xwiki.internal.skin.InternalSkinManager;
 import com.xpn.xwiki.internal.skin.WikiResource;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.user.api.XWikiRightService;
 
 /**
@@ -161,6 +162,9 @@
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private RequestProfiler profiler;
+
     @Inject
     private Logger logger;
 
@@ -674,12 +678,18 @@ public void render(Template template, Writer writer) throws Exception
 
     private void render(Template template, TemplateContent content, Writer writer) throws Exception
     {
-        if (content.getSourceSyntax() != null) {
-            XDOM xdom = execute(template, content);
+        this.profiler.startTimer(RequestProfiler.TEMPLATE);
 
-            render(xdom, writer);
-        } else {
-            evaluateContent(template, content, writer);
+        try {
+            if (content.getSourceSyntax() != null) {
+                XDOM xdom = execute(template, content);
+
+                render(xdom, writer);
+            } else {
+                evaluateContent(template, content, writer);
+            }
+        } finally {
+            this.profiler.endTimer(RequestProfiler.TEMPLATE);
         }
     }
 
@@ -733,11 +743,17 @@ public XDOM executeNoException(Template template)
 
     private XDOM execute(Template template, TemplateContent content) throws Exception
     {
-        XDOM xdom = getXDOM(template, content);
+        this.profiler.startTimer(RequestProfiler.TEMPLATE);
 
-        transform(xdom);
+        try {
+            XDOM xdom = getXDOM(template, content);
 
-        return xdom;
+            transform(xdom);
+
+            return xdom;
+        } finally {
+            this.profiler.endTimer(RequestProfiler.TEMPLATE);
+        }
     }
 
     public XDOM execute(String templateName) throws Exception
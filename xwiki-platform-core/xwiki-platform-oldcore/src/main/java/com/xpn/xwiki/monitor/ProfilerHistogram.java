@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of durations, in milliseconds, using fixed ranges.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class ProfilerHistogram
+{
+    /**
+     * The upper bounds of the ranges, in milliseconds.
+     */
+    private static final long[] BOUNDS = new long[] { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000 };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Create an empty histogram.
+     */
+    public ProfilerHistogram()
+    {
+        for (int i = 0; i < this.buckets.length; ++i) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param duration the duration to add, in milliseconds
+     */
+    public void add(long duration)
+    {
+        this.count.increment();
+        this.total.add(duration);
+        this.max.accumulate(duration);
+
+        int index = 0;
+        while (index < BOUNDS.length && duration >= BOUNDS[index]) {
+            ++index;
+        }
+        this.buckets[index].increment();
+    }
+
+    /**
+     * @return the number of durations
+     */
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    /**
+     * @return the sum of the durations, in milliseconds
+     */
+    public long getTotal()
+    {
+        return this.total.sum();
+    }
+
+    /**
+     * @return the average duration, in milliseconds
+     */
+    public double getAverage()
+    {
+        long currentCount = getCount();
+
+        return currentCount > 0 ? (double) getTotal() / currentCount : 0;
+    }
+
+    /**
+     * @return the longest duration, in milliseconds
+     */
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    /**
+     * @return the number of durations in each range, from the shortest to the longest
+     */
+    public Map<String, Long> getBuckets()
+    {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS.length; ++i) {
+            result.put("< " + BOUNDS[i] + "ms", this.buckets[i].sum());
+        }
+        result.put(">= " + BOUNDS[BOUNDS.length - 1] + "ms", this.buckets[BOUNDS.length].sum());
+
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d, average=%.1fms, max=%dms, %s", getCount(), getAverage(), getMax(),
+            getBuckets());
+    }
+}
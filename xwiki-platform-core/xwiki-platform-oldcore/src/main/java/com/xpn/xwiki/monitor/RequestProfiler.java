@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.monitor;
+
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Always-on and low overhead profiler of the requests. The time spent by each request in a few well known hot paths
+ * (the categories) is aggregated in histograms per action and wiki, and the breakdown of the slow requests can be
+ * logged.
+ * <p>
+ * The timers are only recorded for the threads which called {@link #startRequest(String, String, String)}, the calls
+ * made from other threads are ignored. Nested timers of the same category are only counted once, the times of the
+ * different categories are inclusive (e.g. the {@value #STORE} time of a document loaded while rendering is also part of
+ * the {@value #RENDERING} time).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Role
+public interface RequestProfiler
+{
+    /**
+     * The category of the whole request.
+     */
+    String REQUEST = "request";
+
+    /**
+     * The category of the store accesses.
+     */
+    String STORE = "store";
+
+    /**
+     * The category of the right checks.
+     */
+    String RIGHTS = "rights";
+
+    /**
+     * The category of the document rendering (parsing, transformations and rendering).
+     */
+    String RENDERING = "rendering";
+
+    /**
+     * The category of the Velocity template evaluation.
+     */
+    String TEMPLATE = "template";
+
+    /**
+     * The category of the Solr queries.
+     */
+    String SOLR = "solr";
+
+    /**
+     * Start profiling a request in the current thread.
+     *
+     * @param action the action of the request
+     * @param wiki the wiki targeted by the request
+     * @param description a description of the request used in the log of slow requests (usually its URL)
+     */
+    void startRequest(String action, String wiki, String description);
+
+    /**
+     * Stop profiling the request of the current thread and aggregate its timers.
+     */
+    void endRequest();
+
+    /**
+     * Start a timer for the passed category in the current request, ignored if the category is already timed.
+     *
+     * @param category the category of the timer
+     */
+    void startTimer(String category);
+
+    /**
+     * Stop the timer of the passed category in the current request.
+     *
+     * @param category the category of the timer
+     */
+    void endTimer(String category);
+
+    /**
+     * Record an access to a cache.
+     *
+     * @param cache the name of the cache
+     * @param hit true if the entry was found in the cache
+     */
+    void recordCacheAccess(String cache, boolean hit);
+
+    /**
+     * @return the histograms of the requests, indexed by {@code <action>@<wiki>} and then by category (including
+     *         {@value #REQUEST}), a category only counting the requests which used it
+     */
+    Map<String, Map<String, ProfilerHistogram>> getHistograms();
+
+    /**
+     * @return the ratio of hits of each cache, between 0 and 1
+     */
+    Map<String, Double> getCacheHitRatios();
+
+    /**
+     * Forget the aggregated statistics.
+     */
+    void reset();
+}
@@ -30,6 +30,13 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 
+/**
+ * Keep the timers of the last requests.
+ *
+ * @version $Id$
+ * @deprecated since 9.7RC1 use {@link com.xpn.xwiki.monitor.RequestProfiler} instead
+ */
+@Deprecated
 public class MonitorPlugin extends XWikiDefaultPlugin
 {
     private static final Logger LOGGER = org.slf4j.LoggerFactory.getLogger(MonitorPlugin.class);
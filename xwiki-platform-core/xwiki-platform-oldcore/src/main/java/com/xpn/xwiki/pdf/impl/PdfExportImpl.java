@@ -29,21 +29,29 @@
 import java.lang.reflect.Type;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.apache.avalon.framework.configuration.Configuration;
 import org.apache.avalon.framework.configuration.ConfigurationException;
 import org.apache.avalon.framework.configuration.DefaultConfiguration;
 import org.apache.avalon.framework.configuration.DefaultConfigurationBuilder;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -66,6 +74,7 @@
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.css.CSSStyleDeclaration;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.context.Execution;
@@ -129,8 +138,18 @@ public class PdfExportImpl implements PdfExport
     /** Velocity engine manager, used for interpreting velocity. */
     private static VelocityManager velocityManager = Utils.getComponent(VelocityManager.class);
 
+    /** The maximum number of compiled XSLT stylesheets to keep. */
+    private static final int TEMPLATES_CACHE_CAPACITY = 50;
+
     /** XSLT transformer factory. */
-    private static TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private static SAXTransformerFactory transformerFactory =
+        (SAXTransformerFactory) TransformerFactory.newInstance();
+
+    /**
+     * The compiled XSLT stylesheets, indexed by the name of the resource they come from or by a digest of their
+     * content when they come from a PDFTemplate.
+     */
+    private static TemplatesCache templatesCache = new TemplatesCache(TEMPLATES_CACHE_CAPACITY);
 
     /** The Apache FOP instance used for XSL-FO processing. */
     private static FopFactory fopFactory;
@@ -318,13 +337,20 @@ protected void exportXHTML(String xhtml, OutputStream out, ExportType type, XWik
     {
         LOGGER.debug("Final XHTML for export:\n{}", xhtml);
 
-        // XSL Transformation to XML-FO
-        String xmlfo = convertXHtmlToXMLFO(xhtml, context);
+        if (LOGGER.isDebugEnabled()) {
+            // XSL Transformation to XML-FO, keeping the intermediate documents in order to log them
+            String xmlfo = convertXHtmlToXMLFO(xhtml, context);
 
-        // Debug output
-        LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
+            // Debug output
+            LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
 
-        renderXSLFO(xmlfo, out, type, context);
+            renderXSLFO(new StreamSource(new StringReader(xmlfo)), Collections.<Templates>emptyList(), out, type,
+                context);
+        } else {
+            // Stream the XHTML through both XSL transformations directly into FOP, without serializing the XSL-FO
+            List<Templates> stylesheets = Arrays.asList(getXhtml2FopXslt(context), getFopCleanupXslt(context));
+            renderXSLFO(createSAXSource(xhtml), stylesheets, out, type, context);
+        }
     }
 
     /**
@@ -350,16 +376,19 @@ private String convertXHtmlToXMLFO(String xhtml, XWikiContext context) throws XW
     }
 
     /**
-     * Convert an XSL-FO document into PDF.
+     * Convert a document into PDF. The document is transformed by the passed XSLT stylesheets, one after the other,
+     * and the SAX events produced by the last one (which must be XSL-FO) are piped directly into FOP.
      *
-     * @param xmlfo the source FO to render
+     * @param source the source document to render
+     * @param stylesheets the XSLT stylesheets to apply to the source document, an empty list if the source is already
+     *            XSL-FO
      * @param out where to write the resulting document
      * @param type the type of the output: PDF or RTF
      * @param context the XWiki Context used by the custom URI Resolver we use to locate image attachment data
      * @throws XWikiException if the conversion fails for any reason
      */
-    private void renderXSLFO(String xmlfo, OutputStream out, ExportType type, final XWikiContext context)
-        throws XWikiException
+    private void renderXSLFO(Source source, List<Templates> stylesheets, OutputStream out, ExportType type,
+        final XWikiContext context) throws XWikiException
     {
         try {
             FOUserAgent foUserAgent = fopFactory.newFOUserAgent();
@@ -370,15 +399,22 @@ private void renderXSLFO(String xmlfo, OutputStream out, ExportType type, final
             // Construct fop with desired output format
             Fop fop = fopFactory.newFop(type.getMimeType(), foUserAgent, out);
 
-            // Identity transformer
-            Transformer transformer = transformerFactory.newTransformer();
-
-            // Setup input stream
-            Source source = new StreamSource(new StringReader(xmlfo));
-
             // Resulting SAX events (the generated FO) must be piped through to FOP
             Result res = new SAXResult(fop.getDefaultHandler());
 
+            // Chain the stylesheets, starting from the last one
+            for (int i = stylesheets.size() - 1; i > 0; i--) {
+                TransformerHandler handler = transformerFactory.newTransformerHandler(stylesheets.get(i));
+                handler.setResult(res);
+                SAXResult handlerResult = new SAXResult(handler);
+                handlerResult.setLexicalHandler(handler);
+                res = handlerResult;
+            }
+
+            // The first stylesheet, or the identity transformer if there's none
+            Transformer transformer =
+                stylesheets.isEmpty() ? transformerFactory.newTransformer() : stylesheets.get(0).newTransformer();
+
             // Start XSLT transformation and FOP processing
             transformer.transform(source, res);
 
@@ -411,17 +447,61 @@ private void renderXSLFO(String xmlfo, OutputStream out, ExportType type, final
     protected String applyXSLT(String xml, InputStream xslt) throws XWikiException
     {
         try {
-            XMLReader xmlReader = Utils.getComponent(XMLReaderFactory.class).createXMLReader();
-            xmlReader.setEntityResolver(Utils.getComponent(EntityResolver.class));
+            XMLReader xmlReader = createXMLReader();
             SAXSource xmlSource = new SAXSource(xmlReader, new InputSource(new StringReader(xml)));
             SAXSource xsltSource = new SAXSource(xmlReader, new InputSource(xslt));
             return XMLUtils.transform(xmlSource, xsltSource);
         } catch (Exception e) {
-            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
-                "XSL Transformation Failed", e);
+            throw createXSLException(e);
+        }
+    }
+
+    /**
+     * Applies a compiled XSLT transformation to an XML document.
+     *
+     * @param xml the XML document to convert
+     * @param xslt the compiled XSLT to apply, see {@link #getXsltTemplates(String, String, XWikiContext)}
+     * @return the converted document
+     * @throws XWikiException if the transformation fails for any reason
+     * @since 9.7RC1
+     */
+    protected String applyXSLT(String xml, Templates xslt) throws XWikiException
+    {
+        try {
+            StringWriter output = new StringWriter();
+            xslt.newTransformer().transform(createSAXSource(xml), new StreamResult(output));
+            return output.toString();
+        } catch (Exception e) {
+            throw createXSLException(e);
         }
     }
 
+    /**
+     * @param xml an XML document
+     * @return a source parsing the passed document with the XWiki entity resolver
+     */
+    private SAXSource createSAXSource(String xml) throws XWikiException
+    {
+        try {
+            return new SAXSource(createXMLReader(), new InputSource(new StringReader(xml)));
+        } catch (Exception e) {
+            throw createXSLException(e);
+        }
+    }
+
+    private XMLReader createXMLReader() throws ParserConfigurationException, SAXException
+    {
+        XMLReader xmlReader = Utils.getComponent(XMLReaderFactory.class).createXMLReader();
+        xmlReader.setEntityResolver(Utils.getComponent(EntityResolver.class));
+        return xmlReader;
+    }
+
+    private XWikiException createXSLException(Exception cause)
+    {
+        return new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
+            "XSL Transformation Failed", cause);
+    }
+
     /**
      * Apply CSS styling to an XHTML document. The style to apply is taken from:
      * <ol>
@@ -528,11 +608,12 @@ private void applyInlineStyle(Element element)
      * </ol>
      *
      * @param context the current request context
-     * @return the content of the XSLT as a byte stream
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT can't be compiled
      */
-    private InputStream getXhtml2FopXslt(XWikiContext context)
+    private Templates getXhtml2FopXslt(XWikiContext context) throws XWikiException
     {
-        return getXslt("xhtmlxsl", DEFAULT_XHTML2FOP_XSLT, context);
+        return getXsltTemplates("xhtmlxsl", DEFAULT_XHTML2FOP_XSLT, context);
     }
 
     /**
@@ -543,11 +624,12 @@ private InputStream getXhtml2FopXslt(XWikiContext context)
      * </ol>
      *
      * @param context the current request context
-     * @return the content of the XSLT as a byte stream
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT can't be compiled
      */
-    private InputStream getFopCleanupXslt(XWikiContext context)
+    private Templates getFopCleanupXslt(XWikiContext context) throws XWikiException
     {
-        return getXslt("fopxsl", DEFAULT_CLEANUP_XSLT, context);
+        return getXsltTemplates("fopxsl", DEFAULT_CLEANUP_XSLT, context);
     }
 
     /**
@@ -578,6 +660,44 @@ protected InputStream getXslt(String propertyName, String fallbackFile, XWikiCon
         return getClass().getClassLoader().getResourceAsStream(fallbackFile);
     }
 
+    /**
+     * Get a compiled XSLT file. The XSLT is resolved like in {@link #getXslt(String, String, XWikiContext)} but it's
+     * compiled only once: stylesheets coming from a resource are cached by name and stylesheets coming from a
+     * PDFTemplate are cached by content, so a new version of the template document (or a different result of its
+     * Velocity code) leads to a new compilation.
+     *
+     * @param propertyName the name of the xproperty from which to read the XSLT file
+     * @param fallbackFile the name of a resource file to use when no XSLT content was found using the passed
+     *            {@code propertyName}
+     * @param context the current request context
+     * @return the compiled XSLT
+     * @throws XWikiException if the XSLT can't be compiled
+     * @since 9.7RC1
+     */
+    protected Templates getXsltTemplates(String propertyName, String fallbackFile, XWikiContext context)
+        throws XWikiException
+    {
+        final String xsl = getPDFTemplateProperty(propertyName, context);
+        try {
+            if (StringUtils.isBlank(xsl)) {
+                return templatesCache.get("resource:" + fallbackFile,
+                    () -> compileXslt(getClass().getClassLoader().getResourceAsStream(fallbackFile)));
+            } else {
+                return templatesCache.get("content:" + DigestUtils.sha256Hex(xsl),
+                    () -> compileXslt(IOUtils.toInputStream(xsl, context.getWiki().getEncoding())));
+            }
+        } catch (Exception e) {
+            throw createXSLException(e);
+        }
+    }
+
+    private Templates compileXslt(InputStream xslt) throws Exception
+    {
+        try (InputStream stream = xslt) {
+            return transformerFactory.newTemplates(new SAXSource(createXMLReader(), new InputSource(stream)));
+        }
+    }
+
     /**
      * Extract XSLT file content using the following algorithm:
      * <ul>
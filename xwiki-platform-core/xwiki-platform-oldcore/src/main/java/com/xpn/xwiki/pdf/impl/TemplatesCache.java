@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.pdf.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.xml.transform.Templates;
+
+/**
+ * Bounded cache of compiled XSLT stylesheets.
+ * <p>
+ * {@link Templates} are thread safe so a compiled stylesheet can be shared by all the exports using it. Compiling a
+ * stylesheet twice because two threads missed the cache at the same time is harmless, so the compilation is done
+ * outside of any lock.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class TemplatesCache
+{
+    private final Map<String, Templates> templates;
+
+    /**
+     * @param capacity the maximum number of compiled stylesheets to keep
+     */
+    public TemplatesCache(final int capacity)
+    {
+        this.templates = Collections.synchronizedMap(new LinkedHashMap<String, Templates>(capacity, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Templates> eldest)
+            {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * @param key identifies the content of the stylesheet
+     * @param compiler called to compile the stylesheet when it's not in the cache
+     * @return the compiled stylesheet
+     * @throws Exception when failing to compile the stylesheet
+     */
+    public Templates get(String key, Callable<Templates> compiler) throws Exception
+    {
+        Templates result = this.templates.get(key);
+
+        if (result == null) {
+            result = compiler.call();
+            this.templates.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Forget all the compiled stylesheets.
+     */
+    public void clear()
+    {
+        this.templates.clear();
+    }
+}
@@ -21,12 +21,24 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.cache.Cache;
@@ -39,6 +51,8 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Api;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.plugin.image.ImageVariantStore;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.web.Utils;
@@ -59,8 +73,9 @@ public class ImagePlugin extends XWikiDefaultPlugin
      * The name used for retrieving this plugin from the context.
      *
      * @see XWikiPluginInterface#getName()
+     * @since 9.7RC1
      */
-    private static final String PLUGIN_NAME = "image";
+    public static final String PLUGIN_NAME = "image";
 
     /**
      * Cache for already served images.
@@ -82,6 +97,18 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private ImageProcessor imageProcessor;
 
+    /**
+     * The dimensions of the thumbnails to generate as soon as an image is attached. This parameter can be configured
+     * using the key {@code xwiki.plugin.image.variants.pregenerate}.
+     */
+    private List<int[]> pregeneratedDimensions = new ArrayList<>();
+
+    /**
+     * The maximum number of seconds a request waits for a thumbnail to be computed before falling back on the original
+     * image. This parameter can be configured using the key {@code xwiki.plugin.image.variants.timeout}.
+     */
+    private long timeout = 30;
+
     /**
      * Creates a new instance of this plugin.
      *
@@ -128,6 +155,34 @@ public void init(XWikiContext context)
                     + "Using {} as the default image quality.", this.defaultQuality);
             }
         }
+
+        this.timeout = context.getWiki().ParamAsLong("xwiki.plugin.image.variants.timeout", this.timeout);
+
+        initPregeneratedDimensions(context);
+    }
+
+    /**
+     * Parse the dimensions of the thumbnails to generate as soon as an image is attached, in the format {@code width}
+     * or {@code widthxheight}, separated by commas.
+     *
+     * @param context the XWiki context
+     */
+    private void initPregeneratedDimensions(XWikiContext context)
+    {
+        this.pregeneratedDimensions = new ArrayList<>();
+
+        String pregenerateParam = context.getWiki().Param("xwiki.plugin.image.variants.pregenerate", "");
+        for (String dimension : StringUtils.split(StringUtils.defaultString(pregenerateParam), ", ")) {
+            try {
+                String[] values = StringUtils.split(dimension, 'x');
+                int width = Integer.parseInt(values[0]);
+                int height = values.length > 1 ? Integer.parseInt(values[1]) : -1;
+                this.pregeneratedDimensions.add(new int[] { width, height });
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring invalid thumbnail dimension [{}] in xwiki.plugin.image.variants.pregenerate "
+                    + "configuration parameter.", dimension);
+            }
+        }
     }
 
     /**
@@ -250,8 +305,12 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
         XWikiAttachment thumbnail = (this.imageCache == null)
-            ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
+            ? getThumbnail(image, width, height, keepAspectRatio, quality, context)
             : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        if (thumbnail == null) {
+            // The thumbnail is taking too long to compute, serve the original image this time.
+            return image;
+        }
 
         // If the image has been transformed, update the file name extension to match the image format.
         String fileName = thumbnail.getFilename();
@@ -286,17 +345,136 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
 
         XWikiAttachment thumbnail = this.imageCache.get(key);
         if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
-            this.imageCache.set(key, thumbnail);
+            thumbnail = getThumbnail(image, width, height, keepAspectRatio, quality, context);
+            if (thumbnail != null) {
+                this.imageCache.set(key, thumbnail);
+            }
         }
         return thumbnail;
     }
 
+    /**
+     * Gets the transformed image from the variant store, computing it if it was never requested before.
+     *
+     * @param image the image to be transformed
+     * @param width the desired image width
+     * @param height the desired image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false} otherwise
+     * @param quality the desired compression quality
+     * @param context the XWiki context
+     * @return the transformed image, the passed image if it does not need to be transformed or {@code null} if the
+     *         transformed image could not be computed in time
+     * @throws Exception if transforming the image fails
+     */
+    private XWikiAttachment getThumbnail(XWikiAttachment image, int width, int height, boolean keepAspectRatio,
+        float quality, XWikiContext context) throws Exception
+    {
+        ImageVariantStore store = Utils.getComponent(ImageVariantStore.class);
+        String variant = getVariantName(width, height, keepAspectRatio, quality);
+
+        File variantFile = store.getVariant(image, variant);
+        if (variantFile == null) {
+            CompletableFuture<File> future = store.computeVariant(image, variant,
+                getVariantWriter(image, width, height, keepAspectRatio, quality, context));
+            try {
+                variantFile = future.get(this.timeout, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (TimeoutException e) {
+                // The computation goes on in the background so the thumbnail should be ready for the next request.
+                LOG.debug("Timeout while waiting for the thumbnail of image [{}].", image.getReference());
+
+                return null;
+            }
+
+            if (variantFile == null) {
+                return image;
+            }
+        }
+
+        // Create an image attachment for the shrunk image.
+        XWikiAttachment thumbnail = (XWikiAttachment) image.clone();
+        thumbnail.loadContent(context);
+
+        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
+        try {
+            FileUtils.copyFile(variantFile, acos);
+        } finally {
+            IOUtils.closeQuietly(acos);
+        }
+
+        return thumbnail;
+    }
+
+    private ImageVariantStore.VariantWriter getVariantWriter(XWikiAttachment image, int width, int height,
+        boolean keepAspectRatio, float quality, XWikiContext context) throws XWikiException
+    {
+        String mimeType = image.getMimeType(context);
+
+        // Load the content of the image while the context is available, but only open it when the variant is computed
+        // so that pending computations don't keep files open.
+        IOUtils.closeQuietly(image.getContentInputStream(context));
+        XWikiAttachmentContent content = image.getAttachment_content();
+
+        return out -> {
+            try (InputStream in = content.getContentInputStream()) {
+                return shrinkImage(in, mimeType, width, height, keepAspectRatio, quality, out);
+            }
+        };
+    }
+
+    private String getVariantName(int width, int height, boolean keepAspectRatio, float quality)
+    {
+        return String.format("%sx%s-%s-%s", width, height, keepAspectRatio, quality);
+    }
+
+    /**
+     * Generates in the background the thumbnails configured with {@code xwiki.plugin.image.variants.pregenerate} for
+     * the given image, so that they are ready when first requested.
+     *
+     * @param image the image attachment
+     * @param context the XWiki context
+     * @since 9.7RC1
+     */
+    public void pregenerateThumbnails(XWikiAttachment image, XWikiContext context)
+    {
+        if (this.pregeneratedDimensions.isEmpty()
+            || !this.imageProcessor.isMimeTypeSupported(image.getMimeType(context))) {
+            return;
+        }
+
+        ImageVariantStore store = Utils.getComponent(ImageVariantStore.class);
+        for (int[] dimensions : this.pregeneratedDimensions) {
+            String variant = getVariantName(dimensions[0], dimensions[1], false, -1);
+            if (store.getVariant(image, variant) == null) {
+                try {
+                    store.pregenerateVariant(image, variant,
+                        getVariantWriter(image, dimensions[0], dimensions[1], false, -1, context))
+                        .whenComplete((file, e) -> {
+                            if (e instanceof RejectedExecutionException) {
+                                LOG.debug("Too many pending thumbnails, image [{}] will be scaled when requested.",
+                                    image.getReference());
+                            } else if (e != null) {
+                                LOG.warn("Failed to generate the thumbnail of image [{}]: {}", image.getReference(),
+                                    ExceptionUtils.getRootCauseMessage(e));
+                            }
+                        });
+                } catch (XWikiException e) {
+                    LOG.warn("Failed to read image [{}]: {}", image.getReference(),
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+
     /**
      * Reduces the size (i.e. the number of bytes) of an image by scaling its width and height and by reducing its
      * compression quality. This helps decreasing the time needed to download the image attachment.
+     * <p>
+     * This is called from the threads of the {@link ImageVariantStore} so it must not use the XWiki context.
      *
-     * @param attachment the image to be shrunk
+     * @param content the content of the image to be shrunk
+     * @param mimeType the MIME type of the image
      * @param requestedWidth the desired image width; this value is taken into account only if it is greater than zero
      *            and less than the current image width
      * @param requestedHeight the desired image height; this value is taken into account only if it is greater than zero
@@ -305,14 +483,14 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
      *            properly specified (in this case the image will be resized to best fit the rectangle with the
      *            requested width and height), {@code false} otherwise
      * @param requestedQuality the desired compression quality
-     * @param context the XWiki context
-     * @return the modified image attachment
-     * @throws Exception if shrinking the image fails
+     * @param out the stream where to write the shrunk image
+     * @return {@code false} if the original image should be used instead
+     * @throws IOException if shrinking the image fails
      */
-    private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
-        boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+    private boolean shrinkImage(InputStream content, String mimeType, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, float requestedQuality, OutputStream out) throws IOException
     {
-        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
+        Image image = this.imageProcessor.readImage(content);
 
         // Compute the new image dimension.
         int currentWidth = image.getWidth(null);
@@ -324,7 +502,7 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         if (quality < 0) {
             // If no scaling is needed and the quality parameter is not specified, return the original image.
             if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
+                return false;
             }
             quality = this.defaultQuality;
         }
@@ -332,19 +510,9 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         // Scale the image to the new dimensions.
         RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
 
-        // Create an image attachment for the shrunk image.
-        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
-        thumbnail.loadContent(context);
+        this.imageProcessor.writeImage(shrunkImage, mimeType, quality, out);
 
-        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
-        this.imageProcessor.writeImage(shrunkImage,
-            attachment.getMimeType(context),
-            quality,
-            acos);
-
-        IOUtils.closeQuietly(acos);
-
-        return thumbnail;
+        return true;
     }
 
     /**
@@ -21,19 +21,34 @@
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Properties;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.commons.dbcp2.BasicDataSourceFactory;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.cfg.Environment;
 import org.hibernate.connection.ConnectionProvider;
 import org.hibernate.connection.ConnectionProviderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.store.hibernate.ConnectionPoolStatistics;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiServletRequestStub;
 
 /**
  * <p>
@@ -79,6 +94,17 @@
  * href="http://jakarta.apache.org/commons/dbcp/">DBCP website</a>. There you will also find the DBCP wiki, mailing
  * lists, issue tracking and other support facilities
  * </p>
+ * <p>
+ * The statistics of the pool are exposed through JMX (see {@link ConnectionPoolStatistics}). The following XWiki
+ * specific properties are also supported:
+ * </p>
+ *
+ * <pre>
+ *   hibernate.xwiki.dbcp.background.maxTotal: when greater than 0, the code running outside of a request (jobs,
+ *     Solr indexing, mails, scheduler, etc.) uses a separate pool of this size so that it cannot starve the requests
+ *   hibernate.xwiki.dbcp.longHeldConnectionThreshold: when greater than 0, the stack trace of the code borrowing a
+ *     connection is recorded and logged when the connection is held longer than this number of milliseconds
+ * </pre>
  *
  * @see org.hibernate.connection.ConnectionProvider
  * @author Dirk Verbeeck
@@ -94,8 +120,27 @@ public class DBCPConnectionProvider implements ConnectionProvider
 
     private static final String PREFIX = "hibernate.dbcp.";
 
+    private static final String XWIKI_PREFIX = "hibernate.xwiki.dbcp.";
+
+    private static final String BACKGROUND_MAXTOTAL = XWIKI_PREFIX + "background.maxTotal";
+
+    private static final String LONGHELD_THRESHOLD = XWIKI_PREFIX + "longHeldConnectionThreshold";
+
+    private static final String MAXTOTAL = "maxTotal";
+
+    private static final String JMX_NAME = "org.xwiki:type=DatabaseConnectionPool,name=";
+
     private BasicDataSource ds;
 
+    private ConnectionPoolStatistics statistics;
+
+    /**
+     * The pool dedicated to the code running outside of a request, null when there is a single pool.
+     */
+    private ConnectionPoolStatistics backgroundStatistics;
+
+    private Execution execution;
+
     // Old Environment property for backward-compatibility (property removed in Hibernate3)
     private static final String COMPATIBILITY_PS_MAXACTIVE = "ps.maxActive";
 
@@ -155,7 +200,7 @@ public void configure(Properties props) throws HibernateException
             // Pool size
             String poolSize = props.getProperty(Environment.POOL_SIZE);
             if ((poolSize != null) && (poolSize.trim().length() > 0) && (Integer.parseInt(poolSize) > 0)) {
-                dbcpProperties.put("maxTotal", poolSize);
+                dbcpProperties.put(MAXTOTAL, poolSize);
             }
 
             // Copy all "driver" properties into "connectionProperties"
@@ -187,7 +232,7 @@ public void configure(Properties props) throws HibernateException
                             dbcpProperties.put("maxOpenPreparedStatements", value);
                             break;
                         case COMPATIBILITY_MAXACTIVE:
-                            dbcpProperties.put("maxTotal", value);
+                            dbcpProperties.put(MAXTOTAL, value);
                             break;
                         case COMPATIBILITY_MAXWAIT:
                             dbcpProperties.put("maxWaitMillis", value);
@@ -215,6 +260,22 @@ public void configure(Properties props) throws HibernateException
             Connection conn = this.ds.getConnection();
             conn.close();
 
+            long longHeldThreshold = NumberUtils.toLong(props.getProperty(LONGHELD_THRESHOLD), 0);
+            this.statistics = new ConnectionPoolStatistics(this.ds, longHeldThreshold);
+            registerMBean(this.statistics, "main");
+
+            // Separate pool for the background work, with the same configuration except for the size
+            int backgroundMaxTotal = NumberUtils.toInt(props.getProperty(BACKGROUND_MAXTOTAL), 0);
+            if (backgroundMaxTotal > 0) {
+                Properties backgroundProperties = new Properties();
+                backgroundProperties.putAll(dbcpProperties);
+                backgroundProperties.put(MAXTOTAL, String.valueOf(backgroundMaxTotal));
+
+                this.backgroundStatistics = new ConnectionPoolStatistics(
+                    BasicDataSourceFactory.createDataSource(backgroundProperties), longHeldThreshold);
+                registerMBean(this.backgroundStatistics, "background");
+            }
+
             // Log pool statistics before continuing.
             logStatistics();
         } catch (Exception e) {
@@ -229,6 +290,14 @@ public void configure(Properties props) throws HibernateException
                 }
                 this.ds = null;
             }
+            if (this.backgroundStatistics != null) {
+                try {
+                    this.backgroundStatistics.getDataSource().close();
+                } catch (Exception e2) {
+                    // ignore
+                }
+                this.backgroundStatistics = null;
+            }
             throw new HibernateException(message, e);
         }
         LOGGER.debug("Configure DBCPConnectionProvider complete");
@@ -243,10 +312,22 @@ public Connection getConnection() throws SQLException
             throw new SQLException("Database Connection Pool has not been started or is already stopped!");
         }
 
+        XWikiContext xcontext = getXWikiContext();
+        boolean background = isBackground(xcontext);
+        ConnectionPoolStatistics pool =
+            background && this.backgroundStatistics != null ? this.backgroundStatistics : this.statistics;
+
         Connection conn = null;
+        long start = System.nanoTime();
         try {
-            conn = this.ds.getConnection();
+            conn = pool.getDataSource().getConnection();
         } finally {
+            if (conn != null) {
+                pool.onBorrow(conn, System.nanoTime() - start, background ? null : xcontext.getAction());
+            } else {
+                pool.onBorrowFailure(System.nanoTime() - start);
+            }
+
             logStatistics();
         }
         return conn;
@@ -258,10 +339,97 @@ public void closeConnection(Connection conn) throws SQLException
         try {
             conn.close();
         } finally {
+            if (!this.statistics.onReturn(conn) && this.backgroundStatistics != null) {
+                this.backgroundStatistics.onReturn(conn);
+            }
+
             logStatistics();
         }
     }
 
+    private XWikiContext getXWikiContext()
+    {
+        // Hibernate creates the connection provider so it's not a component
+        if (this.execution == null) {
+            ComponentManager componentManager = Utils.getRootComponentManager();
+            if (componentManager == null || !componentManager.hasComponent(Execution.class)) {
+                return null;
+            }
+            try {
+                this.execution = componentManager.getInstance(Execution.class);
+            } catch (ComponentLookupException e) {
+                return null;
+            }
+        }
+
+        ExecutionContext executionContext = this.execution.getContext();
+
+        return executionContext != null
+            ? (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY) : null;
+    }
+
+    /**
+     * @param xcontext the current context
+     * @return true if the current thread is not handling a request (the background threads use a stub request)
+     */
+    private boolean isBackground(XWikiContext xcontext)
+    {
+        if (xcontext == null) {
+            return true;
+        }
+
+        XWikiRequest request = xcontext.getRequest();
+
+        return request == null || request.getHttpServletRequest() == null
+            || request.getHttpServletRequest() instanceof XWikiServletRequestStub;
+    }
+
+    private void registerMBean(ConnectionPoolStatistics poolStatistics, String name)
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME + name);
+            // Replace the pool of a previous configuration
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+            mbs.registerMBean(poolStatistics, objectName);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to register the database connection pool [{}] against the JMX Server", name, e);
+        }
+    }
+
+    private void unregisterMBean(String name)
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME + name);
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to unregister the database connection pool [{}] from the JMX Server", name, e);
+        }
+    }
+
+    /**
+     * @return the statistics of the pool used by the requests (or by all the threads when there is no background pool)
+     * @since 9.7RC1
+     */
+    public ConnectionPoolStatistics getStatistics()
+    {
+        return this.statistics;
+    }
+
+    /**
+     * @return the statistics of the pool dedicated to the code running outside of a request, null if there is none
+     * @since 9.7RC1
+     */
+    public ConnectionPoolStatistics getBackgroundStatistics()
+    {
+        return this.backgroundStatistics;
+    }
+
     @Override
     public void close() throws HibernateException
     {
@@ -271,9 +439,14 @@ public void close() throws HibernateException
             if (this.ds != null) {
                 this.ds.close();
                 this.ds = null;
+                unregisterMBean("main");
             } else {
                 LOGGER.warn("Cannot close Database Connection Pool (not initialized)");
             }
+            if (this.backgroundStatistics != null) {
+                this.backgroundStatistics.getDataSource().close();
+                unregisterMBean("background");
+            }
         } catch (Exception e) {
             throw new HibernateException("Could not close DBCP pool", e);
         }
@@ -302,6 +475,12 @@ protected void logStatistics()
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("active: [{}] (max: [{}]), idle: [{}] (max: [{}])", this.ds.getNumActive(),
                 this.ds.getMaxTotal(), this.ds.getNumIdle(), this.ds.getMaxIdle());
+            if (this.backgroundStatistics != null) {
+                BasicDataSource backgroundDs = this.backgroundStatistics.getDataSource();
+                LOGGER.debug("background active: [{}] (max: [{}]), idle: [{}] (max: [{}])",
+                    backgroundDs.getNumActive(), backgroundDs.getMaxTotal(), backgroundDs.getNumIdle(),
+                    backgroundDs.getMaxIdle());
+            }
         }
     }
 }
@@ -20,7 +20,9 @@
 package com.xpn.xwiki.store;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +36,7 @@
 import org.xwiki.cache.config.LRUCacheConfiguration;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
@@ -45,6 +48,7 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -58,6 +62,8 @@ public class XWikiCacheStore implements XWikiCacheStoreInterface, EventListener
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    private static final String PAGE_CACHE_NAME = "xwiki.store.pagecache";
+
     private XWikiStoreInterface store;
 
     private Cache<XWikiDocument> cache;
@@ -76,6 +82,8 @@ public class XWikiCacheStore implements XWikiCacheStoreInterface, EventListener
      */
     private ObservationManager observationManager;
 
+    private RequestProfiler profiler;
+
     public XWikiCacheStore(XWikiStoreInterface store, XWikiContext context) throws XWikiException
     {
         setStore(store);
@@ -86,6 +94,7 @@ public XWikiCacheStore(XWikiStoreInterface store, XWikiContext context) throws X
         this.observationManager = Utils.getComponent(ObservationManager.class);
         this.observationManager.addListener(this);
         this.uidStringEntityReferenceSerializer = Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "uid");
+        this.profiler = Utils.getComponent(RequestProfiler.class);
     }
 
     @Override
@@ -108,7 +117,7 @@ public void initCache(XWikiContext context) throws XWikiException
         try {
             int pageCacheCapacity = (int) context.getWiki().ParamAsLong("xwiki.store.cache.capacity", 500);
             this.cache =
-                cacheManager.createNewCache(new LRUCacheConfiguration("xwiki.store.pagecache", pageCacheCapacity));
+                cacheManager.createNewCache(new LRUCacheConfiguration(PAGE_CACHE_NAME, pageCacheCapacity));
 
             int pageExistCacheCapacity =
                 (int) context.getWiki().ParamAsLong("xwiki.store.cache.pageexistcapacity", 10000);
@@ -262,9 +271,14 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throw
             cachedoc.setFromCache(true);
 
             LOGGER.debug("Cache: got doc {} from cache", key);
+
+            this.profiler.recordCacheAccess(PAGE_CACHE_NAME, true);
         } else {
             Boolean result = getPageExistCache().get(key);
 
+            // The store is not accessed for a document known to not exist
+            this.profiler.recordCacheAccess(PAGE_CACHE_NAME, result == Boolean.FALSE);
+
             if (result == Boolean.FALSE) {
                 LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
 
@@ -542,6 +556,21 @@ public List<String> loadBacklinks(String fullName, XWikiContext context, boolean
         return this.store.loadBacklinks(fullName, context, bTransaction);
     }
 
+    @Override
+    public Map<DocumentReference, List<DocumentReference>> loadBacklinks(
+        Collection<DocumentReference> documentReferences, boolean bTransaction, XWikiContext context)
+        throws XWikiException
+    {
+        return this.store.loadBacklinks(documentReferences, bTransaction, context);
+    }
+
+    @Override
+    public Map<DocumentReference, Long> countBacklinks(SpaceReference spaceReference, boolean bTransaction,
+        XWikiContext context) throws XWikiException
+    {
+        return this.store.countBacklinks(spaceReference, bTransaction, context);
+    }
+
     @Override
     public void saveLinks(XWikiDocument doc, XWikiContext context, boolean bTransaction) throws XWikiException
     {
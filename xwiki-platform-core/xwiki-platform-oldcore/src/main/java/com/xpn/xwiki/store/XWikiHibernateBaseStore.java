@@ -59,6 +59,7 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.store.hibernate.HibernateSessionFactory;
@@ -104,6 +105,9 @@ public class XWikiHibernateBaseStore implements Initializable
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    private RequestProfiler profiler;
+
     private String hibpath = "/WEB-INF/hibernate.cfg.xml";
 
     /**
@@ -736,33 +740,10 @@ public void setDatabase(Session session, XWikiContext inputxcontext) throws XWik
         XWikiContext context = getXWikiContext(inputxcontext);
 
         try {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Switch database to [{}]", context.getWikiId());
-            }
-
+            switchDatabase(session, context);
             if (context.getWikiId() != null) {
-                String schemaName = getSchemaFromWikiName(context);
-                String escapedSchemaName = escapeSchema(schemaName, context);
-
-                DatabaseProduct databaseProduct = getDatabaseProductName();
-                if (DatabaseProduct.ORACLE == databaseProduct) {
-                    executeSQL("alter session set current_schema = " + escapedSchemaName, session);
-                } else if (DatabaseProduct.DERBY == databaseProduct || DatabaseProduct.HSQLDB == databaseProduct
-                    || DatabaseProduct.DB2 == databaseProduct || DatabaseProduct.H2 == databaseProduct) {
-                    executeSQL("SET SCHEMA " + escapedSchemaName, session);
-                } else if (DatabaseProduct.POSTGRESQL == databaseProduct && isInSchemaMode()) {
-                    executeSQL("SET search_path TO " + escapedSchemaName, session);
-                } else {
-                    String catalog = session.connection().getCatalog();
-                    catalog = (catalog == null) ? null : catalog.replace('_', '-');
-                    if (!schemaName.equals(catalog)) {
-                        session.connection().setCatalog(schemaName);
-                    }
-                }
                 setCurrentDatabase(context, context.getWikiId());
             }
-
-            this.dataMigrationManager.checkDatabase();
         } catch (Exception e) {
             endTransaction(context, false); // close session with rollback to avoid further usage
             Object[] args = { context.getWikiId() };
@@ -772,6 +753,36 @@ public void setDatabase(Session session, XWikiContext inputxcontext) throws XWik
         }
     }
 
+    private void switchDatabase(Session session, XWikiContext context) throws Exception
+    {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Switch database to [{}]", context.getWikiId());
+        }
+
+        if (context.getWikiId() != null) {
+            String schemaName = getSchemaFromWikiName(context);
+            String escapedSchemaName = escapeSchema(schemaName, context);
+
+            DatabaseProduct databaseProduct = getDatabaseProductName();
+            if (DatabaseProduct.ORACLE == databaseProduct) {
+                executeSQL("alter session set current_schema = " + escapedSchemaName, session);
+            } else if (DatabaseProduct.DERBY == databaseProduct || DatabaseProduct.HSQLDB == databaseProduct
+                || DatabaseProduct.DB2 == databaseProduct || DatabaseProduct.H2 == databaseProduct) {
+                executeSQL("SET SCHEMA " + escapedSchemaName, session);
+            } else if (DatabaseProduct.POSTGRESQL == databaseProduct && isInSchemaMode()) {
+                executeSQL("SET search_path TO " + escapedSchemaName, session);
+            } else {
+                String catalog = session.connection().getCatalog();
+                catalog = (catalog == null) ? null : catalog.replace('_', '-');
+                if (!schemaName.equals(catalog)) {
+                    session.connection().setCatalog(schemaName);
+                }
+            }
+        }
+
+        this.dataMigrationManager.checkDatabase();
+    }
+
     /**
      * Execute an SQL statement using Hibernate.
      *
@@ -944,6 +955,36 @@ public boolean beginTransaction(SessionFactory sfactory, XWikiContext inputxcont
         return true;
     }
 
+    /**
+     * Open a new session, with a started transaction, which is not bound to the context and is connected to the
+     * database of the current wiki. This is useful to read a lot of data (with a cursor for example) while the session
+     * of the context is used for something else. The caller is responsible for closing the returned session.
+     *
+     * @param inputxcontext the current XWikiContext
+     * @return the new session
+     * @throws XWikiException if an error occurs while opening the session or switching to the wiki database
+     * @since 9.7RC1
+     */
+    public Session openSession(XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getXWikiContext(inputxcontext);
+
+        Session session = getSessionFactory().openSession();
+        try {
+            session.beginTransaction();
+            switchDatabase(session, context);
+        } catch (Exception e) {
+            closeSession(session);
+
+            Object[] args = { context.getWikiId() };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SWITCH_DATABASE, "Exception while switching to database {0}",
+                e, args);
+        }
+
+        return session;
+    }
+
     /**
      * Adding a connection to the Monitor module
      *
@@ -1308,6 +1349,31 @@ public <T> T failSafeExecute(XWikiContext inputxcontext, boolean doCommit, Hiber
         }
     }
 
+    /**
+     * Start the {@link RequestProfiler#STORE} timer of the current request.
+     *
+     * @since 9.7RC1
+     */
+    protected void startProfilerTimer()
+    {
+        // Null when the store is not created as a component
+        if (this.profiler != null) {
+            this.profiler.startTimer(RequestProfiler.STORE);
+        }
+    }
+
+    /**
+     * Stop the {@link RequestProfiler#STORE} timer of the current request.
+     *
+     * @since 9.7RC1
+     */
+    protected void endProfilerTimer()
+    {
+        if (this.profiler != null) {
+            this.profiler.endTimer(RequestProfiler.STORE);
+        }
+    }
+
     /**
      * Execute method for operations in hibernate. spring like.
      *
@@ -1329,6 +1395,7 @@ public <T> T execute(XWikiContext inputxcontext, boolean doCommit, HibernateCall
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
             checkHibernate(context);
             bTransaction = beginTransaction(context);
             return cb.doInHibernate(getSession(context));
@@ -1351,6 +1418,8 @@ public <T> T execute(XWikiContext inputxcontext, boolean doCommit, HibernateCall
                 if (LOGGER.isErrorEnabled()) {
                     LOGGER.error("Exception while close transaction", e);
                 }
+            } finally {
+                endProfilerTimer();
             }
         }
     }
@@ -31,18 +31,21 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.EntityMode;
@@ -85,6 +88,7 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.doc.XWikiSpace;
+import com.xpn.xwiki.internal.objects.classes.XClassCache;
 import com.xpn.xwiki.internal.render.OldRendering;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseCollection;
@@ -114,6 +118,13 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The maximum number of links passed in a single "in" clause when loading backlinks in bulk.
+     */
+    private static final int BACKLINKS_BATCH_SIZE = 1000;
+
+    private static final Pattern LIKE_SPECIAL_CHARS = Pattern.compile("([%_/])");
+
     @Inject
     private Logger logger;
 
@@ -162,6 +173,9 @@ public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWik
     @Inject
     private Provider<OldRendering> oldRenderingProvider;
 
+    @Inject
+    private XClassCache xclassCache;
+
     private Map<String, String[]> validTypesMap = new HashMap<String, String[]>();
 
     /**
@@ -444,6 +458,7 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
 
             bTransaction = bTransaction && beginTransaction(false, context);
             Session session = getSession(context);
@@ -474,6 +489,8 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
                 XWikiException.ERROR_XWIKI_STORE_HIBERNATE_CHECK_EXISTS_DOC, "Exception while reading document {0}", e,
                 args);
         } finally {
+            endProfilerTimer();
+
             // End monitoring timer
             if (monitor != null) {
                 monitor.endTimer("hibernate");
@@ -499,6 +516,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
             doc.setStore(this);
             // Make sure the database name is stored
             doc.setDatabase(context.getWikiId());
@@ -670,6 +688,8 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                     endTransaction(context, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -859,6 +879,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
             doc.setStore(this);
             checkHibernate(context);
 
@@ -891,10 +912,15 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             }
 
             // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-            BaseClass bclass = new BaseClass();
+            BaseClass bclass;
             String cxml = doc.getXClassXML();
+            if (StringUtils.isEmpty(cxml)) {
+                bclass = new BaseClass();
+            } else {
+                // Parsing the class is expensive, copy the class parsed the last time the same XML was loaded
+                bclass = this.xclassCache.getXClass(doc.getDocumentReference(), cxml);
+            }
             if (cxml != null) {
-                bclass.fromXML(cxml);
                 doc.setXClass(bclass);
                 bclass.setDirty(false);
             }
@@ -999,6 +1025,8 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     endTransaction(context, false, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -1024,6 +1052,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
             checkHibernate(context);
             SessionFactory sfactory = injectCustomMappingsInSessionFactory(doc, context);
             bTransaction = bTransaction && beginTransaction(sfactory, context);
@@ -1088,6 +1117,8 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
                     endTransaction(context, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -1317,7 +1348,7 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
                 BaseClass bclass = null;
                 if (!classReference.equals(object.getDocumentReference())) {
                     // Let's check if the class has a custom mapping
-                    bclass = object.getXClass(context);
+                    bclass = getXClassMetadata(object, context);
                 } else {
                     // We need to get it from the document otherwise
                     // we will go in an endless loop
@@ -2049,6 +2080,135 @@ public List<DocumentReference> loadBacklinks(DocumentReference documentReference
         return new ArrayList<DocumentReference>(backlinkReferences);
     }
 
+    @Override
+    public Map<DocumentReference, List<DocumentReference>> loadBacklinks(
+        Collection<DocumentReference> documentReferences, boolean bTransaction, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getXWikiContext(inputxcontext);
+
+        // Same as for a single document: we use Sets so that we don't get duplicates.
+        Map<String, Set<DocumentReference>> backlinkReferences = new LinkedHashMap<>();
+        Map<DocumentReference, List<DocumentReference>> result = new LinkedHashMap<>();
+        for (DocumentReference documentReference : documentReferences) {
+            backlinkReferences.put(this.localEntityReferenceSerializer.serialize(documentReference),
+                new HashSet<DocumentReference>());
+        }
+
+        try {
+            if (bTransaction) {
+                checkHibernate(context);
+                bTransaction = beginTransaction(false, context);
+            }
+            Session session = getSession(context);
+
+            // Query the links by chunks to not hit the limit some databases have on the size of the "in" clause.
+            for (List<String> links : ListUtils.partition(new ArrayList<>(backlinkReferences.keySet()),
+                BACKLINKS_BATCH_SIZE)) {
+                Query query = session.createQuery("select backlink.id.link, backlink.fullName from XWikiLink "
+                    + "as backlink where backlink.id.link in (:backlinks)");
+                query.setParameterList("backlinks", links);
+
+                @SuppressWarnings("unchecked")
+                List<Object[]> results = query.list();
+
+                for (Object[] row : results) {
+                    addBacklink(backlinkReferences, (String) row[0],
+                        this.currentMixedDocumentReferenceResolver.resolve((String) row[1]));
+                }
+            }
+
+            if (bTransaction) {
+                endTransaction(context, false, false);
+            }
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_BACKLINKS, "Exception while loading backlinks", e);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false, false);
+                }
+            } catch (Exception e) {
+            }
+        }
+
+        for (DocumentReference documentReference : documentReferences) {
+            result.put(documentReference, new ArrayList<DocumentReference>(
+                backlinkReferences.get(this.localEntityReferenceSerializer.serialize(documentReference))));
+        }
+
+        return result;
+    }
+
+    private void addBacklink(Map<String, Set<DocumentReference>> backlinkReferences, String link,
+        DocumentReference backlinkReference)
+    {
+        Set<DocumentReference> backlinks = backlinkReferences.get(link);
+        if (backlinks != null) {
+            backlinks.add(backlinkReference);
+        } else {
+            // The database collation is case insensitive (or ignores trailing spaces) so the stored link doesn't match
+            // exactly the requested reference. Associate the backlink the same way the database did, and ignore it if
+            // it can't be associated with any of the requested references.
+            for (Map.Entry<String, Set<DocumentReference>> entry : backlinkReferences.entrySet()) {
+                if (StringUtils.equalsIgnoreCase(StringUtils.stripEnd(entry.getKey(), null),
+                    StringUtils.stripEnd(link, null))) {
+                    entry.getValue().add(backlinkReference);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<DocumentReference, Long> countBacklinks(SpaceReference spaceReference, boolean bTransaction,
+        XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getXWikiContext(inputxcontext);
+
+        Map<DocumentReference, Long> counts = new LinkedHashMap<>();
+
+        try {
+            if (bTransaction) {
+                checkHibernate(context);
+                bTransaction = beginTransaction(false, context);
+            }
+            Session session = getSession(context);
+
+            Query query = session.createQuery("select backlink.id.link, count(distinct backlink.fullName) "
+                + "from XWikiLink as backlink where backlink.id.link like :spacePrefix escape '/' "
+                + "group by backlink.id.link");
+            String localSpaceReference = this.localEntityReferenceSerializer.serialize(spaceReference);
+            query.setString("spacePrefix", LIKE_SPECIAL_CHARS.matcher(localSpaceReference).replaceAll("/$1") + ".%");
+
+            @SuppressWarnings("unchecked")
+            List<Object[]> results = query.list();
+
+            for (Object[] row : results) {
+                DocumentReference linkReference = this.currentMixedDocumentReferenceResolver.resolve((String) row[0]);
+                Long count = counts.get(linkReference);
+                counts.put(linkReference, (count != null ? count : 0L) + ((Number) row[1]).longValue());
+            }
+
+            if (bTransaction) {
+                endTransaction(context, false, false);
+            }
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_BACKLINKS, "Exception while counting backlinks",
+                e);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false, false);
+                }
+            } catch (Exception e) {
+            }
+        }
+
+        return counts;
+    }
+
     /**
      * @deprecated since 2.2M2 use {@link #loadBacklinks(DocumentReference, boolean, XWikiContext)}
      */
@@ -2080,18 +2240,15 @@ public void saveLinks(XWikiDocument doc, XWikiContext inputxcontext, boolean bTr
             }
             Session session = getSession(context);
 
-            // need to delete existing links before saving the page's one
-            deleteLinks(doc.getId(), context, bTransaction);
-
             // necessary to blank links from doc
             context.remove("links");
 
             // Extract the links.
-            Set<XWikiLink> links = new LinkedHashSet<>();
+            Set<XWikiLink> extractedLinks = new LinkedHashSet<>();
 
             // Add wiki syntax links.
             // FIXME: replace with doc.getUniqueWikiLinkedPages(context) when OldRendering is dropped.
-            links.addAll(this.oldRenderingProvider.get().extractLinks(doc, context));
+            extractedLinks.addAll(this.oldRenderingProvider.get().extractLinks(doc, context));
 
             // Add included pages.
             List<String> includedPages = doc.getIncludedPages(context);
@@ -2102,16 +2259,29 @@ public void saveLinks(XWikiDocument doc, XWikiContext inputxcontext, boolean bTr
                 wikiLink.setFullName(this.localEntityReferenceSerializer.serialize(doc.getDocumentReference()));
                 wikiLink.setLink(includedPage);
 
-                links.add(wikiLink);
+                extractedLinks.add(wikiLink);
             }
 
-            // Save the links.
-            for (XWikiLink wikiLink : links) {
+            Set<XWikiLink> links = new LinkedHashSet<>();
+            for (XWikiLink wikiLink : extractedLinks) {
                 // Verify that the link reference isn't larger than 255 characters (and truncate it if that's the case)
                 // since otherwise that would lead to a DB error that would result in a fatal error, and the user would
                 // have a hard time understanding why his page failed to be saved.
                 wikiLink.setLink(StringUtils.substring(wikiLink.getLink(), 0, 255));
 
+                links.add(wikiLink);
+            }
+
+            // Only touch the links which changed since the previous save instead of rewriting all of them: most saves
+            // don't modify the links of the document at all.
+            for (XWikiLink existingLink : loadLinks(doc.getId(), context, false)) {
+                if (!links.remove(existingLink)) {
+                    session.delete(existingLink);
+                }
+            }
+
+            // Save the new links.
+            for (XWikiLink wikiLink : links) {
                 session.save(wikiLink);
             }
         } catch (Exception e) {
@@ -2341,6 +2511,7 @@ public <T> List<T> search(String sql, int nb, int start, Object[][] whereParams,
             if (monitor != null) {
                 monitor.startTimer("hibernate");
             }
+            startProfilerTimer();
             checkHibernate(context);
             bTransaction = beginTransaction(false, context);
             Session session = getSession(context);
@@ -2381,6 +2552,8 @@ public <T> List<T> search(String sql, int nb, int start, Object[][] whereParams,
                     endTransaction(context, false, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -2434,6 +2607,7 @@ public List search(Query query, int nb, int start, XWikiContext inputxcontext) t
             if (monitor != null) {
                 monitor.startTimer("hibernate", query.getQueryString());
             }
+            startProfilerTimer();
             checkHibernate(context);
             bTransaction = beginTransaction(false, context);
             if (start != 0) {
@@ -2464,6 +2638,8 @@ public List search(Query query, int nb, int start, XWikiContext inputxcontext) t
                     endTransaction(context, false, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -2548,6 +2724,7 @@ private <T> List<T> searchGenericInternal(String sql, int nb, int start, List<?>
             if (monitor != null) {
                 monitor.startTimer("hibernate", sql);
             }
+            startProfilerTimer();
 
             checkHibernate(context);
             bTransaction = beginTransaction(false, context);
@@ -2578,6 +2755,8 @@ private <T> List<T> searchGenericInternal(String sql, int nb, int start, List<?>
                     endTransaction(context, false, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -2617,6 +2796,7 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
             if (monitor != null) {
                 monitor.startTimer("hibernate", sql);
             }
+            startProfilerTimer();
 
             checkHibernate(context);
             if (bTransaction) {
@@ -2651,6 +2831,8 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
                     endTransaction(context, false, false);
                 }
             } catch (Exception e) {
+            } finally {
+                endProfilerTimer();
             }
 
             // End monitoring timer
@@ -2884,7 +3066,10 @@ public boolean injectCustomMappings(XWikiDocument doc, XWikiContext inputxcontex
         for (List<BaseObject> objectsOfType : doc.getXObjects().values()) {
             for (BaseObject object : objectsOfType) {
                 if (object != null) {
-                    result |= injectCustomMapping(object.getXClass(context), context);
+                    BaseClass bclass = getXClassMetadata(object, context);
+                    if (bclass != null) {
+                        result |= injectCustomMapping(bclass, context);
+                    }
                     // Each class must be mapped only once
                     break;
                 }
@@ -2893,6 +3078,35 @@ public boolean injectCustomMappings(XWikiDocument doc, XWikiContext inputxcontex
         return result;
     }
 
+    /**
+     * Get the class of an object to read its definition (custom mapping, property types), without loading the class
+     * document when it's already known.
+     *
+     * @param object the object
+     * @param context the XWiki context
+     * @return the class of the object, which must not be modified
+     */
+    private BaseClass getXClassMetadata(BaseCollection object, XWikiContext context)
+    {
+        DocumentReference classReference = object.getXClassReference();
+        if (classReference == null) {
+            return null;
+        }
+
+        // The classes being loaded or saved take precedence
+        BaseClass bclass = context.getBaseClass(classReference);
+
+        if (bclass == null) {
+            bclass = this.xclassCache.get(classReference);
+        }
+
+        if (bclass == null) {
+            bclass = object.getXClass(context);
+        }
+
+        return bclass;
+    }
+
     /**
      * @param className the name of the class to map
      * @param custommapping the custom mapping to inject for this class
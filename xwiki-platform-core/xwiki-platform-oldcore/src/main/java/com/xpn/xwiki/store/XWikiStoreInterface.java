@@ -19,10 +19,15 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.query.QueryManager;
 
 import com.xpn.xwiki.XWikiContext;
@@ -392,6 +397,48 @@ List<DocumentReference> loadBacklinks(DocumentReference documentReference, boole
     @Deprecated
     List<String> loadBacklinks(String fullName, XWikiContext context, boolean bTransaction) throws XWikiException;
 
+    /**
+     * Load the backlinks of several documents at once. Implementations are expected to use as few queries as possible
+     * instead of calling {@link #loadBacklinks(DocumentReference, boolean, XWikiContext)} for each document.
+     *
+     * @param documentReferences the documents for which to load the backlinks
+     * @param bTransaction {@code true} if a new transaction should be started
+     * @param context the XWiki context
+     * @return the references of the documents having links to each of the passed documents, indexed by the linked
+     *         document reference (documents without backlinks are associated with an empty list)
+     * @throws XWikiException when failing to load the backlinks
+     * @since 9.7RC1
+     */
+    default Map<DocumentReference, List<DocumentReference>> loadBacklinks(
+        Collection<DocumentReference> documentReferences, boolean bTransaction, XWikiContext context)
+        throws XWikiException
+    {
+        Map<DocumentReference, List<DocumentReference>> backlinks = new LinkedHashMap<>();
+        for (DocumentReference documentReference : documentReferences) {
+            backlinks.put(documentReference, loadBacklinks(documentReference, bTransaction, context));
+        }
+
+        return backlinks;
+    }
+
+    /**
+     * Count the backlinks of all the documents located in the passed space and its nested spaces. Implementations are
+     * expected to use a single query; the default implementation doesn't support it and reports no backlinks.
+     *
+     * @param spaceReference the space containing the linked documents
+     * @param bTransaction {@code true} if a new transaction should be started
+     * @param context the XWiki context
+     * @return the number of distinct documents linking to each document of the space, only for the documents having at
+     *         least one backlink
+     * @throws XWikiException when failing to count the backlinks
+     * @since 9.7RC1
+     */
+    default Map<DocumentReference, Long> countBacklinks(SpaceReference spaceReference, boolean bTransaction,
+        XWikiContext context) throws XWikiException
+    {
+        return Collections.emptyMap();
+    }
+
     void saveLinks(XWikiDocument doc, XWikiContext context, boolean bTransaction) throws XWikiException;
 
     void deleteLinks(long docId, XWikiContext context, boolean bTransaction) throws XWikiException;
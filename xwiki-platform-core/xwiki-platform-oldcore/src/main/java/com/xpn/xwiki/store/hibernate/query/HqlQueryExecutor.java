@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.store.hibernate.query;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,14 +27,21 @@
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.NamedQueryDefinition;
@@ -58,6 +66,8 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.internal.store.hibernate.query.HqlQueryUtils;
+import com.xpn.xwiki.internal.store.hibernate.query.QueryResultCache;
+import com.xpn.xwiki.internal.store.hibernate.query.ScrollableResultsIterator;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.store.hibernate.HibernateSessionFactory;
@@ -81,6 +91,16 @@ public class HqlQueryExecutor implements QueryExecutor, Initializable
 
     private static final String ESCAPE_LIKE_PARAMETERS_FILTER = "escapeLikeParameters";
 
+    /**
+     * The maximum number of statements for which to remember whether they are safe.
+     */
+    private static final int SAFE_STATEMENTS_CACHE_SIZE = 1000;
+
+    /**
+     * The number of rows fetched from the database at once when streaming the results of a query.
+     */
+    private static final int STREAM_FETCH_SIZE = 100;
+
     /**
      * Session factory needed for register named queries mapping.
      */
@@ -103,8 +123,17 @@ public class HqlQueryExecutor implements QueryExecutor, Initializable
     @Named("context")
     private Provider<ComponentManager> componentManagerProvider;
 
+    @Inject
+    private QueryResultCache resultCache;
+
     private volatile Set<String> allowedNamedQueries;
 
+    /**
+     * Parsing a statement to validate it is costly and the same statements are executed again and again.
+     */
+    private final Map<String, Boolean> safeStatements =
+        Collections.synchronizedMap(new LRUMap<String, Boolean>(SAFE_STATEMENTS_CACHE_SIZE));
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -145,6 +174,18 @@ protected static boolean isSafeSelect(String statementString)
         return HqlQueryUtils.isShortFormStatement(statementString) || HqlQueryUtils.isSafe(statementString);
     }
 
+    private boolean isSafeSelectCached(String statementString)
+    {
+        Boolean safe = this.safeStatements.get(statementString);
+
+        if (safe == null) {
+            safe = isSafeSelect(statementString);
+            this.safeStatements.put(statementString, safe);
+        }
+
+        return safe;
+    }
+
     protected void checkAllowed(final Query query) throws QueryException
     {
         if (query instanceof SecureQuery && ((SecureQuery) query).isCurrentAuthorChecked()) {
@@ -153,7 +194,7 @@ protected void checkAllowed(final Query query) throws QueryException
                     throw new QueryException("Named queries requires programming right", query, null);
                 }
 
-                if (!isSafeSelect(query.getStatement())) {
+                if (!isSafeSelectCached(query.getStatement())) {
                     throw new QueryException("The query requires programming right", query, null);
                 }
             }
@@ -182,7 +223,7 @@ public List<T> doInHibernate(Session session)
                 {
                     org.hibernate.Query hquery = createHibernateQuery(session, query);
 
-                    List<T> results = hquery.list();
+                    List<T> results = query.isCacheable() ? listCached(hquery, query) : hquery.list();
                     if (query.getFilters() != null && !query.getFilters().isEmpty()) {
                         for (QueryFilter filter : query.getFilters()) {
                             results = filter.filterResults(results);
@@ -200,6 +241,61 @@ public List<T> doInHibernate(Session session)
         }
     }
 
+    @Override
+    public <T> Stream<T> stream(final Query query) throws QueryException
+    {
+        // Make sure the query is allowed in the current context
+        checkAllowed(query);
+
+        String oldDatabase = getContext().getWikiId();
+        Session session = null;
+        try {
+            if (query.getWiki() != null) {
+                getContext().setWikiId(query.getWiki());
+            }
+
+            // Use a dedicated session so that the cursor stays valid whatever is done with the context session while
+            // the results are consumed
+            session = getStore().openSession(getContext());
+
+            org.hibernate.Query hquery = createHibernateQuery(session, query);
+            hquery.setReadOnly(true);
+            hquery.setFetchSize(STREAM_FETCH_SIZE);
+            ScrollableResults results = hquery.scroll(ScrollMode.FORWARD_ONLY);
+
+            ScrollableResultsIterator<T> iterator =
+                new ScrollableResultsIterator<>(session, results, query.getFilters(), STREAM_FETCH_SIZE);
+
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+        } catch (Exception e) {
+            if (session != null) {
+                session.close();
+            }
+
+            throw new QueryException("Exception while streaming query", query, e);
+        } finally {
+            getContext().setWikiId(oldDatabase);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> listCached(org.hibernate.Query hquery, Query query)
+    {
+        String statement = hquery.getQueryString();
+        // Compute the key before executing the query to not cache results older than a concurrent modification
+        String key = this.resultCache.getKey(getContext().getWikiId(), statement, query);
+
+        List<T> results = this.resultCache.get(key, statement);
+        if (results == null) {
+            results = hquery.list();
+            this.resultCache.set(key, results);
+        }
+
+        // Filters are free to modify the list they get
+        return new ArrayList<>(results);
+    }
+
     protected org.hibernate.Query createHibernateQuery(Session session, Query query)
     {
         org.hibernate.Query hquery;
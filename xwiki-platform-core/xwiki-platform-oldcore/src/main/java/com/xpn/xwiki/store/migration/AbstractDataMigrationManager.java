@@ -23,16 +23,22 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -242,7 +248,7 @@ public Exception getLastMigrationException()
     /**
      * A cache of wiki database version.
      */
-    private final Map<String, MigrationStatus> statusCache = new HashMap<String, MigrationStatus>();
+    private final Map<String, MigrationStatus> statusCache = new ConcurrentHashMap<String, MigrationStatus>();
 
     /**
      * The final database version when the migration process finishes. This is use to compute the DBVersion of an empty
@@ -501,16 +507,20 @@ private void updateMigrationStatus(XWikiDBVersion version, Exception e) throws D
      * @param e exception thrown by the last migration or null if the migration was successful
      * @throws DataMigrationException if any error
      */
-    private synchronized void updateMigrationStatus(XWikiDBVersion version, boolean migrationAttempted, Exception e)
+    private void updateMigrationStatus(XWikiDBVersion version, boolean migrationAttempted, Exception e)
         throws DataMigrationException
     {
-        String wikiName = getXWikiContext().getWikiId();
-        if (!migrationAttempted || e == null) {
-            setDBVersionToDatabase(version);
-        }
-        if (version != null) {
-            this.statusCache.put(wikiName,
-                (migrationAttempted) ? new MigrationStatus(version, e) : new MigrationStatus(version));
+        // Not synchronized on this since the migration threads update the status while the thread which started the
+        // migrations holds this lock
+        synchronized (this.statusCache) {
+            String wikiName = getXWikiContext().getWikiId();
+            if (!migrationAttempted || e == null) {
+                setDBVersionToDatabase(version);
+            }
+            if (version != null) {
+                this.statusCache.put(wikiName,
+                    (migrationAttempted) ? new MigrationStatus(version, e) : new MigrationStatus(version));
+            }
         }
     }
 
@@ -615,10 +625,17 @@ private void tryToProcceedToMigration() throws DataMigrationException
         XWikiConfig config = getXWikiConfig();
         if ("1".equals(config.getProperty("xwiki.store.migration", "0"))
             && !"0".equals(config.getProperty("xwiki.store.hibernate.updateschema"))) {
-            // Run migrations
-            this.logger.info("Storage schema updates and data migrations are enabled");
+            if ("1".equals(config.getProperty("xwiki.store.migration.dryRun", "0"))) {
+                // Only report what would be done
+                this.logger.info("Storage schema updates and data migrations are enabled in dry run mode");
 
-            startMigrationsOnlyOnce();
+                reportMigrationsOnlyOnce();
+            } else {
+                // Run migrations
+                this.logger.info("Storage schema updates and data migrations are enabled");
+
+                startMigrationsOnlyOnce();
+            }
 
             // TODO: Improve or remove this which is inappropriate in a container environment
             if ("1".equals(config.getProperty("xwiki.store.migration.exitAfterEnd", "0"))) {
@@ -647,6 +664,84 @@ private synchronized void startMigrationsOnlyOnce() throws DataMigrationExceptio
         }
     }
 
+    /**
+     * Report the migrations needed by each database only once by synchronization and semaphore. The databases are left
+     * untouched so their access is still prevented when they are outdated.
+     *
+     * @throws DataMigrationException
+     */
+    private synchronized void reportMigrationsOnlyOnce() throws DataMigrationException
+    {
+        // migrations hold available migrations and is used like a semaphore to avoid multiple run
+        if (this.migrations == null) {
+            return;
+        }
+
+        try {
+            reportMigrations();
+        } finally {
+            this.migrations = null;
+        }
+    }
+
+    /**
+     * Log, for each database to migrate, the migrations which would be executed and the estimated size of the data
+     * they would process, without modifying anything. This one is not thread safe and should be synchronized. The
+     * migrations field should not be null.
+     *
+     * @throws DataMigrationException in case of any error
+     * @since 9.7RC1
+     */
+    protected void reportMigrations() throws DataMigrationException
+    {
+        List<String> databases = new ArrayList<>();
+        databases.add(getMainXWiki());
+        databases.addAll(getDatabasesToMigrate());
+
+        XWikiContext context = getXWikiContext();
+        String currentDatabase = context.getWikiId();
+        String currentOriginalDatabase = context.getOriginalWikiId();
+
+        int outdatedCount = 0;
+        Map<String, Long> totalSize = new TreeMap<>();
+        try {
+            for (String database : databases) {
+                context.setWikiId(database);
+                context.setOriginalWikiId(database);
+
+                // Log the migrations which would be applied
+                if (!getNeededMigrations().isEmpty()) {
+                    outdatedCount++;
+
+                    Map<String, Long> size = estimateDatabaseSize();
+                    this.logger.info("Data migrations of wiki [{}] would process {}", database, size);
+                    for (Map.Entry<String, Long> entry : size.entrySet()) {
+                        totalSize.merge(entry.getKey(), entry.getValue(), Long::sum);
+                    }
+                }
+            }
+        } finally {
+            context.setWikiId(currentDatabase);
+            context.setOriginalWikiId(currentOriginalDatabase);
+        }
+
+        this.logger.info("Dry run finished: [{}] of [{}] wiki database(s) would be migrated, processing {}",
+            outdatedCount, databases.size(), totalSize);
+    }
+
+    /**
+     * Estimate the size of the data stored in the database of the current wiki. Used by the dry run mode to give an
+     * idea of the amount of data the migrations would have to process.
+     *
+     * @return the number of rows of the main entities of the current wiki database, indexed by entity name
+     * @throws DataMigrationException if any error
+     * @since 9.7RC1
+     */
+    protected Map<String, Long> estimateDatabaseSize() throws DataMigrationException
+    {
+        return Collections.emptyMap();
+    }
+
     /**
      * Start the migration process. This one is not thread safe and should be synchronized. The migrations field should
      * not be null.
@@ -667,15 +762,22 @@ protected void startMigrations() throws DataMigrationException
                 throw new DataMigrationException(message);
             }
 
-            int errorCount = 0;
-            for (String database : databasesToMigrate) {
-                this.progress.startStep(this);
+            int threads = NumberUtils.toInt(getXWikiConfig().getProperty("xwiki.store.migration.threads"), 1);
 
-                if (!migrateDatabase(database)) {
-                    errorCount++;
-                }
+            int errorCount;
+            if (threads > 1 && databasesToMigrate.size() > 1) {
+                errorCount = migrateDatabasesInParallel(databasesToMigrate, threads);
+            } else {
+                errorCount = 0;
+                for (String database : databasesToMigrate) {
+                    this.progress.startStep(this);
 
-                this.progress.endStep(this);
+                    if (!migrateDatabase(database)) {
+                        errorCount++;
+                    }
+
+                    this.progress.endStep(this);
+                }
             }
 
             if (errorCount > 0) {
@@ -688,6 +790,79 @@ protected void startMigrations() throws DataMigrationException
         }
     }
 
+    /**
+     * Migrate the passed databases, each in a thread of a dedicated pool.
+     *
+     * @param databases the names of the databases to migrate
+     * @param threads the number of databases to migrate at the same time
+     * @return the number of databases which failed to be migrated
+     * @throws DataMigrationException when interrupted
+     */
+    private int migrateDatabasesInParallel(Collection<String> databases, int threads) throws DataMigrationException
+    {
+        XWikiContext context = getXWikiContext();
+
+        BasicThreadFactory factory =
+            new BasicThreadFactory.Builder().namingPattern("XWiki data migration thread %d").daemon(true).build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, factory);
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>(databases.size());
+            for (String database : databases) {
+                futures.add(executor.submit(() -> migrateDatabase(database, context)));
+            }
+
+            int errorCount = 0;
+            for (Future<Boolean> future : futures) {
+                this.progress.startStep(this);
+
+                try {
+                    if (!future.get()) {
+                        errorCount++;
+                    }
+                } catch (ExecutionException e) {
+                    this.logger.error("Unexpected failure of a data migration thread", e.getCause());
+
+                    errorCount++;
+                }
+
+                this.progress.endStep(this);
+            }
+
+            return errorCount;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DataMigrationException("Interrupted while waiting for the wiki database migrations", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Migrate a given database from a migration thread.
+     *
+     * @param database name of the database to migrate
+     * @param context the context of the thread which started the migrations
+     * @return false if there is an error updating the database
+     */
+    private boolean migrateDatabase(String database, XWikiContext context)
+    {
+        // The clone shares the store but not the context properties modified by the migration
+        ExecutionContext executionContext = new ExecutionContext();
+        context.clone().declareInExecutionContext(executionContext);
+        this.execution.setContext(executionContext);
+
+        // Like in the thread which started the migrations, the database must not be checked again while migrating it
+        this.lock.lock();
+        try {
+            return migrateDatabase(database);
+        } finally {
+            this.lock.unlock();
+            this.execution.removeContext();
+        }
+    }
+
     /**
      * Returns the names of the databases that should be migrated. The main wiki database should have been migrated and
      * is never returned. This is controlled through the "xwiki.store.migration.databases" configuration property in
@@ -845,7 +1020,11 @@ protected void startMigrations(Collection<XWikiMigration> migrations) throws Dat
                         migration.dataMigration.getName(), migration.dataMigration.getVersion(), database);
                 }
 
-                migration.dataMigration.migrate();
+                // Data migrations are singletons which may keep a state for the database being migrated so a given
+                // migration is never executed on several databases at the same time
+                synchronized (migration.dataMigration) {
+                    migration.dataMigration.migrate();
+                }
 
                 if (migration.dataMigration.getVersion().compareTo(curversion) > 0) {
                     curversion = migration.dataMigration.getVersion();
@@ -22,7 +22,9 @@
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -37,6 +39,8 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiStoreInterface;
@@ -68,6 +72,12 @@ public class HibernateDataMigrationManager extends AbstractDataMigrationManager
      */
     private static final String LIQUIBASE_RESOURCE = "liquibase-xwiki/";
 
+    /**
+     * The entities counted to estimate the size of a database.
+     */
+    private static final Class<?>[] ESTIMATED_CLASSES =
+        new Class<?>[] { XWikiDocument.class, BaseObject.class, BaseProperty.class };
+
     /**
      * @return store system for execute store-specific actions.
      * @throws DataMigrationException if the store could not be reached
@@ -359,6 +369,48 @@ protected void startMigrations() throws DataMigrationException
         }
     }
 
+    @Override
+    protected void reportMigrations() throws DataMigrationException
+    {
+        XWikiContext context = getXWikiContext();
+        XWikiHibernateBaseStore store = getStore();
+
+        Session originalSession = store.getSession(context);
+        Transaction originalTransaction = store.getTransaction(context);
+        store.setSession(null, context);
+        store.setTransaction(null, context);
+
+        try {
+            super.reportMigrations();
+        } finally {
+            store.setSession(originalSession, context);
+            store.setTransaction(originalTransaction, context);
+        }
+    }
+
+    @Override
+    protected Map<String, Long> estimateDatabaseSize() throws DataMigrationException
+    {
+        try {
+            return getStore().executeRead(getXWikiContext(), new HibernateCallback<Map<String, Long>>()
+            {
+                @Override
+                public Map<String, Long> doInHibernate(Session session) throws HibernateException
+                {
+                    Map<String, Long> size = new LinkedHashMap<>();
+                    for (Class<?> estimatedClass : ESTIMATED_CLASSES) {
+                        size.put(estimatedClass.getSimpleName(), ((Number) session.createCriteria(estimatedClass)
+                            .setProjection(Projections.rowCount()).uniqueResult()).longValue());
+                    }
+                    return size;
+                }
+            });
+        } catch (XWikiException e) {
+            throw new DataMigrationException(String.format("Unable to estimate the size of database [%s]",
+                getXWikiContext().getWikiId()), e);
+        }
+    }
+
     @Override
     protected List<? extends DataMigration> getAllMigrations() throws DataMigrationException
     {
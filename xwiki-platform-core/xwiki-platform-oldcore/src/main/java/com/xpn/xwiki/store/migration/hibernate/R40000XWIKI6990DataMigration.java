@@ -21,6 +21,7 @@
 package com.xpn.xwiki.store.migration.hibernate;
 
 import java.io.StringReader;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -101,6 +102,9 @@
 @Singleton
 public class R40000XWIKI6990DataMigration extends AbstractHibernateDataMigration
 {
+    /** Name of the configuration property holding the number of id conversions committed together. */
+    private static final String BATCH_SIZE_PROPERTY = "xwiki.store.migration.batchSize";
+
     /** Document classes to migrate, using the document id in the first column of their key. */
     private static final Class<?>[] DOC_CLASSES = new Class<?>[] {
         XWikiDocument.class,
@@ -698,7 +702,9 @@ public Boolean doInHibernate(Session session) throws XWikiException
     }
 
     /**
-     * Generic procedure to convert identifiers with some protection against conflicting ids.
+     * Generic procedure to convert identifiers with some protection against conflicting ids. The updates are committed
+     * in batches (see {@value #BATCH_SIZE_PROPERTY}) so that each batch is a checkpoint: when the migration is
+     * interrupted, the conversions already committed are not part of the conversion map computed on the next run.
      *
      * @param map the conversion map
      * @param callback the callback implementing the hibernate actions
@@ -706,6 +712,9 @@ public Boolean doInHibernate(Session session) throws XWikiException
      */
     private void convertDbId(final Map<Long, Long> map, IdConversionHibernateCallback callback) throws XWikiException
     {
+        long batchSize = Math.max(1, getXWikiContext().getWiki().ParamAsLong(BATCH_SIZE_PROPERTY, 100));
+        List<Map.Entry<Long, Long>> batch = new ArrayList<>();
+
         int count = map.size() + 1;
         while (!map.isEmpty() && count > map.size()) {
             count = map.size();
@@ -713,20 +722,18 @@ private void convertDbId(final Map<Long, Long> map, IdConversionHibernateCallbac
                 Map.Entry<Long, Long> entry = it.next();
 
                 if (!map.containsKey(entry.getValue())) {
-                    callback.setOldId(entry.getKey());
-                    callback.setNewId(entry.getValue());
+                    // The conversions of a batch are executed in order so an entry freed by a previous one of the
+                    // same batch can safely be added
+                    batch.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                    it.remove();
 
-                    try {
-                        getStore().executeWrite(getXWikiContext(), callback);
-                    } catch (Exception e) {
-                        throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                            XWikiException.ERROR_XWIKI_STORE_MIGRATION, getName()
-                            + " migration failed while converting ID from [" + entry.getKey()
-                            + "] to [" + entry.getValue() + "]", e);
+                    if (batch.size() >= batchSize) {
+                        convertDbIdBatch(batch, callback);
                     }
-                    it.remove();
                 }
             }
+
+            convertDbIdBatch(batch, callback);
         }
 
         if (!map.isEmpty()) {
@@ -736,6 +743,44 @@ XWikiException.ERROR_XWIKI_STORE_MIGRATION, getName()
         }
     }
 
+    /**
+     * Execute a batch of identifier conversions in a single transaction and clear it.
+     *
+     * @param batch the conversions to execute, in order
+     * @param callback the callback implementing the hibernate actions
+     * @throws XWikiException if an error occurs during convertion
+     */
+    private void convertDbIdBatch(final List<Map.Entry<Long, Long>> batch, final IdConversionHibernateCallback callback)
+        throws XWikiException
+    {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            getStore().executeWrite(getXWikiContext(), new HibernateCallback<Object>()
+            {
+                @Override
+                public Object doInHibernate(Session session) throws HibernateException, XWikiException
+                {
+                    for (Map.Entry<Long, Long> entry : batch) {
+                        callback.setOldId(entry.getKey());
+                        callback.setNewId(entry.getValue());
+                        callback.doInHibernate(session);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_MIGRATION, getName()
+                + " migration failed while converting a batch of " + batch.size() + " IDs starting from ["
+                + batch.get(0).getKey() + "] to [" + batch.get(0).getValue() + "]", e);
+        }
+
+        batch.clear();
+    }
+
     /**
      * Retrieve the list of table that store collections of the provided persisted class, and that need to be manually
      * updated, since no cascaded update has been added for them.
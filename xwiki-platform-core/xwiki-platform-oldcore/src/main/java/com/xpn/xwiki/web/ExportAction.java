@@ -27,8 +27,11 @@
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.input.InputFilterStream;
 import org.xwiki.filter.input.InputFilterStreamFactory;
@@ -39,6 +42,8 @@
 import org.xwiki.filter.output.OutputFilterStreamFactory;
 import org.xwiki.filter.type.FilterStreamType;
 import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -49,11 +54,17 @@
 import org.xwiki.query.QueryManager;
 import org.xwiki.query.QueryParameter;
 import org.xwiki.query.internal.DefaultQueryParameter;
+import org.xwiki.resource.ResourceReferenceSerializer;
+import org.xwiki.resource.temporary.TemporaryResourceReference;
+import org.xwiki.url.ExtendedURL;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.job.JobRequestContext;
 import com.xpn.xwiki.export.html.HtmlPackager;
+import com.xpn.xwiki.internal.export.ExportJob;
+import com.xpn.xwiki.internal.export.ExportRequest;
 import com.xpn.xwiki.internal.export.OfficeExporter;
 import com.xpn.xwiki.internal.export.OfficeExporterURLFactory;
 import com.xpn.xwiki.pdf.api.PdfExport;
@@ -63,13 +74,25 @@
 import com.xpn.xwiki.plugin.packaging.PackageAPI;
 import com.xpn.xwiki.util.Util;
 
+import net.sf.json.JSONObject;
+
 /**
  * Exports in XAR, PDF, HTML and all output formats supported by *Office (when an *Office Server is running).
+ * <p>
+ * HTML, PDF and office exports can also be executed in the background by passing {@code async=true}: the response then
+ * contains the identifier of the export job, whose progress can be followed through the job status REST resource, and
+ * the URL where the exported file can be downloaded once the job is finished.
  *
  * @version $Id$
  */
 public class ExportAction extends XWikiAction
 {
+    private static final String ASYNC_PARAM = "async";
+
+    private static final String HTML_FORMAT = "html";
+
+    private static final String PDF_FORMAT = "pdf";
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -81,7 +104,9 @@ public String render(XWikiContext context) throws XWikiException
 
             if ((format == null) || (format.equals("xar"))) {
                 defaultPage = exportXAR(context);
-            } else if (format.equals("html")) {
+            } else if ("true".equals(request.get(ASYNC_PARAM))) {
+                defaultPage = startExportJob(format, context);
+            } else if (format.equals(HTML_FORMAT)) {
                 defaultPage = exportHTML(context);
             } else {
                 defaultPage = export(format, context);
@@ -214,6 +239,99 @@ private Collection<DocumentReference> resolvePagesToExport(String[] pages, XWiki
         return pageList;
     }
 
+    private String startExportJob(String format, XWikiContext context) throws XWikiException, IOException
+    {
+        XWikiRequest request = context.getRequest();
+
+        ExportRequest exportRequest;
+        if (format.equals(HTML_FORMAT)) {
+            Collection<DocumentReference> pageList = resolvePagesToExport(request.getParameterValues("pages"), context);
+
+            String name = request.get("name");
+            if (StringUtils.isBlank(name)) {
+                name = context.getDoc().getFullName();
+            }
+
+            exportRequest =
+                new ExportRequest(format, context.getDoc().getDocumentReference(), getFileName(name, "zip"));
+            exportRequest.setPages(new ArrayList<>(pageList));
+            exportRequest.setName(name);
+            exportRequest.setDescription(request.get("description"));
+        } else {
+            ExportType exportType =
+                PDF_FORMAT.equalsIgnoreCase(format) ? ExportType.PDF : new OfficeExporter().getExportType(format);
+            if (exportType == null) {
+                context.put("message", "core.export.formatUnknown");
+                return "exception";
+            }
+
+            // Export the requested revision
+            handleRevision(context);
+
+            XWikiDocument doc = context.getDoc();
+            exportRequest = new ExportRequest(format, doc.getDocumentReference(),
+                getFileName(getExportName(doc), exportType.getExtension()));
+        }
+
+        // Execute the job with the same wiki, user, document and request parameters
+        JobRequestContext.set(exportRequest, context);
+
+        try {
+            Utils.getComponent(JobExecutor.class).execute(ExportJob.JOBTYPE, exportRequest);
+        } catch (JobException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_APP, XWikiException.ERROR_XWIKI_APP_EXPORT,
+                "Failed to start the export job", e);
+        }
+
+        ResourceReferenceSerializer<TemporaryResourceReference, ExtendedURL> serializer =
+            Utils.getComponent(new DefaultParameterizedType(null, ResourceReferenceSerializer.class,
+                TemporaryResourceReference.class, ExtendedURL.class), "standard/tmp");
+
+        JSONObject json = new JSONObject();
+        json.put("jobId", StringUtils.join(exportRequest.getId(), '/'));
+        try {
+            json.put("url", serializer.serialize(exportRequest.getResourceReference()).serialize());
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_APP, XWikiException.ERROR_XWIKI_APP_EXPORT,
+                "Failed to compute the URL of the export", e);
+        }
+
+        XWikiResponse response = context.getResponse();
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(context.getWiki().getEncoding());
+        response.getWriter().write(json.toString());
+
+        // Indicate that we are done with the response so no need to add anything
+        context.setFinished(true);
+
+        return null;
+    }
+
+    /**
+     * Compute the name of the export. Since it's gong to be saved on the user's file system it needs to be a valid
+     * File name. Thus we use the "path" serializer but replace the "/" separator by "_" since we're not computing a
+     * directory hierarchy but a file name.
+     *
+     * @param doc the exported document
+     * @return the name of the export
+     */
+    private String getExportName(XWikiDocument doc)
+    {
+        EntityReferenceSerializer<String> serializer =
+            Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "path");
+        String filename = serializer.serialize(doc.getDocumentReference()).replaceAll("/", "_");
+        // Make sure we don't go over 255 chars since several filesystems don't support filename longer than that!
+        return StringUtils.abbreviateMiddle(filename, "__", 255);
+    }
+
+    private String getFileName(String name, String extension)
+    {
+        // Keep room for the extension since several filesystems don't support filename longer than 255 chars
+        return StringUtils.abbreviateMiddle(name, "__", 250 - extension.length()).replace('/', '_') + '.'
+            + extension;
+    }
+
     private String export(String format, XWikiContext context) throws XWikiException, IOException
     {
         // We currently use the PDF export infrastructure but we have to redesign the export code.
@@ -223,7 +341,7 @@ private String export(String format, XWikiContext context) throws XWikiException
         ExportType exportType = ((OfficeExporter) exporter).getExportType(format);
         // Note 1: exportType will be null if no office server is started or it doesn't support the passed format
         // Note 2: we don't use the office server for PDF exports since it doesn't work OOB. Instead we use FOP.
-        if ("pdf".equalsIgnoreCase(format)) {
+        if (PDF_FORMAT.equalsIgnoreCase(format)) {
             // The export format is PDF or the office converter can't be used (either it doesn't support the specified
             // format or the office server is not started).
             urlFactory = new PdfURLFactory();
@@ -241,14 +359,7 @@ private String export(String format, XWikiContext context) throws XWikiException
         XWikiDocument doc = context.getDoc();
         context.getResponse().setContentType(exportType.getMimeType());
 
-        // Compute the name of the export. Since it's gong to be saved on the user's file system it needs to be a valid
-        // File name. Thus we use the "path" serializer but replace the "/" separator by "_" since we're not computing
-        // a directory hierarchy but a file name
-        EntityReferenceSerializer<String> serializer =
-            Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "path");
-        String filename = serializer.serialize(doc.getDocumentReference()).replaceAll("/", "_");
-        // Make sure we don't go over 255 chars since several filesystems don't support filename longer than that!
-        filename = StringUtils.abbreviateMiddle(filename, "__", 255);
+        String filename = getExportName(doc);
         context.getResponse().addHeader(
             "Content-disposition",
             String.format("inline; filename=%s.%s", filename, exportType.getExtension()));
@@ -241,6 +241,7 @@ private void importPackageFilterStream(XWikiAttachment packFile, XWikiRequest re
         XARInputProperties xarProperties = new XARInputProperties();
         DocumentInstanceOutputProperties instanceProperties = new DocumentInstanceOutputProperties();
         instanceProperties.setSaveComment("Imported from XAR");
+        instanceProperties.setSaveThreads((int) context.getWiki().ParamAsLong("xwiki.import.saveThreads", 1));
 
         if (pages != null) {
             EntityReferenceSet entities = new EntityReferenceSet();
@@ -316,10 +317,16 @@ private void importPackageFilterStream(XWikiAttachment packFile, XWikiRequest re
         observation.notify(new XARImportingEvent(), null, context);
 
         try {
-            xarFilterStream.read(instanceFilterStream.getFilter());
-
-            xarFilterStream.close();
-            instanceFilterStream.close();
+            try {
+                xarFilterStream.read(instanceFilterStream.getFilter());
+            } finally {
+                try {
+                    xarFilterStream.close();
+                } finally {
+                    // Also waits for the documents still being saved in the background
+                    instanceFilterStream.close();
+                }
+            }
         } finally {
             if (loggerManager != null) {
                 // Stop isolating log
@@ -81,6 +81,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.plugin.fileupload.FileUploadPlugin;
@@ -224,6 +225,7 @@ public ActionForward execute(XWikiContext context) throws Exception
         DefaultJobProgress actionProgress = null;
         ObservationManager om = Utils.getComponent(ObservationManager.class);
         Execution execution = Utils.getComponent(Execution.class);
+        RequestProfiler profiler = Utils.getComponent(RequestProfiler.class);
         String docName = "";
 
         boolean debug = StringUtils.equals(context.getRequest().get("debug"), "true");
@@ -231,6 +233,8 @@ public ActionForward execute(XWikiContext context) throws Exception
         try {
             String action = context.getAction();
 
+            profiler.startRequest(action, context.getWikiId(), String.valueOf(context.getURL()));
+
             // Start progress
             if (debug && om != null && execution != null) {
                 actionProgress = new DefaultJobProgress(context.getURL().toExternalForm());
@@ -570,6 +574,7 @@ public ActionForward execute(XWikiContext context) throws Exception
             if (monitor != null) {
                 monitor.endRequest();
             }
+            profiler.endRequest();
 
             // Stop progress
             if (actionProgress != null) {
@@ -66,6 +66,22 @@ public void getVersions() throws Exception
         assertArrayEquals(new Version[] {new Version(5, 2), new Version(5, 3)}, archive.getVersions());
     }
 
+    @Test
+    public void setArchiveIsOnlyParsedWhenNeeded() throws Exception
+    {
+        Archive rcsArchive = new Archive(new Object[] {"line"}, "file.txt", "5.2");
+        rcsArchive.addRevision(new Object[] {"line modified"}, "");
+        byte[] data = rcsArchive.toByteArray();
+        when(attachment.getFilename()).thenReturn("file.txt");
+
+        archive.setArchive(data);
+
+        // The export gets the loaded archive as is
+        assertSame(data, archive.getArchive());
+
+        assertArrayEquals(new Version[] {new Version(5, 2), new Version(5, 3)}, archive.getVersions());
+    }
+
     @Test
     public void getCurrentRevisionWhenThereIsNoHistory() throws Exception
     {
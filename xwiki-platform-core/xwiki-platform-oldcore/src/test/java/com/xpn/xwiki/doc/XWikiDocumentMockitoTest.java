@@ -22,6 +22,7 @@
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -46,7 +47,10 @@
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryFilter;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.internal.syntax.DefaultSyntaxFactory;
+import org.xwiki.rendering.parser.ContentParser;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.security.authorization.AccessDeniedException;
 import org.xwiki.security.authorization.Right;
@@ -534,6 +538,33 @@ public void testCloneSaveVersions()
         assertEquals(doc1.getVersion(), doc2.getVersion());
     }
 
+    @Test
+    public void cloneDoesNotParseContentAgain() throws Exception
+    {
+        ContentParser parser = this.oldcore.getMocker().registerMockComponent(ContentParser.class);
+        XDOM xdom = new XDOM(Collections.<Block>emptyList());
+        when(parser.parse("content", Syntax.XWIKI_2_1, DOCUMENT_REFERENCE)).thenReturn(xdom);
+        XDOM otherXDOM = new XDOM(Collections.<Block>emptyList());
+        when(parser.parse("other content", Syntax.XWIKI_2_1, DOCUMENT_REFERENCE)).thenReturn(otherXDOM);
+
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE);
+        document.setSyntax(Syntax.XWIKI_2_1);
+        document.setContent("content");
+        assertNotNull(document.getXDOM());
+
+        XWikiDocument clonedDocument = document.clone();
+        assertNotNull(clonedDocument.getXDOM());
+        assertNotSame(xdom, clonedDocument.getXDOM());
+        verify(parser).parse("content", Syntax.XWIKI_2_1, DOCUMENT_REFERENCE);
+
+        // Modifying the clone does not impact the parsed content of the document
+        clonedDocument.setContent("other content");
+        assertNotNull(clonedDocument.getXDOM());
+        assertNotNull(document.getXDOM());
+        verify(parser).parse("content", Syntax.XWIKI_2_1, DOCUMENT_REFERENCE);
+        verify(parser).parse("other content", Syntax.XWIKI_2_1, DOCUMENT_REFERENCE);
+    }
+
     @Test
     public void testAddObject() throws XWikiException
     {
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.test.annotation.AfterComponent;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link WikiWarmUpScheduler}.
+ *
+ * @version $Id$
+ */
+@ComponentList(WikiWarmUpScheduler.class)
+public class WikiWarmUpSchedulerTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private final List<String> initializedWikis = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterComponent
+    public void afterComponent() throws Exception
+    {
+        this.oldcore.registerMockEnvironment();
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+    }
+
+    private WikiWarmUpScheduler getScheduler(int threads) throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.virtual.warmup.threads", threads);
+
+        when(this.oldcore.getWikiDescriptorManager().getAllIds())
+            .thenReturn(Arrays.asList("xwiki", "wiki1", "wiki2", "wiki3"));
+
+        doAnswer(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable
+            {
+                initializedWikis.add(invocation.getArgument(0));
+                return true;
+            }
+        }).when(this.oldcore.getSpyXWiki()).initializeWiki(anyString(), eq(true), any(XWikiContext.class));
+
+        return this.oldcore.getMocker().getInstance(WikiWarmUpScheduler.class);
+    }
+
+    private void waitForWarmUp(WikiWarmUpScheduler scheduler) throws InterruptedException
+    {
+        for (int i = 0; i < 100 && !scheduler.getPendingWikis().isEmpty(); ++i) {
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    public void startMostVisitedFirst() throws Exception
+    {
+        WikiWarmUpScheduler scheduler = getScheduler(1);
+
+        scheduler.recordAccess("wiki3");
+        scheduler.recordAccess("wiki3");
+        scheduler.recordAccess("wiki2");
+
+        scheduler.start(this.oldcore.getSpyXWiki());
+        waitForWarmUp(scheduler);
+
+        assertEquals(Arrays.asList("wiki3", "wiki2", "wiki1"), this.initializedWikis);
+        assertTrue(scheduler.getPendingWikis().isEmpty());
+    }
+
+    @Test
+    public void startWhenDisabled() throws Exception
+    {
+        WikiWarmUpScheduler scheduler = getScheduler(0);
+
+        scheduler.recordAccess("wiki1");
+        scheduler.start(this.oldcore.getSpyXWiki());
+
+        assertTrue(scheduler.getPendingWikis().isEmpty());
+        assertTrue(this.initializedWikis.isEmpty());
+    }
+}
@@ -29,6 +29,10 @@
 import org.junit.Test;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
+import org.xwiki.logging.LogLevel;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
@@ -43,6 +47,12 @@
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.NumberClass;
 
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isDocument;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doThrow;
+
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
  * 
@@ -419,4 +429,85 @@ public void testDocumentwithobjectwithoutnumberandclass() throws FilterException
         Assert.assertEquals(1, documentObject.getFieldList().size());
         Assert.assertEquals("propvalue", documentObject.getStringValue("prop"));
     }
+
+    @Test
+    public void testImportDocumentsWithSeveralThreads() throws FilterException, XWikiException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(4);
+
+        importFromXML("document1", outputProperties);
+
+        XWikiDocument document =
+            this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+                this.oldcore.getXWikiContext());
+        Assert.assertFalse(document.isNew());
+        Assert.assertEquals("content", document.getContent());
+        Assert.assertEquals("1.42", document.getVersion());
+        Assert.assertEquals(1, document.getAttachmentList().size());
+
+        XWikiDocument nestedDocument = this.oldcore.getSpyXWiki().getDocument(
+            new DocumentReference("wiki", Arrays.asList("space", "nestedspace"), "page"),
+            this.oldcore.getXWikiContext());
+        Assert.assertFalse(nestedDocument.isNew());
+        Assert.assertEquals("1.52", nestedDocument.getVersion());
+
+        XWikiDocument classDocument = this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("wiki", "otherspace", "otherclass"), this.oldcore.getXWikiContext());
+        Assert.assertFalse(classDocument.isNew());
+        Assert.assertEquals("1.1", classDocument.getVersion());
+    }
+
+    @Test
+    public void testImportDocumentsWithSeveralThreadsLogsInCallingThread() throws Exception
+    {
+        doThrow(new XWikiException()).when(this.oldcore.getSpyXWiki()).saveDocument(
+            isDocument(new DocumentReference("wiki", "otherspace", "otherclass")), any(String.class), anyBoolean(),
+            anyXWikiContext());
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setStoppedWhenSaveFail(false);
+        outputProperties.setSaveThreads(2);
+
+        // The logs of the import are isolated in the calling thread
+        LoggerManager loggerManager = this.oldcore.getMocker().getInstance(LoggerManager.class);
+        LogQueue logs = new LogQueue();
+        loggerManager.pushLogListener(new LoggerListener("test", logs));
+        try {
+            importFromXML("document1", outputProperties);
+        } finally {
+            loggerManager.popLogListener();
+        }
+
+        // The logs of the documents saved by the other threads are still received
+        Assert.assertEquals(1, logs.getLogs(LogLevel.ERROR).size());
+
+        Assert.assertTrue(this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("wiki", "otherspace", "otherclass"), this.oldcore.getXWikiContext())
+            .isNew());
+        Assert.assertFalse(this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("wiki", "space", "page"), this.oldcore.getXWikiContext()).isNew());
+    }
+
+    @Test(expected = FilterException.class)
+    public void testImportDocumentsWithSeveralThreadsWhenSaveFails() throws Exception
+    {
+        doThrow(new XWikiException()).when(this.oldcore.getSpyXWiki()).saveDocument(
+            isDocument(new DocumentReference("wiki", "otherspace", "otherclass")), any(String.class), anyBoolean(),
+            anyXWikiContext());
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        importFromXML("document1", outputProperties);
+    }
 }
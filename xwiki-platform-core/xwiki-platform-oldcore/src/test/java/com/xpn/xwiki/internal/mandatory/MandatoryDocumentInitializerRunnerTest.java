@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.mandatory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.Priority;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.annotation.AfterComponent;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.MandatoryDocumentInitializer;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link MandatoryDocumentInitializerRunner}.
+ *
+ * @version $Id$
+ */
+@ComponentList(MandatoryDocumentInitializerRunner.class)
+@ReferenceComponentList
+public class MandatoryDocumentInitializerRunnerTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private final List<String> calls = new ArrayList<>();
+
+    private static class TestInitializer implements MandatoryDocumentInitializer
+    {
+        private final String name;
+
+        private final boolean update;
+
+        private final List<String> calls;
+
+        TestInitializer(String name, boolean update, List<String> calls)
+        {
+            this.name = name;
+            this.update = update;
+            this.calls = calls;
+        }
+
+        @Override
+        public EntityReference getDocumentReference()
+        {
+            return new LocalDocumentReference("Space", this.name);
+        }
+
+        @Override
+        public boolean updateDocument(XWikiDocument document)
+        {
+            this.calls.add(this.name);
+
+            if (this.update) {
+                document.setContent("initialized");
+            }
+
+            return this.update;
+        }
+    }
+
+    @Priority(500)
+    private static class EarlyTestInitializer extends TestInitializer
+    {
+        EarlyTestInitializer(String name, boolean update, List<String> calls)
+        {
+            super(name, update, calls);
+        }
+    }
+
+    @AfterComponent
+    public void afterComponent() throws Exception
+    {
+        this.oldcore.registerMockEnvironment();
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+        this.oldcore.getMocker().registerMockComponent(ContextualLocalizationManager.class);
+    }
+
+    private void registerInitializer(MandatoryDocumentInitializer initializer) throws Exception
+    {
+        this.oldcore.getMocker().registerComponent(MandatoryDocumentInitializer.class,
+            "Space." + ((LocalDocumentReference) initializer.getDocumentReference()).getName(), initializer);
+    }
+
+    @Test
+    public void initializeMandatoryDocumentsByPriority() throws Exception
+    {
+        registerInitializer(new TestInitializer("Late", true, this.calls));
+        registerInitializer(new EarlyTestInitializer("Early", false, this.calls));
+
+        MandatoryDocumentInitializerRunner runner =
+            this.oldcore.getMocker().getInstance(MandatoryDocumentInitializerRunner.class);
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+
+        assertEquals(Arrays.asList("Early", "Late"), this.calls);
+
+        XWikiDocument lateDocument = this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("xwiki", "Space", "Late"), this.oldcore.getXWikiContext());
+        assertFalse(lateDocument.isNew());
+        assertEquals("initialized", lateDocument.getContent());
+        assertTrue(this.oldcore.getSpyXWiki()
+            .getDocument(new DocumentReference("xwiki", "Space", "Early"), this.oldcore.getXWikiContext()).isNew());
+    }
+
+    @Test
+    public void initializeMandatoryDocumentsSkipUnchanged() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.mandatoryDocuments.skipUnchanged", true);
+
+        registerInitializer(new TestInitializer("Page", false, this.calls));
+
+        List<Object[]> versions = new ArrayList<>();
+        versions.add(new Object[] { "Space.Page", "1.1", new Date(1000) });
+
+        Query query = mock(Query.class);
+        QueryManager queryManager = this.oldcore.getQueryManager();
+        when(queryManager.createQuery(any(String.class), eq(Query.HQL))).thenReturn(query);
+        when(query.<Object[]>execute()).thenReturn(versions);
+
+        MandatoryDocumentInitializerRunner runner =
+            this.oldcore.getMocker().getInstance(MandatoryDocumentInitializerRunner.class);
+
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(1, this.calls.size());
+
+        // Nothing changed
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(1, this.calls.size());
+
+        // The document has been modified
+        versions.set(0, new Object[] { "Space.Page", "2.1", new Date(2000) });
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(2, this.calls.size());
+    }
+
+    @Test
+    public void initializeMandatoryDocumentsAgainAfterFailure() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.mandatoryDocuments.skipUnchanged", true);
+
+        registerInitializer(new TestInitializer("Page", true, this.calls));
+
+        List<Object[]> versions = new ArrayList<>();
+        versions.add(new Object[] { "Space.Page", "1.1", new Date(1000) });
+
+        Query query = mock(Query.class);
+        QueryManager queryManager = this.oldcore.getQueryManager();
+        when(queryManager.createQuery(any(String.class), eq(Query.HQL))).thenReturn(query);
+        when(query.<Object[]>execute()).thenReturn(versions);
+
+        doThrow(new XWikiException()).doNothing().when(this.oldcore.getSpyXWiki()).saveDocument(
+            any(XWikiDocument.class), any(), any(XWikiContext.class));
+
+        MandatoryDocumentInitializerRunner runner =
+            this.oldcore.getMocker().getInstance(MandatoryDocumentInitializerRunner.class);
+
+        // The save fails
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(1, this.calls.size());
+
+        // The fingerprint has not been stored so the document is initialized again
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(2, this.calls.size());
+
+        // Nothing changed since the successful initialization
+        runner.initializeMandatoryDocuments(this.oldcore.getXWikiContext());
+        assertEquals(2, this.calls.size());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.monitor;
+
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.monitor.ProfilerHistogram;
+import com.xpn.xwiki.monitor.RequestProfiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultRequestProfiler}.
+ *
+ * @version $Id$
+ */
+public class DefaultRequestProfilerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<RequestProfiler> mocker =
+        new MockitoComponentMockingRule<RequestProfiler>(DefaultRequestProfiler.class);
+
+    @BeforeComponent
+    public void configure() throws Exception
+    {
+        ConfigurationSource configuration = this.mocker.registerMockComponent(ConfigurationSource.class, "xwikicfg");
+        when(configuration.getProperty("xwiki.profiler", 1)).thenReturn(1);
+        when(configuration.getProperty("xwiki.profiler.slowRequestThreshold", 0L)).thenReturn(0L);
+    }
+
+    @Test
+    public void profileRequest() throws Exception
+    {
+        RequestProfiler profiler = this.mocker.getComponentUnderTest();
+
+        profiler.startRequest("view", "wiki", "/xwiki/bin/view/Main/");
+        profiler.startTimer(RequestProfiler.RENDERING);
+        profiler.startTimer(RequestProfiler.STORE);
+        profiler.endTimer(RequestProfiler.STORE);
+        // Nested timers of the same category are counted once
+        profiler.startTimer(RequestProfiler.RENDERING);
+        profiler.startTimer(RequestProfiler.STORE);
+        profiler.endTimer(RequestProfiler.STORE);
+        profiler.endTimer(RequestProfiler.RENDERING);
+        profiler.endTimer(RequestProfiler.RENDERING);
+        profiler.endRequest();
+
+        profiler.startRequest("view", "wiki", "/xwiki/bin/view/Sandbox/");
+        profiler.endRequest();
+
+        Map<String, Map<String, ProfilerHistogram>> histograms = profiler.getHistograms();
+
+        assertEquals(1, histograms.size());
+        Map<String, ProfilerHistogram> viewHistograms = histograms.get("view@wiki");
+        assertEquals(3, viewHistograms.size());
+        assertEquals(2, viewHistograms.get(RequestProfiler.REQUEST).getCount());
+        assertEquals(1, viewHistograms.get(RequestProfiler.RENDERING).getCount());
+        assertEquals(1, viewHistograms.get(RequestProfiler.STORE).getCount());
+
+        profiler.reset();
+
+        assertTrue(profiler.getHistograms().isEmpty());
+    }
+
+    @Test
+    public void timersOutsideOfARequestAreIgnored() throws Exception
+    {
+        RequestProfiler profiler = this.mocker.getComponentUnderTest();
+
+        profiler.startTimer(RequestProfiler.STORE);
+        profiler.endTimer(RequestProfiler.STORE);
+        profiler.endRequest();
+
+        assertTrue(profiler.getHistograms().isEmpty());
+    }
+
+    @Test
+    public void cacheHitRatios() throws Exception
+    {
+        RequestProfiler profiler = this.mocker.getComponentUnderTest();
+
+        profiler.recordCacheAccess("cache", true);
+        profiler.recordCacheAccess("cache", true);
+        profiler.recordCacheAccess("cache", true);
+        profiler.recordCacheAccess("cache", false);
+
+        assertEquals(0.75, profiler.getCacheHitRatios().get("cache"), 0);
+        assertFalse(profiler.getCacheHitRatios().containsKey("other"));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.objects.classes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.annotation.AfterComponent;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XClassCache}.
+ *
+ * @version $Id$
+ */
+@ComponentList(XClassCache.class)
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
+public class XClassCacheTest
+{
+    @Rule
+    public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
+
+    private final Map<Object, Object> entries = new HashMap<>();
+
+    private final DocumentReference classReference = new DocumentReference("wiki", "Space", "Class");
+
+    private XClassCache xclassCache;
+
+    @AfterComponent
+    public void afterComponent() throws Exception
+    {
+        CacheManager cacheManager = this.oldcore.getMocker().registerMockComponent(CacheManager.class);
+        Cache<Object> cache = mock(Cache.class);
+        when(cacheManager.<Object>createNewCache(isCacheConfiguration("xwiki.store.xclasscache"))).thenReturn(cache);
+
+        when(cache.get(any())).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                return entries.get(invocation.getArgument(0));
+            }
+        });
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                entries.put(invocation.getArgument(0), invocation.getArgument(1));
+                return null;
+            }
+        }).when(cache).set(any(), any());
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                entries.remove(invocation.getArgument(0));
+                return null;
+            }
+        }).when(cache).remove(any());
+    }
+
+    @Before
+    public void before() throws Exception
+    {
+        this.xclassCache = this.oldcore.getMocker().getInstance(XClassCache.class);
+    }
+
+    private String getXML(String... fields)
+    {
+        XWikiDocument classDocument = new XWikiDocument(this.classReference);
+        for (String field : fields) {
+            classDocument.getXClass().addTextField(field, field, 30);
+        }
+
+        return classDocument.getXClass().toXMLString(false);
+    }
+
+    @Test
+    public void getXClass() throws Exception
+    {
+        String xml = getXML("field1", "field2");
+
+        BaseClass xclass1 = this.xclassCache.getXClass(this.classReference, xml);
+        assertEquals(2, xclass1.getFieldList().size());
+        assertEquals(this.classReference, xclass1.getDocumentReference());
+        assertEquals(1, this.xclassCache.getMisses());
+
+        // Modifying the returned class must not affect the cached one
+        xclass1.addTextField("field3", "field3", 30);
+
+        BaseClass xclass2 = this.xclassCache.getXClass(this.classReference, xml);
+        assertNotSame(xclass1, xclass2);
+        assertEquals(2, xclass2.getFieldList().size());
+        assertEquals(1, this.xclassCache.getHits());
+        assertEquals(1, this.xclassCache.getMisses());
+
+        // A different XML is parsed again
+        BaseClass xclass3 = this.xclassCache.getXClass(this.classReference, getXML("field1"));
+        assertEquals(1, xclass3.getFieldList().size());
+        assertEquals(2, this.xclassCache.getMisses());
+    }
+
+    @Test
+    public void getAndRemove() throws Exception
+    {
+        assertNull(this.xclassCache.get(this.classReference));
+
+        this.xclassCache.getXClass(this.classReference, getXML("field"));
+
+        BaseClass xclass = this.xclassCache.get(this.classReference);
+        assertNotNull(xclass);
+        assertSame(xclass, this.xclassCache.get(this.classReference));
+        assertNotNull(xclass.get("field"));
+
+        this.xclassCache.remove(this.classReference);
+
+        assertNull(this.xclassCache.get(this.classReference));
+    }
+}
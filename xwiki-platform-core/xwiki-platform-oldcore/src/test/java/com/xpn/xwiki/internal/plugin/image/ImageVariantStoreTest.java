@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ImageVariantStore}.
+ *
+ * @version $Id$
+ */
+public class ImageVariantStoreTest
+{
+    @Rule
+    public MockitoComponentMockingRule<ImageVariantStore> mocker =
+        new MockitoComponentMockingRule<>(ImageVariantStore.class);
+
+    private File permanentDirectory = new File("target/test-" + getClass().getSimpleName());
+
+    private AttachmentReference reference =
+        new AttachmentReference("image.png", new DocumentReference("wiki", "Space", "Page"));
+
+    private XWikiAttachment attachment;
+
+    @Before
+    public void before() throws Exception
+    {
+        FileUtils.deleteDirectory(this.permanentDirectory);
+
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        ConfigurationSource configuration = this.mocker.getInstance(ConfigurationSource.class, "xwikicfg");
+        when(configuration.getProperty(eq("xwiki.plugin.image.variants.threads"), anyInt())).thenReturn(2);
+        when(configuration.getProperty(eq("xwiki.plugin.image.variants.pregenerate.queueSize"), anyInt()))
+            .thenReturn(1);
+
+        EntityReferenceSerializer<String> serializer =
+            this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(this.reference)).thenReturn("wiki:Space.Page@image.png");
+
+        this.attachment = mock(XWikiAttachment.class);
+        when(this.attachment.getReference()).thenReturn(this.reference);
+        when(this.attachment.getVersion()).thenReturn("1.1");
+    }
+
+    @Test
+    public void computeAndGetVariant() throws Exception
+    {
+        ImageVariantStore store = this.mocker.getComponentUnderTest();
+
+        assertNull(store.getVariant(this.attachment, "30x30"));
+
+        File file = store.computeVariant(this.attachment, "30x30", out -> {
+            out.write(new byte[] { 1, 2, 3 });
+            return true;
+        }).get();
+
+        assertEquals(3, file.length());
+        assertEquals(file, store.getVariant(this.attachment, "30x30"));
+
+        // A new version of the attachment doesn't reuse the variants of the previous one
+        when(this.attachment.getVersion()).thenReturn("1.2");
+        assertNull(store.getVariant(this.attachment, "30x30"));
+
+        store.deleteVariants(this.reference);
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void computeVariantIdenticalToOriginal() throws Exception
+    {
+        ImageVariantStore store = this.mocker.getComponentUnderTest();
+
+        assertNull(store.computeVariant(this.attachment, "30x30", out -> false).get());
+        assertNull(store.getVariant(this.attachment, "30x30"));
+    }
+
+    @Test
+    public void computeVariantOnlyOnceWhenRequestedConcurrently() throws Exception
+    {
+        ImageVariantStore store = this.mocker.getComponentUnderTest();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        ImageVariantStore.VariantWriter writer = out -> {
+            computations.incrementAndGet();
+            latch.await();
+            out.write(1);
+            return true;
+        };
+
+        CompletableFuture<File> first = store.computeVariant(this.attachment, "30x30", writer);
+        CompletableFuture<File> second = store.computeVariant(this.attachment, "30x30", writer);
+        assertSame(first, second);
+
+        latch.countDown();
+
+        assertEquals(first.get(), second.get());
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    public void pregenerateVariantWhenTooManyArePending() throws Exception
+    {
+        ImageVariantStore store = this.mocker.getComponentUnderTest();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<File> running = store.pregenerateVariant(this.attachment, "10x10", out -> {
+            latch.await();
+            out.write(1);
+            return true;
+        });
+        // Make sure the first variant is taken by the pregeneration thread before filling the queue
+        while (store.pregenerateVariant(this.attachment, "20x20", out -> {
+            out.write(1);
+            return true;
+        }).isCompletedExceptionally()) {
+            Thread.sleep(10);
+        }
+
+        CompletableFuture<File> rejected = store.pregenerateVariant(this.attachment, "30x30", out -> {
+            out.write(1);
+            return true;
+        });
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertNull(store.getVariant(this.attachment, "30x30"));
+
+        latch.countDown();
+
+        assertEquals(running.get(), store.getVariant(this.attachment, "10x10"));
+    }
+
+    @Test
+    public void computeVariantDoesntWaitForPregeneration() throws Exception
+    {
+        ImageVariantStore store = this.mocker.getComponentUnderTest();
+
+        CountDownLatch latch = new CountDownLatch(1);
+        store.pregenerateVariant(this.attachment, "10x10", out -> {
+            latch.await();
+            out.write(1);
+            return true;
+        });
+
+        AtomicInteger computations = new AtomicInteger();
+        ImageVariantStore.VariantWriter writer = out -> {
+            computations.incrementAndGet();
+            out.write(1);
+            return true;
+        };
+        CompletableFuture<File> pending;
+        // Wait for the first variant to be taken by the pregeneration thread so that the second one stays in the queue
+        while ((pending = store.pregenerateVariant(this.attachment, "30x30", writer)).isCompletedExceptionally()) {
+            Thread.sleep(10);
+        }
+
+        // The pending variant is computed by the request threads while the pregeneration thread is still busy
+        CompletableFuture<File> requested = store.computeVariant(this.attachment, "30x30", writer);
+        assertSame(pending, requested);
+        assertEquals(store.getVariant(this.attachment, "30x30"), requested.get(10, TimeUnit.SECONDS));
+
+        latch.countDown();
+
+        assertEquals(1, computations.get());
+    }
+}
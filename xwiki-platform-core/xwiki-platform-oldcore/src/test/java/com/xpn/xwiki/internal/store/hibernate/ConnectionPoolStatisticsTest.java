@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ConnectionPoolStatistics}.
+ *
+ * @version $Id$
+ */
+public class ConnectionPoolStatisticsTest
+{
+    private BasicDataSource dataSource;
+
+    @Before
+    public void before()
+    {
+        this.dataSource = mock(BasicDataSource.class);
+        when(this.dataSource.getNumActive()).thenReturn(3);
+        when(this.dataSource.getNumIdle()).thenReturn(2);
+        when(this.dataSource.getMaxTotal()).thenReturn(50);
+    }
+
+    @Test
+    public void borrowAndReturn()
+    {
+        ConnectionPoolStatistics statistics = new ConnectionPoolStatistics(this.dataSource, 0);
+
+        Connection connection1 = mock(Connection.class);
+        Connection connection2 = mock(Connection.class);
+
+        statistics.onBorrow(connection1, TimeUnit.MICROSECONDS.toNanos(100), "view");
+        statistics.onBorrow(connection2, TimeUnit.MILLISECONDS.toNanos(50), null);
+        statistics.onBorrowFailure(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(2, statistics.getBorrowCount());
+        assertEquals(1, statistics.getBorrowFailureCount());
+        assertEquals((0.1 + 50 + 30000) / 3, statistics.getAverageBorrowWaitTime(), 0.001);
+
+        Map<String, Long> histogram = statistics.getBorrowWaitTimeHistogram();
+        assertEquals(6, histogram.size());
+        assertEquals(Long.valueOf(1), histogram.get("< 1ms"));
+        assertEquals(Long.valueOf(1), histogram.get("< 100ms"));
+        assertEquals(Long.valueOf(1), histogram.get(">= 10000ms"));
+
+        assertTrue(statistics.onReturn(connection1));
+        assertTrue(statistics.onReturn(connection2));
+        assertFalse(statistics.onReturn(connection1));
+        assertFalse(statistics.onReturn(mock(Connection.class)));
+
+        assertEquals(2, statistics.getAverageHoldTimeByAction().size());
+        assertTrue(statistics.getAverageHoldTimeByAction().containsKey("view"));
+        assertTrue(statistics.getAverageHoldTimeByAction().containsKey(ConnectionPoolStatistics.NO_ACTION));
+
+        assertEquals(3, statistics.getNumActive());
+        assertEquals(2, statistics.getNumIdle());
+        assertEquals(50, statistics.getMaxTotal());
+
+        statistics.reset();
+
+        assertEquals(0, statistics.getBorrowCount());
+        assertEquals(0, statistics.getAverageBorrowWaitTime(), 0);
+        assertTrue(statistics.getAverageHoldTimeByAction().isEmpty());
+    }
+
+    @Test
+    public void longHeldConnections() throws Exception
+    {
+        ConnectionPoolStatistics statistics = new ConnectionPoolStatistics(this.dataSource, 1);
+
+        Connection connection = mock(Connection.class);
+        statistics.onBorrow(connection, 0, "save");
+
+        Thread.sleep(5);
+
+        assertEquals(1, statistics.getLongHeldConnections().size());
+        assertTrue(statistics.getLongHeldConnections().get(0).contains("(action [save])"));
+        assertTrue(statistics.getLongHeldConnections().get(0).contains("longHeldConnections"));
+
+        statistics.onReturn(connection);
+
+        assertTrue(statistics.getLongHeldConnections().isEmpty());
+    }
+
+    @Test
+    public void longHeldConnectionsDisabled()
+    {
+        ConnectionPoolStatistics statistics = new ConnectionPoolStatistics(this.dataSource, 0);
+
+        statistics.onBorrow(mock(Connection.class), 0, "view");
+
+        assertTrue(statistics.getLongHeldConnections().isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate.query;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.query.Query;
+import org.xwiki.query.internal.DefaultQuery;
+import org.xwiki.query.internal.QueryResultCacheStatistics;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link QueryResultCache}.
+ *
+ * @version $Id$
+ */
+public class QueryResultCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<QueryResultCache> mocker =
+        new MockitoComponentMockingRule<>(QueryResultCache.class);
+
+    private Cache<List<Object>> cache;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() throws Exception
+    {
+        ConfigurationSource configuration = this.mocker.getInstance(ConfigurationSource.class);
+        when(configuration.getProperty("query.resultCache.capacity", 1000)).thenReturn(1000);
+
+        this.cache = mock(Cache.class);
+        CacheManager cacheManager = this.mocker.getInstance(CacheManager.class);
+        when(cacheManager.<List<Object>>createNewCache(any(CacheConfiguration.class))).thenReturn(this.cache);
+    }
+
+    private Query createQuery(Object value)
+    {
+        Query query = new DefaultQuery("where doc.space = :space", Query.HQL, null);
+        query.bindValue("space", value);
+        query.setLimit(10);
+
+        return query;
+    }
+
+    @Test
+    public void getKeyDependsOnParametersAndLimits() throws Exception
+    {
+        QueryResultCache resultCache = this.mocker.getComponentUnderTest();
+
+        String key = resultCache.getKey("wiki", "statement", createQuery("Main"));
+
+        assertEquals(key, resultCache.getKey("wiki", "statement", createQuery("Main")));
+        assertNotEquals(key, resultCache.getKey("wiki", "statement", createQuery("Sandbox")));
+        assertNotEquals(key, resultCache.getKey("otherwiki", "statement", createQuery("Main")));
+        assertNotEquals(key, resultCache.getKey("wiki", "statement", createQuery("Main").setOffset(10)));
+    }
+
+    @Test
+    public void invalidateChangesTheKeysOfTheWikiOnly() throws Exception
+    {
+        QueryResultCache resultCache = this.mocker.getComponentUnderTest();
+
+        String key = resultCache.getKey("wiki", "statement", createQuery("Main"));
+        String otherKey = resultCache.getKey("otherwiki", "statement", createQuery("Main"));
+
+        resultCache.invalidate("wiki");
+
+        assertNotEquals(key, resultCache.getKey("wiki", "statement", createQuery("Main")));
+        assertEquals(otherKey, resultCache.getKey("otherwiki", "statement", createQuery("Main")));
+    }
+
+    @Test
+    public void getAndSetCountHitsAndMisses() throws Exception
+    {
+        QueryResultCache resultCache = this.mocker.getComponentUnderTest();
+
+        List<Object> results = Arrays.<Object>asList("Main.WebHome");
+        when(this.cache.get("key")).thenReturn(results);
+
+        assertNull(resultCache.get("otherkey", "statement"));
+        assertSame(results, resultCache.get("key", "statement"));
+        assertSame(results, resultCache.get("key", "statement"));
+
+        resultCache.set("otherkey", results);
+        verify(this.cache).set(eq("otherkey"), any());
+
+        Map<String, Long> statistics = resultCache.getStatistics().get("statement");
+        assertEquals(2L, statistics.get(QueryResultCacheStatistics.HITS).longValue());
+        assertEquals(1L, statistics.get(QueryResultCacheStatistics.MISSES).longValue());
+
+        resultCache.reset();
+
+        assertEquals(0, resultCache.getStatistics().size());
+        verify(this.cache).removeAll();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.hibernate.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.query.QueryFilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ScrollableResultsIterator}.
+ *
+ * @version $Id$
+ */
+public class ScrollableResultsIteratorTest
+{
+    private Session session;
+
+    private ScrollableResults results;
+
+    @Before
+    public void before()
+    {
+        this.session = mock(Session.class);
+        this.results = mock(ScrollableResults.class);
+
+        when(this.results.next()).thenReturn(true, true, true, true, true, false);
+        when(this.results.get()).thenReturn(new Object[] { "A" }, new Object[] { "B" }, new Object[] { "C" },
+            new Object[] { "D" }, new Object[] { "E", 5 });
+    }
+
+    @Test
+    public void iterateByChunks()
+    {
+        ScrollableResultsIterator<Object> iterator =
+            new ScrollableResultsIterator<>(this.session, this.results, null, 2);
+
+        List<Object> values = new ArrayList<>();
+        while (iterator.hasNext()) {
+            values.add(iterator.next());
+        }
+
+        assertEquals(Arrays.asList("A", "B", "C", "D"), values.subList(0, 4));
+        assertEquals(Arrays.asList("E", 5), Arrays.asList((Object[]) values.get(4)));
+
+        // Once before each chunk
+        verify(this.session, times(3)).clear();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void filterEachChunk()
+    {
+        QueryFilter filter = mock(QueryFilter.class);
+        when(filter.filterResults(any(List.class))).thenReturn(Collections.emptyList(),
+            Arrays.<Object>asList("C"), Collections.emptyList());
+
+        ScrollableResultsIterator<Object> iterator =
+            new ScrollableResultsIterator<>(this.session, this.results, Arrays.asList(filter), 2);
+
+        assertEquals("C", iterator.next());
+        assertFalse(iterator.hasNext());
+
+        verify(filter, times(3)).filterResults(any(List.class));
+    }
+
+    @Test
+    public void close()
+    {
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.isActive()).thenReturn(true);
+        when(this.session.getTransaction()).thenReturn(transaction);
+
+        new ScrollableResultsIterator<>(this.session, this.results, null, 2).close();
+
+        verify(this.results).close();
+        verify(transaction).rollback();
+        verify(this.session).close();
+    }
+}
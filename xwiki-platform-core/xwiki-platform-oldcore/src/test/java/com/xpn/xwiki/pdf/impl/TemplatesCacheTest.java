@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.pdf.impl;
+
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link TemplatesCache}.
+ *
+ * @version $Id$
+ */
+public class TemplatesCacheTest
+{
+    private static final String XSL = "<xsl:stylesheet version=\"1.0\" "
+        + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:template match=\"/\"/></xsl:stylesheet>";
+
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    private Templates compile() throws Exception
+    {
+        this.compilations.incrementAndGet();
+        return TransformerFactory.newInstance().newTemplates(new StreamSource(new StringReader(XSL)));
+    }
+
+    @Test
+    public void getCompilesOnlyOnce() throws Exception
+    {
+        TemplatesCache cache = new TemplatesCache(10);
+
+        Templates templates = cache.get("key", this::compile);
+
+        assertSame(templates, cache.get("key", this::compile));
+        assertEquals(1, this.compilations.get());
+
+        assertNotSame(templates, cache.get("other", this::compile));
+        assertEquals(2, this.compilations.get());
+
+        cache.clear();
+
+        assertNotSame(templates, cache.get("key", this::compile));
+        assertEquals(3, this.compilations.get());
+    }
+
+    @Test
+    public void getEvictsLeastRecentlyUsed() throws Exception
+    {
+        TemplatesCache cache = new TemplatesCache(2);
+
+        Templates first = cache.get("first", this::compile);
+        cache.get("second", this::compile);
+        // Use the first one again so that the second one is evicted
+        cache.get("first", this::compile);
+        cache.get("third", this::compile);
+        assertEquals(3, this.compilations.get());
+
+        assertSame(first, cache.get("first", this::compile));
+        assertEquals(3, this.compilations.get());
+
+        cache.get("second", this::compile);
+        assertEquals(4, this.compilations.get());
+    }
+}
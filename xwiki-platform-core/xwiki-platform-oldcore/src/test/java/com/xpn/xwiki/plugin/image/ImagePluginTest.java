@@ -31,11 +31,14 @@
 import org.junit.Test;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.annotation.ComponentList;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.plugin.image.ImageVariantStore;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
@@ -48,6 +51,7 @@
  * 
  * @version $Id$
  */
+@ComponentList(ImageVariantStore.class)
 public class ImagePluginTest
 {
     private static final byte[] testPngImageContent =
@@ -102,6 +106,10 @@ public void configure() throws Exception
         doReturn("test").when(xwiki).Param(eq("xwiki.plugin.image.processorHint"), anyString());
 
         this.oldCore.getMocker().registerMockComponent(CacheManager.class);
+        this.oldCore.registerMockEnvironment();
+        EntityReferenceSerializer<String> serializer =
+            this.oldCore.getMocker().registerMockComponent(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(any())).thenReturn("wiki:Space.Page@image.png");
 
         this.imageProcessor = this.oldCore.getMocker().registerMockComponent(ImageProcessor.class, "test");
         when(this.imageProcessor.isMimeTypeSupported("image/png")).thenReturn(true);
@@ -158,7 +166,8 @@ public void testCacheOfScaledAttachment() throws Exception
         // Load again, this time from cache.
         assertSame(scaled, plugin.downloadAttachment(attachment, xcontext));
 
-        verify(imageProcessor, times(1)).writeImage(renderedImage, "image/png", .5F, attachmentOutputStream);
+        verify(imageProcessor, times(1)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
         verify(imageCache, times(1)).set(cacheKey, attachment);
     }
 }
@@ -31,6 +31,7 @@
 import org.xwiki.test.annotation.ComponentList;
 
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
@@ -59,11 +60,14 @@
 
     private Cache<Boolean> existCache;
 
+    private RequestProfiler profiler;
+
     @Before
     public void before() throws Exception
     {
         this.oldcore.getMocker().registerMockComponent(RemoteObservationManagerContext.class);
         this.oldcore.getMocker().registerMockComponent(ObservationManager.class);
+        this.profiler = this.oldcore.getMocker().registerMockComponent(RequestProfiler.class);
 
         CacheManager cacheManager = this.oldcore.getMocker().registerMockComponent(CacheManager.class);
         cache = mock(Cache.class);
@@ -114,5 +118,8 @@ public void testLoadXWikiDoc() throws Exception
 
         verifyNoMoreInteractions(this.cache);
         verifyNoMoreInteractions(this.existCache);
+
+        // Both documents were loaded from the store
+        verify(this.profiler, times(2)).recordCacheAccess("xwiki.store.pagecache", false);
     }
 }
@@ -21,10 +21,12 @@
 
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
@@ -40,7 +42,9 @@
 import org.mockito.ArgumentCaptor;
 import org.xwiki.bridge.event.ActionExecutingEvent;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.QueryManager;
@@ -358,4 +362,73 @@ public void getTranslationList() throws Exception
         verify(query).bindValue("space", "Path.To");
         verify(query).bindValue("name", documentReference.getName());
     }
+
+    @Test
+    public void loadBacklinksOfSeveralDocuments() throws Exception
+    {
+        DocumentReference aliceReference = new DocumentReference("chess", "Space", "Alice");
+        DocumentReference bobReference = new DocumentReference("chess", "Space", "Bob");
+        DocumentReference carolReference = new DocumentReference("chess", "Other", "Carol");
+        DocumentReference daveReference = new DocumentReference("chess", "Other", "Dave");
+
+        EntityReferenceSerializer<String> localEntityReferenceSerializer =
+            this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localEntityReferenceSerializer.serialize(aliceReference)).thenReturn("Space.Alice");
+        when(localEntityReferenceSerializer.serialize(bobReference)).thenReturn("Space.Bob");
+
+        DocumentReferenceResolver<String> currentMixedDocumentReferenceResolver =
+            this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "currentmixed");
+        when(currentMixedDocumentReferenceResolver.resolve("Other.Carol")).thenReturn(carolReference);
+        when(currentMixedDocumentReferenceResolver.resolve("Other.Dave")).thenReturn(daveReference);
+
+        Query query = mock(Query.class);
+        when(session.createQuery("select backlink.id.link, backlink.fullName from XWikiLink "
+            + "as backlink where backlink.id.link in (:backlinks)")).thenReturn(query);
+        // The database collation might be case insensitive.
+        when(query.list()).thenReturn(Arrays.asList(new Object[] { "Space.Alice", "Other.Carol" },
+            new Object[] { "space.alice", "Other.Dave" }, new Object[] { "Space.Alice", "Other.Dave" },
+            new Object[] { "Space.Unknown", "Other.Carol" }));
+
+        Map<DocumentReference, List<DocumentReference>> backlinks =
+            store.loadBacklinks(Arrays.asList(aliceReference, bobReference), true, context);
+
+        assertEquals(Arrays.asList(aliceReference, bobReference), new ArrayList<>(backlinks.keySet()));
+        assertEquals(2, backlinks.get(aliceReference).size());
+        assertTrue(backlinks.get(aliceReference).containsAll(Arrays.asList(carolReference, daveReference)));
+        assertEquals(Collections.emptyList(), backlinks.get(bobReference));
+
+        verify(query).setParameterList("backlinks", Arrays.asList("Space.Alice", "Space.Bob"));
+    }
+
+    @Test
+    public void countBacklinks() throws Exception
+    {
+        SpaceReference spaceReference = new SpaceReference("chess", "My_Space");
+        DocumentReference aliceReference = new DocumentReference("Alice", spaceReference);
+        DocumentReference bobReference = new DocumentReference("chess", Arrays.asList("My_Space", "Nested"), "Bob");
+
+        EntityReferenceSerializer<String> localEntityReferenceSerializer =
+            this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localEntityReferenceSerializer.serialize(spaceReference)).thenReturn("My_Space");
+
+        DocumentReferenceResolver<String> currentMixedDocumentReferenceResolver =
+            this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "currentmixed");
+        when(currentMixedDocumentReferenceResolver.resolve("My_Space.Alice")).thenReturn(aliceReference);
+        when(currentMixedDocumentReferenceResolver.resolve("My_Space.Nested.Bob")).thenReturn(bobReference);
+
+        Query query = mock(Query.class);
+        when(session.createQuery("select backlink.id.link, count(distinct backlink.fullName) "
+            + "from XWikiLink as backlink where backlink.id.link like :spacePrefix escape '/' "
+            + "group by backlink.id.link")).thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList(new Object[] { "My_Space.Alice", 2L },
+            new Object[] { "My_Space.Nested.Bob", 1L }));
+
+        Map<DocumentReference, Long> counts = store.countBacklinks(spaceReference, true, context);
+
+        assertEquals(2, counts.size());
+        assertEquals(Long.valueOf(2), counts.get(aliceReference));
+        assertEquals(Long.valueOf(1), counts.get(bobReference));
+
+        verify(query).setString("spacePrefix", "My/_Space.%");
+    }
 }
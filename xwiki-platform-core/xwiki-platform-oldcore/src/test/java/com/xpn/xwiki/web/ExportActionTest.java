@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,6 +29,7 @@
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.filter.input.InputFilterStream;
 import org.xwiki.filter.input.InputFilterStreamFactory;
 import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
@@ -35,15 +38,24 @@
 import org.xwiki.filter.output.OutputFilterStreamFactory;
 import org.xwiki.filter.type.FilterStreamType;
 import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.Request;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
+import org.xwiki.resource.ResourceReferenceSerializer;
+import org.xwiki.resource.temporary.TemporaryResourceReference;
+import org.xwiki.url.ExtendedURL;
 
 import static org.mockito.Mockito.*;
 import static org.junit.Assert.*;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.export.ExportJob;
+import com.xpn.xwiki.internal.export.ExportRequest;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 /**
@@ -130,4 +142,52 @@ public void exportFullSpaceUsingWildcardsAsXAR() throws Exception
         assertEquals(true, properties.getValue().getEntities().matches(
             new DocumentReference("xwiki", "Space", "Page2")));
     }
+
+    @Test
+    public void exportPDFAsynchronously() throws Exception
+    {
+        ExportAction action = new ExportAction();
+
+        XWikiContext context = oldcore.getXWikiContext();
+        DocumentReference documentReference = new DocumentReference("xwiki", "Space", "Page");
+        context.setDoc(new XWikiDocument(documentReference));
+
+        XWikiRequest request = mock(XWikiRequest.class);
+        when(request.get("format")).thenReturn("pdf");
+        when(request.get("async")).thenReturn("true");
+        context.setRequest(request);
+
+        EntityReferenceSerializer<String> pathSerializer =
+            oldcore.getMocker().registerMockComponent(EntityReferenceSerializer.TYPE_STRING, "path");
+        when(pathSerializer.serialize(documentReference)).thenReturn("Space/Page");
+
+        JobExecutor jobExecutor = oldcore.getMocker().registerMockComponent(JobExecutor.class);
+
+        ResourceReferenceSerializer<TemporaryResourceReference, ExtendedURL> urlSerializer =
+            oldcore.getMocker().registerMockComponent(new DefaultParameterizedType(null,
+                ResourceReferenceSerializer.class, TemporaryResourceReference.class, ExtendedURL.class),
+                "standard/tmp");
+        when(urlSerializer.serialize(any(TemporaryResourceReference.class)))
+            .thenReturn(new ExtendedURL(Arrays.asList("xwiki", "tmp", "export", "Space_Page.pdf")));
+
+        XWikiResponse response = mock(XWikiResponse.class);
+        StringWriter output = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+        context.setResponse(response);
+
+        assertNull(action.render(context));
+
+        ArgumentCaptor<Request> jobRequest = ArgumentCaptor.forClass(Request.class);
+        verify(jobExecutor).execute(eq(ExportJob.JOBTYPE), jobRequest.capture());
+        ExportRequest exportRequest = (ExportRequest) jobRequest.getValue();
+        assertEquals("pdf", exportRequest.getFormat());
+        assertEquals(documentReference, exportRequest.getDocumentReference());
+        assertEquals("Space_Page.pdf", exportRequest.getFileName());
+        assertEquals(Arrays.asList(exportRequest.getId().get(1), "Space_Page.pdf"),
+            exportRequest.getResourceReference().getResourcePath());
+
+        verify(response).setStatus(202);
+        assertTrue(output.toString().contains("\"jobId\":\"export/" + exportRequest.getId().get(1) + "\""));
+        assertTrue(output.toString().contains("\"url\":\"") && output.toString().contains("Space_Page.pdf"));
+    }
 }
@@ -24,17 +24,14 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.inject.Provider;
 
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.uiextension.UIExtension;
 import org.xwiki.uiextension.UIExtensionManager;
+import org.xwiki.uiextension.internal.UIExtensionIndex;
 
 /**
  * Abstract panels UI extension manager. Implementations must provide a list of panel IDs to be displayed, this class
@@ -51,12 +48,6 @@ public abstract class AbstractPanelsUIExtensionManager implements UIExtensionMan
     @Inject
     protected ConfigurationSource configurationSource;
 
-    /**
-     * The logger to log.
-     */
-    @Inject
-    private Logger logger;
-
     /**
      * Resolver allowing to retrieve reference from the panels configuration.
      */
@@ -71,13 +62,11 @@ public abstract class AbstractPanelsUIExtensionManager implements UIExtensionMan
     private EntityReferenceSerializer<String> serializer;
 
     /**
-     * We use the Context Component Manager to lookup UI Extensions registered as components.
-     * The Context Component Manager allows Extensions to be registered for a specific user, for a specific wiki or for
-     * a whole farm.
+     * The UI extensions of the Context Component Manager, indexed by identifier. The Context Component Manager allows
+     * Extensions to be registered for a specific user, for a specific wiki or for a whole farm.
      */
     @Inject
-    @Named("context")
-    private Provider<ComponentManager> contextComponentManagerProvider;
+    private UIExtensionIndex index;
 
     /**
      * Method returning the list of configured panels.
@@ -100,18 +89,8 @@ public List<UIExtension> get(String extensionPointId)
                 panelSerializedReferences.add(serializer.serialize(resolver.resolve(serializedReference.trim())));
             }
 
-            try {
-                List<UIExtension> allExtensions =
-                    contextComponentManagerProvider.get().getInstanceList(UIExtension.class);
-                for (String panelSerializedReference : panelSerializedReferences) {
-                    for (UIExtension extension : allExtensions) {
-                        if (extension.getId().equals(panelSerializedReference)) {
-                            panels.add(extension);
-                        }
-                    }
-                }
-            } catch (ComponentLookupException e) {
-                logger.error("Failed to lookup Panels instances, error: [{}]", e);
+            for (String panelSerializedReference : panelSerializedReferences) {
+                panels.addAll(this.index.getById(panelSerializedReference));
             }
         }
 
@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * This is a Query interface, representing all queries in various languages for various stores.
@@ -171,10 +172,55 @@ default QueryParameter bindValue(String var)
      */
     int getOffset();
 
+    /**
+     * Indicate that the results of this query can be reused until something is modified in the wiki where it is
+     * executed. This is only a hint: the executor of the query language decides if it supports caching (the
+     * {@code hql} and {@code xwql} executors do). Only use it for queries returning values (names, counts, etc.) and not
+     * entities, and whose parameters are simple values.
+     *
+     * @param cacheable true if the results of this query can be cached
+     * @return this query
+     * @since 9.7RC1
+     */
+    default Query setCacheable(boolean cacheable)
+    {
+        return this;
+    }
+
+    /**
+     * @return true if the results of this query can be cached
+     * @see #setCacheable(boolean)
+     * @since 9.7RC1
+     */
+    default boolean isCacheable()
+    {
+        return false;
+    }
+
     /**
      * @param <T> expected type of elements in the result list.
      * @return result list of the query. If several fields are selected then T=Object[].
      * @throws QueryException if something goes wrong.
      */
     <T> List<T> execute() throws QueryException;
+
+    /**
+     * Execute the query and give access to the results one after another instead of loading them all in memory. This
+     * is meant for code going through a very large number of results (all the documents of a wiki, etc.), for which
+     * paginating with {@link #setOffset(int)} becomes slower and slower as the offset grows.
+     * <p>
+     * The returned stream may hold a database cursor and connection until it's closed so it should always be closed
+     * (for example with a try-with-resources statement). The results are read from the database by small chunks and
+     * the filters of the query are applied on each chunk. Implementations which don't support it load all the results
+     * like {@link #execute()}.
+     *
+     * @param <T> expected type of elements in the result stream
+     * @return the results of the query. If several fields are selected then T=Object[].
+     * @throws QueryException if something goes wrong
+     * @since 9.7RC1
+     */
+    default <T> Stream<T> stream() throws QueryException
+    {
+        return this.<T>execute().stream();
+    }
 }
@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Make it simple to change the behavior of a {@link Query} by extending this class and overriding only the behavior
@@ -152,9 +153,27 @@ public int getOffset()
         return getWrappedQuery().getOffset();
     }
 
+    @Override
+    public Query setCacheable(boolean cacheable)
+    {
+        return getWrappedQuery().setCacheable(cacheable);
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return getWrappedQuery().isCacheable();
+    }
+
     @Override
     public <T> List<T> execute() throws QueryException
     {
         return getWrappedQuery().execute();
     }
+
+    @Override
+    public <T> Stream<T> stream() throws QueryException
+    {
+        return getWrappedQuery().stream();
+    }
 }
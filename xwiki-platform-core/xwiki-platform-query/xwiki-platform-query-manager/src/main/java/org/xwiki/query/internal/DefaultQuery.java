@@ -23,6 +23,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,6 +97,11 @@ public class DefaultQuery implements SecureQuery
      */
     private boolean checkCurrentUser;
 
+    /**
+     * @see #isCacheable()
+     */
+    private boolean cacheable;
+
     /**
      * field for {@link #getFilters()}.
      */
@@ -232,6 +238,19 @@ public Query setOffset(int offset)
         return this;
     }
 
+    @Override
+    public Query setCacheable(boolean cacheable)
+    {
+        this.cacheable = cacheable;
+        return this;
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return this.cacheable;
+    }
+
     @Override
     public boolean isCurrentAuthorChecked()
     {
@@ -296,6 +315,12 @@ public <T> List<T> execute() throws QueryException
         return getExecuter().execute(this);
     }
 
+    @Override
+    public <T> Stream<T> stream() throws QueryException
+    {
+        return getExecuter().stream(this);
+    }
+
     /**
      * @return QueryExecutor interface for execute the query.
      */
@@ -23,6 +23,7 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -63,13 +64,23 @@ public class DefaultQueryExecutorManager implements QueryExecutorManager
 
     @Override
     public <T> List<T> execute(Query query) throws QueryException
+    {
+        return getExecutor(query).execute(query);
+    }
+
+    @Override
+    public <T> Stream<T> stream(Query query) throws QueryException
+    {
+        return getExecutor(query).stream(query);
+    }
+
+    private QueryExecutor getExecutor(Query query) throws QueryException
     {
         if (query.isNamed()) {
-            return this.namedQueryExecutorProvider.get().execute(query);
+            return this.namedQueryExecutorProvider.get();
         } else {
             try {
-                return this.componentManagerProvider.get()
-                    .<QueryExecutor>getInstance(QueryExecutor.class, query.getLanguage()).execute(query);
+                return this.componentManagerProvider.get().getInstance(QueryExecutor.class, query.getLanguage());
             } catch (ComponentLookupException e) {
                 throw new QueryException("Fail to lookup query executor", query, e);
             }
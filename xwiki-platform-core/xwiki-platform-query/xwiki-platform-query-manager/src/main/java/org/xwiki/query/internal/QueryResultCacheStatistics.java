@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.internal;
+
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Statistics about the cache used by query executors for the results of the queries marked as cacheable (see
+ * {@link org.xwiki.query.Query#setCacheable(boolean)}).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Role
+public interface QueryResultCacheStatistics
+{
+    /**
+     * The statistic holding the number of executions answered from the cache.
+     */
+    String HITS = "hits";
+
+    /**
+     * The statistic holding the number of executions which had to go to the database.
+     */
+    String MISSES = "misses";
+
+    /**
+     * @return the statistics ({@link #HITS} and {@link #MISSES}) indexed by query statement
+     */
+    Map<String, Map<String, Long>> getStatistics();
+
+    /**
+     * Forget all the cached results and statistics.
+     */
+    void reset();
+}
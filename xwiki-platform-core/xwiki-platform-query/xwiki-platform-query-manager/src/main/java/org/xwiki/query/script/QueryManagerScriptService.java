@@ -19,11 +19,15 @@
  */
 package org.xwiki.query.script;
 
+import java.util.Collections;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
@@ -31,8 +35,11 @@
 import org.xwiki.query.QueryParameter;
 import org.xwiki.query.SecureQuery;
 import org.xwiki.query.internal.DefaultQueryParameter;
+import org.xwiki.query.internal.QueryResultCacheStatistics;
 import org.xwiki.query.internal.ScriptQuery;
 import org.xwiki.script.service.ScriptService;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
 
 /**
  * Provides Query Manager-specific Scripting APIs.
@@ -58,6 +65,9 @@ public class QueryManagerScriptService implements ScriptService
     @Inject
     private ComponentManager componentManager;
 
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
     /**
      * Shortcut for writing a XWQL query.
      * 
@@ -114,6 +124,27 @@ public QueryParameter parameter()
         return new DefaultQueryParameter(null);
     }
 
+    /**
+     * @return the hits and misses of the cache used for the queries marked as cacheable, indexed by query statement,
+     *         or an empty map if the current user does not have programming rights (the statements of all the wikis
+     *         are returned)
+     * @since 9.7RC1
+     */
+    public Map<String, Map<String, Long>> getCacheStatistics()
+    {
+        if (this.authorization.hasAccess(Right.PROGRAM) && this.componentManager.hasComponent(
+            QueryResultCacheStatistics.class)) {
+            try {
+                return this.componentManager.<QueryResultCacheStatistics>getInstance(QueryResultCacheStatistics.class)
+                    .getStatistics();
+            } catch (ComponentLookupException e) {
+                // Not supposed to happen since we checked the component exists
+            }
+        }
+
+        return Collections.emptyMap();
+    }
+
     private Query createQuery(String statement, String language, boolean checkCurrentUser) throws QueryException
     {
         Query query = this.secureQueryManager.createQuery(statement, language);
@@ -20,6 +20,7 @@
 package org.xwiki.query.xwql.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -37,6 +38,10 @@
  */
 public class QueryContext
 {
+    private static final String LOOKUP_PROPERTY_TYPE = "type";
+
+    private static final String LOOKUP_PROPERTY_CUSTOM_MAPPED = "customMapped";
+
     /**
      * Parse tree of a query.
      */
@@ -56,6 +61,12 @@
 
     private DocumentAccessBridge documentAccessBridge;
 
+    /**
+     * The answers of the document access bridge used while translating the query. The translation stays valid as long
+     * as the bridge gives the same answers.
+     */
+    private Map<List<String>, Object> bridgeLookups = new LinkedHashMap<List<String>, Object>();
+
     public QueryContext(Start tree, DocumentAccessBridge documentAccessBridge)
     {
         this.tree = tree;
@@ -145,12 +156,12 @@ public PropertyInfo(String name, ObjectInfo object)
 
         public String getType() throws Exception
         {
-            return documentAccessBridge.getPropertyType(object.className, name);
+            return (String) lookup(LOOKUP_PROPERTY_TYPE, object.className, name);
         }
 
         public boolean isCustomMapped() throws Exception
         {
-            return documentAccessBridge.isPropertyCustomMapped(object.className, name);
+            return (Boolean) lookup(LOOKUP_PROPERTY_CUSTOM_MAPPED, object.className, name);
         }
 
         public String getValueField() throws Exception
@@ -230,5 +241,40 @@ public Set<String> getDocuments()
         return documents.keySet();
     }
 
+    /**
+     * @return the answers of the document access bridge the translation of the query depends on, indexed by question
+     * @since 9.7RC1
+     */
+    public Map<List<String>, Object> getBridgeLookups()
+    {
+        return bridgeLookups;
+    }
+
+    private Object lookup(String kind, String className, String propertyName) throws Exception
+    {
+        List<String> key = Arrays.asList(kind, className, propertyName);
+        Object value = lookup(documentAccessBridge, key);
+        bridgeLookups.put(key, value);
+        return value;
+    }
+
+    /**
+     * Ask again a question recorded in {@link #getBridgeLookups()}.
+     *
+     * @param documentAccessBridge the bridge to ask
+     * @param key the question, as found in {@link #getBridgeLookups()}
+     * @return the current answer
+     * @throws Exception when failing to get the answer
+     * @since 9.7RC1
+     */
+    public static Object lookup(DocumentAccessBridge documentAccessBridge, List<String> key) throws Exception
+    {
+        if (LOOKUP_PROPERTY_TYPE.equals(key.get(0))) {
+            return documentAccessBridge.getPropertyType(key.get(1), key.get(2));
+        } else {
+            return documentAccessBridge.isPropertyCustomMapped(key.get(1), key.get(2));
+        }
+    }
+
     String DocumentFromName = "Document";
 }
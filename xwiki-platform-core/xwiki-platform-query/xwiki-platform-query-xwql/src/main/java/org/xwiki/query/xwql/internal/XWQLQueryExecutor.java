@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -60,6 +61,17 @@ public class XWQLQueryExecutor implements QueryExecutor
     @Inject
     private JobProgressManager progress;
 
+    /**
+     * Execute the translated query.
+     *
+     * @param <R> the type of the result
+     */
+    @FunctionalInterface
+    private interface NativeQueryRunner<R>
+    {
+        R run(Query nativeQuery) throws QueryException;
+    }
+
     public QueryManager getQueryManager() throws ComponentLookupException
     {
         // We can't inject QueryManager because of cyclic dependency.
@@ -77,6 +89,17 @@ public static boolean isShortFormStatement(String statement)
 
     @Override
     public <T> List<T> execute(Query query) throws QueryException
+    {
+        return execute(query, nativeQuery -> nativeQuery.<T>execute());
+    }
+
+    @Override
+    public <T> Stream<T> stream(Query query) throws QueryException
+    {
+        return execute(query, nativeQuery -> nativeQuery.<T>stream());
+    }
+
+    private <R> R execute(Query query, NativeQueryRunner<R> runner) throws QueryException
     {
         EntityReference currentEntityReference = this.context.getCurrentEntityReference();
 
@@ -99,6 +122,7 @@ public <T> List<T> execute(Query query) throws QueryException
             nativeQuery.setLimit(query.getLimit());
             nativeQuery.setOffset(query.getOffset());
             nativeQuery.setWiki(query.getWiki());
+            nativeQuery.setCacheable(query.isCacheable());
             if (query.getFilters() != null) {
                 for (QueryFilter filter : query.getFilters()) {
                     nativeQuery.addFilter(filter);
@@ -121,7 +145,7 @@ public <T> List<T> execute(Query query) throws QueryException
                 ((SecureQuery) nativeQuery).checkCurrentUser(((SecureQuery) query).isCurrentUserChecked());
             }
 
-            return nativeQuery.execute();
+            return runner.run(nativeQuery);
         } catch (Exception e) {
             if (e instanceof QueryException) {
                 throw (QueryException) e;
@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.query.xwql.internal.hql;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.query.xwql.internal.QueryContext;
+
+/**
+ * Bounded cache of XWQL statements already translated to HQL.
+ * <p>
+ * The result of a translation only depends on the statement and on the class properties it uses, so each entry also
+ * remembers what the {@link DocumentAccessBridge} answered about those properties and is only reused if the answers
+ * did not change (a property type may be modified or the same statement executed against another wiki).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class TranslationCache implements TranslationCacheMBean
+{
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong translationTime = new AtomicLong();
+
+    private static final class Entry
+    {
+        private final String output;
+
+        private final Map<List<String>, Object> lookups;
+
+        private Entry(String output, Map<List<String>, Object> lookups)
+        {
+            this.output = output;
+            this.lookups = lookups;
+        }
+    }
+
+    /**
+     * @param capacity the maximum number of translations to keep
+     */
+    public TranslationCache(final int capacity)
+    {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(capacity, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * @param statement the XWQL statement
+     * @param documentAccessBridge the bridge used to check that the cached translation is still valid
+     * @return the cached translation or null if there is none or it's not valid anymore
+     */
+    public String get(String statement, DocumentAccessBridge documentAccessBridge)
+    {
+        Entry entry = this.entries.get(statement);
+
+        if (entry != null && isValid(entry, documentAccessBridge)) {
+            this.hits.incrementAndGet();
+
+            return entry.output;
+        }
+
+        this.misses.incrementAndGet();
+
+        return null;
+    }
+
+    private boolean isValid(Entry entry, DocumentAccessBridge documentAccessBridge)
+    {
+        try {
+            for (Map.Entry<List<String>, Object> lookup : entry.lookups.entrySet()) {
+                if (!Objects.equals(lookup.getValue(), QueryContext.lookup(documentAccessBridge, lookup.getKey()))) {
+                    return false;
+                }
+            }
+        } catch (Exception e) {
+            // Let the translation report the problem
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param statement the XWQL statement
+     * @param output the translated statement
+     * @param lookups the answers of the document access bridge the translation depends on
+     * @param time the time it took to parse and translate the statement, in nanoseconds
+     */
+    public void put(String statement, String output, Map<List<String>, Object> lookups, long time)
+    {
+        this.entries.put(statement, new Entry(output, lookups));
+        this.translationTime.addAndGet(time);
+    }
+
+    @Override
+    public void clear()
+    {
+        this.entries.clear();
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+
+    @Override
+    public long getTranslationTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.translationTime.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The estimation is the number of hits multiplied by the average translation time.
+     */
+    @Override
+    public long getSavedTime()
+    {
+        long translations = getMisses();
+
+        return translations > 0
+            ? TimeUnit.NANOSECONDS.toMillis(getHits() * this.translationTime.get() / translations) : 0;
+    }
+
+    @Override
+    public int getSize()
+    {
+        return this.entries.size();
+    }
+}
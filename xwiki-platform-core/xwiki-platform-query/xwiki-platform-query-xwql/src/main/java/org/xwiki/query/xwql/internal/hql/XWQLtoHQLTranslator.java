@@ -19,10 +19,18 @@
  */
 package org.xwiki.query.xwql.internal.hql;
 
+import java.lang.management.ManagementFactory;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
+import org.slf4j.Logger;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
 import org.xwiki.query.jpql.internal.JPQLParser;
 import org.xwiki.query.jpql.node.Start;
 import org.xwiki.query.xwql.internal.QueryAnalyzer;
@@ -35,15 +43,77 @@
 @Component
 @Named("hql")
 @Singleton
-public class XWQLtoHQLTranslator implements QueryTranslator
+public class XWQLtoHQLTranslator implements QueryTranslator, Initializable, Disposable
 {
     @Inject
     protected DocumentAccessBridge documentAccessBridge;
 
+    /**
+     * The name under which the cache of translated statements is registered against the JMX Server.
+     */
+    private static final String JMX_NAME = "org.xwiki:type=XWQLTranslationCache";
+
+    /**
+     * The maximum number of translated statements to keep in memory.
+     */
+    private static final int CACHE_CAPACITY = 1000;
+
+    private final TranslationCache cache = new TranslationCache(CACHE_CAPACITY);
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public void initialize()
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME);
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+            mbs.registerMBean(new StandardMBean(this.cache, TranslationCacheMBean.class), objectName);
+        } catch (Exception e) {
+            this.logger.warn("Failed to register the XWQL translation cache against the JMX Server", e);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME);
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to unregister the XWQL translation cache from the JMX Server", e);
+        }
+
+        this.cache.clear();
+    }
+
     @Override
     public String translate(String input) throws Exception
     {
-        input = input.trim();
+        String output = this.cache.get(input, getDocumentAccessBridge());
+
+        if (output == null) {
+            long start = System.nanoTime();
+
+            QueryContext context = parse(input);
+            output = getPrinter(context).print();
+
+            this.cache.put(input, output, context.getBridgeLookups(), System.nanoTime() - start);
+        }
+
+        return output;
+    }
+
+    private QueryContext parse(String statement) throws Exception
+    {
+        String input = statement.trim();
         String lcInput = input.toLowerCase();
         String addition = "select doc.fullName from Document as doc ";
         if (lcInput.startsWith("where") || lcInput.startsWith("order") || lcInput.length() == 0) {
@@ -57,8 +127,16 @@ public String translate(String input) throws Exception
         // analize query and store info in context
         tree.apply(new QueryAnalyzer(context));
 
-        Printer printer = getPrinter(context);
-        return printer.print();
+        return context;
+    }
+
+    /**
+     * @return the cache of translated statements, also registered against the JMX Server to get statistics about it
+     * @since 9.7RC1
+     */
+    public TranslationCache getCache()
+    {
+        return this.cache;
     }
 
     @Override
@@ -28,6 +28,7 @@
 import org.xwiki.query.xwql.internal.hql.XWQLtoHQLTranslator;
 import org.xwiki.test.jmock.JMockRule;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 public class XWQLtoHQLTranslatorTest
@@ -273,4 +274,16 @@ public void testCustomMapping() throws Exception
             "select doc from XWikiDocument as doc , BaseObject as c , Custom.Mapping as cCM1, StringProperty as c_prop2 " +
                 "where ( cCM1.cmprop = 'some' and c_prop2.value = 1 ) and doc.fullName=c.name and c.id=cCM1.id and c_prop2.id.id=c.id and c_prop2.id.name='prop'");
     }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        String statement = "from doc.object('XWiki.Class') as c where c.stringlist like '%some%'";
+
+        String output = this.translator.translate(statement);
+
+        assertEquals(output, this.translator.translate(statement));
+        assertEquals(1, this.translator.getCache().getHits());
+        assertEquals(1, this.translator.getCache().getMisses());
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -91,6 +92,15 @@
      */
     List<DocumentReference> getBackLinkedReferences(DocumentReference reference, String wikiId);
 
+    /**
+     * @param references document references
+     * @param wikiId where to look for links
+     * @return the documents from the specified wiki that have links to each of the specified documents
+     * @since 9.7RC1
+     */
+    Map<DocumentReference, List<DocumentReference>> getBackLinkedReferences(Collection<DocumentReference> references,
+        String wikiId);
+
     /**
      * @param spaceReference a space reference
      * @return the list of all the documents from the specified space and its nested spaces
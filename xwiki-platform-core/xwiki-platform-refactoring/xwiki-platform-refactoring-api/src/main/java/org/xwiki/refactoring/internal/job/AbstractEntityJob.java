@@ -258,12 +258,21 @@ private boolean isSpacePreferencesReference(EntityReference entityReference)
 
     protected void visitDocuments(SpaceReference spaceReference, Visitor<DocumentReference> visitor)
     {
-        visitDocumentNodes(getDocumentReferenceTree(spaceReference), visitor);
+        visitDocuments(spaceReference, this.modelBridge.getDocumentReferences(spaceReference), visitor);
     }
 
-    private EntityReferenceTreeNode getDocumentReferenceTree(SpaceReference spaceReference)
+    /**
+     * Visit the given documents of a space, in the same order as {@link #visitDocuments(SpaceReference, Visitor)}.
+     *
+     * @param spaceReference the space containing the documents
+     * @param documentReferences the documents from the space and its nested spaces
+     * @param visitor the visitor
+     * @since 9.7RC1
+     */
+    protected void visitDocuments(SpaceReference spaceReference, Collection<DocumentReference> documentReferences,
+        Visitor<DocumentReference> visitor)
     {
-        return new EntityReferenceTree(this.modelBridge.getDocumentReferences(spaceReference)).get(spaceReference);
+        visitDocumentNodes(new EntityReferenceTree(documentReferences).get(spaceReference), visitor);
     }
 
     private void visitDocumentNodes(EntityReferenceTreeNode node, Visitor<DocumentReference> visitor)
@@ -19,10 +19,16 @@
  */
 package org.xwiki.refactoring.internal.job;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -58,6 +64,23 @@ public class MoveJob extends AbstractEntityJob<MoveRequest, EntityJobStatus<Move
      */
     private Boolean overwriteAll;
 
+    /**
+     * The documents of the space being moved. Their backlinks are loaded all at once (for each wiki) instead of one
+     * document at a time.
+     */
+    private Set<DocumentReference> spaceDocumentReferences;
+
+    /**
+     * The backlinks of the documents of the space being moved, indexed by wiki.
+     */
+    private final Map<String, Map<DocumentReference, List<DocumentReference>>> spaceBackLinks = new HashMap<>();
+
+    /**
+     * The documents moved so far (when the source is deleted), used to update the backlinks loaded before they were
+     * moved.
+     */
+    private final Map<DocumentReference, DocumentReference> movedReferences = new HashMap<>();
+
     /**
      * The component used to refactor document links after a document is rename or moved.
      */
@@ -143,15 +166,23 @@ && isSpaceHomeReference(new DocumentReference(destination))) {
 
     protected void process(final SpaceReference source, final SpaceReference destination)
     {
-        visitDocuments(source, new Visitor<DocumentReference>()
-        {
-            @Override
-            public void visit(DocumentReference oldChildReference)
+        List<DocumentReference> documentReferences = this.modelBridge.getDocumentReferences(source);
+
+        this.spaceDocumentReferences = new HashSet<>(documentReferences);
+        try {
+            visitDocuments(source, documentReferences, new Visitor<DocumentReference>()
             {
-                DocumentReference newChildReference = oldChildReference.replaceParent(source, destination);
-                maybeMove(oldChildReference, newChildReference);
-            }
-        });
+                @Override
+                public void visit(DocumentReference oldChildReference)
+                {
+                    DocumentReference newChildReference = oldChildReference.replaceParent(source, destination);
+                    maybeMove(oldChildReference, newChildReference);
+                }
+            });
+        } finally {
+            this.spaceDocumentReferences = null;
+            this.spaceBackLinks.clear();
+        }
     }
 
     protected void maybeMove(DocumentReference oldReference, DocumentReference newReference)
@@ -208,8 +239,8 @@ private void move(DocumentReference oldReference, DocumentReference newReference
 
             // Step 6: Delete the source document.
             this.progressManager.startStep(this);
-            if (this.request.isDeleteSource()) {
-                this.modelBridge.delete(oldReference);
+            if (this.request.isDeleteSource() && this.modelBridge.delete(oldReference)) {
+                this.movedReferences.put(oldReference, newReference);
             }
             this.progressManager.endStep(this);
 
@@ -313,7 +344,7 @@ private void updateBackLinks(DocumentReference oldReference, DocumentReference n
     {
         this.logger.info("Updating the back-links for document [{}] in wiki [{}].", oldReference, wikiId);
         List<DocumentReference> backlinkDocumentReferences =
-            this.modelBridge.getBackLinkedReferences(oldReference, wikiId);
+            getBackLinkedReferences(oldReference, newReference, wikiId);
         this.progressManager.pushLevelProgress(backlinkDocumentReferences.size(), this);
 
         try {
@@ -329,6 +360,31 @@ private void updateBackLinks(DocumentReference oldReference, DocumentReference n
         }
     }
 
+    private List<DocumentReference> getBackLinkedReferences(DocumentReference oldReference,
+        DocumentReference newReference, String wikiId)
+    {
+        if (this.spaceDocumentReferences == null || !this.spaceDocumentReferences.contains(oldReference)) {
+            return this.modelBridge.getBackLinkedReferences(oldReference, wikiId);
+        }
+
+        // Load the backlinks of all the documents of the moved space at once.
+        Map<DocumentReference, List<DocumentReference>> backLinks = this.spaceBackLinks.computeIfAbsent(wikiId,
+            key -> this.modelBridge.getBackLinkedReferences(this.spaceDocumentReferences, key));
+
+        Set<DocumentReference> backlinkDocumentReferences = new LinkedHashSet<>();
+        for (DocumentReference backlinkReference : backLinks.getOrDefault(oldReference,
+            Collections.<DocumentReference>emptyList())) {
+            // The documents moved after the backlinks were loaded are now linking from their new location.
+            backlinkDocumentReferences.add(this.movedReferences.getOrDefault(backlinkReference, backlinkReference));
+            if (backlinkReference.equals(oldReference)) {
+                // The copy of a document linking to itself links to the original document too.
+                backlinkDocumentReferences.add(newReference);
+            }
+        }
+
+        return new ArrayList<>(backlinkDocumentReferences);
+    }
+
     @Override
     protected EntityReference getCommonParent()
     {
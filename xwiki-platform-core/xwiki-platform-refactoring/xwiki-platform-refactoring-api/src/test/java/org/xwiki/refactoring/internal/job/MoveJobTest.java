@@ -20,7 +20,10 @@
 package org.xwiki.refactoring.internal.job;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Rule;
@@ -183,6 +186,50 @@ public void moveDocumentToSpace() throws Exception
         verify(this.modelBridge).createRedirect(oldReference, newReference);
     }
 
+    @Test
+    public void moveSpaceLoadsTheBackLinksOfAllItsDocumentsAtOnce() throws Exception
+    {
+        SpaceReference sourceSpace = new SpaceReference("wiki", "One");
+        DocumentReference aliceReference = new DocumentReference("Alice", sourceSpace);
+        DocumentReference bobReference = new DocumentReference("Bob", sourceSpace);
+        when(this.modelBridge.getDocumentReferences(sourceSpace))
+            .thenReturn(Arrays.asList(aliceReference, bobReference));
+        when(this.modelBridge.exists(aliceReference)).thenReturn(true);
+        when(this.modelBridge.exists(bobReference)).thenReturn(true);
+
+        SpaceReference destinationSpace = new SpaceReference("One", new SpaceReference("wiki", "Two"));
+        DocumentReference newAliceReference = new DocumentReference("Alice", destinationSpace);
+        DocumentReference newBobReference = new DocumentReference("Bob", destinationSpace);
+        when(this.modelBridge.copy(aliceReference, newAliceReference)).thenReturn(true);
+        when(this.modelBridge.copy(bobReference, newBobReference)).thenReturn(true);
+        when(this.modelBridge.delete(aliceReference)).thenReturn(true);
+        when(this.modelBridge.delete(bobReference)).thenReturn(true);
+
+        // Alice is linked from another space and links to Bob.
+        DocumentReference carolReference = new DocumentReference("wiki", "Three", "Carol");
+        Map<DocumentReference, List<DocumentReference>> backLinks = new HashMap<>();
+        backLinks.put(aliceReference, Arrays.asList(carolReference));
+        backLinks.put(bobReference, Arrays.asList(aliceReference));
+        when(this.modelBridge.getBackLinkedReferences(anyCollection(), eq("wiki"))).thenReturn(backLinks);
+
+        MoveRequest request = createRequest(sourceSpace, destinationSpace.getParent());
+        request.setCheckRights(false);
+        request.setInteractive(false);
+        run(request);
+
+        verify(this.modelBridge).getBackLinkedReferences(
+            argThat((Collection<DocumentReference> references) -> references.size() == 2
+                && references.containsAll(Arrays.asList(aliceReference, bobReference))),
+            eq("wiki"));
+        verify(this.modelBridge, never()).getBackLinkedReferences(any(DocumentReference.class), any(String.class));
+
+        LinkRefactoring linkRefactoring = getMocker().getInstance(LinkRefactoring.class);
+        verify(linkRefactoring).renameLinks(carolReference, aliceReference, newAliceReference);
+        // Alice has been moved before Bob.
+        verify(linkRefactoring).renameLinks(newAliceReference, bobReference, newBobReference);
+        verify(linkRefactoring, never()).renameLinks(aliceReference, bobReference, newBobReference);
+    }
+
     @Test
     public void updateLinksOnFarm() throws Exception
     {
@@ -20,6 +20,7 @@
 package org.xwiki.refactoring.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -241,7 +242,8 @@ public List<DocumentReference> getBackLinkedReferences(DocumentReference documen
         String previousWikiId = xcontext.getWikiId();
         try {
             xcontext.setWikiId(wikiId);
-            return xcontext.getWiki().getDocument(documentReference, xcontext).getBackLinkedReferences(xcontext);
+            // Query the links store directly since there's no need to load the linked document.
+            return xcontext.getWiki().getStore().loadBacklinks(documentReference, true, xcontext);
         } catch (XWikiException e) {
             this.logger.error("Failed to retrieve the back-links for document [{}] on wiki [{}].", documentReference,
                 wikiId, e);
@@ -251,6 +253,24 @@ public List<DocumentReference> getBackLinkedReferences(DocumentReference documen
         }
     }
 
+    @Override
+    public Map<DocumentReference, List<DocumentReference>> getBackLinkedReferences(
+        Collection<DocumentReference> references, String wikiId)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String previousWikiId = xcontext.getWikiId();
+        try {
+            xcontext.setWikiId(wikiId);
+            return xcontext.getWiki().getStore().loadBacklinks(references, true, xcontext);
+        } catch (XWikiException e) {
+            this.logger.error("Failed to retrieve the back-links for documents [{}] on wiki [{}].", references,
+                wikiId, e);
+            return Collections.emptyMap();
+        } finally {
+            xcontext.setWikiId(previousWikiId);
+        }
+    }
+
     @Override
     public List<DocumentReference> getDocumentReferences(SpaceReference spaceReference)
     {
@@ -23,6 +23,7 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Provider;
 
@@ -47,6 +48,7 @@
 import com.xpn.xwiki.internal.parentchild.ParentChildConfiguration;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.store.XWikiRecycleBinStoreInterface;
+import com.xpn.xwiki.store.XWikiStoreInterface;
 import com.xpn.xwiki.user.api.XWikiRightService;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -336,11 +338,11 @@ public void dontUpdateParentWhenLegacyMode() throws Exception
     public void getBackLinkedReferences() throws Exception
     {
         DocumentReference documentReference = new DocumentReference("alice", Arrays.asList("Path", "To"), "Page");
-        XWikiDocument document = mock(XWikiDocument.class);
-        when(this.xcontext.getWiki().getDocument(documentReference, this.xcontext)).thenReturn(document);
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        when(this.xcontext.getWiki().getStore()).thenReturn(store);
 
         List<DocumentReference> backLinks = Arrays.asList(new DocumentReference("bob", "One", "Two"));
-        when(document.getBackLinkedReferences(this.xcontext)).thenReturn(backLinks);
+        when(store.loadBacklinks(documentReference, true, this.xcontext)).thenReturn(backLinks);
 
         this.xcontext.setWikiId("carol");
 
@@ -350,6 +352,27 @@ public void getBackLinkedReferences() throws Exception
         verify(this.xcontext).setWikiId("carol");
     }
 
+    @Test
+    public void getBackLinkedReferencesOfSeveralDocuments() throws Exception
+    {
+        List<DocumentReference> documentReferences = Arrays.asList(new DocumentReference("alice", "Path", "One"),
+            new DocumentReference("alice", "Path", "Two"));
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        when(this.xcontext.getWiki().getStore()).thenReturn(store);
+
+        Map<DocumentReference, List<DocumentReference>> backLinks = Collections.singletonMap(
+            documentReferences.get(0), Arrays.asList(new DocumentReference("bob", "One", "Two")));
+        when(store.loadBacklinks(documentReferences, true, this.xcontext)).thenReturn(backLinks);
+
+        when(this.xcontext.getWikiId()).thenReturn("carol");
+
+        assertEquals(backLinks,
+            this.mocker.getComponentUnderTest().getBackLinkedReferences(documentReferences, "bob"));
+
+        verify(this.xcontext).setWikiId("bob");
+        verify(this.xcontext).setWikiId("carol");
+    }
+
     @Test
     public void restoreDeletedDocument() throws Exception
     {
@@ -22,8 +22,14 @@
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
 
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.rendering.macro.descriptor.DefaultContentDescriptor;
@@ -58,6 +64,9 @@ public class GroovyMacro extends AbstractJSR223ScriptMacro<JSR223ScriptMacroPara
     @Named("groovy")
     private ScriptEngineFactory groovyScriptEngineFactory;
 
+    @Inject
+    private GroovyScriptClassCache scriptClassCache;
+
     /**
      * Create and initialize the descriptor of the macro.
      */
@@ -75,4 +84,24 @@ public void initialize() throws InitializationException
         // the default Groovy Script Engine Factory and registers Compilation Customizers.
         this.scriptEngineManager.registerEngineName("groovy", this.groovyScriptEngineFactory);
     }
+
+    @Override
+    protected Object eval(String content, ScriptEngine engine, ScriptContext scriptContext) throws ScriptException
+    {
+        if (engine instanceof GroovyScriptEngineImpl) {
+            return getCompiledScript(content, (Compilable) engine).eval(scriptContext);
+        }
+
+        return super.eval(content, engine, scriptContext);
+    }
+
+    @Override
+    protected CompiledScript getCompiledScript(String content, Compilable engine) throws ScriptException
+    {
+        if (engine instanceof GroovyScriptEngineImpl) {
+            return this.scriptClassCache.getCompiledScript(content, (GroovyScriptEngineImpl) engine);
+        }
+
+        return super.getCompiledScript(content, engine);
+    }
 }
@@ -0,0 +1,355 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.groovy;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.script.CompiledScript;
+import javax.script.ScriptException;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.jsr223.GroovyCompiledScript;
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.xwiki.classloader.ExtendedURLClassLoader;
+import org.slf4j.Logger;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import groovy.lang.Closure;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+
+/**
+ * Bounded cache of the classes compiled from the content of the Groovy macros, to not compile again the same script
+ * each time a page is rendered.
+ * <p>
+ * A cached class is executed by the engine of the current execution so that the methods it defines are visible to the
+ * scripts executed after it, as if it had been compiled by that engine. The following scripts are never cached:
+ * <ul>
+ * <li>scripts executed without programming right, since the sandbox applied during their compilation depends on the
+ * context in which the engine was created</li>
+ * <li>scripts compiled with extra JARs in the class loader (see the "jars" parameter of the script macros)</li>
+ * <li>scripts compiled by an engine which already loaded classes defined by a previous script, since they could use
+ * those classes</li>
+ * <li>scripts defining classes, since the following scripts of the current execution need to see them</li>
+ * </ul>
+ * The compiled classes are indexed by wiki, content author and parent class loader of the engine (which gives access to
+ * the extensions installed in the wiki) in addition to the script, so that a class is never resolved against the
+ * classpath of another wiki. Evicted entries release the class loader which was used to compile them once no engine
+ * references it anymore. The statistics of the cache are exposed through JMX ({@code
+ * org.xwiki:type=GroovyScriptClassCache}).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = GroovyScriptClassCache.class)
+@Singleton
+public class GroovyScriptClassCache implements GroovyScriptClassCacheMBean, Initializable, Disposable
+{
+    /**
+     * The maximum number of compiled scripts to keep.
+     */
+    private static final int CAPACITY = 500;
+
+    private static final String SCRIPT_NAME_PREFIX = "CachedScript";
+
+    private static final String SCRIPT_NAME_SUFFIX = ".groovy";
+
+    private static final String JMX_NAME = "org.xwiki:type=GroovyScriptClassCache";
+
+    @Inject
+    private ContextualAuthorizationManager authorizationManager;
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<CacheKey, CacheEntry> classes =
+        Collections.synchronizedMap(new LinkedHashMap<CacheKey, CacheEntry>(CAPACITY, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest)
+            {
+                return size() > CAPACITY;
+            }
+        });
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong compilationTime = new AtomicLong();
+
+    private static final class CacheKey
+    {
+        private final String wiki;
+
+        private final DocumentReference author;
+
+        /**
+         * The identity of the parent class loader of the engine, the class loader itself is checked by the entry.
+         */
+        private final int classLoader;
+
+        private final String script;
+
+        CacheKey(String wiki, DocumentReference author, ClassLoader classLoader, String script)
+        {
+            this.wiki = wiki;
+            this.author = author;
+            this.classLoader = System.identityHashCode(classLoader);
+            this.script = script;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return this.classLoader == other.classLoader && Objects.equals(this.wiki, other.wiki)
+                && Objects.equals(this.author, other.author) && this.script.equals(other.script);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.wiki, this.author, this.classLoader, this.script);
+        }
+    }
+
+    private static final class CacheEntry
+    {
+        private final Class<?> scriptClass;
+
+        private final ClassLoader classLoader;
+
+        CacheEntry(Class<?> scriptClass, ClassLoader classLoader)
+        {
+            this.scriptClass = scriptClass;
+            this.classLoader = classLoader;
+        }
+    }
+
+    @Override
+    public void initialize()
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME);
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+            mbs.registerMBean(new StandardMBean(this, GroovyScriptClassCacheMBean.class), objectName);
+        } catch (Exception e) {
+            this.logger.warn("Failed to register the Groovy script cache against the JMX Server", e);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_NAME);
+            if (mbs.isRegistered(objectName)) {
+                mbs.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to unregister the Groovy script cache from the JMX Server", e);
+        }
+
+        clear();
+    }
+
+    /**
+     * @param script the Groovy script
+     * @param engine the engine of the current execution
+     * @return the compiled script, bound to the passed engine
+     * @throws ScriptException when failing to compile the script
+     */
+    public CompiledScript getCompiledScript(String script, GroovyScriptEngineImpl engine) throws ScriptException
+    {
+        GroovyClassLoader classLoader = engine.getClassLoader();
+
+        CacheKey key = isCacheable()
+            ? new CacheKey(getCurrentWiki(), getCurrentAuthor(), classLoader.getParent(), script) : null;
+
+        Class<?> scriptClass = null;
+        if (key != null) {
+            CacheEntry entry = this.classes.get(key);
+            if (entry != null && entry.classLoader == classLoader.getParent()) {
+                scriptClass = entry.scriptClass;
+            }
+        }
+
+        if (scriptClass != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+
+            boolean scriptClassesBefore = hasScriptDefinedClasses(classLoader);
+
+            long time = System.nanoTime();
+            try {
+                scriptClass = classLoader.parseClass(script,
+                    SCRIPT_NAME_PREFIX + this.counter.incrementAndGet() + SCRIPT_NAME_SUFFIX);
+            } catch (CompilationFailedException e) {
+                throw new ScriptException(e);
+            } finally {
+                this.compilationTime.addAndGet(System.nanoTime() - time);
+            }
+
+            if (key != null && !scriptClassesBefore && !hasScriptDefinedClasses(classLoader)) {
+                this.classes.put(key, new CacheEntry(scriptClass, classLoader.getParent()));
+            }
+        }
+
+        return new GroovyCompiledScript(engine, scriptClass);
+    }
+
+    @Override
+    public void clear()
+    {
+        this.classes.clear();
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.get();
+    }
+
+    @Override
+    public long getCompilationTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.compilationTime.get());
+    }
+
+    @Override
+    public int getSize()
+    {
+        return this.classes.size();
+    }
+
+    private String getCurrentWiki()
+    {
+        EntityReference currentReference = this.modelContext.getCurrentEntityReference();
+
+        return currentReference != null ? currentReference.extractReference(EntityType.WIKI).getName() : null;
+    }
+
+    /**
+     * @return the content author of the secure document of the current execution
+     */
+    private DocumentReference getCurrentAuthor()
+    {
+        ExecutionContext context = this.execution.getContext();
+        if (context != null) {
+            @SuppressWarnings("unchecked")
+            Map<Object, Object> xcontext = (Map<Object, Object>) context.getProperty("xwikicontext");
+            if (xcontext != null) {
+                Object secureDocument = xcontext.get("sdoc");
+                if (secureDocument == null) {
+                    secureDocument = xcontext.get("doc");
+                }
+                if (secureDocument instanceof DocumentModelBridge) {
+                    return ((DocumentModelBridge) secureDocument).getContentAuthorReference();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isCacheable()
+    {
+        // The compilation customizers of an engine are chosen according to the rights of the context in which it was
+        // created, which is not necessarily the current one. A class compiled without the secure customizer must not
+        // be reused for a script author who would be sandboxed, so only the scripts of authors with programming right
+        // are shared.
+        if (!this.authorizationManager.hasAccess(Right.PROGRAM)) {
+            return false;
+        }
+
+        // Don't keep extra JARs reachable (the script class loader is an ExtendedURLClassLoader)
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        return !(classLoader instanceof ExtendedURLClassLoader)
+            || ((ExtendedURLClassLoader) classLoader).getURLs().length == 0;
+    }
+
+    /**
+     * @param classLoader the class loader of the engine
+     * @return true if the class loader contains classes defined in scripts (other than the scripts and their closures)
+     */
+    private boolean hasScriptDefinedClasses(GroovyClassLoader classLoader)
+    {
+        for (Class<?> loadedClass : classLoader.getLoadedClasses()) {
+            if (!Script.class.isAssignableFrom(loadedClass) && !Closure.class.isAssignableFrom(loadedClass)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.groovy;
+
+/**
+ * JMX view of the {@link GroovyScriptClassCache}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public interface GroovyScriptClassCacheMBean
+{
+    /**
+     * @return the number of times a compiled script was reused
+     */
+    long getHits();
+
+    /**
+     * @return the number of times a script had to be compiled
+     */
+    long getMisses();
+
+    /**
+     * @return the total time spent compiling scripts, in milliseconds
+     */
+    long getCompilationTime();
+
+    /**
+     * @return the number of compiled scripts currently in the cache
+     */
+    int getSize();
+
+    /**
+     * Forget all the compiled scripts.
+     */
+    void clear();
+}
@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.macro.groovy;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.script.ScriptContext;
+
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.rendering.internal.macro.groovy.GroovyScriptClassCache;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import groovy.lang.GroovyClassLoader;
+
+/**
+ * Unit tests for {@link GroovyScriptClassCache}.
+ *
+ * @version $Id$
+ */
+public class GroovyScriptClassCacheTest
+{
+    @Rule
+    public MockitoComponentMockingRule<GroovyScriptClassCache> mocker =
+        new MockitoComponentMockingRule<>(GroovyScriptClassCache.class);
+
+    private ContextualAuthorizationManager authorizationManager;
+
+    private ModelContext modelContext;
+
+    private Map<Object, Object> xcontext = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.authorizationManager = this.mocker.getInstance(ContextualAuthorizationManager.class);
+        when(this.authorizationManager.hasAccess(Right.PROGRAM)).thenReturn(true);
+
+        this.modelContext = this.mocker.getInstance(ModelContext.class);
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        Execution execution = this.mocker.getInstance(Execution.class);
+        when(execution.getContext()).thenReturn(executionContext);
+    }
+
+    private void setContentAuthor(String author)
+    {
+        DocumentModelBridge document = mock(DocumentModelBridge.class);
+        when(document.getContentAuthorReference()).thenReturn(new DocumentReference("wiki", "XWiki", author));
+        this.xcontext.put("sdoc", document);
+    }
+
+    private Object eval(String script, GroovyScriptEngineImpl engine) throws Exception
+    {
+        return this.mocker.getComponentUnderTest().getCompiledScript(script, engine)
+            .eval(engine.getContext());
+    }
+
+    @Test
+    public void reuseBetweenEngines() throws Exception
+    {
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        assertEquals(1, this.mocker.getComponentUnderTest().getMisses());
+        assertEquals(1, this.mocker.getComponentUnderTest().getHits());
+    }
+
+    @Test
+    public void notSharedBetweenWikis() throws Exception
+    {
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("otherwiki"));
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        assertEquals(2, this.mocker.getComponentUnderTest().getMisses());
+        assertEquals(0, this.mocker.getComponentUnderTest().getHits());
+    }
+
+    @Test
+    public void notSharedBetweenAuthors() throws Exception
+    {
+        setContentAuthor("Alice");
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        setContentAuthor("Bob");
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        assertEquals(2, this.mocker.getComponentUnderTest().getMisses());
+        assertEquals(1, this.mocker.getComponentUnderTest().getHits());
+        assertEquals(2, this.mocker.getComponentUnderTest().getSize());
+    }
+
+    @Test
+    public void notSharedBetweenClassLoaders() throws Exception
+    {
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl()));
+
+        ClassLoader parentClassLoader = new ClassLoader(getClass().getClassLoader())
+        {
+        };
+        assertEquals(2, eval("1 + 1", new GroovyScriptEngineImpl(new GroovyClassLoader(parentClassLoader))));
+
+        assertEquals(2, this.mocker.getComponentUnderTest().getMisses());
+    }
+
+    @Test
+    public void methodsAreDefinedInCurrentEngine() throws Exception
+    {
+        eval("def twice(x) { x * 2 }", new GroovyScriptEngineImpl());
+
+        GroovyScriptEngineImpl engine = new GroovyScriptEngineImpl();
+        eval("def twice(x) { x * 2 }", engine);
+
+        // The method defined by the cached script is available to the other scripts of the engine
+        assertEquals(4, engine.eval("twice(2)", engine.getContext()));
+        assertEquals(1, this.mocker.getComponentUnderTest().getHits());
+    }
+
+    @Test
+    public void scriptsDefiningClassesAreNotCached() throws Exception
+    {
+        GroovyScriptEngineImpl engine = new GroovyScriptEngineImpl();
+        eval("class MyClass {}", engine);
+        eval("new MyClass()", engine);
+
+        engine = new GroovyScriptEngineImpl();
+        eval("class MyClass {}", engine);
+        eval("new MyClass()", engine);
+
+        assertEquals(0, this.mocker.getComponentUnderTest().getHits());
+        assertEquals(4, this.mocker.getComponentUnderTest().getMisses());
+    }
+
+    @Test
+    public void scriptsWithoutProgrammingRightAreNotCached() throws Exception
+    {
+        when(this.authorizationManager.hasAccess(Right.PROGRAM)).thenReturn(false);
+
+        eval("1 + 1", new GroovyScriptEngineImpl());
+        eval("1 + 1", new GroovyScriptEngineImpl());
+
+        assertEquals(0, this.mocker.getComponentUnderTest().getHits());
+    }
+
+    @Test
+    public void bindingsOfTheCurrentContext() throws Exception
+    {
+        GroovyScriptEngineImpl engine = new GroovyScriptEngineImpl();
+        engine.getContext().setAttribute("value", 1, ScriptContext.ENGINE_SCOPE);
+        assertEquals(1, eval("value", engine));
+
+        engine = new GroovyScriptEngineImpl();
+        engine.getContext().setAttribute("value", 2, ScriptContext.ENGINE_SCOPE);
+        assertEquals(2, eval("value", engine));
+    }
+}
@@ -41,6 +41,23 @@
             @QueryParam("number") @DefaultValue("-1") Integer number,
             @QueryParam("parentId") String parentFilterExpression,
             @QueryParam("order") String order,
-            @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames
+            @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames,
+            @QueryParam("fields") String fields,
+            @QueryParam("after") String after
     ) throws XWikiRestException;
+
+    /**
+     * Lists the pages of a space with all their fields, using offset pagination.
+     *
+     * @deprecated since 9.7RC1 use
+     *             {@link #getPages(String, String, Integer, Integer, String, String, Boolean, String, String)}
+     *             instead
+     */
+    @Deprecated
+    default Pages getPages(String wikiName, String spaceName, Integer start, Integer number,
+        String parentFilterExpression, String order, Boolean withPrettyNames) throws XWikiRestException
+    {
+        return getPages(wikiName, spaceName, start, number, parentFilterExpression, order, withPrettyNames, null,
+            null);
+    }
 }
@@ -454,29 +454,43 @@ public Space toRestSpace(URI baseUri, String wikiName, List<String> spaces, Docu
 
     public Translations toRestTranslations(URI baseUri, Document doc) throws XWikiException
     {
-        Translations translations = this.objectFactory.createTranslations();
-
-        List<String> languages = doc.getTranslationList();
+        return toRestTranslations(baseUri, doc.getWiki(), Utils.getSpacesFromSpaceId(doc.getSpace()), doc.getName(),
+            doc.getDefaultLanguage(), doc.getTranslationList());
+    }
 
-        List<String> spaces = Utils.getSpacesFromSpaceId(doc.getSpace());
+    /**
+     * Same as {@link #toRestTranslations(URI, Document)} but from already known metadata, without loading the
+     * document.
+     *
+     * @param baseUri the base URI of the REST resources
+     * @param wiki the wiki of the document
+     * @param spaces the spaces of the document
+     * @param name the name of the document
+     * @param defaultLanguage the default language of the document
+     * @param languages the languages of the translations of the document
+     * @return the translations of the document
+     * @since 9.7RC1
+     */
+    public Translations toRestTranslations(URI baseUri, String wiki, List<String> spaces, String name,
+        String defaultLanguage, List<String> languages)
+    {
+        Translations translations = this.objectFactory.createTranslations();
 
         if (!languages.isEmpty()) {
-            if (!doc.getDefaultLanguage().equals("")) {
-                translations.setDefault(doc.getDefaultLanguage());
+            if (!defaultLanguage.equals("")) {
+                translations.setDefault(defaultLanguage);
 
                 Translation translation = this.objectFactory.createTranslation();
-                translation.setLanguage(doc.getDefaultLanguage());
+                translation.setLanguage(defaultLanguage);
 
                 /* Add the default page with the default translation explicitely */
-                String pageTranslationUri =
-                    Utils.createURI(baseUri, PageResource.class, doc.getWiki(), spaces, doc.getName()).toString();
+                String pageTranslationUri = Utils.createURI(baseUri, PageResource.class, wiki, spaces, name).toString();
                 Link pageTranslationLink = this.objectFactory.createLink();
                 pageTranslationLink.setHref(pageTranslationUri);
                 pageTranslationLink.setRel(Relations.PAGE);
                 translation.getLinks().add(pageTranslationLink);
 
-                String historyUri = Utils
-                    .createURI(baseUri, PageHistoryResource.class, doc.getWiki(), spaces, doc.getName()).toString();
+                String historyUri = Utils.createURI(baseUri, PageHistoryResource.class, wiki, spaces, name).toString();
                 Link historyLink = this.objectFactory.createLink();
                 historyLink.setHref(historyUri);
                 historyLink.setRel(Relations.HISTORY);
@@ -491,15 +505,14 @@ public Translations toRestTranslations(URI baseUri, Document doc) throws XWikiEx
             translation.setLanguage(language);
 
             String pageTranslationUri =
-                Utils.createURI(baseUri, PageTranslationResource.class, doc.getWiki(), spaces, doc.getName(), language)
-                    .toString();
+                Utils.createURI(baseUri, PageTranslationResource.class, wiki, spaces, name, language).toString();
             Link pageTranslationLink = this.objectFactory.createLink();
             pageTranslationLink.setHref(pageTranslationUri);
             pageTranslationLink.setRel(Relations.PAGE);
             translation.getLinks().add(pageTranslationLink);
 
-            String historyUri = Utils.createURI(baseUri, PageTranslationHistoryResource.class, doc.getWiki(), spaces,
-                doc.getName(), language).toString();
+            String historyUri = Utils.createURI(baseUri, PageTranslationHistoryResource.class, wiki, spaces, name,
+                language).toString();
             Link historyLink = this.objectFactory.createLink();
             historyLink.setHref(historyUri);
             historyLink.setRel(Relations.HISTORY);
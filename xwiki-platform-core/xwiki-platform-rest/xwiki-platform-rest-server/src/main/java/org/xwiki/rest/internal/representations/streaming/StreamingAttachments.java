@@ -0,0 +1,48 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.util.stream.Stream;
+
+import org.xwiki.rest.model.jaxb.Attachment;
+import org.xwiki.rest.model.jaxb.Attachments;
+
+/**
+ * {@link Attachments} produced while they are marshalled.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class StreamingAttachments extends Attachments implements StreamingCollection
+{
+    /**
+     * @param attachments the stream producing the attachments
+     */
+    public StreamingAttachments(Stream<Attachment> attachments)
+    {
+        this.attachments = new StreamingList<>(attachments);
+    }
+
+    @Override
+    public void close()
+    {
+        ((StreamingList<Attachment>) this.attachments).close();
+    }
+}
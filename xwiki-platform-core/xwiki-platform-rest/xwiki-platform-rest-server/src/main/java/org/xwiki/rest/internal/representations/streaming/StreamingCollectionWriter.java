@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rest.XWikiRestComponent;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Write the {@link StreamingCollection}s as XML or JSON, producing their elements one by one while they are written to
+ * the response. The output is the same as the one of the default JAXB and Jackson representations.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@Named("org.xwiki.rest.internal.representations.streaming.StreamingCollectionWriter")
+@Provider
+@Produces({ MediaType.APPLICATION_XML, MediaType.TEXT_XML, MediaType.APPLICATION_JSON })
+@Singleton
+public class StreamingCollectionWriter
+    implements MessageBodyWriter<StreamingCollection>, XWikiRestComponent, Initializable
+{
+    private JAXBContext jaxbContext;
+
+    private ObjectMapper objectMapper;
+
+    /**
+     * Write the elements of a {@link StreamingList} as they are produced, without asking for its size first.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class StreamingListSerializer extends StdSerializer<StreamingList>
+    {
+        private static final long serialVersionUID = 1L;
+
+        StreamingListSerializer()
+        {
+            super(StreamingList.class);
+        }
+
+        @Override
+        public void serialize(StreamingList value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException
+        {
+            generator.writeStartArray();
+            for (Object element : value) {
+                provider.defaultSerializeValue(element, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.jaxbContext = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName());
+        } catch (JAXBException e) {
+            throw new InitializationException("Failed to create the JAXB context for the REST model", e);
+        }
+
+        // Same configuration as the Restlet Jackson representation
+        JsonFactory jsonFactory = new JsonFactory();
+        jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.objectMapper = new ObjectMapper(jsonFactory);
+
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(new StreamingListSerializer());
+        this.objectMapper.registerModule(module);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+    {
+        return StreamingCollection.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(StreamingCollection collection, Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType)
+    {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(StreamingCollection collection, Class<?> type, Type genericType, Annotation[] annotations,
+        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+        throws IOException, WebApplicationException
+    {
+        try {
+            if (MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)) {
+                this.objectMapper.writeValue(entityStream, collection);
+            } else {
+                // JAXB finds the binding of the parent JAXB class and iterates the lists without asking their size
+                this.jaxbContext.createMarshaller().marshal(collection, entityStream);
+            }
+        } catch (JAXBException e) {
+            throw new WebApplicationException(e);
+        } finally {
+            collection.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A list whose elements are produced by a {@link Stream} only when they are marshalled.
+ * <p>
+ * The first call to {@link #iterator()} consumes the stream directly so that each element can be garbage collected as
+ * soon as it has been written. Any other access ({@link #size()}, {@link #get(int)}, a second iteration, etc.) first
+ * collects the whole stream in memory, which is only correct if no streaming iteration was started before.
+ * <p>
+ * When the stream comes from {@link org.xwiki.query.Query#stream()} it holds a database connection (and cursor) for
+ * as long as it's open, that is while the response is written to the client, which might be slow. To bound that time,
+ * once the streaming iteration has lasted more than the maximum streaming time the stream is closed and the iteration
+ * fails with an {@link IllegalStateException}, so that the database connection is released whatever the speed of the
+ * client. The remaining elements are never loaded in memory and the response is left incomplete.
+ *
+ * @param <E> the type of the elements
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class StreamingList<E> extends AbstractList<E> implements Closeable
+{
+    /**
+     * The default maximum time in milliseconds during which the elements are streamed before the iteration fails.
+     */
+    public static final long DEFAULT_MAX_STREAMING_TIME = 30000L;
+
+    private Stream<E> stream;
+
+    private final long maxStreamingTime;
+
+    private List<E> elements;
+
+    private boolean streamed;
+
+    /**
+     * @param stream the stream producing the elements, closed when the list is closed
+     */
+    public StreamingList(Stream<E> stream)
+    {
+        this(stream, DEFAULT_MAX_STREAMING_TIME);
+    }
+
+    /**
+     * @param stream the stream producing the elements, closed when the list is closed
+     * @param maxStreamingTime the maximum time in milliseconds during which the elements are streamed, after which the
+     *            stream is closed and the iteration fails
+     */
+    public StreamingList(Stream<E> stream, long maxStreamingTime)
+    {
+        this.stream = stream;
+        this.maxStreamingTime = maxStreamingTime;
+    }
+
+    /**
+     * Iterate the stream until the maximum streaming time is reached.
+     */
+    private final class BoundedIterator implements Iterator<E>
+    {
+        private final long deadline = System.currentTimeMillis() + StreamingList.this.maxStreamingTime;
+
+        private final Iterator<E> iterator = StreamingList.this.stream.iterator();
+
+        private boolean closed;
+
+        @Override
+        public boolean hasNext()
+        {
+            if (this.closed) {
+                return false;
+            }
+
+            if (System.currentTimeMillis() >= this.deadline) {
+                releaseStream();
+
+                throw new IllegalStateException(String.format(
+                    "The elements have been streamed for more than [%s] ms, the remaining ones are skipped",
+                    StreamingList.this.maxStreamingTime));
+            }
+
+            boolean hasNext = this.iterator.hasNext();
+
+            if (!hasNext) {
+                // Release the resources as soon as possible
+                releaseStream();
+            }
+
+            return hasNext;
+        }
+
+        @Override
+        public E next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return this.iterator.next();
+        }
+
+        private void releaseStream()
+        {
+            this.closed = true;
+            close();
+        }
+    }
+
+    private List<E> getElements()
+    {
+        if (this.elements == null) {
+            if (this.streamed) {
+                throw new IllegalStateException("The elements have already been streamed");
+            }
+
+            try {
+                this.elements = this.stream.collect(Collectors.toCollection(ArrayList::new));
+            } finally {
+                close();
+            }
+        }
+
+        return this.elements;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        if (this.elements == null && !this.streamed) {
+            this.streamed = true;
+
+            return new BoundedIterator();
+        }
+
+        return getElements().iterator();
+    }
+
+    @Override
+    public E get(int index)
+    {
+        return getElements().get(index);
+    }
+
+    @Override
+    public int size()
+    {
+        return getElements().size();
+    }
+
+    @Override
+    public boolean add(E element)
+    {
+        return getElements().add(element);
+    }
+
+    @Override
+    public void add(int index, E element)
+    {
+        getElements().add(index, element);
+    }
+
+    @Override
+    public E set(int index, E element)
+    {
+        return getElements().set(index, element);
+    }
+
+    @Override
+    public E remove(int index)
+    {
+        return getElements().remove(index);
+    }
+
+    @Override
+    public void close()
+    {
+        this.stream.close();
+    }
+}
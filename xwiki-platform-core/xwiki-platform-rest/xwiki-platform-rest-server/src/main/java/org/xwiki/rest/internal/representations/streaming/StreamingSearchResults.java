@@ -0,0 +1,49 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.util.List;
+
+import org.xwiki.rest.model.jaxb.SearchResult;
+import org.xwiki.rest.model.jaxb.SearchResults;
+
+/**
+ * {@link SearchResults} produced while they are marshalled.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class StreamingSearchResults extends SearchResults implements StreamingCollection
+{
+    /**
+     * @param searchResults the search results, streamed if they come from a {@link StreamingList}
+     */
+    public StreamingSearchResults(List<SearchResult> searchResults)
+    {
+        this.searchResults = searchResults instanceof StreamingList ? searchResults
+            : new StreamingList<>(searchResults.stream());
+    }
+
+    @Override
+    public void close()
+    {
+        ((StreamingList<SearchResult>) this.searchResults).close();
+    }
+}
@@ -30,7 +30,9 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
@@ -40,6 +42,7 @@
 import org.xwiki.rest.internal.DomainObjectFactory;
 import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.streaming.StreamingAttachments;
 import org.xwiki.rest.model.jaxb.Attachment;
 import org.xwiki.rest.model.jaxb.Attachments;
 import org.xwiki.rest.model.jaxb.Link;
@@ -101,8 +104,6 @@ public Attachments getAttachments(String wikiName, String name, String page, Str
     {
         String database = Utils.getXWikiContext(componentManager).getWikiId();
 
-        Attachments attachments = objectFactory.createAttachments();
-
         /* This try is just needed for executing the finally clause. */
         try {
             Utils.getXWikiContext(componentManager).setWikiId(wikiName);
@@ -148,111 +149,121 @@ public Attachments getAttachments(String wikiName, String name, String page, Str
 
             String queryString = f.toString();
 
-            /* Execute the query by filling the parameters */
-            List<Object> queryResult = null;
+            Set<String> acceptedMimeTypes = new HashSet<String>();
+            if (!types.equals("")) {
+                String[] acceptedMimetypesArray = types.split(",");
+                for (String type : acceptedMimetypesArray) {
+                    acceptedMimeTypes.add(type);
+                }
+            }
+
+            /*
+             * Execute the query by filling the parameters. The results are iterated (and the attachments created) only
+             * while the response is written so that the memory used doesn't depend on the number of attachments. The
+             * query stream keeps a database connection meanwhile, see StreamingList for how long.
+             */
             try {
                 Query query = queryManager.createQuery(queryString, Query.XWQL).setLimit(number).setOffset(start);
+                query.setWiki(wikiName);
                 for (String param : filters.keySet()) {
                     query.bindValue(param, String.format("%%%s%%", filters.get(param).toUpperCase()));
                 }
 
-                queryResult = query.execute();
+                URI baseUri = uriInfo.getBaseUri();
+                Stream<Object[]> queryResult = query.stream();
+
+                return new StreamingAttachments(queryResult
+                    .map(fields -> toRestAttachment(fields, wikiName, acceptedMimeTypes, baseUri, withPrettyNames))
+                    .filter(Objects::nonNull));
             } catch (QueryException e) {
                 throw new XWikiRestException(e);
             }
+        } finally {
+            Utils.getXWikiContext(componentManager).setWikiId(database);
+        }
+    }
 
-            Set<String> acceptedMimeTypes = new HashSet<String>();
-            if (!types.equals("")) {
-                String[] acceptedMimetypesArray = types.split(",");
-                for (String type : acceptedMimetypesArray) {
-                    acceptedMimeTypes.add(type);
-                }
-            }
-
-            for (Object object : queryResult) {
-                Object[] fields = (Object[]) object;
-                String pageSpaceId = (String) fields[0];
-                List<String> pageSpaces = Utils.getSpacesFromSpaceId(pageSpaceId);
-                String pageName = (String) fields[1];
-                String pageId = Utils.getPageId(wikiName, pageSpaces, pageName);
-                String pageVersion = (String) fields[2];
-                XWikiAttachment xwikiAttachment = (XWikiAttachment) fields[3];
+    private Attachment toRestAttachment(Object[] fields, String wikiName, Set<String> acceptedMimeTypes, URI baseUri,
+        Boolean withPrettyNames)
+    {
+        String pageSpaceId = (String) fields[0];
+        List<String> pageSpaces = Utils.getSpacesFromSpaceId(pageSpaceId);
+        String pageName = (String) fields[1];
+        String pageId = Utils.getPageId(wikiName, pageSpaces, pageName);
+        String pageVersion = (String) fields[2];
+        XWikiAttachment xwikiAttachment = (XWikiAttachment) fields[3];
 
-                String mimeType = xwikiAttachment.getMimeType(Utils.getXWikiContext(componentManager));
+        String mimeType = xwikiAttachment.getMimeType(Utils.getXWikiContext(componentManager));
 
-                boolean add = true;
+        boolean add = true;
 
-                /* Check the mime type filter */
-                if (acceptedMimeTypes.size() > 0) {
-                    add = false;
+        /* Check the mime type filter */
+        if (acceptedMimeTypes.size() > 0) {
+            add = false;
 
-                    for (String type : acceptedMimeTypes) {
-                        if (mimeType.toUpperCase().contains(type.toUpperCase())) {
-                            add = true;
-                            break;
-                        }
-                    }
+            for (String type : acceptedMimeTypes) {
+                if (mimeType.toUpperCase().contains(type.toUpperCase())) {
+                    add = true;
+                    break;
                 }
+            }
+        }
 
-                if (add) {
-                    /*
-                     * We manufacture attachments in place because we don't have all the data for calling the
-                     * DomainObjectFactory method (doing so would require to retrieve an actual Document)
-                     */
-                    Attachment attachment = objectFactory.createAttachment();
-                    attachment.setId(String.format("%s@%s", pageId, xwikiAttachment.getFilename()));
-                    attachment.setName(xwikiAttachment.getFilename());
-                    attachment.setLongSize(xwikiAttachment.getLongSize());
-                    // Retro compatibility
-                    attachment.setSize((int) xwikiAttachment.getLongSize());
-                    attachment.setMimeType(mimeType);
-                    attachment.setAuthor(xwikiAttachment.getAuthor());
-                    if (withPrettyNames) {
-                        attachment.setAuthorName(Utils.getAuthorName(xwikiAttachment.getAuthorReference(), componentManager));
-                    }
-
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(xwikiAttachment.getDate());
-                    attachment.setDate(calendar);
-
-                    attachment.setPageId(pageId);
-                    attachment.setPageVersion(pageVersion);
-                    attachment.setVersion(xwikiAttachment.getVersion());
-
-                    URL absoluteUrl =
-                            Utils
-                                    .getXWikiContext(componentManager)
-                                    .getURLFactory()
-                                    .createAttachmentURL(xwikiAttachment.getFilename(), pageSpaceId, pageName, "download",
-                                            null,
-                                            wikiName, Utils.getXWikiContext(componentManager));
-                    attachment.setXwikiAbsoluteUrl(absoluteUrl.toString());
-                    attachment.setXwikiRelativeUrl(Utils.getXWikiContext(componentManager).getURLFactory()
-                            .getURL(absoluteUrl, Utils.getXWikiContext(componentManager)));
-
-                    URI pageUri =
-                        Utils.createURI(uriInfo.getBaseUri(), PageResource.class, wikiName, pageSpaces, pageName);
-                    Link pageLink = objectFactory.createLink();
-                    pageLink.setHref(pageUri.toString());
-                    pageLink.setRel(Relations.PAGE);
-                    attachment.getLinks().add(pageLink);
-
-                    URI attachmentUri =
-                        Utils.createURI(uriInfo.getBaseUri(), AttachmentResource.class, wikiName, pageSpaces, pageName,
-                            xwikiAttachment.getFilename());
-                    Link attachmentLink = objectFactory.createLink();
-                    attachmentLink.setHref(attachmentUri.toString());
-                    attachmentLink.setRel(Relations.ATTACHMENT_DATA);
-                    attachment.getLinks().add(attachmentLink);
-
-                    attachments.getAttachments().add(attachment);
-                }
+        if (add) {
+            /*
+             * We manufacture attachments in place because we don't have all the data for calling the
+             * DomainObjectFactory method (doing so would require to retrieve an actual Document)
+             */
+            Attachment attachment = objectFactory.createAttachment();
+            attachment.setId(String.format("%s@%s", pageId, xwikiAttachment.getFilename()));
+            attachment.setName(xwikiAttachment.getFilename());
+            attachment.setLongSize(xwikiAttachment.getLongSize());
+            // Retro compatibility
+            attachment.setSize((int) xwikiAttachment.getLongSize());
+            attachment.setMimeType(mimeType);
+            attachment.setAuthor(xwikiAttachment.getAuthor());
+            if (withPrettyNames) {
+                attachment.setAuthorName(Utils.getAuthorName(xwikiAttachment.getAuthorReference(), componentManager));
             }
-        } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(xwikiAttachment.getDate());
+            attachment.setDate(calendar);
+
+            attachment.setPageId(pageId);
+            attachment.setPageVersion(pageVersion);
+            attachment.setVersion(xwikiAttachment.getVersion());
+
+            URL absoluteUrl =
+                    Utils
+                            .getXWikiContext(componentManager)
+                            .getURLFactory()
+                            .createAttachmentURL(xwikiAttachment.getFilename(), pageSpaceId, pageName, "download",
+                                    null,
+                                    wikiName, Utils.getXWikiContext(componentManager));
+            attachment.setXwikiAbsoluteUrl(absoluteUrl.toString());
+            attachment.setXwikiRelativeUrl(Utils.getXWikiContext(componentManager).getURLFactory()
+                    .getURL(absoluteUrl, Utils.getXWikiContext(componentManager)));
+
+            URI pageUri =
+                Utils.createURI(baseUri, PageResource.class, wikiName, pageSpaces, pageName);
+            Link pageLink = objectFactory.createLink();
+            pageLink.setHref(pageUri.toString());
+            pageLink.setRel(Relations.PAGE);
+            attachment.getLinks().add(pageLink);
+
+            URI attachmentUri =
+                Utils.createURI(baseUri, AttachmentResource.class, wikiName, pageSpaces, pageName,
+                    xwikiAttachment.getFilename());
+            Link attachmentLink = objectFactory.createLink();
+            attachmentLink.setHref(attachmentUri.toString());
+            attachmentLink.setRel(Relations.ATTACHMENT_DATA);
+            attachment.getLinks().add(attachmentLink);
+
+            return attachment;
         }
 
-        return attachments;
+        return null;
     }
 
     protected Attachments getAttachmentsForDocument(Document doc, int start, int number, Boolean withPrettyNames)
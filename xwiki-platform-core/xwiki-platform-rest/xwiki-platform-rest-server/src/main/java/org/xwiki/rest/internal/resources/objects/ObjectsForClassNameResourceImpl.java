@@ -19,15 +19,18 @@
  */
 package org.xwiki.rest.internal.resources.objects;
 
+import java.net.URI;
 import java.util.List;
+import java.util.stream.StreamSupport;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.rest.XWikiRestException;
-import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.ModelFactory;
 import org.xwiki.rest.internal.RangeIterable;
-import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.streaming.StreamingObjects;
 import org.xwiki.rest.model.jaxb.Objects;
 import org.xwiki.rest.resources.objects.ObjectsForClassNameResource;
 
@@ -41,6 +44,9 @@
 @Named("org.xwiki.rest.internal.resources.objects.ObjectsForClassNameResourceImpl")
 public class ObjectsForClassNameResourceImpl extends BaseObjectsResource implements ObjectsForClassNameResource
 {
+    @Inject
+    private ModelFactory factory;
+
     @Override
     public Objects getObjects(String wikiName, String spaceName, String pageName, String className, Integer start,
             Integer number, Boolean withPrettyNames) throws XWikiRestException
@@ -50,22 +56,18 @@ public Objects getObjects(String wikiName, String spaceName, String pageName, St
 
             Document doc = documentInfo.getDocument();
 
-            Objects objects = objectFactory.createObjects();
-
             List<com.xpn.xwiki.objects.BaseObject> objectList = getBaseObjects(doc, className);
 
             RangeIterable<com.xpn.xwiki.objects.BaseObject> ri =
                     new RangeIterable<com.xpn.xwiki.objects.BaseObject>(objectList, start, number);
 
-            for (com.xpn.xwiki.objects.BaseObject object : ri) {
+            URI baseUri = uriInfo.getBaseUri();
+
+            // The object summaries are created while the response is written
+            Objects objects = new StreamingObjects(StreamSupport.stream(ri.spliterator(), false)
                 // By deleting objects, some of them might become null, so we must check for this
-                if (object != null) {
-                    objects.getObjectSummaries()
-                        .add(DomainObjectFactory.createObjectSummary(objectFactory, uriInfo.getBaseUri(),
-                            Utils.getXWikiContext(componentManager), doc, object, false,
-                            Utils.getXWikiApi(componentManager), withPrettyNames));
-                }
-            }
+                .filter(java.util.Objects::nonNull)
+                .map(object -> this.factory.toRestObjectSummary(baseUri, doc, object, false, withPrettyNames)));
 
             return objects;
         } catch (XWikiException e) {
@@ -0,0 +1,437 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.pages;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.ModelFactory;
+import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+import org.xwiki.rest.model.jaxb.PageSummary;
+import org.xwiki.rest.resources.pages.PageResource;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Builds page summaries containing only some of their fields (see the {@code fields} parameter of
+ * {@link org.xwiki.rest.resources.pages.PagesResource}) from the metadata of the documents, read with a few queries
+ * for a whole batch of pages, instead of loading each document.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = PageSummaryProjection.class)
+@Singleton
+public class PageSummaryProjection
+{
+    /**
+     * The title of the page. The documents are loaded only when their title needs to be evaluated or computed.
+     */
+    public static final String TITLE = "title";
+
+    /**
+     * The parent of the page, as it's stored.
+     */
+    public static final String PARENT = "parent";
+
+    /**
+     * The reference of the parent of the page, if it exists.
+     */
+    public static final String PARENT_ID = "parentId";
+
+    /**
+     * The current version of the page.
+     */
+    public static final String VERSION = "version";
+
+    /**
+     * The last author of the page.
+     */
+    public static final String AUTHOR = "author";
+
+    /**
+     * The display name of the last author of the page.
+     */
+    public static final String AUTHOR_NAME = "authorName";
+
+    /**
+     * The syntax of the page.
+     */
+    public static final String SYNTAX = "syntax";
+
+    /**
+     * The relative and absolute view URLs of the page.
+     */
+    public static final String URL = "xwikiUrl";
+
+    /**
+     * The translations of the page.
+     */
+    public static final String TRANSLATIONS = "translations";
+
+    /**
+     * The link to the page resource.
+     */
+    public static final String LINKS = "links";
+
+    /**
+     * The number of distinct pages linking to the page, counted for the whole space with a single query.
+     */
+    public static final String BACKLINKS = "backlinks";
+
+    /**
+     * All the supported fields. The wiki, space, name, full name and id of the page are always included.
+     */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(TITLE,
+        PARENT, PARENT_ID, VERSION, AUTHOR, AUTHOR_NAME, SYNTAX, URL, TRANSLATIONS, LINKS, BACKLINKS)));
+
+    /**
+     * The maximum number of pages for which the parents or the translations are read at once.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    private static final String SELECT = "select doc.name, doc.title, doc.parent, doc.version, doc.author, "
+        + "doc.syntaxId, doc.defaultLanguage from XWikiDocument doc";
+
+    private static final String WHERE = " where doc.space = :space and (doc.language = '' or doc.language is null)";
+
+    private static final String SPACE = "space";
+
+    private static final String NAMES = "names";
+
+    private static final String AFTER = "after";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    @Named("explicit")
+    private DocumentReferenceResolver<String> explicitResolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private ModelFactory modelFactory;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    private final ObjectFactory objectFactory = new ObjectFactory();
+
+    /**
+     * @param fields the comma separated list of fields requested by the client
+     * @return the requested fields
+     * @throws IllegalArgumentException when a field is not supported
+     */
+    public Set<String> parseFields(String fields)
+    {
+        Set<String> result = new HashSet<>();
+        for (String field : StringUtils.split(fields, ", ")) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException(
+                    String.format("Unsupported field [%s], the supported fields are %s", field, FIELDS));
+            }
+            result.add(field);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param spaceReference the space containing the pages
+     * @param order "date" to order the pages by date, most recent first, otherwise they are ordered by name
+     * @param after only the pages after this one (in the requested order) are returned (keyset pagination); when
+     *            ordering by date, this page must exist
+     * @return the query returning the metadata expected by
+     *         {@link #toRestPageSummaries(URI, SpaceReference, Set, List, Pattern)}
+     * @throws QueryException when failing to create the query
+     */
+    public Query createQuery(SpaceReference spaceReference, String order, String after) throws QueryException
+    {
+        Query query;
+        if ("date".equals(order) && after != null) {
+            query = this.queryManager.createQuery(SELECT + ", XWikiDocument afterDoc" + WHERE
+                + " and afterDoc.space = :space and afterDoc.name = :after "
+                + "and (afterDoc.language = '' or afterDoc.language is null) and (doc.date < afterDoc.date "
+                + "or (doc.date = afterDoc.date and doc.name > afterDoc.name)) order by doc.date desc, doc.name",
+                Query.HQL);
+            query.bindValue(AFTER, after);
+        } else if ("date".equals(order)) {
+            query = this.queryManager.createQuery(SELECT + WHERE + " order by doc.date desc, doc.name", Query.HQL);
+        } else if (after != null) {
+            query =
+                this.queryManager.createQuery(SELECT + WHERE + " and doc.name > :after order by doc.name", Query.HQL);
+            query.bindValue(AFTER, after);
+        } else {
+            query = this.queryManager.createQuery(SELECT + WHERE + " order by doc.name", Query.HQL);
+        }
+        query.bindValue(SPACE, this.localSerializer.serialize(spaceReference));
+
+        return query;
+    }
+
+    /**
+     * @param baseUri the base URI of the REST resources
+     * @param spaceReference the space containing the pages
+     * @param fields the fields to fill, see {@link #FIELDS}
+     * @param rows the results of the query created with {@link #createQuery(SpaceReference, String, String)}
+     * @param parentFilter only the pages whose parent reference match this pattern are returned, can be null
+     * @return the summaries of the pages the current user is allowed to view
+     * @throws QueryException when failing to read the parents or the translations of the pages
+     * @throws XWikiException when failing to load a page whose title must be evaluated or to count the backlinks
+     */
+    public List<PageSummary> toRestPageSummaries(URI baseUri, SpaceReference spaceReference, Set<String> fields,
+        List<Object[]> rows, Pattern parentFilter) throws QueryException, XWikiException
+    {
+        List<PageSummary> pageSummaries = new ArrayList<>(rows.size());
+        Map<String, String> authorNames = new HashMap<>();
+
+        Map<DocumentReference, Long> backlinks = Collections.emptyMap();
+        if (fields.contains(BACKLINKS) && !rows.isEmpty()) {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            backlinks = xcontext.getWiki().getStore().countBacklinks(spaceReference, true, xcontext);
+        }
+
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            List<Object[]> batch = rows.subList(i, Math.min(i + BATCH_SIZE, rows.size()));
+
+            Map<String, DocumentReference> references = new HashMap<>();
+            for (Object[] row : batch) {
+                DocumentReference reference = new DocumentReference((String) row[0], spaceReference);
+                if (this.authorization.hasAccess(Right.VIEW, reference)) {
+                    references.put(reference.getName(), reference);
+                }
+            }
+
+            Set<DocumentReference> existingParents = Collections.emptySet();
+            if (parentFilter != null || fields.contains(PARENT_ID)) {
+                existingParents = getExistingParents(batch, references);
+            }
+
+            Map<String, List<String>> translations = Collections.emptyMap();
+            if (fields.contains(TRANSLATIONS)) {
+                translations = getTranslations(spaceReference, references.keySet());
+            }
+
+            for (Object[] row : batch) {
+                DocumentReference reference = references.get(row[0]);
+                if (reference != null) {
+                    DocumentReference parentReference = getParentReference(row, reference);
+                    String parentId = "";
+                    if (parentReference != null && existingParents.contains(parentReference)) {
+                        parentId = this.serializer.serialize(parentReference);
+                    }
+
+                    if (parentFilter == null || parentFilter.matcher(parentId).matches()) {
+                        PageSummary pageSummary = toRestPageSummary(baseUri, reference, row, fields, authorNames);
+                        if (fields.contains(PARENT_ID)) {
+                            pageSummary.setParentId(parentId);
+                        }
+                        if (fields.contains(TRANSLATIONS)) {
+                            List<String> languages = translations.get(reference.getName());
+                            pageSummary.setTranslations(this.modelFactory.toRestTranslations(baseUri,
+                                reference.getWikiReference().getName(),
+                                Utils.getSpacesFromSpaceId(this.localSerializer.serialize(spaceReference)),
+                                reference.getName(), StringUtils.defaultString((String) row[6]),
+                                languages != null ? languages : Collections.<String>emptyList()));
+                        }
+                        if (fields.contains(BACKLINKS)) {
+                            Long count = backlinks.get(reference);
+                            pageSummary.setBacklinks(count != null ? count : 0L);
+                        }
+                        pageSummaries.add(pageSummary);
+                    }
+                }
+            }
+        }
+
+        return pageSummaries;
+    }
+
+    private PageSummary toRestPageSummary(URI baseUri, DocumentReference reference, Object[] row, Set<String> fields,
+        Map<String, String> authorNames) throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        PageSummary pageSummary = this.objectFactory.createPageSummary();
+
+        String wiki = reference.getWikiReference().getName();
+        String space = this.localSerializer.serialize(reference.getLastSpaceReference());
+        pageSummary.setWiki(wiki);
+        pageSummary.setSpace(space);
+        pageSummary.setName(reference.getName());
+        pageSummary.setFullName(this.localSerializer.serialize(reference));
+        pageSummary.setId(this.serializer.serialize(reference));
+
+        if (fields.contains(TITLE)) {
+            pageSummary.setTitle(getTitle(reference, (String) row[1], xcontext));
+        }
+        if (fields.contains(PARENT)) {
+            pageSummary.setParent((String) row[2]);
+        }
+        if (fields.contains(VERSION)) {
+            pageSummary.setVersion((String) row[3]);
+        }
+        if (fields.contains(AUTHOR)) {
+            pageSummary.setAuthor((String) row[4]);
+        }
+        if (fields.contains(AUTHOR_NAME)) {
+            String author = (String) row[4];
+            String authorName = authorNames.get(author);
+            if (authorName == null) {
+                authorName = xcontext.getWiki().getUserName(author, null, false, xcontext);
+                authorNames.put(author, authorName);
+            }
+            pageSummary.setAuthorName(authorName);
+        }
+        if (fields.contains(SYNTAX)) {
+            pageSummary.setSyntax((String) row[5]);
+        }
+        if (fields.contains(URL)) {
+            pageSummary.setXwikiRelativeUrl(xcontext.getWiki().getURL(reference, "view", xcontext));
+            pageSummary.setXwikiAbsoluteUrl(xcontext.getURLFactory()
+                .createExternalURL(space, reference.getName(), "view", null, null, wiki, xcontext).toString());
+        }
+        if (fields.contains(LINKS)) {
+            Link pageLink = this.objectFactory.createLink();
+            pageLink.setHref(Utils.createURI(baseUri, PageResource.class, wiki, Utils.getSpacesFromSpaceId(space),
+                reference.getName()).toString());
+            pageLink.setRel(Relations.PAGE);
+            pageSummary.getLinks().add(pageLink);
+        }
+
+        return pageSummary;
+    }
+
+    private String getTitle(DocumentReference reference, String title, XWikiContext xcontext) throws XWikiException
+    {
+        // Titles which are empty (extracted from the content) or which contain scripts are computed by the document
+        if (StringUtils.isEmpty(title) || StringUtils.containsAny(title, '$', '#')) {
+            return xcontext.getWiki().getDocument(reference, xcontext).getRenderedTitle(xcontext);
+        }
+
+        return title;
+    }
+
+    private DocumentReference getParentReference(Object[] row, DocumentReference reference)
+    {
+        String parent = (String) row[2];
+
+        return StringUtils.isEmpty(parent) ? null : this.explicitResolver.resolve(parent, reference);
+    }
+
+    private Set<DocumentReference> getExistingParents(List<Object[]> batch, Map<String, DocumentReference> references)
+        throws QueryException
+    {
+        Set<DocumentReference> existingParents = new HashSet<>();
+
+        // Group the parents by wiki to check their existence with one query per wiki
+        Map<String, Map<String, DocumentReference>> parentsByWiki = new HashMap<>();
+        for (Object[] row : batch) {
+            DocumentReference reference = references.get(row[0]);
+            if (reference != null) {
+                DocumentReference parentReference = getParentReference(row, reference);
+                if (parentReference != null) {
+                    Map<String, DocumentReference> parents = parentsByWiki.get(parentReference.getWikiReference()
+                        .getName());
+                    if (parents == null) {
+                        parents = new HashMap<>();
+                        parentsByWiki.put(parentReference.getWikiReference().getName(), parents);
+                    }
+                    parents.put(this.localSerializer.serialize(parentReference), parentReference);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Map<String, DocumentReference>> entry : parentsByWiki.entrySet()) {
+            Query query = this.queryManager.createQuery("select distinct doc.fullName from XWikiDocument doc "
+                + "where doc.fullName in (:names) and (doc.language = '' or doc.language is null)", Query.HQL);
+            query.bindValue(NAMES, new ArrayList<>(entry.getValue().keySet()));
+            query.setWiki(entry.getKey());
+            for (Object fullName : query.execute()) {
+                existingParents.add(entry.getValue().get(fullName));
+            }
+        }
+
+        return existingParents;
+    }
+
+    private Map<String, List<String>> getTranslations(SpaceReference spaceReference, Set<String> names)
+        throws QueryException
+    {
+        Map<String, List<String>> translations = new HashMap<>();
+
+        if (!names.isEmpty()) {
+            Query query = this.queryManager.createQuery("select doc.name, doc.language from XWikiDocument doc "
+                + "where doc.space = :space and doc.name in (:names) and doc.language <> '' "
+                + "order by doc.language", Query.HQL);
+            query.bindValue(SPACE, this.localSerializer.serialize(spaceReference));
+            query.bindValue(NAMES, new ArrayList<>(names));
+            query.setWiki(spaceReference.getWikiReference().getName());
+            for (Object[] row : query.<Object[]>execute()) {
+                List<String> languages = translations.get(row[0]);
+                if (languages == null) {
+                    languages = new ArrayList<>();
+                    translations.put((String) row[0], languages);
+                }
+                languages.add((String) row[1]);
+            }
+        }
+
+        return translations;
+    }
+}
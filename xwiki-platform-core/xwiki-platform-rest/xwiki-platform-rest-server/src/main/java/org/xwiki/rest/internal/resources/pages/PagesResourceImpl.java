@@ -20,11 +20,16 @@
 package org.xwiki.rest.internal.resources.pages;
 
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
+import javax.inject.Inject;
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
@@ -43,9 +48,12 @@
 @Named("org.xwiki.rest.internal.resources.pages.PagesResourceImpl")
 public class PagesResourceImpl extends XWikiResource implements PagesResource
 {
+    @Inject
+    private PageSummaryProjection projection;
+
     @Override
     public Pages getPages(String wikiName, String spaceName, Integer start, Integer number,
-            String parentFilterExpression, String order, Boolean withPrettyNames)
+            String parentFilterExpression, String order, Boolean withPrettyNames, String fields, String after)
             throws XWikiRestException
     {
         String database = Utils.getXWikiContext(componentManager).getWikiId();
@@ -57,15 +65,6 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
         try {
             Utils.getXWikiContext(componentManager).setWikiId(wikiName);
 
-            Query query = ("date".equals(order)) ? queryManager.createQuery(
-                    "select doc.name from Document doc where doc.space=:space and language='' order by doc.date desc",
-                    "xwql") : queryManager.getNamedQuery("getSpaceDocsName");
-
-            /* Use an explicit query to improve performance */
-            List<String> pageNames =
-                    query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
-                        .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
-
             Pattern parentFilter = null;
             if (parentFilterExpression != null) {
                 if (parentFilterExpression.equals("null")) {
@@ -75,6 +74,50 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                 }
             }
 
+            if (fields != null) {
+                // Only return the requested fields, read from the database by batches without loading the documents
+                Set<String> requestedFields;
+                try {
+                    requestedFields = this.projection.parseFields(fields);
+                } catch (IllegalArgumentException e) {
+                    throw new WebApplicationException(e, Status.BAD_REQUEST);
+                }
+
+                SpaceReference spaceReference = Utils.getSpaceReference(spaces, wikiName);
+                List<Object[]> rows = this.projection.createQuery(spaceReference, order, after)
+                    .addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
+                    .setOffset(start).setLimit(number).execute();
+                pages.getPageSummaries().addAll(this.projection.toRestPageSummaries(uriInfo.getBaseUri(),
+                    spaceReference, requestedFields, rows, parentFilter));
+
+                return pages;
+            }
+
+            Query query;
+            if ("date".equals(order) && after != null) {
+                // Keyset pagination: start after the last page of the previous call, which must still exist
+                query = queryManager.createQuery("select doc.name from XWikiDocument doc, XWikiDocument afterDoc "
+                    + "where doc.space=:space and doc.language='' and afterDoc.space=:space "
+                    + "and afterDoc.name=:after and afterDoc.language='' and (doc.date < afterDoc.date "
+                    + "or (doc.date = afterDoc.date and doc.name > afterDoc.name)) "
+                    + "order by doc.date desc, doc.name asc", Query.HQL).bindValue("after", after);
+            } else if ("date".equals(order)) {
+                query = queryManager.createQuery("select doc.name from Document doc where doc.space=:space "
+                    + "and language='' order by doc.date desc, doc.name asc", "xwql");
+            } else if (after != null) {
+                // Keyset pagination: start after the last page of the previous call instead of skipping pages
+                query = queryManager.createQuery("select distinct doc.name from XWikiDocument doc "
+                    + "where doc.space=:space and doc.name > :after order by doc.name asc", Query.HQL)
+                    .bindValue("after", after);
+            } else {
+                query = queryManager.getNamedQuery("getSpaceDocsName");
+            }
+
+            /* Use an explicit query to improve performance */
+            List<String> pageNames =
+                    query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
+                        .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
+
             for (String pageName : pageNames) {
                 String pageFullName = Utils.getPageId(wikiName, spaces, pageName);
 
@@ -105,6 +148,8 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                     }
                 }
             }
+        } catch (WebApplicationException e) {
+            throw e;
         } catch (Exception e) {
             throw new XWikiRestException(e);
         } finally {
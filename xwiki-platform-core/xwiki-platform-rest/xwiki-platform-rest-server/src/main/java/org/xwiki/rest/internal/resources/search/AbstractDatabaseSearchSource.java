@@ -19,10 +19,12 @@
  */
 package org.xwiki.rest.internal.resources.search;
 
-import java.util.ArrayList;
+import java.net.URI;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -40,6 +42,7 @@
 import org.xwiki.rest.Relations;
 import org.xwiki.rest.internal.ModelFactory;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.streaming.StreamingList;
 import org.xwiki.rest.model.jaxb.Link;
 import org.xwiki.rest.model.jaxb.SearchResult;
 import org.xwiki.rest.resources.pages.PageResource;
@@ -106,78 +109,98 @@ public List<SearchResult> search(String partialQueryString, String wikiName, Str
         query.setLimit(number).setOffset(start);
         query.setWiki(wikiName);
 
-        List<Object> queryResult = query.execute();
-
         WikiReference wikiReference = new WikiReference(wikiName);
+        URI baseUri = uriInfo.getBaseUri();
+
+        // The results are created only while the response is written so that the memory used doesn't depend on the
+        // number of results. The stream keeps a database connection while the response is written, see StreamingList for
+        // how long.
+        Stream<Object[]> queryResult = query.stream();
+
+        return new StreamingList<>(queryResult.map(fields -> {
+            // The context wiki is restored before the response is written
+            String currentWiki = xwikiContext.getWikiId();
+            try {
+                xwikiContext.setWikiId(wikiName);
+
+                return toRestSearchResult(fields, wikiReference, xwikiApi, withPrettyNames, className, baseUri);
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Failed to create the search result for [%s]", fields[0]),
+                    e);
+            } finally {
+                xwikiContext.setWikiId(currentWiki);
+            }
+        }).filter(Objects::nonNull));
+    }
 
-        /* Build the result. */
-        List<SearchResult> result = new ArrayList<>();
-        for (Object object : queryResult) {
-            Object[] fields = (Object[]) object;
-
-            String fullName = (String) fields[0];
-            String language = (String) fields[3];
-
-            DocumentReference documentReference = this.resolver.resolve(fullName, wikiReference);
-
-            /* Check if the user has the right to see the found document */
-            if (this.authorization.hasAccess(Right.VIEW, documentReference)) {
-                Document doc = xwikiApi.getDocument(documentReference);
-                String title = doc.getDisplayTitle();
-
-                SearchResult searchResult = this.objectFactory.createSearchResult();
-                searchResult.setType("page");
-                searchResult.setId(doc.getPrefixedFullName());
-                searchResult.setPageFullName(doc.getFullName());
-                searchResult.setTitle(title);
-                searchResult.setWiki(wikiName);
-                searchResult.setSpace(doc.getSpace());
-                searchResult.setPageName(doc.getName());
-                searchResult.setVersion(doc.getVersion());
-                searchResult.setAuthor(doc.getAuthor());
-                Calendar calendar = Calendar.getInstance();
-                calendar.setTime(doc.getDate());
-                searchResult.setModified(calendar);
-
-                if (withPrettyNames) {
-                    searchResult.setAuthorName(xwikiApi.getUserName(doc.getAuthor(), false));
-                }
+    private SearchResult toRestSearchResult(Object[] fields, WikiReference wikiReference, XWiki xwikiApi,
+        Boolean withPrettyNames, String className, URI baseUri) throws Exception
+    {
+        XWikiContext xwikiContext = this.xcontextProvider.get();
+        String wikiName = wikiReference.getName();
+
+        String fullName = (String) fields[0];
+        String language = (String) fields[3];
+
+        DocumentReference documentReference = this.resolver.resolve(fullName, wikiReference);
+
+        /* Check if the user has the right to see the found document */
+        if (this.authorization.hasAccess(Right.VIEW, documentReference)) {
+            Document doc = xwikiApi.getDocument(documentReference);
+            String title = doc.getDisplayTitle();
+
+            SearchResult searchResult = this.objectFactory.createSearchResult();
+            searchResult.setType("page");
+            searchResult.setId(doc.getPrefixedFullName());
+            searchResult.setPageFullName(doc.getFullName());
+            searchResult.setTitle(title);
+            searchResult.setWiki(wikiName);
+            searchResult.setSpace(doc.getSpace());
+            searchResult.setPageName(doc.getName());
+            searchResult.setVersion(doc.getVersion());
+            searchResult.setAuthor(doc.getAuthor());
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(doc.getDate());
+            searchResult.setModified(calendar);
+
+            if (withPrettyNames) {
+                searchResult.setAuthorName(xwikiApi.getUserName(doc.getAuthor(), false));
+            }
 
-                /*
-                 * Avoid to return object information if the user is not authenticated. This will prevent crawlers to
-                 * retrieve information such as email addresses and passwords from user's profiles.
-                 */
-                if (StringUtils.isNotEmpty(className) && xwikiContext.getUserReference() != null) {
-                    XWikiDocument xdocument =
-                        xwikiContext.getWiki().getDocument(doc.getDocumentReference(), xwikiContext);
-                    BaseObject baseObject = xdocument.getObject(className);
-                    if (baseObject != null) {
-                        searchResult.setObject(
-                            this.modelFactory.toRestObject(uriInfo.getBaseUri(), doc, baseObject, false, false));
-                    }
+            /*
+             * Avoid to return object information if the user is not authenticated. This will prevent crawlers to
+             * retrieve information such as email addresses and passwords from user's profiles.
+             */
+            if (StringUtils.isNotEmpty(className) && xwikiContext.getUserReference() != null) {
+                XWikiDocument xdocument = xwikiContext.getWiki().getDocument(doc.getDocumentReference(), xwikiContext);
+                BaseObject baseObject = xdocument.getObject(className);
+                if (baseObject != null) {
+                    searchResult.setObject(
+                        this.modelFactory.toRestObject(baseUri, doc, baseObject, false, false));
                 }
+            }
 
-                String pageUri;
-                if (StringUtils.isBlank(language)) {
-                    pageUri = Utils.createURI(uriInfo.getBaseUri(), PageResource.class, wikiName,
-                        Utils.getSpacesHierarchy(documentReference.getLastSpaceReference()),
-                        documentReference.getName()).toString();
-                } else {
-                    searchResult.setLanguage(language);
-                    pageUri = Utils.createURI(uriInfo.getBaseUri(), PageTranslationResource.class, wikiName,
-                        Utils.getSpacesHierarchy(documentReference.getLastSpaceReference()),
-                        documentReference.getName(), language).toString();
-                }
+            String pageUri;
+            if (StringUtils.isBlank(language)) {
+                pageUri = Utils.createURI(baseUri, PageResource.class, wikiName,
+                    Utils.getSpacesHierarchy(documentReference.getLastSpaceReference()),
+                    documentReference.getName()).toString();
+            } else {
+                searchResult.setLanguage(language);
+                pageUri = Utils.createURI(baseUri, PageTranslationResource.class, wikiName,
+                    Utils.getSpacesHierarchy(documentReference.getLastSpaceReference()),
+                    documentReference.getName(), language).toString();
+            }
 
-                Link pageLink = new Link();
-                pageLink.setHref(pageUri);
-                pageLink.setRel(Relations.PAGE);
-                searchResult.getLinks().add(pageLink);
+            Link pageLink = new Link();
+            pageLink.setHref(pageUri);
+            pageLink.setRel(Relations.PAGE);
+            searchResult.getLinks().add(pageLink);
 
-                result.add(searchResult);
-            }
+            return searchResult;
         }
 
-        return result;
+        return null;
     }
 }
+
@@ -20,13 +20,14 @@
 package org.xwiki.rest.internal.resources.tags;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.query.Query;
-import org.xwiki.query.QueryException;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
@@ -36,11 +37,15 @@
 import org.xwiki.rest.resources.tags.PagesForTagsResource;
 
 import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.plugin.tag.TagIndex;
 
 @Component
 @Named("org.xwiki.rest.internal.resources.tags.PagesForTagsResourceImpl")
 public class PagesForTagsResourceImpl extends XWikiResource implements PagesForTagsResource
 {
+    @Inject
+    private TagIndex tagIndex;
+
     @Override
     public Pages getTags(String wikiName, String tagNames, Integer start, Integer number, Boolean withPrettyNames)
             throws XWikiRestException
@@ -54,19 +59,13 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
 
             String[] tagNamesArray = tagNames.split(",");
 
-            List<String> documentNames = new ArrayList<String>();
+            /* Avoid duplicates */
+            Set<String> documentNames = new LinkedHashSet<String>();
             for (String tagName : tagNamesArray) {
-                List<String> documentNamesForTag = getDocumentsWithTag(tagName);
-
-                /* Avoid duplicates */
-                for (String documentName : documentNamesForTag) {
-                    if (!documentNames.contains(documentName)) {
-                        documentNames.add(documentName);
-                    }
-                }
+                documentNames.addAll(this.tagIndex.getDocumentsWithTag(wikiName, tagName, true));
             }
 
-            RangeIterable<String> ri = new RangeIterable<String>(documentNames, start, number);
+            RangeIterable<String> ri = new RangeIterable<String>(new ArrayList<String>(documentNames), start, number);
 
             for (String documentName : ri) {
                 Document doc = Utils.getXWikiApi(componentManager).getDocument(documentName);
@@ -84,16 +83,4 @@ public Pages getTags(String wikiName, String tagNames, Integer start, Integer nu
             Utils.getXWikiContext(componentManager).setWikiId(database);
         }
     }
-
-    private List<String> getDocumentsWithTag(String tag) throws QueryException
-    {
-        String query =
-                "select doc.fullName from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop "
-                        + "where obj.name=doc.fullName and obj.className='XWiki.TagClass' and obj.id=prop.id.id "
-                        + "and prop.id.name='tags' and :tag in elements(prop.list) order by doc.name asc";
-
-        List<String> documentsWithTag = queryManager.createQuery(query, Query.HQL).bindValue("tag", tag).execute();
-
-        return documentsWithTag;
-    }
 }
@@ -19,13 +19,12 @@
  */
 package org.xwiki.rest.internal.resources.tags;
 
-import java.util.Collections;
 import java.util.List;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xwiki.component.annotation.Component;
-import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.rest.Relations;
 import org.xwiki.rest.XWikiResource;
@@ -37,10 +36,15 @@
 import org.xwiki.rest.resources.tags.PagesForTagsResource;
 import org.xwiki.rest.resources.tags.TagsResource;
 
+import com.xpn.xwiki.plugin.tag.TagIndex;
+
 @Component
 @Named("org.xwiki.rest.internal.resources.tags.TagsResourceImpl")
 public class TagsResourceImpl extends XWikiResource implements TagsResource
 {
+    @Inject
+    private TagIndex tagIndex;
+
     @Override
     public Tags getTags(String wikiName) throws XWikiRestException
     {
@@ -51,7 +55,7 @@ public Tags getTags(String wikiName) throws XWikiRestException
 
             Utils.getXWikiContext(componentManager).setWikiId(wikiName);
 
-            List<String> tagNames = getAllTags();
+            List<String> tagNames = this.tagIndex.getAllTags(wikiName, true);
 
             for (String tagName : tagNames) {
                 Tag tag = objectFactory.createTag();
@@ -74,17 +78,4 @@ public Tags getTags(String wikiName) throws XWikiRestException
             Utils.getXWikiContext(componentManager).setWikiId(database);
         }
     }
-
-    private List<String> getAllTags() throws QueryException
-    {
-        String query =
-                "select distinct elements(prop.list) from BaseObject as obj, "
-                        + "DBStringListProperty as prop where obj.className='XWiki.TagClass' "
-                        + "and obj.id=prop.id.id and prop.id.name='tags'";
-
-        List<String> tags = queryManager.createQuery(query, Query.HQL).execute();
-        Collections.sort(tags, String.CASE_INSENSITIVE_ORDER);
-
-        return tags;
-    }
 }
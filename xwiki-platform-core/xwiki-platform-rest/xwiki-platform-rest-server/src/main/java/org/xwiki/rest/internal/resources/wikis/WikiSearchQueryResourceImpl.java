@@ -24,6 +24,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.Utils;
+import org.xwiki.rest.internal.representations.streaming.StreamingSearchResults;
 import org.xwiki.rest.internal.resources.BaseSearchResult;
 import org.xwiki.rest.model.jaxb.SearchResults;
 import org.xwiki.rest.resources.wikis.WikiSearchQueryResource;
@@ -38,16 +39,15 @@ public SearchResults search(String wikiName, String query,
             Boolean withPrettyNames, String className) throws XWikiRestException
     {
         try {
-            SearchResults searchResults = objectFactory.createSearchResults();
+            // The search results are created while the response is written
+            SearchResults searchResults = new StreamingSearchResults(searchQuery(query, queryTypeString, wikiName,
+                null, Utils.getXWiki(componentManager).getRightService().hasProgrammingRights(
+                    Utils.getXWikiContext(componentManager)), orderField, order, distinct, number, start,
+                withPrettyNames, className));
             searchResults.setTemplate(String.format("%s?%s",
                 Utils.createURI(uriInfo.getBaseUri(), WikiSearchQueryResource.class, wikiName).toString(),
                 QUERY_TEMPLATE_INFO));
 
-            searchResults.getSearchResults().addAll(searchQuery(query, queryTypeString, wikiName, null,
-                    Utils.getXWiki(componentManager).getRightService().hasProgrammingRights(
-                            Utils.getXWikiContext(componentManager)), orderField, order, distinct, number, start,
-                    withPrettyNames, className));
-
             return searchResults;
         } catch (Exception e) {
             throw new XWikiRestException(e);
@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xwiki.rest.model.jaxb.SearchResult;
+import org.xwiki.rest.model.jaxb.SearchResults;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link StreamingCollectionWriter}.
+ *
+ * @version $Id$
+ */
+public class StreamingCollectionWriterTest
+{
+    private StreamingCollectionWriter writer;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.writer = new StreamingCollectionWriter();
+        this.writer.initialize();
+    }
+
+    private StreamingSearchResults searchResults(String... ids)
+    {
+        return new StreamingSearchResults(new StreamingList<>(Stream.of(ids).map(id -> {
+            SearchResult searchResult = new SearchResult();
+            searchResult.setId(id);
+            return searchResult;
+        }).onClose(() -> this.closed.set(true))));
+    }
+
+    private String write(StreamingCollection collection, MediaType mediaType) throws Exception
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        this.writer.writeTo(collection, collection.getClass(), collection.getClass(), null, mediaType, null, output);
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void isWriteable()
+    {
+        assertTrue(this.writer.isWriteable(StreamingSearchResults.class, StreamingSearchResults.class, null,
+            MediaType.APPLICATION_XML_TYPE));
+        assertFalse(
+            this.writer.isWriteable(SearchResults.class, SearchResults.class, null, MediaType.APPLICATION_XML_TYPE));
+        assertEquals(-1, this.writer.getSize(searchResults(), StreamingSearchResults.class,
+            StreamingSearchResults.class, null, MediaType.APPLICATION_XML_TYPE));
+    }
+
+    @Test
+    public void writeXML() throws Exception
+    {
+        String xml = write(searchResults("wiki:Space.Page1", "wiki:Space.Page2"), MediaType.APPLICATION_XML_TYPE);
+
+        assertThat(xml, containsString("searchResults"));
+        assertThat(xml, containsString("<id>wiki:Space.Page1</id>"));
+        assertThat(xml, containsString("<id>wiki:Space.Page2</id>"));
+        assertTrue(this.closed.get());
+    }
+
+    @Test
+    public void writeJSON() throws Exception
+    {
+        String json = write(searchResults("wiki:Space.Page1", "wiki:Space.Page2"), MediaType.APPLICATION_JSON_TYPE);
+
+        assertThat(json, containsString("\"searchResults\":[{"));
+        assertThat(json, containsString("\"id\":\"wiki:Space.Page1\""));
+        assertThat(json, containsString("\"id\":\"wiki:Space.Page2\""));
+        assertTrue(this.closed.get());
+    }
+
+    @Test
+    public void writeEmptyCollection() throws Exception
+    {
+        String json = write(searchResults(), MediaType.APPLICATION_JSON_TYPE);
+
+        assertThat(json, containsString("\"searchResults\":[]"));
+        assertTrue(this.closed.get());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.representations.streaming;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link StreamingList}.
+ *
+ * @version $Id$
+ */
+public class StreamingListTest
+{
+    private final AtomicInteger produced = new AtomicInteger();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Stream<String> stream(String... elements)
+    {
+        return Arrays.stream(elements).peek(element -> this.produced.incrementAndGet())
+            .onClose(() -> this.closed.set(true));
+    }
+
+    @Test
+    public void iterateProducesTheElementsOneByOne()
+    {
+        StreamingList<String> list = new StreamingList<>(stream("a", "b", "c"));
+
+        Iterator<String> iterator = list.iterator();
+        assertEquals("a", iterator.next());
+        assertEquals(1, this.produced.get());
+        assertFalse(this.closed.get());
+
+        assertEquals("b", iterator.next());
+        assertEquals("c", iterator.next());
+        assertFalse(iterator.hasNext());
+
+        // The stream is released as soon as all the elements have been produced
+        assertTrue(this.closed.get());
+    }
+
+    @Test
+    public void iterateAfterMaxStreamingTime()
+    {
+        StreamingList<String> list = new StreamingList<>(stream("a", "b", "c"), 0);
+
+        Iterator<String> iterator = list.iterator();
+        try {
+            iterator.hasNext();
+            fail();
+        } catch (IllegalStateException expected) {
+            // The stream is released without loading the remaining elements
+            assertEquals(0, this.produced.get());
+            assertTrue(this.closed.get());
+        }
+
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void sizeLoadsTheElements()
+    {
+        StreamingList<String> list = new StreamingList<>(stream("a", "b"));
+
+        assertEquals(2, list.size());
+        assertTrue(this.closed.get());
+        assertEquals("b", list.get(1));
+
+        list.add("c");
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(list));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sizeAfterIterate()
+    {
+        StreamingList<String> list = new StreamingList<>(stream("a", "b"));
+
+        list.iterator().next();
+
+        list.size();
+    }
+}
@@ -19,17 +19,22 @@
  */
 package org.xwiki.test.rest;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.rest.Relations;
 import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.PageSummary;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.model.jaxb.Space;
 import org.xwiki.rest.model.jaxb.Spaces;
 import org.xwiki.rest.model.jaxb.Wiki;
 import org.xwiki.rest.model.jaxb.Wikis;
+import org.xwiki.rest.resources.pages.PagesResource;
 import org.xwiki.rest.resources.wikis.WikisResource;
 import org.xwiki.test.rest.framework.AbstractHttpTest;
 
@@ -67,4 +72,54 @@ public void testRepresentation() throws Exception
 
         checkLinks(pages);
     }
+
+    @Test
+    public void testFieldsAndKeysetPagination() throws Exception
+    {
+        List<String> spaces = Arrays.asList(getTestClassName());
+        createPageIfDoesntExist(spaces, "PageA", "A");
+        createPageIfDoesntExist(spaces, "PageB", "B");
+        createPageIfDoesntExist(spaces, "PageC", "C");
+
+        String pagesUri = buildURI(PagesResource.class, getWiki(), spaces);
+
+        GetMethod getMethod = executeGet(pagesUri + "?fields=title,version&number=2");
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+
+        Pages pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+        Assert.assertEquals(2, pages.getPageSummaries().size());
+        PageSummary pageSummary = pages.getPageSummaries().get(0);
+        Assert.assertEquals("PageA", pageSummary.getName());
+        Assert.assertEquals("PageA", pageSummary.getTitle());
+        Assert.assertNotNull(pageSummary.getVersion());
+        // Not requested
+        Assert.assertNull(pageSummary.getAuthor());
+        Assert.assertTrue(pageSummary.getLinks().isEmpty());
+
+        getMethod = executeGet(pagesUri + "?fields=version&after=PageB");
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+
+        pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+        Assert.assertEquals(1, pages.getPageSummaries().size());
+        Assert.assertEquals("PageC", pages.getPageSummaries().get(0).getName());
+
+        // Keyset pagination also works when ordering by date, with or without fields.
+        for (String fields : Arrays.asList("&fields=version", "")) {
+            getMethod = executeGet(pagesUri + "?order=date" + fields);
+            Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+            List<PageSummary> allPages =
+                ((Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream())).getPageSummaries();
+
+            getMethod = executeGet(pagesUri + "?order=date&after=" + allPages.get(0).getName() + fields);
+            Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_OK, getMethod.getStatusCode());
+            pages = (Pages) unmarshaller.unmarshal(getMethod.getResponseBodyAsStream());
+            Assert.assertEquals(allPages.size() - 1, pages.getPageSummaries().size());
+            for (int i = 1; i < allPages.size(); i++) {
+                Assert.assertEquals(allPages.get(i).getName(), pages.getPageSummaries().get(i - 1).getName());
+            }
+        }
+
+        getMethod = executeGet(pagesUri + "?fields=unknown");
+        Assert.assertEquals(getHttpMethodInfo(getMethod), HttpStatus.SC_BAD_REQUEST, getMethod.getStatusCode());
+    }
 }
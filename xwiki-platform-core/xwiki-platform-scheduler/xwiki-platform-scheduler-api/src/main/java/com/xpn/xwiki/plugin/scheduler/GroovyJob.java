@@ -20,15 +20,18 @@
 package com.xpn.xwiki.plugin.scheduler;
 
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.plugin.scheduler.internal.GroovyJobScriptCache;
+import com.xpn.xwiki.web.Utils;
 
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 
 /**
  * The task that will get executed by the Scheduler when the Job is triggered. This task in turn calls a Groovy script
@@ -73,9 +76,11 @@ protected void executeJob(JobExecutionContext jobContext) throws JobExecutionExc
                 // Make the Job execution data available to the Groovy script
                 Binding binding = new Binding(data.getWrappedMap());
 
-                // Execute the Groovy script
-                GroovyShell shell = new GroovyShell(Thread.currentThread().getContextClassLoader(), binding);
-                shell.evaluate(object.getLargeStringValue("script"));
+                // Execute the Groovy script (compiled only the first time the job is triggered). The job is created by
+                // Quartz so its components can't be injected.
+                Class<? extends Script> scriptClass = Utils.getComponent(GroovyJobScriptCache.class)
+                    .getScriptClass(object.getLargeStringValue("script"), jobDocument.getContentAuthorReference());
+                InvokerHelper.createScript(scriptClass, binding).run();
             } else {
                 throw new JobExecutionException("The user [" + getXWikiContext().getUser() + "] didn't have "
                     + "programming rights when the job [" + jobContext.getJobDetail().getKey() + "] was scheduled.");
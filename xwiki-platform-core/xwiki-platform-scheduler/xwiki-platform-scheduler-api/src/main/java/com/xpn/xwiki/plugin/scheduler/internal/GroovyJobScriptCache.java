@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+
+/**
+ * Bounded cache of the classes compiled from the scripts of the Groovy scheduler jobs, to not compile the script
+ * again each time a job is triggered.
+ * <p>
+ * Each script is compiled in its own class loader so that the classes of an evicted script (or of the previous
+ * version of a modified script) can be unloaded. The compiled classes are indexed by wiki, author of the script and
+ * context class loader (which gives access to the extensions installed in the wiki) in addition to the script, so that
+ * a class is never resolved against the classpath of another wiki.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = GroovyJobScriptCache.class)
+@Singleton
+public class GroovyJobScriptCache
+{
+    /**
+     * The maximum number of compiled scripts to keep.
+     */
+    private static final int CAPACITY = 100;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    private final Map<CacheKey, CacheEntry> classes =
+        Collections.synchronizedMap(new LinkedHashMap<CacheKey, CacheEntry>(CAPACITY, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest)
+            {
+                return size() > CAPACITY;
+            }
+        });
+
+    private static final class CacheKey
+    {
+        private final String wiki;
+
+        private final DocumentReference author;
+
+        /**
+         * The identity of the context class loader, the class loader itself is checked by the entry.
+         */
+        private final int classLoader;
+
+        private final String script;
+
+        CacheKey(String wiki, DocumentReference author, ClassLoader classLoader, String script)
+        {
+            this.wiki = wiki;
+            this.author = author;
+            this.classLoader = System.identityHashCode(classLoader);
+            this.script = script;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return this.classLoader == other.classLoader && Objects.equals(this.wiki, other.wiki)
+                && Objects.equals(this.author, other.author) && this.script.equals(other.script);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(this.wiki, this.author, this.classLoader, this.script);
+        }
+    }
+
+    private static final class CacheEntry
+    {
+        private final Class<? extends Script> scriptClass;
+
+        private final ClassLoader classLoader;
+
+        CacheEntry(Class<? extends Script> scriptClass, ClassLoader classLoader)
+        {
+            this.scriptClass = scriptClass;
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * @param script the Groovy script of the job
+     * @param author the author of the script
+     * @return the class of the compiled script
+     * @throws CompilationFailedException when failing to compile the script
+     */
+    public Class<? extends Script> getScriptClass(String script, DocumentReference author)
+        throws CompilationFailedException
+    {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CacheKey key = new CacheKey(this.xcontextProvider.get().getWikiId(), author, contextClassLoader, script);
+
+        CacheEntry entry = this.classes.get(key);
+
+        if (entry == null || entry.classLoader != contextClassLoader) {
+            GroovyClassLoader classLoader = new GroovyClassLoader(contextClassLoader);
+            entry = new CacheEntry(classLoader.parseClass(script).asSubclass(Script.class), contextClassLoader);
+
+            this.classes.put(key, entry);
+        }
+
+        return entry.scriptClass;
+    }
+
+    /**
+     * @return the number of compiled scripts currently in the cache
+     */
+    public int size()
+    {
+        return this.classes.size();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiContext;
+
+import groovy.lang.Script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GroovyJobScriptCache}.
+ *
+ * @version $Id$
+ */
+public class GroovyJobScriptCacheTest
+{
+    private static final String SCRIPT = "1 + 1";
+
+    private static final DocumentReference ALICE = new DocumentReference("wiki", "XWiki", "Alice");
+
+    @Rule
+    public MockitoComponentMockingRule<GroovyJobScriptCache> mocker =
+        new MockitoComponentMockingRule<>(GroovyJobScriptCache.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    @Before
+    public void configure() throws Exception
+    {
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+    }
+
+    @Test
+    public void getScriptClass() throws Exception
+    {
+        Class<? extends Script> scriptClass = this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE);
+
+        assertEquals(2, scriptClass.newInstance().run());
+        assertSame(scriptClass, this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE));
+        assertEquals(1, this.mocker.getComponentUnderTest().size());
+    }
+
+    @Test
+    public void getScriptClassFromOtherWiki() throws Exception
+    {
+        Class<? extends Script> scriptClass = this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE);
+
+        when(this.xcontext.getWikiId()).thenReturn("otherwiki");
+
+        assertNotSame(scriptClass, this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE));
+        assertEquals(2, this.mocker.getComponentUnderTest().size());
+    }
+
+    @Test
+    public void getScriptClassFromOtherAuthor() throws Exception
+    {
+        Class<? extends Script> scriptClass = this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE);
+
+        assertNotSame(scriptClass, this.mocker.getComponentUnderTest().getScriptClass(SCRIPT,
+            new DocumentReference("wiki", "XWiki", "Bob")));
+    }
+
+    @Test
+    public void getScriptClassWithOtherContextClassLoader() throws Exception
+    {
+        Class<? extends Script> scriptClass = this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE);
+
+        ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
+        ClassLoader wikiClassLoader = new ClassLoader(currentClassLoader)
+        {
+        };
+        Thread.currentThread().setContextClassLoader(wikiClassLoader);
+        try {
+            Class<? extends Script> wikiScriptClass =
+                this.mocker.getComponentUnderTest().getScriptClass(SCRIPT, ALICE);
+
+            assertNotSame(scriptClass, wikiScriptClass);
+            assertSame(wikiClassLoader, wikiScriptClass.getClassLoader().getParent().getParent());
+        } finally {
+            Thread.currentThread().setContextClassLoader(currentClassLoader);
+        }
+    }
+}
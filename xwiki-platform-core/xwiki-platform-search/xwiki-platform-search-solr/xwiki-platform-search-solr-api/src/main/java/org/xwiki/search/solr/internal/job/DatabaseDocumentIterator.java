@@ -88,9 +88,19 @@ public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
     private String wiki;
 
     /**
-     * The offset in the current wiki.
+     * The space of the last document fetched from the current wiki, the next page starts after it.
      */
-    private int offset;
+    private String lastSpace;
+
+    /**
+     * The name of the last document fetched from the current wiki, the next page starts after it.
+     */
+    private String lastName;
+
+    /**
+     * Whether all the documents of the current wiki have been fetched.
+     */
+    private boolean wikiFetched;
 
     /**
      * Used to query the underlying storage.
@@ -111,6 +121,11 @@ public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
      */
     private Query query;
 
+    /**
+     * The query used to fetch the documents located after a given document.
+     */
+    private Query nextQuery;
+
     /**
      * The query used to count the documents from the database.
      */
@@ -183,7 +198,9 @@ private List<Object[]> getResults()
                     break;
                 }
                 wiki = getNextWiki();
-                offset = 0;
+                lastSpace = null;
+                lastName = null;
+                wikiFetched = false;
             }
             index = 0;
         }
@@ -195,18 +212,63 @@ private List<Object[]> getResults()
      */
     private void fetchNextResults()
     {
+        if (wikiFetched) {
+            results = Collections.emptyList();
+            return;
+        }
+
         try {
-            // We use basic pagination (absolute offset) because we don't expect the database to change too much while
-            // the synchronization takes place. Also, the database is used as the reference store, meaning that we
-            // update the Solr index to match the database, not the other way around.
-            results = getQuery().setWiki(wiki).setOffset(offset).execute();
-            offset += LIMIT;
+            // We start each page after the last document of the previous page (keyset pagination) instead of using an
+            // absolute offset, which would force the database to go through all the previous documents again for
+            // each page.
+            Query pageQuery;
+            if (lastSpace == null) {
+                pageQuery = getQuery();
+            } else {
+                pageQuery = getNextQuery();
+                pageQuery.bindValue("lastSpace", lastSpace);
+                pageQuery.bindValue("lastName", lastName);
+            }
+            List<Object[]> page = pageQuery.setWiki(wiki).execute();
+
+            if (page.size() < LIMIT) {
+                wikiFetched = true;
+            } else {
+                // The keys are the space and the name so make sure the translations of a document are not split
+                // between two pages
+                page = removeLastDocument(page);
+            }
+
+            if (!page.isEmpty()) {
+                Object[] last = page.get(page.size() - 1);
+                lastSpace = (String) last[0];
+                lastName = (String) last[1];
+            }
+
+            results = page;
         } catch (QueryException e) {
             results = Collections.emptyList();
             logger.error("Failed to query the database.", e);
         }
     }
 
+    /**
+     * @param page a page of results
+     * @return the page without the rows of its last document, unless the page contains only that document
+     */
+    private List<Object[]> removeLastDocument(List<Object[]> page)
+    {
+        Object[] last = page.get(page.size() - 1);
+        for (int i = page.size() - 2; i >= 0; i--) {
+            Object[] row = page.get(i);
+            if (!row[0].equals(last[0]) || !row[1].equals(last[1])) {
+                return page.subList(0, i + 1);
+            }
+        }
+
+        return page;
+    }
+
     /**
      * @return the query used to fetch the documents from the database
      * @throws QueryException if creating the query fails
@@ -234,12 +296,18 @@ private Query getQuery() throws QueryException
             }
 
             query = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
+            String nextClause = (whereClause.isEmpty() ? " where " : whereClause + " and ")
+                + "(doc.space > :lastSpace or (doc.space = :lastSpace and doc.name > :lastName))";
+            nextQuery = queryManager.createQuery(select + nextClause + orderBy, Query.HQL).setLimit(LIMIT);
             countQuery = queryManager.createQuery(whereClause, Query.HQL).addFilter(countFilter);
 
             if (spaceReference != null) {
-                query.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
+                String space = this.localEntityReferenceSerializer.serialize(spaceReference);
+                query.bindValue("space", space);
+                nextQuery.bindValue("space", space);
                 if (documentReference != null) {
                     query.bindValue("name", documentReference.getName());
+                    nextQuery.bindValue("name", documentReference.getName());
                 }
             }
 
@@ -250,6 +318,17 @@ private Query getQuery() throws QueryException
         return query;
     }
 
+    /**
+     * @return the query used to fetch the documents located after the last fetched document
+     * @throws QueryException if creating the query fails
+     */
+    private Query getNextQuery() throws QueryException
+    {
+        getQuery();
+
+        return nextQuery;
+    }
+
     /**
      * @return the next wiki, in alphabetical order
      */
@@ -38,6 +38,8 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.query.QueryManager;
@@ -80,12 +82,7 @@ public void configure() throws Exception
     @Test
     public void iterateAllWikis() throws Exception
     {
-        Query emptyQuery = mock(Query.class);
-        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
-
         Query chessQuery = mock(Query.class);
-        when(chessQuery.setOffset(0)).thenReturn(chessQuery);
-        when(chessQuery.setOffset(100)).thenReturn(emptyQuery);
         when(chessQuery.execute()).thenReturn(Arrays.<Object> asList(
             new Object[] {"Blog.Code", "WebHome", "", "3.2"},
             new Object[] {"Main", "Welcome", "en", "1.1"},
@@ -99,8 +96,6 @@ public void iterateAllWikis() throws Exception
             createDocumentReference("chess", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
 
         Query tennisQuery = mock(Query.class);
-        when(tennisQuery.setOffset(0)).thenReturn(tennisQuery);
-        when(tennisQuery.setOffset(100)).thenReturn(emptyQuery);
         when(tennisQuery.execute()).thenReturn(Arrays.<Object> asList(
             new Object[] {"Main", "Welcome", "en", "2.1"},
             new Object[] {"XWiki.Syntax", "Links", "fr", "1.3"}));
@@ -131,6 +126,7 @@ public void iterateAllWikis() throws Exception
         when(queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
             + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(query);
         when(queryManager.createQuery("", Query.HQL)).thenReturn(countQuery);
+        mockNextQuery(queryManager, "");
 
         DocumentIterator<String> iterator = mocker.getComponentUnderTest();
 
@@ -156,14 +152,9 @@ public void iterateOneWiki() throws Exception
     {
         DocumentReference rootReference = createDocumentReference("gang", Arrays.asList("A", "B"), "C", null);
 
-        Query emptyQuery = mock(Query.class);
-        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
-
         Query query = mock(Query.class);
         when(query.setLimit(anyInt())).thenReturn(query);
         when(query.setWiki(rootReference.getWikiReference().getName())).thenReturn(query);
-        when(query.setOffset(0)).thenReturn(query);
-        when(query.setOffset(100)).thenReturn(emptyQuery);
         when(query.execute()).thenReturn(Collections.<Object>singletonList(new Object[] {"A.B", "C", "de", "3.1"}));
 
         Map<String, Object> namedParameters = new HashMap<String, Object>();
@@ -179,6 +170,7 @@ public void iterateOneWiki() throws Exception
         when(queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
             + whereClause + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(query);
         when(queryManager.createQuery(whereClause, Query.HQL)).thenReturn(countQuery);
+        Query nextQuery = mockNextQuery(queryManager, whereClause);
 
         DocumentIterator<String> iterator = mocker.getComponentUnderTest();
         iterator.setRootReference(rootReference);
@@ -199,6 +191,71 @@ public void iterateOneWiki() throws Exception
 
         verify(countQuery).bindValue("space", "A.B");
         verify(countQuery).bindValue("name", "C");
+
+        // The first page was not full so there's no need to ask for the next one
+        verify(nextQuery, never()).execute();
+    }
+
+    @Test
+    public void iterateWithKeysetPagination() throws Exception
+    {
+        // A full page whose last document has two translations, the second one being on the next page
+        List<Object> firstPage = new ArrayList<>();
+        for (int i = 0; i < 98; i++) {
+            firstPage.add(new Object[] {"Space", String.format("Page%03d", i), "", "1.1"});
+        }
+        firstPage.add(new Object[] {"Space", "Page098", "", "1.1"});
+        firstPage.add(new Object[] {"Space", "Page098", "de", "1.1"});
+
+        Query firstPageQuery = mock(Query.class);
+        when(firstPageQuery.execute()).thenReturn(firstPage);
+
+        Query query = mock(Query.class);
+        when(query.setLimit(anyInt())).thenReturn(query);
+        when(query.getNamedParameters()).thenReturn(Collections.<String, Object>emptyMap());
+        when(query.setWiki("chess")).thenReturn(firstPageQuery);
+        when(query.setWiki("tennis")).thenReturn(mock(Query.class));
+
+        QueryManager queryManager = mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
+            + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(query);
+        when(queryManager.createQuery("", Query.HQL)).thenReturn(mock(Query.class));
+
+        Query nextPageQuery = mock(Query.class);
+        when(nextPageQuery.execute()).thenReturn(Arrays.<Object>asList(new Object[] {"Space", "Page098", "", "1.1"},
+            new Object[] {"Space", "Page098", "de", "1.1"}, new Object[] {"Space", "Page099", "", "1.1"}));
+
+        Query nextQuery = mockNextQuery(queryManager, "");
+        when(nextQuery.setWiki("chess")).thenReturn(nextPageQuery);
+
+        WikiReference chessReference = new WikiReference("chess");
+        when(this.explicitEntityReferenceResolver.resolve("Space", EntityType.SPACE, chessReference))
+            .thenReturn(new SpaceReference("Space", chessReference));
+
+        DocumentIterator<String> iterator = mocker.getComponentUnderTest();
+
+        List<String> names = new ArrayList<>();
+        while (iterator.hasNext()) {
+            names.add(iterator.next().getKey().getName());
+        }
+
+        assertEquals(101, names.size());
+        assertEquals(Arrays.asList("Page097", "Page098", "Page098", "Page099"), names.subList(97, 101));
+
+        verify(nextQuery).bindValue("lastSpace", "Space");
+        verify(nextQuery).bindValue("lastName", "Page097");
+    }
+
+    private Query mockNextQuery(QueryManager queryManager, String whereClause) throws Exception
+    {
+        Query nextQuery = mock(Query.class);
+        when(nextQuery.setLimit(anyInt())).thenReturn(nextQuery);
+        when(queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
+            + (whereClause.isEmpty() ? " where " : whereClause + " and ")
+            + "(doc.space > :lastSpace or (doc.space = :lastSpace and doc.name > :lastName))"
+            + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(nextQuery);
+
+        return nextQuery;
     }
 
     private DocumentReference createDocumentReference(String wiki, List<String> spaces, String name, Locale locale)
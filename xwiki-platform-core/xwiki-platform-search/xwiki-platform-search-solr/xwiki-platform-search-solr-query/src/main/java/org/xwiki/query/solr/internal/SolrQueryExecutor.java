@@ -49,6 +49,7 @@
 import org.xwiki.security.authorization.Right;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.monitor.RequestProfiler;
 
 /**
  * Executes Solr queries.
@@ -105,6 +106,9 @@ public class SolrQueryExecutor implements QueryExecutor
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private RequestProfiler profiler;
+
     @Override
     public <T> List<T> execute(Query query) throws QueryException
     {
@@ -119,7 +123,13 @@ public <T> List<T> execute(Query query) throws QueryException
 
             this.progress.startStep(query, "query.solr.progress.execute.execute", "Execute");
 
-            QueryResponse response = solrInstance.query(solrQuery);
+            QueryResponse response;
+            this.profiler.startTimer(RequestProfiler.SOLR);
+            try {
+                response = solrInstance.query(solrQuery);
+            } finally {
+                this.profiler.endTimer(RequestProfiler.SOLR);
+            }
 
             this.progress.startStep(query, "query.solr.progress.execute.filter", "Filter");
 
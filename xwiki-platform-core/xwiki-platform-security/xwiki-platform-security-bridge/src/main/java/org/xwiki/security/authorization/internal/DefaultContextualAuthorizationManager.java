@@ -42,6 +42,7 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.monitor.RequestProfiler;
 
 /**
  * Default implementation of the {@link ContextualAuthorizationManager}.
@@ -72,6 +73,9 @@ public class DefaultContextualAuthorizationManager implements ContextualAuthoriz
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    private RequestProfiler profiler;
+
     @Override
     public void checkAccess(Right right) throws AccessDeniedException
     {
@@ -103,7 +107,13 @@ private void checkAccess(Right right, DocumentReference user, EntityReference en
             throw new AccessDeniedException(right, user, entity);
         }
 
-        this.authorizationManager.checkAccess(right, user, getFullReference(entity));
+        this.profiler.startTimer(RequestProfiler.RIGHTS);
+
+        try {
+            this.authorizationManager.checkAccess(right, user, getFullReference(entity));
+        } finally {
+            this.profiler.endTimer(RequestProfiler.RIGHTS);
+        }
     }
 
     @Override
@@ -133,7 +143,17 @@ public boolean hasAccess(Right right, EntityReference entity)
 
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
-        return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
+        if (!checkPreAccess(right)) {
+            return false;
+        }
+
+        this.profiler.startTimer(RequestProfiler.RIGHTS);
+
+        try {
+            return this.authorizationManager.hasAccess(right, user, getFullReference(entity));
+        } finally {
+            this.profiler.endTimer(RequestProfiler.RIGHTS);
+        }
     }
 
     private EntityReference getFullReference(EntityReference reference)
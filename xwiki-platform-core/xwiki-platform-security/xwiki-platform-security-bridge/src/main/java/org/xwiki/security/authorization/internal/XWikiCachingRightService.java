@@ -37,6 +37,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.monitor.RequestProfiler;
 import com.xpn.xwiki.user.api.XWikiRightService;
 import com.xpn.xwiki.user.api.XWikiUser;
 import com.xpn.xwiki.web.Utils;
@@ -148,6 +149,10 @@ public class XWikiCachingRightService implements XWikiRightService
     private final ContextualAuthorizationManager contextualAuthorizationManager
         = Utils.getComponent(ContextualAuthorizationManager.class);
 
+    /** The profiler measuring the time spent checking rights (the contextual checks are measured by the manager). */
+    private final RequestProfiler profiler
+        = Utils.getComponent(RequestProfiler.class);
+
     /**
      * Specialized map with a chainable put action to avoid exceeding code complexity during initialization.
      */
@@ -306,7 +311,7 @@ public boolean hasAccessLevel(String rightName, String username, String docname,
 
         Right right = Right.toRight(rightName);
 
-        return authorizationManager.hasAccess(right, user, document);
+        return hasAccess(right, user, document);
     }
 
     @Override
@@ -337,7 +342,18 @@ public boolean hasProgrammingRights(XWikiDocument doc, XWikiContext context)
 
         // This method as never check for external contextual aspect like rendering context restriction or dropping of
         // permissions. So we do not use the contextual authorization manager to keep backward compatibility.
-        return authorizationManager.hasAccess(Right.PROGRAM, user, wiki);
+        return hasAccess(Right.PROGRAM, user, wiki);
+    }
+
+    private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
+    {
+        profiler.startTimer(RequestProfiler.RIGHTS);
+
+        try {
+            return authorizationManager.hasAccess(right, user, entity);
+        } finally {
+            profiler.endTimer(RequestProfiler.RIGHTS);
+        }
     }
 
     @Override
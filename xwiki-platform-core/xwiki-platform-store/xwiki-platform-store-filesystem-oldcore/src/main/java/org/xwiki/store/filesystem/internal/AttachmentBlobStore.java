@@ -0,0 +1,409 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.store.FileSerializer;
+import org.xwiki.store.StreamProvider;
+
+/**
+ * Content addressed storage for attachment content. Every attachment content file which is written through
+ * {@link #getSerializer(StreamProvider)} is hard linked to a blob named after the SHA-256 hash of its content, so that
+ * identical content attached to many documents (or kept in many versions) only uses the disk space once.
+ * <p>
+ * The files returned by {@link AttachmentFileProvider} stay where they are and remain regular files, the blob
+ * directory only holds one more link to the same data. This means the reference count of a blob is the link count
+ * maintained by the filesystem: taking a reference is the atomic rename done by
+ * {@link org.xwiki.store.FileSaveTransactionRunnable#onCommit()}, releasing it is the removal done by
+ * {@link org.xwiki.store.FileDeleteTransactionRunnable} when the transaction completes, and rolling back either of them
+ * restores the previous links without any bookkeeping. A blob which is linked from nowhere else anymore is removed by
+ * {@link #prune()}.
+ * <p>
+ * Since content files are always replaced by renaming a new file over them and never written in place, sharing the
+ * data between several paths is safe.
+ * <p>
+ * The migration of existing files done by {@link #deduplicate(File, String, String...)} replaces live files. It holds
+ * the write lock returned by {@link FilesystemStoreTools#getLockForFile(File)} for each file and makes sure the file
+ * hashed is still the one in place before replacing it. Note that the default lock provider of the filesystem store
+ * does not actually lock (the store relies on atomic renames) so a save happening at the same time is only detected by
+ * that last check.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class AttachmentBlobStore
+{
+    /**
+     * The name of the attribute holding the number of hard links to a file.
+     */
+    private static final String NLINK_ATTRIBUTE = "unix:nlink";
+
+    /**
+     * The suffix of the temporary links created before being atomically moved over their target.
+     */
+    private static final String LINK_SUFFIX = "~lnk";
+
+    /**
+     * The markers of the files which are not attachment content: temporary, backup and link files. Their names also
+     * contain a '~' character which is URL encoded in the names of the attachments, like the content of the versions
+     * ({@code name~vX.Y.ext}) but unlike those they must not be migrated.
+     */
+    private static final String[] NOT_CONTENT_MARKERS = { "~tmp", "~bak", LINK_SUFFIX };
+
+    /**
+     * The prefix of the metadata files found next to the attachment content files.
+     */
+    private static final String METADATA_PREFIX = "~";
+
+    /**
+     * The number of characters of the hash used for each level of the blob directory fan out.
+     */
+    private static final int FAN_OUT_LENGTH = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentBlobStore.class);
+
+    /**
+     * The directory where blobs are stored.
+     */
+    private final File blobDir;
+
+    /**
+     * Used to lock the files being migrated.
+     */
+    private final FilesystemStoreTools fileTools;
+
+    /**
+     * Prevents {@link #prune()} from removing a blob while a new link to it is being created.
+     */
+    private final ReadWriteLock pruneLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param blobDir the directory where blobs are stored
+     * @param fileTools the tools of the filesystem store, used to lock the files being migrated
+     */
+    public AttachmentBlobStore(File blobDir, FilesystemStoreTools fileTools)
+    {
+        this.blobDir = blobDir;
+        this.fileTools = fileTools;
+    }
+
+    /**
+     * @return the directory where blobs are stored
+     */
+    public File getBlobDirectory()
+    {
+        return this.blobDir;
+    }
+
+    /**
+     * @param directory a directory inside the filesystem where blobs are stored
+     * @return true if the filesystem supports hard links and exposes their count
+     */
+    public static boolean isSupported(File directory)
+    {
+        return directory.toPath().getFileSystem().supportedFileAttributeViews().contains("unix");
+    }
+
+    /**
+     * @param hash the hexadecimal SHA-256 hash of some content
+     * @return the blob file for the passed hash
+     */
+    public File getBlobFile(String hash)
+    {
+        File dir = new File(this.blobDir, hash.substring(0, FAN_OUT_LENGTH));
+        dir = new File(dir, hash.substring(FAN_OUT_LENGTH, FAN_OUT_LENGTH * 2));
+
+        return new File(dir, hash);
+    }
+
+    /**
+     * @param provider the content to write
+     * @return a serializer which writes the content and shares it with any identical blob
+     */
+    public FileSerializer getSerializer(final StreamProvider provider)
+    {
+        return new FileSerializer()
+        {
+            @Override
+            public void serialize(File file) throws Exception
+            {
+                MessageDigest digest = DigestUtils.getSha256Digest();
+                try (InputStream in = provider.getStream()) {
+                    try (OutputStream out = new DigestOutputStream(new FileOutputStream(file), digest)) {
+                        IOUtils.copy(in, out);
+                    }
+                }
+
+                share(file, Hex.encodeHexString(digest.digest()));
+            }
+        };
+    }
+
+    /**
+     * Make the passed file share its data with the blob of the same hash, creating the blob if there is none yet. If
+     * linking is not possible the file is left untouched, which is always a valid state.
+     *
+     * @param file a regular file which is not yet visible to readers (a temporary file or a file being migrated)
+     * @param hash the hexadecimal SHA-256 hash of the file content
+     */
+    public void share(File file, String hash)
+    {
+        File blob = getBlobFile(hash);
+
+        this.pruneLock.readLock().lock();
+        try {
+            if (blob.exists()) {
+                if (blob.length() == file.length()) {
+                    replaceWithLink(file, blob);
+                }
+            } else {
+                blob.getParentFile().mkdirs();
+                try {
+                    Files.createLink(blob.toPath(), file.toPath());
+                } catch (FileAlreadyExistsException e) {
+                    // Another thread stored the same content in the meantime
+                    replaceWithLink(file, blob);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to deduplicate attachment file [{}], keeping a separate copy: {}", file,
+                e.getMessage());
+        } finally {
+            this.pruneLock.readLock().unlock();
+        }
+    }
+
+    private void replaceWithLink(File file, File blob) throws IOException
+    {
+        Path link = new File(file.getAbsolutePath() + LINK_SUFFIX + RandomStringUtils.randomAlphanumeric(8)).toPath();
+        try {
+            Files.createLink(link, blob.toPath());
+            Files.move(link, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // The blob disappeared, the file keeps its own copy
+        } finally {
+            Files.deleteIfExists(link);
+        }
+    }
+
+    /**
+     * Migrate the existing attachment content files located under the passed directory to the content addressed
+     * layout. Files which are already linked somewhere else are skipped so that running this again is cheap.
+     *
+     * @param directory the root of the filesystem attachment store
+     * @param documentDirName the name of the directories holding the data of a document
+     * @param attachmentDirNames the names of the directories, inside a document directory, whose sub directories
+     *            contain attachment content files
+     * @return the number of files which are now sharing their content with another file
+     */
+    public int deduplicate(File directory, String documentDirName, String... attachmentDirNames)
+    {
+        int count = 0;
+
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory() && !child.equals(this.blobDir)) {
+                    if (directory.getName().equals(documentDirName)
+                        && isOneOf(child.getName(), attachmentDirNames)) {
+                        count += deduplicateAttachments(child);
+                    } else {
+                        count += deduplicate(child, documentDirName, attachmentDirNames);
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int deduplicateAttachments(File attachmentsDir)
+    {
+        int count = 0;
+
+        File[] attachmentDirs = attachmentsDir.listFiles();
+        if (attachmentDirs != null) {
+            for (File attachmentDir : attachmentDirs) {
+                File[] files = attachmentDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.isFile() && isContentFile(file.getName()) && getLinkCount(file) == 1) {
+                            try {
+                                if (deduplicateFile(file)) {
+                                    ++count;
+                                }
+                            } catch (IOException e) {
+                                LOGGER.warn("Failed to read attachment file [{}]: {}", file, e.getMessage());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private boolean deduplicateFile(File file) throws IOException
+    {
+        ReadWriteLock lock = this.fileTools.getLockForFile(file);
+        lock.writeLock().lock();
+        try {
+            Object fileKey = getFileKey(file);
+            String hash = hash(file);
+
+            // Files are replaced by renaming a new file over them, never written in place, so the content matches the
+            // hash as long as the same file is still in place
+            if (fileKey == null || !fileKey.equals(getFileKey(file)) || getLinkCount(file) != 1) {
+                return false;
+            }
+
+            share(file, hash);
+
+            return getLinkCount(file) > 2;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param name the name of a file located in an attachment directory
+     * @return true if the file holds the content of the attachment or of one of its versions
+     */
+    private static boolean isContentFile(String name)
+    {
+        if (name.startsWith(METADATA_PREFIX)) {
+            return false;
+        }
+
+        for (String marker : NOT_CONTENT_MARKERS) {
+            if (name.contains(marker)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove the blobs which are not linked from any attachment content file anymore.
+     *
+     * @return the number of removed blobs
+     */
+    public int prune()
+    {
+        int count = 0;
+
+        File[] level1 = this.blobDir.listFiles();
+        if (level1 != null) {
+            for (File dir1 : level1) {
+                File[] level2 = dir1.listFiles();
+                if (level2 != null) {
+                    for (File dir2 : level2) {
+                        File[] blobs = dir2.listFiles();
+                        if (blobs != null) {
+                            for (File blob : blobs) {
+                                if (pruneBlob(blob)) {
+                                    ++count;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private boolean pruneBlob(File blob)
+    {
+        this.pruneLock.writeLock().lock();
+        try {
+            return getLinkCount(blob) == 1 && blob.delete();
+        } finally {
+            this.pruneLock.writeLock().unlock();
+        }
+    }
+
+    private static int getLinkCount(File file)
+    {
+        try {
+            return ((Number) Files.getAttribute(file.toPath(), NLINK_ATTRIBUTE)).intValue();
+        } catch (Exception e) {
+            // Unknown, make sure nothing is done with that file
+            return -1;
+        }
+    }
+
+    private static Object getFileKey(File file) throws IOException
+    {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static String hash(File file) throws IOException
+    {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+            IOUtils.copy(in, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private static boolean isOneOf(String name, String... names)
+    {
+        for (String candidate : names) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
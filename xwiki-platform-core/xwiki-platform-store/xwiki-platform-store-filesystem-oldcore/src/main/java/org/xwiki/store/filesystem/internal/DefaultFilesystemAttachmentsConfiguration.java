@@ -51,4 +51,10 @@ public boolean cleanOnStartup()
     {
         return this.configuration.getProperty(PREFIX + "cleanOnStartup", Boolean.TRUE);
     }
+
+    @Override
+    public boolean deduplicate()
+    {
+        return this.configuration.getProperty(PREFIX + "deduplicate", Boolean.FALSE);
+    }
 }
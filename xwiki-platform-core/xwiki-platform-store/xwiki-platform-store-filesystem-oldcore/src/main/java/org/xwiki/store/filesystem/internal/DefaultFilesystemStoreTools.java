@@ -37,6 +37,9 @@
 import org.xwiki.environment.Environment;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.store.FileSerializer;
+import org.xwiki.store.StreamProvider;
+import org.xwiki.store.StreamProviderFileSerializer;
 import org.xwiki.store.locks.LockProvider;
 
 import com.xpn.xwiki.doc.XWikiAttachment;
@@ -121,6 +124,14 @@ public class DefaultFilesystemStoreTools implements FilesystemStoreTools, Initia
      */
     private static final String TEMP_FILE_SUFFIX = "~tmp";
 
+    /**
+     * The name of the directory in the storage directory where the content addressed attachment blobs are stored. This
+     * must have a URL illegal character in it so that it cannot collide with a wiki directory.
+     *
+     * @since 9.7RC1
+     */
+    private static final String BLOB_DIR_NAME = "~blobs";
+
     /**
      * Serializer used for obtaining a safe file path from a document reference.
      */
@@ -150,6 +161,11 @@ public class DefaultFilesystemStoreTools implements FilesystemStoreTools, Initia
      */
     private File storageDir;
 
+    /**
+     * The content addressed store used to share identical attachment content, null when deduplication is disabled.
+     */
+    private AttachmentBlobStore blobStore;
+
     /**
      * Testing Constructor.
      *
@@ -176,13 +192,26 @@ public DefaultFilesystemStoreTools()
     public void initialize()
     {
         this.storageDir = new File(this.environment.getPermanentDirectory(), STORAGE_DIR_NAME);
-        if (config.cleanOnStartup()) {
+        if (this.config.deduplicate() && AttachmentBlobStore.isSupported(this.storageDir)) {
+            this.blobStore = new AttachmentBlobStore(new File(this.storageDir, BLOB_DIR_NAME), this);
+        }
+        final boolean clean = this.config.cleanOnStartup();
+        if (clean || this.blobStore != null) {
             final File dir = this.storageDir;
+            final AttachmentBlobStore blobs = this.blobStore;
             new Thread(new Runnable()
             {
                 public void run()
                 {
-                    deleteEmptyDirs(dir, 0);
+                    if (blobs != null) {
+                        // Migrate the attachments stored before deduplication was enabled and forget the content
+                        // which is not used anymore.
+                        blobs.deduplicate(dir, DOCUMENT_DIR_NAME, ATTACHMENT_DIR_NAME, DELETED_ATTACHMENT_DIR_NAME);
+                        blobs.prune();
+                    }
+                    if (clean) {
+                        deleteEmptyDirs(dir, 0);
+                    }
                 }
             }).start();
         }
@@ -317,6 +346,15 @@ public AttachmentFileProvider getAttachmentFileProvider(final XWikiAttachment at
         return new DefaultAttachmentFileProvider(this.getAttachmentDir(attachment), attachment.getFilename());
     }
 
+    @Override
+    public FileSerializer getAttachmentContentSerializer(final StreamProvider provider)
+    {
+        if (this.blobStore != null) {
+            return this.blobStore.getSerializer(provider);
+        }
+        return new StreamProviderFileSerializer(provider);
+    }
+
     /**
      * Get the directory for storing files for an attachment. This will look like
      * storage/xwiki/Main/WebHome/~this/attachments/file.name/
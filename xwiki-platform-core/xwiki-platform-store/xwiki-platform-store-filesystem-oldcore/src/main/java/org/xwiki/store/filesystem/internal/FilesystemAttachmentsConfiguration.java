@@ -33,4 +33,10 @@
 {
     /** @return whether to clean up empty directories on startup. */
     boolean cleanOnStartup();
+
+    /**
+     * @return whether to share the content of identical attachment files on disk
+     * @since 9.7RC1
+     */
+    boolean deduplicate();
 }
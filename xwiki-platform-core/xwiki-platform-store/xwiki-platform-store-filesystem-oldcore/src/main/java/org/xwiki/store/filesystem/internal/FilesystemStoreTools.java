@@ -26,6 +26,8 @@
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.store.FileSerializer;
+import org.xwiki.store.StreamProvider;
 
 import com.xpn.xwiki.doc.XWikiAttachment;
 
@@ -66,6 +68,16 @@
      */
     AttachmentFileProvider getAttachmentFileProvider(XWikiAttachment attachment);
 
+    /**
+     * Get the serializer to use for writing the content of an attachment (or of one of its versions) to the file
+     * provided by {@link AttachmentFileProvider}.
+     *
+     * @param provider the attachment content
+     * @return a serializer writing the content to a file, possibly sharing it with other identical files
+     * @since 9.7RC1
+     */
+    FileSerializer getAttachmentContentSerializer(StreamProvider provider);
+
     /**
      * Get an instance of AttachmentFileProvider which will save everything to do with an attachment in a separate
      * location which is repeatable only with the same attachment name, containing document, and date of deletion.
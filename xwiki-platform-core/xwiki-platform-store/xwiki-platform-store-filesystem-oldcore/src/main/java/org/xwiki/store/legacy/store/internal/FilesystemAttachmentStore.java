@@ -32,7 +32,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.store.FileDeleteTransactionRunnable;
 import org.xwiki.store.FileSaveTransactionRunnable;
-import org.xwiki.store.StreamProvider;
+import org.xwiki.store.FileSerializer;
 import org.xwiki.store.TransactionRunnable;
 import org.xwiki.store.filesystem.internal.FilesystemStoreTools;
 import org.xwiki.store.internal.FileSystemStoreUtils;
@@ -162,7 +162,8 @@ private TransactionRunnable<XWikiHibernateTransaction> getAttachmentContentSaveR
         final FilesystemStoreTools ft = getFilesystemStoreTools();
 
         return new AttachmentSaveTransactionRunnable(attachment, updateDocument, context, attachFile,
-            ft.getTempFile(attachFile), ft.getBackupFile(attachFile), ft.getLockForFile(attachFile));
+            ft.getTempFile(attachFile), ft.getBackupFile(attachFile), ft.getLockForFile(attachFile),
+            ft.getAttachmentContentSerializer(new AttachmentContentStreamProvider(attachment, context)));
     }
 
     /**
@@ -314,15 +315,15 @@ private static class AttachmentSaveTransactionRunnable extends TransactionRunnab
          * @param tempFile the File to put the attachment content in until the transaction is complete.
          * @param backupFile the File to backup the content of the existing attachment in.
          * @param lock this Lock will be locked while the attachment file is being written to.
+         * @param serializer the serializer writing the attachment content to the file.
          * @throws XWikiException if thrown by {@link XWikiAttachment#updateContentArchive(XWikiContext)} or
          *             {@link FilesystemAttachmentVersioningStore# getArchiveSaveRunnable(XWikiAttachmentArchive, XWikiContext)
          */
         AttachmentSaveTransactionRunnable(final XWikiAttachment attachment, final boolean updateDocument,
             final XWikiContext context, final File attachFile, final File tempFile, final File backupFile,
-            final ReadWriteLock lock) throws XWikiException
+            final ReadWriteLock lock, final FileSerializer serializer) throws XWikiException
         {
-            final StreamProvider provider = new AttachmentContentStreamProvider(attachment, context);
-            new FileSaveTransactionRunnable(attachFile, tempFile, backupFile, lock, provider).runIn(this);
+            new FileSaveTransactionRunnable(attachFile, tempFile, backupFile, lock, serializer).runIn(this);
 
             // If the versioning store supports TransactionRunnable then use it, otherwise don't.
             final AttachmentVersioningStore avs = context.getWiki().getAttachmentVersioningStore();
@@ -23,8 +23,10 @@
 import java.util.List;
 
 import org.xwiki.store.FileSaveTransactionRunnable;
+import org.xwiki.store.FileSerializer;
 import org.xwiki.store.StartableTransactionRunnable;
 import org.xwiki.store.StreamProvider;
+import org.xwiki.store.StreamProviderFileSerializer;
 import org.xwiki.store.filesystem.internal.DeletedAttachmentFileProvider;
 import org.xwiki.store.filesystem.internal.FilesystemStoreTools;
 import org.xwiki.store.serialization.SerializationStreamProvider;
@@ -67,7 +69,8 @@ class SaveTrashAttachmentRunnable extends StartableTransactionRunnable
         // Save metadata about the deleted attachment.
         final StreamProvider metaProvider =
             new SerializationStreamProvider<DeletedAttachment>(deletedAttachmentSerializer, deleted);
-        this.addSaver(metaProvider, fileTools, provider.getDeletedAttachmentMetaFile());
+        this.addSaver(new StreamProviderFileSerializer(metaProvider), fileTools,
+            provider.getDeletedAttachmentMetaFile());
 
         final XWikiAttachment attachment = deleted.getAttachment();
         final XWikiAttachmentArchive archive = attachment.loadArchive(context);
@@ -85,7 +88,7 @@ class SaveTrashAttachmentRunnable extends StartableTransactionRunnable
 
         // Save the attachment's content.
         final StreamProvider contentProvider = new AttachmentContentStreamProvider(attachment, context);
-        this.addSaver(contentProvider,
+        this.addSaver(fileTools.getAttachmentContentSerializer(contentProvider),
             fileTools,
             provider.getAttachmentContentFile());
     }
@@ -94,11 +97,11 @@ class SaveTrashAttachmentRunnable extends StartableTransactionRunnable
      * Save some content safely in this runnable.
      * TODO This duplicates AttachmentArchiveSaveRunnable, fix.
      *
-     * @param provider the means to get the content to save.
+     * @param serializer the means to write the content to save.
      * @param fileTools the means to get the backup file, temporary file, and lock.
      * @param saveHere the location to save the data.
      */
-    private void addSaver(final StreamProvider provider,
+    private void addSaver(final FileSerializer serializer,
         final FilesystemStoreTools fileTools,
         final File saveHere)
     {
@@ -106,6 +109,6 @@ private void addSaver(final StreamProvider provider,
             fileTools.getTempFile(saveHere),
             fileTools.getBackupFile(saveHere),
             fileTools.getLockForFile(saveHere),
-            provider).runIn(this);
+            serializer).runIn(this);
     }
 }
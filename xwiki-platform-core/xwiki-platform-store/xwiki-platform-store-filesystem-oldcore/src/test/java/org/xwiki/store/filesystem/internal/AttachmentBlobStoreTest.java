@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.store.StreamProvider;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AttachmentBlobStore}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class AttachmentBlobStoreTest
+{
+    private static final String CONTENT = "some attachment content";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AttachmentBlobStore store;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Assume.assumeTrue(AttachmentBlobStore.isSupported(this.folder.getRoot()));
+
+        FilesystemStoreTools fileTools = mock(FilesystemStoreTools.class);
+        when(fileTools.getLockForFile(any(File.class))).thenReturn(new ReentrantReadWriteLock());
+
+        this.store = new AttachmentBlobStore(new File(this.folder.getRoot(), "~blobs"), fileTools);
+    }
+
+    private static StreamProvider provider(final String content)
+    {
+        return new StreamProvider()
+        {
+            @Override
+            public InputStream getStream()
+            {
+                return new ByteArrayInputStream(content.getBytes());
+            }
+        };
+    }
+
+    private static int links(File file) throws Exception
+    {
+        return ((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue();
+    }
+
+    @Test
+    public void identicalContentIsShared() throws Exception
+    {
+        File file1 = this.folder.newFile("file1");
+        File file2 = this.folder.newFile("file2");
+        File other = this.folder.newFile("other");
+
+        this.store.getSerializer(provider(CONTENT)).serialize(file1);
+        this.store.getSerializer(provider(CONTENT)).serialize(file2);
+        this.store.getSerializer(provider("other content")).serialize(other);
+
+        Assert.assertEquals(CONTENT, FileUtils.readFileToString(file1));
+        Assert.assertEquals(CONTENT, FileUtils.readFileToString(file2));
+        Assert.assertEquals(3, links(file1));
+        Assert.assertTrue(Files.isSameFile(file1.toPath(), file2.toPath()));
+        Assert.assertEquals(2, links(other));
+    }
+
+    @Test
+    public void pruneRemovesUnreferencedBlobs() throws Exception
+    {
+        File file1 = this.folder.newFile("file1");
+        File file2 = this.folder.newFile("file2");
+
+        this.store.getSerializer(provider(CONTENT)).serialize(file1);
+        this.store.getSerializer(provider("other content")).serialize(file2);
+        file2.delete();
+
+        Assert.assertEquals(1, this.store.prune());
+        Assert.assertEquals(2, links(file1));
+        Assert.assertEquals(CONTENT, FileUtils.readFileToString(file1));
+    }
+
+    @Test
+    public void deduplicateExistingAttachments() throws Exception
+    {
+        File attachments = new File(this.folder.getRoot(), "xwiki/Space/Page/~this/attachments");
+        File file1 = new File(attachments, "logo.png/logo.png");
+        File file2 = new File(attachments, "copy.png/copy.png");
+        File version = new File(attachments, "logo.png/logo~v1.1.png");
+        File metadata = new File(attachments, "logo.png/~METADATA.xml");
+        File temporary = new File(attachments, "logo.png/logo.png~tmpabcdefgh");
+        FileUtils.write(file1, CONTENT);
+        FileUtils.write(file2, CONTENT);
+        FileUtils.write(version, CONTENT);
+        FileUtils.write(metadata, CONTENT);
+        FileUtils.write(temporary, CONTENT);
+
+        Assert.assertEquals(2, this.store.deduplicate(this.folder.getRoot(), "~this", "attachments"));
+
+        Assert.assertTrue(Files.isSameFile(file1.toPath(), file2.toPath()));
+        Assert.assertTrue(Files.isSameFile(file1.toPath(), version.toPath()));
+        Assert.assertEquals(1, links(metadata));
+        Assert.assertEquals(1, links(temporary));
+        Assert.assertEquals(CONTENT, FileUtils.readFileToString(file2));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.query.QueryException;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Index of the documents holding each tag, maintained from the modifications of the {@value TagPlugin#TAG_CLASS}
+ * objects so that listing and counting tags doesn't require to scan all the tag objects of the wiki.
+ * <p>
+ * The index of a wiki is loaded the first time it's needed. Tags are case insensitive: each tag is returned with the
+ * first of its case variants in alphabetical order.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Role
+public interface TagIndex
+{
+    /**
+     * @param wiki the identifier of the wiki
+     * @param includeHiddenDocuments true if the tags only used by hidden documents should be included
+     * @return the tags of the wiki, in case insensitive alphabetical order
+     * @throws QueryException when failing to load the index
+     */
+    List<String> getAllTags(String wiki, boolean includeHiddenDocuments) throws QueryException;
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @param spaces the local references of the spaces (including their sub spaces) in which to count the tags, null
+     *            or empty for the whole wiki
+     * @param includeHiddenDocuments true if the hidden documents should be counted
+     * @return the number of documents holding each tag, in case insensitive alphabetical order of the tags
+     * @throws QueryException when failing to load the index
+     */
+    Map<String, Integer> getTagCount(String wiki, Collection<String> spaces, boolean includeHiddenDocuments)
+        throws QueryException;
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @param tag the tag, case insensitive
+     * @param includeHiddenDocuments true if the hidden documents should be included
+     * @return the full names of the documents holding the passed tag, in alphabetical order
+     * @throws QueryException when failing to load the index
+     */
+    List<String> getDocumentsWithTag(String wiki, String tag, boolean includeHiddenDocuments) throws QueryException;
+
+    /**
+     * Update the index with the current tags of the passed document.
+     *
+     * @param document the document which has been saved or deleted
+     */
+    void update(XWikiDocument document);
+
+    /**
+     * Reload the index of the passed wiki from the database.
+     *
+     * @param wiki the identifier of the wiki
+     * @throws QueryException when failing to load the index
+     */
+    void rebuild(String wiki) throws QueryException;
+
+    /**
+     * Forget the index of the passed wiki, it's loaded again the next time it's needed.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    void invalidate(String wiki);
+}
@@ -20,16 +20,18 @@
 package com.xpn.xwiki.plugin.tag;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -42,6 +44,9 @@
 import com.xpn.xwiki.objects.classes.PropertyClass;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
+import com.xpn.xwiki.plugin.tag.internal.TagIndexRebuildJob;
+import com.xpn.xwiki.plugin.tag.internal.TagIndexRebuildRequest;
+import com.xpn.xwiki.web.Utils;
 
 /**
  * TagPlugin is a plugin that allows to manipulate tags easily. It allows to get, rename and delete tags.
@@ -74,12 +79,6 @@ public class TagPlugin extends XWikiDefaultPlugin implements XWikiPluginInterfac
      */
     public static final String DOC_COMMENT_TAG_ADDED = "plugin.tag.editcomment.added";
 
-    private static final Pattern LIKE_ESCAPE = Pattern.compile("[_%\\\\]");
-
-    private static final String LIKE_REPLACEMENT = "\\\\$0";
-
-    private static final String LIKE_APPEND = ".%";
-
     /**
      * Tag plugin constructor.
      * 
@@ -197,18 +196,7 @@ public Map<String, Integer> getTagCount(XWikiContext context) throws XWikiExcept
     public Map<String, Integer> getTagCount(String spaceReference, XWikiContext context) throws XWikiException
     {
         if (!StringUtils.isBlank(spaceReference)) {
-            StringBuilder where = new StringBuilder();
-            where.append('(');
-            where.append("doc.space = ?");
-            where.append(" OR ");
-            where.append("doc.space LIKE ?");
-            where.append(')');
-
-            // Make sure to escape the LIKE syntax
-            String escapedSpaceReference = LIKE_ESCAPE.matcher(spaceReference).replaceAll(LIKE_REPLACEMENT);
-
-            return getTagCountForQuery("", where.toString(),
-                Arrays.asList(spaceReference, escapedSpaceReference + LIKE_APPEND), context);
+            return TagQueryUtils.getTagCountForSpaces(Collections.singletonList(spaceReference), context);
         }
 
         return getTagCount(context);
@@ -230,28 +218,7 @@ public Map<String, Integer> getTagCountForSpaces(String spaces, XWikiContext con
     {
         List<String> spaceRefList = TagParamUtils.spacesParameterToList(spaces);
 
-        List<Object> queryParameter = new ArrayList<>();
-        StringBuilder where = new StringBuilder();
-        boolean first = true;
-        for (String spaceReference : spaceRefList) {
-            if (first) {
-                where.append("(doc.space = ? ");
-                first = false;
-            } else {
-                where.append(" OR doc.space = ? ");
-            }
-            queryParameter.add(spaceReference);
-            where.append("OR doc.space LIKE ?");
-            String escapedSpaceReference = LIKE_ESCAPE.matcher(spaceReference).replaceAll(LIKE_REPLACEMENT);
-            queryParameter.add(escapedSpaceReference + LIKE_APPEND);
-        }
-        // if first is true the "for" loop never ran, and spaces is empty
-        // so only close brace if first is false
-        if (!first) {
-            where.append(')');
-        }
-
-        return getTagCountForQuery("", where.toString(), queryParameter, context);
+        return TagQueryUtils.getTagCountForSpaces(spaceRefList, context);
     }
 
     /**
@@ -318,6 +285,20 @@ public List<String> getDocumentsWithTag(String tag, boolean includeHiddenDocumen
         return TagQueryUtils.getDocumentsWithTag(tag, includeHiddenDocuments, context);
     }
 
+    /**
+     * Start rebuilding the {@link TagIndex} of the current wiki in the background.
+     *
+     * @param context XWiki context.
+     * @return the job rebuilding the index
+     * @throws JobException if the job can't be started
+     * @since 9.7RC1
+     */
+    public Job rebuildIndex(XWikiContext context) throws JobException
+    {
+        return Utils.getComponent(JobExecutor.class).execute(TagIndexRebuildJob.JOBTYPE,
+            new TagIndexRebuildRequest(Collections.singletonList(context.getWikiId())));
+    }
+
     /**
      * Get tags from a document.
      * 
@@ -301,4 +301,28 @@ public TagOperationResult deleteTag(String tag)
         }
         return result;
     }
+
+    /**
+     * Start rebuilding the index of the tags of the current wiki in the background, for example after the tags have
+     * been modified directly in the database. Requires admin rights.
+     *
+     * @return the {@link TagOperationResult result} of the operation
+     * @since 9.7RC1
+     */
+    public TagOperationResult rebuildIndex()
+    {
+        TagOperationResult result;
+        try {
+            if (hasAdminRights()) {
+                this.getProtectedPlugin().rebuildIndex(this.context);
+                result = TagOperationResult.OK;
+            } else {
+                result = TagOperationResult.NOT_ALLOWED;
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to rebuild the tag index: [{}]", ex.getMessage());
+            result = TagOperationResult.FAILED;
+        }
+        return result;
+    }
 }
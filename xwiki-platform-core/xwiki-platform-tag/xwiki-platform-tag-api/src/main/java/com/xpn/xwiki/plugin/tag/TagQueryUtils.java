@@ -20,6 +20,7 @@
 package com.xpn.xwiki.plugin.tag;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -27,18 +28,20 @@
 import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.query.internal.HiddenDocumentFilter;
-import org.xwiki.query.internal.UniqueDocumentFilter;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.web.Utils;
 
 /**
- * TagQueryUtils handles queries allowing to search and count tags within the wiki.
+ * TagQueryUtils handles queries allowing to search and count tags within the wiki. Except for the arbitrary queries
+ * passed to {@link #getTagCountForQuery(String, String, List, XWikiContext)}, the results come from the
+ * {@link TagIndex}.
  *
  * @version $Id$
  * @since 5.0M1
@@ -66,24 +69,12 @@ private TagQueryUtils()
      */
     public static List<String> getAllTags(XWikiContext context) throws XWikiException
     {
-        List<String> results;
-
-        String hql = "select distinct elements(prop.list) from XWikiDocument as doc, BaseObject as obj, "
-            + "DBStringListProperty as prop where obj.name=doc.fullName and obj.className='XWiki.TagClass' and "
-            + "obj.id=prop.id.id and prop.id.name='tags'";
-
         try {
-            Query query = context.getWiki().getStore().getQueryManager().createQuery(hql, Query.HQL);
-            query.addFilter(Utils.<QueryFilter> getComponent(QueryFilter.class, HiddenDocumentFilter.HINT));
-            results = query.execute();
+            return getTagIndex().getAllTags(context.getWikiId(), isDisplayHiddenDocuments());
         } catch (QueryException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
-                String.format("Failed to get all tags", hql), e);
+                "Failed to get all tags", e);
         }
-
-        Collections.sort(results, String.CASE_INSENSITIVE_ORDER);
-
-        return results;
     }
 
     /**
@@ -101,6 +92,11 @@ public static List<String> getAllTags(XWikiContext context) throws XWikiExceptio
     public static Map<String, Integer> getTagCountForQuery(String fromHql, String whereHql, List< ? > parameterValues,
             XWikiContext context) throws XWikiException
     {
+        // The whole wiki is counted from the index
+        if (StringUtils.isBlank(fromHql) && StringUtils.isBlank(whereHql)) {
+            return getTagCountForSpaces(null, context);
+        }
+
         List<String> results = null;
         Map<String, Integer> tagCount = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
 
@@ -109,10 +105,8 @@ public static Map<String, Integer> getTagCountForQuery(String fromHql, String wh
         String where = " where tagobject.name=doc.fullName and tagobject.className='XWiki.TagClass' and "
             + "tagobject.id=prop.id.id and prop.id.name='tags'";
 
-        // If at least one of the fragments is passed, the query should be matching XWiki documents
-        if (!StringUtils.isBlank(fromHql) || !StringUtils.isBlank(whereHql)) {
-            from += fromHql;
-        }
+        // At least one of the fragments is passed, the query should be matching XWiki documents
+        from += fromHql;
         if (!StringUtils.isBlank(whereHql)) {
             where += " and " + whereHql;
         }
@@ -127,6 +121,7 @@ public static Map<String, Integer> getTagCountForQuery(String fromHql, String wh
             Query query = context.getWiki().getStore().getQueryManager().createQuery(hql, Query.HQL);
             query.bindValues((List<Object>) params);
             query.addFilter(Utils.<QueryFilter> getComponent(QueryFilter.class, HiddenDocumentFilter.HINT));
+            query.setCacheable(true);
             results = query.execute();
         } catch (QueryException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
@@ -158,6 +153,26 @@ public static Map<String, Integer> getTagCountForQuery(String fromHql, String wh
         return tagCount;
     }
 
+    /**
+     * Get cardinality map of tags for a list of wiki spaces (including sub spaces).
+     *
+     * @param spaces the local references of the spaces to get tags in, null or empty for the whole wiki
+     * @param context XWiki context.
+     * @return map of tags (alphabetical order) with the number of documents holding them.
+     * @throws XWikiException if the tag index can't be loaded (possible failures: DB access problems, etc).
+     * @since 9.7RC1
+     */
+    public static Map<String, Integer> getTagCountForSpaces(Collection<String> spaces, XWikiContext context)
+        throws XWikiException
+    {
+        try {
+            return getTagIndex().getTagCount(context.getWikiId(), spaces, isDisplayHiddenDocuments());
+        } catch (QueryException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
+                String.format("Failed to get tag count for spaces [%s]", spaces), e);
+        }
+    }
+
     /**
      * Get non-hidden documents with the passed tags.
      *
@@ -185,27 +200,29 @@ public static List<String> getDocumentsWithTag(String tag, XWikiContext context)
     public static List<String> getDocumentsWithTag(String tag, boolean includeHiddenDocuments, XWikiContext context)
         throws XWikiException
     {
-        List<String> results;
-        List<Object> parameters = new ArrayList<>();
-        parameters.add(TagPlugin.TAG_CLASS);
-        parameters.add(tag);
-        String hql = ", BaseObject as obj, DBStringListProperty as prop join prop.list item where obj.className=? and "
-            + "obj.name=doc.fullName and obj.id=prop.id.id and prop.id.name='tags' and lower(item)=lower(?) order by "
-            + "doc.fullName";
-
         try {
-            Query query = context.getWiki().getStore().getQueryManager().createQuery(hql, Query.HQL);
-            query.bindValues(parameters);
-            query.addFilter(Utils.getComponent(QueryFilter.class, UniqueDocumentFilter.HINT));
-            if (!includeHiddenDocuments) {
-                query.addFilter(Utils.getComponent(QueryFilter.class, HiddenDocumentFilter.HINT));
-            }
-            results = query.execute();
+            return getTagIndex().getDocumentsWithTag(context.getWikiId(), tag,
+                includeHiddenDocuments || isDisplayHiddenDocuments());
         } catch (QueryException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
                 String.format("Failed to search for document with tag [%s]", tag), e);
         }
+    }
+
+    private static TagIndex getTagIndex()
+    {
+        return Utils.getComponent(TagIndex.class);
+    }
+
+    /**
+     * @return true if the current user wants to see the hidden documents, see {@link HiddenDocumentFilter}
+     */
+    private static boolean isDisplayHiddenDocuments()
+    {
+        Integer preference =
+            Utils.<ConfigurationSource>getComponent(ConfigurationSource.class, "user").getProperty(
+                "displayHiddenDocuments", Integer.class);
 
-        return results;
+        return preference != null && preference == 1;
     }
 }
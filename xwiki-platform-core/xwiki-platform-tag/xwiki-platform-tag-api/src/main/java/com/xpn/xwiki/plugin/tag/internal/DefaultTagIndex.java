@@ -0,0 +1,483 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.plugin.tag.TagIndex;
+import com.xpn.xwiki.plugin.tag.TagPlugin;
+
+/**
+ * Default {@link TagIndex}, keeping the index of each wiki in memory.
+ * <p>
+ * The index of a wiki is loaded with a single query the first time it's needed and is then updated by
+ * {@link TagIndexListener} every time a document is saved or deleted. The modifications notified while the index is
+ * being loaded are applied again once the load is finished so that none of them is lost.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@Singleton
+public class DefaultTagIndex implements TagIndex
+{
+    private static final String LOAD_STATEMENT = "select doc.fullName, doc.space, doc.hidden, item "
+        + "from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop join prop.list item "
+        + "where obj.name=doc.fullName and obj.className='XWiki.TagClass' and obj.id=prop.id.id "
+        + "and prop.id.name='tags' and doc.translation=0";
+
+    private static final LocalDocumentReference TAG_CLASS_REFERENCE = new LocalDocumentReference("XWiki", "TagClass");
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    private final ConcurrentMap<String, WikiTags> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * The tags of a document.
+     */
+    private static final class DocumentTags
+    {
+        private final String fullName;
+
+        private final String space;
+
+        private final boolean hidden;
+
+        /**
+         * The tags of the document, indexed by their lower case version.
+         */
+        private final Map<String, String> tags = new LinkedHashMap<>();
+
+        private DocumentTags(String fullName, String space, boolean hidden)
+        {
+            this.fullName = fullName;
+            this.space = space;
+            this.hidden = hidden;
+        }
+
+        private void addTag(String tag)
+        {
+            if (StringUtils.isNotEmpty(tag)) {
+                String key = tag.toLowerCase();
+                if (!this.tags.containsKey(key)) {
+                    this.tags.put(key, tag);
+                }
+            }
+        }
+
+        private boolean isInSpaces(Collection<String> spaces)
+        {
+            for (String candidate : spaces) {
+                if (this.space.equals(candidate)
+                    || (this.space.startsWith(candidate) && this.space.charAt(candidate.length()) == '.')) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * The documents holding a tag.
+     */
+    private static final class TagEntry
+    {
+        private final SortedSet<String> documents = new TreeSet<>();
+
+        /**
+         * The number of documents holding each case variant of the tag, in alphabetical order.
+         */
+        private final Map<String, Integer> variants = new TreeMap<>();
+
+        private int hiddenDocuments;
+
+        private void add(DocumentTags document, String variant)
+        {
+            this.documents.add(document.fullName);
+            if (document.hidden) {
+                ++this.hiddenDocuments;
+            }
+            Integer count = this.variants.get(variant);
+            this.variants.put(variant, count != null ? count + 1 : 1);
+        }
+
+        private void remove(DocumentTags document, String variant)
+        {
+            this.documents.remove(document.fullName);
+            if (document.hidden) {
+                --this.hiddenDocuments;
+            }
+            Integer count = this.variants.get(variant);
+            if (count != null && count > 1) {
+                this.variants.put(variant, count - 1);
+            } else {
+                this.variants.remove(variant);
+            }
+        }
+
+        private String getName()
+        {
+            return this.variants.keySet().iterator().next();
+        }
+
+        private int size(boolean includeHiddenDocuments)
+        {
+            return includeHiddenDocuments ? this.documents.size() : this.documents.size() - this.hiddenDocuments;
+        }
+    }
+
+    /**
+     * The index of a wiki.
+     */
+    private static final class Index
+    {
+        private final Map<String, DocumentTags> documents = new HashMap<>();
+
+        private final Map<String, TagEntry> tags = new HashMap<>();
+
+        private void put(DocumentTags document)
+        {
+            DocumentTags previous = this.documents.remove(document.fullName);
+            if (previous != null) {
+                for (Map.Entry<String, String> tag : previous.tags.entrySet()) {
+                    TagEntry entry = this.tags.get(tag.getKey());
+                    entry.remove(previous, tag.getValue());
+                    if (entry.documents.isEmpty()) {
+                        this.tags.remove(tag.getKey());
+                    }
+                }
+            }
+
+            if (!document.tags.isEmpty()) {
+                this.documents.put(document.fullName, document);
+                for (Map.Entry<String, String> tag : document.tags.entrySet()) {
+                    TagEntry entry = this.tags.get(tag.getKey());
+                    if (entry == null) {
+                        entry = new TagEntry();
+                        this.tags.put(tag.getKey(), entry);
+                    }
+                    entry.add(document, tag.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of the index of a wiki.
+     */
+    private static final class WikiTags
+    {
+        /**
+         * Only one load at a time.
+         */
+        private final Object loadLock = new Object();
+
+        /**
+         * Protects {@link #index} and {@link #pending}.
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * The index, null until it's loaded.
+         */
+        private Index index;
+
+        /**
+         * The modifications notified during the load, null when no load is in progress.
+         */
+        private List<DocumentTags> pending;
+    }
+
+    @Override
+    public List<String> getAllTags(String wiki, boolean includeHiddenDocuments) throws QueryException
+    {
+        WikiTags wikiTags = getLoadedWikiTags(wiki);
+
+        List<String> result = new ArrayList<>();
+
+        wikiTags.lock.readLock().lock();
+        try {
+            for (TagEntry entry : wikiTags.index.tags.values()) {
+                if (entry.size(includeHiddenDocuments) > 0) {
+                    result.add(entry.getName());
+                }
+            }
+        } finally {
+            wikiTags.lock.readLock().unlock();
+        }
+
+        Collections.sort(result, String.CASE_INSENSITIVE_ORDER);
+
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> getTagCount(String wiki, Collection<String> spaces, boolean includeHiddenDocuments)
+        throws QueryException
+    {
+        WikiTags wikiTags = getLoadedWikiTags(wiki);
+
+        Map<String, Integer> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        wikiTags.lock.readLock().lock();
+        try {
+            if (spaces == null || spaces.isEmpty()) {
+                for (TagEntry entry : wikiTags.index.tags.values()) {
+                    int count = entry.size(includeHiddenDocuments);
+                    if (count > 0) {
+                        result.put(entry.getName(), count);
+                    }
+                }
+            } else {
+                Map<String, Integer> counts = new HashMap<>();
+                for (DocumentTags document : wikiTags.index.documents.values()) {
+                    if ((includeHiddenDocuments || !document.hidden) && document.isInSpaces(spaces)) {
+                        for (String tag : document.tags.keySet()) {
+                            Integer count = counts.get(tag);
+                            counts.put(tag, count != null ? count + 1 : 1);
+                        }
+                    }
+                }
+                for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                    result.put(wikiTags.index.tags.get(count.getKey()).getName(), count.getValue());
+                }
+            }
+        } finally {
+            wikiTags.lock.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<String> getDocumentsWithTag(String wiki, String tag, boolean includeHiddenDocuments)
+        throws QueryException
+    {
+        WikiTags wikiTags = getLoadedWikiTags(wiki);
+
+        List<String> result = new ArrayList<>();
+
+        if (tag != null) {
+            wikiTags.lock.readLock().lock();
+            try {
+                TagEntry entry = wikiTags.index.tags.get(tag.toLowerCase());
+                if (entry != null) {
+                    for (String document : entry.documents) {
+                        if (includeHiddenDocuments || !wikiTags.index.documents.get(document).hidden) {
+                            result.add(document);
+                        }
+                    }
+                }
+            } finally {
+                wikiTags.lock.readLock().unlock();
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void update(XWikiDocument document)
+    {
+        // Translations don't have their own objects
+        if (!Locale.ROOT.equals(document.getLocale())) {
+            return;
+        }
+
+        DocumentReference documentReference = document.getDocumentReference();
+
+        WikiTags wikiTags = this.wikis.get(documentReference.getWikiReference().getName());
+        if (wikiTags == null) {
+            // The index of this wiki is not loaded yet, the document will be taken into account when it is
+            return;
+        }
+
+        DocumentTags documentTags = new DocumentTags(this.localSerializer.serialize(documentReference),
+            this.localSerializer.serialize(documentReference.getLastSpaceReference()), document.isHidden());
+        List<BaseObject> tagObjects = document.getXObjects(TAG_CLASS_REFERENCE);
+        if (tagObjects != null) {
+            for (BaseObject tagObject : tagObjects) {
+                if (tagObject != null) {
+                    for (Object tag : tagObject.getListValue(TagPlugin.TAG_PROPERTY)) {
+                        documentTags.addTag((String) tag);
+                    }
+                }
+            }
+        }
+
+        wikiTags.lock.writeLock().lock();
+        try {
+            if (wikiTags.pending != null) {
+                wikiTags.pending.add(documentTags);
+            }
+            if (wikiTags.index != null) {
+                wikiTags.index.put(documentTags);
+            }
+        } finally {
+            wikiTags.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(String wiki) throws QueryException
+    {
+        load(wiki, getWikiTags(wiki));
+    }
+
+    @Override
+    public void invalidate(String wiki)
+    {
+        this.wikis.remove(wiki);
+    }
+
+    private WikiTags getWikiTags(String wiki)
+    {
+        WikiTags wikiTags = this.wikis.get(wiki);
+        if (wikiTags == null) {
+            wikiTags = new WikiTags();
+            WikiTags previous = this.wikis.putIfAbsent(wiki, wikiTags);
+            if (previous != null) {
+                wikiTags = previous;
+            }
+        }
+
+        return wikiTags;
+    }
+
+    private WikiTags getLoadedWikiTags(String wiki) throws QueryException
+    {
+        WikiTags wikiTags = getWikiTags(wiki);
+
+        wikiTags.lock.readLock().lock();
+        try {
+            if (wikiTags.index != null) {
+                return wikiTags;
+            }
+        } finally {
+            wikiTags.lock.readLock().unlock();
+        }
+
+        synchronized (wikiTags.loadLock) {
+            // Another thread might have loaded the index while we were waiting
+            wikiTags.lock.readLock().lock();
+            try {
+                if (wikiTags.index != null) {
+                    return wikiTags;
+                }
+            } finally {
+                wikiTags.lock.readLock().unlock();
+            }
+
+            load(wiki, wikiTags);
+        }
+
+        return wikiTags;
+    }
+
+    private void load(String wiki, WikiTags wikiTags) throws QueryException
+    {
+        synchronized (wikiTags.loadLock) {
+            wikiTags.lock.writeLock().lock();
+            try {
+                wikiTags.pending = new ArrayList<>();
+            } finally {
+                wikiTags.lock.writeLock().unlock();
+            }
+
+            try {
+                Index index = new Index();
+                for (DocumentTags document : select(wiki).values()) {
+                    index.put(document);
+                }
+
+                wikiTags.lock.writeLock().lock();
+                try {
+                    for (DocumentTags document : wikiTags.pending) {
+                        index.put(document);
+                    }
+                    wikiTags.index = index;
+                } finally {
+                    wikiTags.lock.writeLock().unlock();
+                }
+            } finally {
+                wikiTags.lock.writeLock().lock();
+                try {
+                    wikiTags.pending = null;
+                } finally {
+                    wikiTags.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private Map<String, DocumentTags> select(String wiki) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(LOAD_STATEMENT, Query.HQL);
+        query.setWiki(wiki);
+
+        Map<String, DocumentTags> documents = new HashMap<>();
+        for (Object[] row : query.<Object[]>execute()) {
+            String fullName = (String) row[0];
+            DocumentTags document = documents.get(fullName);
+            if (document == null) {
+                document = new DocumentTags(fullName, (String) row[1], Boolean.TRUE.equals(row[2]));
+                documents.put(fullName, document);
+            }
+            document.addTag((String) row[3]);
+        }
+
+        return documents;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.Request;
+
+import com.xpn.xwiki.plugin.tag.TagIndex;
+
+/**
+ * Reload the {@link TagIndex} of some wikis from the database, for example after the tags have been modified directly
+ * in the database.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(TagIndexRebuildJob.JOBTYPE)
+public class TagIndexRebuildJob extends AbstractJob<TagIndexRebuildRequest, DefaultJobStatus<TagIndexRebuildRequest>>
+{
+    /**
+     * The id of the job.
+     */
+    public static final String JOBTYPE = "tag.index.rebuild";
+
+    @Inject
+    private TagIndex tagIndex;
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected TagIndexRebuildRequest castRequest(Request request)
+    {
+        TagIndexRebuildRequest rebuildRequest;
+        if (request instanceof TagIndexRebuildRequest) {
+            rebuildRequest = (TagIndexRebuildRequest) request;
+        } else {
+            rebuildRequest = new TagIndexRebuildRequest(request);
+        }
+
+        return rebuildRequest;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        List<String> wikis = getRequest().getWikis();
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                this.logger.info("Rebuilding the tag index of wiki [{}]", wiki);
+                this.tagIndex.rebuild(wiki);
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+}
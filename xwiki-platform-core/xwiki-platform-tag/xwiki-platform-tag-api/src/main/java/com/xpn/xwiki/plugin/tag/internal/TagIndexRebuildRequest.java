@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+
+/**
+ * Request to use with {@link TagIndexRebuildJob}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class TagIndexRebuildRequest extends AbstractRequest
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_WIKIS = "wikis";
+
+    /**
+     * @param wikis the identifiers of the wikis whose tag index should be rebuilt
+     */
+    public TagIndexRebuildRequest(Collection<String> wikis)
+    {
+        setId(Arrays.asList("tag", "index", "rebuild"));
+        setInteractive(false);
+
+        setProperty(PROPERTY_WIKIS, new ArrayList<>(wikis));
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public TagIndexRebuildRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @return the identifiers of the wikis whose tag index should be rebuilt
+     */
+    public List<String> getWikis()
+    {
+        return getProperty(PROPERTY_WIKIS);
+    }
+}
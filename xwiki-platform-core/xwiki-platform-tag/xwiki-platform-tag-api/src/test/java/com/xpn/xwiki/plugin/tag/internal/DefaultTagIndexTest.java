@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.plugin.tag.TagIndex;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultTagIndex}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class DefaultTagIndexTest
+{
+    @Rule
+    public MockitoComponentMockingRule<TagIndex> mocker = new MockitoComponentMockingRule<>(DefaultTagIndex.class);
+
+    private Query query;
+
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Before
+    public void before() throws Exception
+    {
+        this.query = mock(Query.class);
+        QueryManager queryManager = this.mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery(any(String.class), any(String.class))).thenReturn(this.query);
+
+        List<Object[]> rows = Arrays.asList(new Object[] { "A.Page1", "A", false, "xwiki" },
+            new Object[] { "A.Page1", "A", false, "Java" }, new Object[] { "A.B.Page2", "A.B", null, "XWiki" },
+            new Object[] { "AB.Page3", "AB", false, "java" }, new Object[] { "C.Hidden", "C", true, "secret" },
+            new Object[] { "C.Hidden", "C", true, "java" });
+        when(this.query.<Object[]>execute()).thenReturn(rows);
+
+        this.localSerializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+    }
+
+    private Map<String, Integer> map(Object... entries)
+    {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], (Integer) entries[i + 1]);
+        }
+
+        return map;
+    }
+
+    private XWikiDocument mockDocument(String space, String page, boolean hidden, String... tags)
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", space, page);
+        when(this.localSerializer.serialize(documentReference)).thenReturn(space + '.' + page);
+        when(this.localSerializer.serialize(documentReference.getLastSpaceReference())).thenReturn(space);
+
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        when(document.getLocale()).thenReturn(Locale.ROOT);
+        when(document.isHidden()).thenReturn(hidden);
+
+        if (tags.length > 0) {
+            BaseObject tagObject = mock(BaseObject.class);
+            when(tagObject.getListValue("tags")).thenReturn(Arrays.asList((Object[]) tags));
+            when(document.getXObjects(any(EntityReference.class))).thenReturn(Collections.singletonList(tagObject));
+        }
+
+        return document;
+    }
+
+    @Test
+    public void getAllTags() throws Exception
+    {
+        assertEquals(Arrays.asList("Java", "XWiki"), this.mocker.getComponentUnderTest().getAllTags("wiki", false));
+        assertEquals(Arrays.asList("Java", "secret", "XWiki"),
+            this.mocker.getComponentUnderTest().getAllTags("wiki", true));
+
+        // The index is loaded only once
+        verify(this.query, times(1)).execute();
+        verify(this.query).setWiki("wiki");
+    }
+
+    @Test
+    public void getTagCount() throws Exception
+    {
+        assertEquals(map("Java", 2, "XWiki", 2),
+            this.mocker.getComponentUnderTest().getTagCount("wiki", null, false));
+        assertEquals(map("Java", 3, "secret", 1, "XWiki", 2),
+            this.mocker.getComponentUnderTest().getTagCount("wiki", Collections.<String>emptyList(), true));
+        assertEquals(map("Java", 1, "XWiki", 2),
+            this.mocker.getComponentUnderTest().getTagCount("wiki", Arrays.asList("A"), false));
+        assertEquals(map("Java", 2, "secret", 1),
+            this.mocker.getComponentUnderTest().getTagCount("wiki", Arrays.asList("AB", "C"), true));
+    }
+
+    @Test
+    public void getDocumentsWithTag() throws Exception
+    {
+        assertEquals(Arrays.asList("A.Page1", "AB.Page3"),
+            this.mocker.getComponentUnderTest().getDocumentsWithTag("wiki", "JAVA", false));
+        assertEquals(Arrays.asList("A.Page1", "AB.Page3", "C.Hidden"),
+            this.mocker.getComponentUnderTest().getDocumentsWithTag("wiki", "java", true));
+        assertEquals(Collections.emptyList(),
+            this.mocker.getComponentUnderTest().getDocumentsWithTag("wiki", "unknown", true));
+    }
+
+    @Test
+    public void update() throws Exception
+    {
+        TagIndex tagIndex = this.mocker.getComponentUnderTest();
+
+        // Not loaded yet, nothing to update
+        tagIndex.update(mockDocument("D", "Page4", false, "java"));
+
+        tagIndex.getAllTags("wiki", false);
+
+        tagIndex.update(mockDocument("D", "Page5", false, "Java", "new"));
+        tagIndex.update(mockDocument("A", "Page1", true, "xwiki"));
+        tagIndex.update(mockDocument("AB", "Page3", false));
+
+        assertEquals(map("Java", 1, "new", 1, "XWiki", 1), tagIndex.getTagCount("wiki", null, false));
+        assertEquals(Arrays.asList("A.B.Page2", "A.Page1"), tagIndex.getDocumentsWithTag("wiki", "xwiki", true));
+
+        tagIndex.invalidate("wiki");
+
+        assertEquals(map("Java", 2, "XWiki", 2), tagIndex.getTagCount("wiki", null, false));
+        verify(this.query, times(2)).execute();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Base class of the benchmarks manipulating a typical document: a few kilobytes of content, objects of a class with
+ * the usual property types and attachments.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
+public abstract class AbstractDocumentBenchmark extends AbstractOldcoreBenchmark
+{
+    protected static final DocumentReference CLASS_REFERENCE =
+        new DocumentReference("xwiki", "Benchmark", "BenchmarkClass");
+
+    protected static final DocumentReference DOCUMENT_REFERENCE =
+        new DocumentReference("xwiki", "Benchmark", "WebHome");
+
+    protected static final String TITLE = "title";
+
+    protected static final String COUNT = "count";
+
+    protected static final String DESCRIPTION = "description";
+
+    protected static final String ENABLED = "enabled";
+
+    protected static final String TAGS = "tags";
+
+    private static final int OBJECT_COUNT = 20;
+
+    private static final int ATTACHMENT_COUNT = 5;
+
+    private static final String PARAGRAPH = "Lorem ipsum dolor sit amet, **consectetur** adipiscing elit, sed do "
+        + "eiusmod tempor incididunt ut labore et dolore magna aliqua. [[Link>>Main.WebHome]]\n\n";
+
+    protected XWikiDocument document;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        XWikiContext xcontext = getXWikiContext();
+
+        this.oldcore.registerMockEnvironment();
+        doReturn(StandardCharsets.UTF_8.name()).when(this.oldcore.getSpyXWiki()).getEncoding();
+
+        XWikiDocument classDocument = new XWikiDocument(CLASS_REFERENCE);
+        BaseClass xclass = classDocument.getXClass();
+        xclass.addTextField(TITLE, "Title", 30);
+        xclass.addNumberField(COUNT, "Count", 10, "integer");
+        xclass.addTextAreaField(DESCRIPTION, "Description", 60, 10);
+        xclass.addBooleanField(ENABLED, "Enabled", "yesno");
+        xclass.addStaticListField(TAGS, "Tags", 30, true, "red|green|blue", "checkbox");
+        this.oldcore.getSpyXWiki().saveDocument(classDocument, xcontext);
+
+        this.document = new XWikiDocument(DOCUMENT_REFERENCE);
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setTitle("Benchmark");
+        this.document.setContent(StringUtils.repeat(PARAGRAPH, 50));
+
+        for (int i = 0; i < OBJECT_COUNT; ++i) {
+            BaseObject object = this.document.newXObject(CLASS_REFERENCE, xcontext);
+            object.setStringValue(TITLE, "Title " + i);
+            object.setIntValue(COUNT, i);
+            object.setLargeStringValue(DESCRIPTION, PARAGRAPH);
+            object.setIntValue(ENABLED, i % 2);
+            object.setStringListValue(TAGS, Arrays.asList("red", "blue"));
+        }
+
+        for (int i = 0; i < ATTACHMENT_COUNT; ++i) {
+            this.document.addAttachment("file" + i + ".txt", PARAGRAPH.getBytes(StandardCharsets.UTF_8), xcontext);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Base class of the benchmarks running on top of the Oldcore test mocks. The components to register are declared with
+ * the usual test annotations on the benchmark class.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractOldcoreBenchmark
+{
+    protected final BenchmarkOldcore oldcore = new BenchmarkOldcore();
+
+    /**
+     * Initialize the environment and the data of the benchmark.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        this.oldcore.start(this);
+
+        initialize();
+    }
+
+    /**
+     * Dispose the environment.
+     *
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        this.oldcore.stop();
+    }
+
+    /**
+     * Prepare the data of the benchmark once the environment is initialized.
+     *
+     * @throws Exception when failing to prepare the data
+     */
+    protected abstract void initialize() throws Exception;
+
+    protected XWikiContext getXWikiContext()
+    {
+        return this.oldcore.getXWikiContext();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.suigeneris.jrcs.rcs.Version;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+
+/**
+ * Benchmark the history of an attachment with several large revisions, as it's loaded from the store and then either
+ * exported (XAR export with history) or read (revisions listing).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class AttachmentArchiveBenchmark extends AbstractDocumentBenchmark
+{
+    private static final int REVISION_COUNT = 5;
+
+    /**
+     * The size of each revision of the attachment, in bytes.
+     */
+    @Param({ "1048576", "16777216" })
+    protected int size;
+
+    private XWikiAttachment attachment;
+
+    private byte[] archiveData;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        super.initialize();
+
+        XWikiContext xcontext = getXWikiContext();
+
+        this.attachment = this.document.addAttachment("archive.txt", new byte[0], xcontext);
+
+        XWikiAttachmentArchive archive = new XWikiAttachmentArchive();
+        archive.setAttachment(this.attachment);
+        for (int i = 0; i < REVISION_COUNT; ++i) {
+            byte[] content = StringUtils.repeat(String.valueOf(i), this.size).getBytes(StandardCharsets.UTF_8);
+            this.attachment.setContent(new ByteArrayInputStream(content));
+            archive.updateArchive(xcontext);
+        }
+
+        this.archiveData = archive.getArchive();
+    }
+
+    private XWikiAttachmentArchive load() throws XWikiException
+    {
+        XWikiAttachmentArchive archive = new XWikiAttachmentArchive();
+        archive.setAttachment(this.attachment);
+        archive.setArchive(this.archiveData);
+
+        return archive;
+    }
+
+    /**
+     * @return the history of the attachment as it's written in a XAR export
+     * @throws XWikiException when failing to load the history
+     */
+    @Benchmark
+    public String export() throws XWikiException
+    {
+        return load().getArchiveAsString();
+    }
+
+    /**
+     * @return the versions of the attachment, which requires to parse its history
+     * @throws XWikiException when failing to load the history
+     */
+    @Benchmark
+    public Version[] getVersions() throws XWikiException
+    {
+        return load().getVersions();
+    }
+}
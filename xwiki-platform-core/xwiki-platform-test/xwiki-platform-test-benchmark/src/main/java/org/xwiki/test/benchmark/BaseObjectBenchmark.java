@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Benchmark the access to the objects of a document and to their properties.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class BaseObjectBenchmark extends AbstractDocumentBenchmark
+{
+    private static final int OBJECT_NUMBER = 10;
+
+    private BaseObject object;
+
+    private int counter;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        super.initialize();
+
+        this.object = this.document.getXObject(CLASS_REFERENCE, OBJECT_NUMBER);
+    }
+
+    /**
+     * @return the object found in the document
+     */
+    @Benchmark
+    public BaseObject getXObject()
+    {
+        return this.document.getXObject(CLASS_REFERENCE, OBJECT_NUMBER);
+    }
+
+    /**
+     * @return the value of a string property
+     */
+    @Benchmark
+    public String getStringValue()
+    {
+        return this.object.getStringValue(TITLE);
+    }
+
+    /**
+     * @return the value of a number property
+     */
+    @Benchmark
+    public int getIntValue()
+    {
+        return this.object.getIntValue(COUNT);
+    }
+
+    /**
+     * @return the value of a list property
+     */
+    @Benchmark
+    public Object getListValue()
+    {
+        return this.object.getListValue(TAGS);
+    }
+
+    /**
+     * @return the modified object
+     */
+    @Benchmark
+    public BaseObject setStringValue()
+    {
+        this.object.setStringValue(TITLE, "Title " + this.counter++);
+
+        return this.object;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import com.xpn.xwiki.test.MockitoOldcoreRule;
+
+/**
+ * Give access to the Oldcore test mocks outside of a JUnit test: the environment is created once per benchmark trial
+ * instead of once per test method.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class BenchmarkOldcore extends MockitoOldcoreRule
+{
+    /**
+     * Register the components declared by the annotations of the benchmark (e.g.
+     * {@link org.xwiki.test.annotation.AllComponents}) and initialize the mocked XWiki.
+     *
+     * @param benchmark the benchmark state
+     * @throws Exception when failing to initialize the environment
+     */
+    public void start(Object benchmark) throws Exception
+    {
+        getMocker().initializeTest(benchmark);
+
+        before(benchmark.getClass());
+    }
+
+    /**
+     * Dispose the environment.
+     *
+     * @throws Exception when failing to dispose the environment
+     */
+    public void stop() throws Exception
+    {
+        after();
+
+        getMocker().shutdownTest();
+    }
+}
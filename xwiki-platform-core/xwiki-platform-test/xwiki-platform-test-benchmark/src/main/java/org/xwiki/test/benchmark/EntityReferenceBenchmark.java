@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+/**
+ * Benchmark the default String resolver and serializer of the entity references.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@ReferenceComponentList
+public class EntityReferenceBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String DOCUMENT = "wiki:Space1.Space2.Space3.Page";
+
+    private static final String ESCAPED_DOCUMENT = "wiki:Space\\.1.Space\\:2.Page\\.Name";
+
+    private EntityReferenceResolver<String> resolver;
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private DocumentReference documentReference;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.resolver = this.oldcore.getMocker().getInstance(EntityReferenceResolver.TYPE_STRING);
+        this.serializer = this.oldcore.getMocker().getInstance(EntityReferenceSerializer.TYPE_STRING);
+
+        this.documentReference = new DocumentReference("Page",
+            new SpaceReference("Space3", new SpaceReference("Space2", new SpaceReference("Space1",
+                new WikiReference("wiki")))));
+    }
+
+    /**
+     * @return the resolved document reference
+     */
+    @Benchmark
+    public EntityReference resolve()
+    {
+        return this.resolver.resolve(DOCUMENT, EntityType.DOCUMENT);
+    }
+
+    /**
+     * @return the resolved document reference
+     */
+    @Benchmark
+    public EntityReference resolveEscaped()
+    {
+        return this.resolver.resolve(ESCAPED_DOCUMENT, EntityType.DOCUMENT);
+    }
+
+    /**
+     * @return the serialized document reference
+     */
+    @Benchmark
+    public String serialize()
+    {
+        return this.serializer.serialize(this.documentReference);
+    }
+
+    /**
+     * @return the serialization of a newly resolved document reference
+     */
+    @Benchmark
+    public String resolveAndSerialize()
+    {
+        return this.serializer.serialize(this.resolver.resolve(DOCUMENT, EntityType.DOCUMENT));
+    }
+}
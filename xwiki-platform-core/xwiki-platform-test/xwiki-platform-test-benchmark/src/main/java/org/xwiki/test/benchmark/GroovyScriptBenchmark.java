@@ -0,0 +1,79 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import javax.script.ScriptException;
+
+import org.codehaus.groovy.jsr223.GroovyScriptEngineImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.rendering.internal.macro.groovy.GroovyScriptClassCache;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.annotation.ComponentList;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark the execution of the content of a Groovy macro, with and without the cache of the compiled scripts. A new
+ * engine is created for each execution, like the script macros do.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@ComponentList(GroovyScriptClassCache.class)
+public class GroovyScriptBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String SCRIPT = "def fibonacci(n) { n < 2 ? n : fibonacci(n - 1) + fibonacci(n - 2) }\n"
+        + "def result = new StringBuilder()\n"
+        + "for (i in 0..20) {\n"
+        + "  result.append(fibonacci(i % 10)).append(' ')\n"
+        + "}\n"
+        + "return result.toString()";
+
+    private GroovyScriptClassCache cache;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        // Only the scripts of authors with programming right are cached
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(Right.PROGRAM)).thenReturn(true);
+
+        this.cache = this.oldcore.getMocker().getInstance(GroovyScriptClassCache.class);
+    }
+
+    /**
+     * @return the result of the script, compiled for this execution
+     * @throws ScriptException when failing to execute the script
+     */
+    @Benchmark
+    public Object compileAndExecute() throws ScriptException
+    {
+        return new GroovyScriptEngineImpl().eval(SCRIPT);
+    }
+
+    /**
+     * @return the result of the script, compiled once
+     * @throws ScriptException when failing to execute the script
+     */
+    @Benchmark
+    public Object executeCached() throws ScriptException
+    {
+        return this.cache.getCompiledScript(SCRIPT, new GroovyScriptEngineImpl()).eval();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Benchmark the XHTML to XSL-FO transformation of the PDF export on a large document, with the stylesheet compiled for
+ * each export or compiled once, and with the result serialized or streamed to the next step (FOP being replaced by a
+ * handler ignoring the events).
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfExportBenchmark
+{
+    private static final int SECTION_COUNT = 200;
+
+    private TransformerFactory transformerFactory;
+
+    private byte[] stylesheet;
+
+    private Templates templates;
+
+    private String xhtml;
+
+    /**
+     * Load and compile the stylesheet and generate the document.
+     *
+     * @throws Exception when failing to compile the stylesheet
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        this.transformerFactory = TransformerFactory.newInstance();
+
+        try (InputStream stream = getClass().getResourceAsStream("/xhtml2fo.xsl")) {
+            this.stylesheet = IOUtils.toByteArray(stream);
+        }
+
+        this.templates = compile();
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>Benchmark</title></head><body>");
+        for (int i = 0; i < SECTION_COUNT; ++i) {
+            builder.append("<h2>Section ").append(i).append("</h2>");
+            builder.append("<p>Lorem ipsum dolor sit amet, <strong>consectetur</strong> adipiscing elit, sed do ");
+            builder.append("<em>eiusmod</em> tempor incididunt ut <a href=\"http://www.xwiki.org\">labore</a>.</p>");
+            builder.append("<ul><li>first item</li><li>second item</li></ul>");
+            builder.append("<table><tr><th>Name</th><th>Value</th></tr><tr><td>name</td><td>value</td></tr></table>");
+        }
+        builder.append("</body></html>");
+        this.xhtml = builder.toString();
+    }
+
+    private Templates compile() throws Exception
+    {
+        return this.transformerFactory.newTemplates(new StreamSource(new ByteArrayInputStream(this.stylesheet)));
+    }
+
+    private Source getXHTMLSource()
+    {
+        return new StreamSource(new StringReader(this.xhtml));
+    }
+
+    /**
+     * @return the XSL-FO document, the stylesheet being compiled for the export
+     * @throws Exception when failing to transform the document
+     */
+    @Benchmark
+    public String compileAndTransform() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        compile().newTransformer().transform(getXHTMLSource(), new StreamResult(writer));
+
+        return writer.toString();
+    }
+
+    /**
+     * @return the XSL-FO document, serialized
+     * @throws Exception when failing to transform the document
+     */
+    @Benchmark
+    public String transformToString() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        this.templates.newTransformer().transform(getXHTMLSource(), new StreamResult(writer));
+
+        return writer.toString();
+    }
+
+    /**
+     * @return the handler which received the XSL-FO events
+     * @throws Exception when failing to transform the document
+     */
+    @Benchmark
+    public DefaultHandler transformToHandler() throws Exception
+    {
+        DefaultHandler handler = new DefaultHandler();
+        this.templates.newTransformer().transform(getXHTMLSource(), new SAXResult(handler));
+
+        return handler;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.internal.SecurityCache;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.annotation.AllComponents;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark the lookups in the security cache (the default one, backed by the configured cache implementation), as
+ * done for each right check.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@AllComponents
+public class SecurityCacheBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final WikiReference WIKI_REFERENCE = new WikiReference("xwiki");
+
+    private static final DocumentReference USER_REFERENCE =
+        new DocumentReference("User", new SpaceReference("XWiki", WIKI_REFERENCE));
+
+    private static final DocumentReference DOCUMENT_REFERENCE =
+        new DocumentReference("Page", new SpaceReference("Space", WIKI_REFERENCE));
+
+    private SecurityCache securityCache;
+
+    private SecurityReferenceFactory factory;
+
+    private SecurityReference document;
+
+    private UserSecurityReference user;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        XWikiBridge bridge = this.oldcore.getMocker().registerMockComponent(XWikiBridge.class);
+        when(bridge.getMainWikiReference()).thenReturn(WIKI_REFERENCE);
+
+        this.securityCache = this.oldcore.getMocker().getInstance(SecurityCache.class);
+        this.factory = this.oldcore.getMocker().getInstance(SecurityReferenceFactory.class);
+
+        this.document = this.factory.newEntityReference(DOCUMENT_REFERENCE);
+        this.user = this.factory.newUserReference(USER_REFERENCE);
+
+        // The parents of an entry have to be in the cache before it
+        this.securityCache.add(mockRuleEntry(this.factory.newEntityReference(WIKI_REFERENCE)));
+        this.securityCache.add(mockRuleEntry(this.factory.newEntityReference(USER_REFERENCE.getParent())));
+        this.securityCache.add(mockRuleEntry(this.user), null);
+        this.securityCache.add(mockRuleEntry(this.document.getParentSecurityReference()));
+        this.securityCache.add(mockRuleEntry(this.document));
+
+        SecurityAccessEntry accessEntry = mock(SecurityAccessEntry.class);
+        when(accessEntry.getReference()).thenReturn(this.document);
+        when(accessEntry.getUserReference()).thenReturn(this.user);
+        this.securityCache.add(accessEntry);
+    }
+
+    private SecurityRuleEntry mockRuleEntry(SecurityReference reference)
+    {
+        SecurityRuleEntry entry = mock(SecurityRuleEntry.class);
+        when(entry.getReference()).thenReturn(reference);
+
+        return entry;
+    }
+
+    /**
+     * @return the cached rules of the document
+     */
+    @Benchmark
+    public SecurityRuleEntry getRuleEntry()
+    {
+        return this.securityCache.get(this.document);
+    }
+
+    /**
+     * @return the cached access of the user to the document
+     */
+    @Benchmark
+    public SecurityAccessEntry getAccessEntry()
+    {
+        return this.securityCache.get(this.user, this.document);
+    }
+
+    /**
+     * @return the cached access of the user to the document, including the creation of the security references as
+     *         done by the authorization manager
+     */
+    @Benchmark
+    public SecurityAccessEntry getAccessEntryFromReferences()
+    {
+        return this.securityCache.get(this.factory.newUserReference(USER_REFERENCE),
+            this.factory.newEntityReference(DOCUMENT_REFERENCE));
+    }
+}
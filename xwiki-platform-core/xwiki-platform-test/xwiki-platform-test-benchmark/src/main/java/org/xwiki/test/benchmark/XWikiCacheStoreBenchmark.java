@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiCacheStore;
+
+/**
+ * Benchmark the document cache of the store (backed by the configured cache implementation) when the document is
+ * found in the cache, which is the common case of the {@code XWiki#getDocument} calls.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@AllComponents
+public class XWikiCacheStoreBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    private static final DocumentReference MISSING_DOCUMENT_REFERENCE =
+        new DocumentReference("xwiki", "Space", "MissingPage");
+
+    private XWikiCacheStore store;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(DOCUMENT_REFERENCE), getXWikiContext());
+
+        this.store = new XWikiCacheStore(this.oldcore.getMockStore(), getXWikiContext());
+
+        // Fill the caches
+        loadDocument();
+        loadMissingDocument();
+    }
+
+    /**
+     * @return the document, from the cache
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadDocument() throws XWikiException
+    {
+        return this.store.loadXWikiDoc(new XWikiDocument(DOCUMENT_REFERENCE), getXWikiContext());
+    }
+
+    /**
+     * @return an empty document, the document being known to not exist
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadMissingDocument() throws XWikiException
+    {
+        return this.store.loadXWikiDoc(new XWikiDocument(MISSING_DOCUMENT_REFERENCE), getXWikiContext());
+    }
+
+    /**
+     * @return true, from the cache
+     * @throws XWikiException when failing to check the existence of the document
+     */
+    @Benchmark
+    public boolean exists() throws XWikiException
+    {
+        return this.store.exists(new XWikiDocument(DOCUMENT_REFERENCE), getXWikiContext());
+    }
+}
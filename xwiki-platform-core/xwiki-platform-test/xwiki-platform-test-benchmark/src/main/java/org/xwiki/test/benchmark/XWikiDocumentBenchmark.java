@@ -0,0 +1,76 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.test.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Benchmark the copy and the XML serialization of a {@link XWikiDocument}.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+public class XWikiDocumentBenchmark extends AbstractDocumentBenchmark
+{
+    private String xml;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        super.initialize();
+
+        this.xml = toXML();
+    }
+
+    /**
+     * @return the clone of the document
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * @return the XML of the document (with objects and attachment metadata)
+     * @throws XWikiException when failing to serialize the document
+     */
+    @Benchmark
+    public String toXML() throws XWikiException
+    {
+        return this.document.toXML(true, false, false, false, getXWikiContext());
+    }
+
+    /**
+     * @return the document parsed from its XML
+     * @throws XWikiException when failing to parse the document
+     */
+    @Benchmark
+    public XWikiDocument fromXML() throws XWikiException
+    {
+        XWikiDocument parsedDocument = new XWikiDocument(DOCUMENT_REFERENCE);
+        parsedDocument.fromXML(this.xml);
+
+        return parsedDocument;
+    }
+}
@@ -19,16 +19,10 @@
  */
 package org.xwiki.uiextension.internal;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
-import javax.inject.Named;
-import javax.inject.Provider;
 
-import org.slf4j.Logger;
-import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.uiextension.UIExtension;
 import org.xwiki.uiextension.UIExtensionManager;
 
@@ -41,36 +35,15 @@
 public class DefaultUIExtensionManager implements UIExtensionManager
 {
     /**
-     * The logger to log.
+     * The UI extensions of the Context Component Manager, indexed by extension point. The Context Component Manager
+     * allows Extensions to be registered for a specific user, for a specific wiki or for a whole farm.
      */
     @Inject
-    private Logger logger;
-
-    /**
-     * We use the Context Component Manager to lookup UI Extensions registered as components.
-     * The Context Component Manager allows Extensions to be registered for a specific user, for a specific wiki or for
-     * a whole farm.
-     */
-    @Inject
-    @Named("context")
-    private Provider<ComponentManager> contextComponentManagerProvider;
+    private UIExtensionIndex index;
 
     @Override
     public List<UIExtension> get(String extensionPointId)
     {
-        List<UIExtension> extensions = new ArrayList<UIExtension>();
-
-        try {
-            List<UIExtension> allExtensions = contextComponentManagerProvider.get().getInstanceList(UIExtension.class);
-            for (UIExtension extension : allExtensions) {
-                if (extension.getExtensionPointId().equals(extensionPointId)) {
-                    extensions.add(extension);
-                }
-            }
-        } catch (ComponentLookupException e) {
-            logger.error("Failed to lookup UIExtension instances, error: [{}]", e);
-        }
-
-        return extensions;
+        return this.index.getByExtensionPoint(extensionPointId);
     }
 }
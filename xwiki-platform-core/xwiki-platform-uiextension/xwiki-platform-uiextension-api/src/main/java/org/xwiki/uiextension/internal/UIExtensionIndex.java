@@ -0,0 +1,254 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.uiextension.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.namespace.DocumentNamespace;
+import org.xwiki.model.namespace.SpaceNamespace;
+import org.xwiki.model.namespace.UserNamespace;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.uiextension.UIExtension;
+
+/**
+ * Index of the UI extensions visible from the Context Component Manager, by extension point and by identifier.
+ * <p>
+ * The UI extensions available in the current context depend on the wiki, space, document and user component managers
+ * so an index is built for each combination of those which actually hold UI extensions. All the indexes are thrown
+ * away as soon as a UI extension is registered or unregistered in any component manager (see
+ * {@link UIExtensionIndexListener}), which is rare compared to the number of lookups.
+ *
+ * @version $Id$
+ * @since 9.7RC1
+ */
+@Component(roles = UIExtensionIndex.class)
+@Singleton
+public class UIExtensionIndex
+{
+    /**
+     * The maximum number of indexes kept at the same time, the indexes are reset when it's reached (which can only
+     * happen when UI extensions are registered for specific users, documents or spaces).
+     */
+    private static final int MAX_INDEXES = 1000;
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private static final class Index
+    {
+        private final Map<String, List<UIExtension>> extensionPoints = new LinkedHashMap<>();
+
+        private final Map<String, List<UIExtension>> identifiers = new LinkedHashMap<>();
+
+        Index(List<UIExtension> extensions)
+        {
+            // Keep the order of the Component Manager
+            for (UIExtension extension : extensions) {
+                add(this.extensionPoints, extension.getExtensionPointId(), extension);
+                add(this.identifiers, extension.getId(), extension);
+            }
+        }
+
+        private static void add(Map<String, List<UIExtension>> map, String key, UIExtension extension)
+        {
+            List<UIExtension> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(key, list);
+            }
+            list.add(extension);
+        }
+    }
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The Context Component Manager allows UI extensions to be registered for a specific user, document, space, wiki
+     * or for the whole farm.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> contextComponentManagerProvider;
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    @Named("current")
+    private Provider<SpaceReference> currentSpaceProvider;
+
+    @Inject
+    @Named("current")
+    private Provider<DocumentReference> currentDocumentProvider;
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * The types of namespaces (other than wiki) in which UI extensions have been registered.
+     */
+    private final Set<String> scopes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Incremented each time the indexes are reset, to not store an index built from outdated UI extensions.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param extensionPointId the identifier of the extension point
+     * @return the UI extensions of the passed extension point available in the current context, in the order of the
+     *         Context Component Manager
+     */
+    public List<UIExtension> getByExtensionPoint(String extensionPointId)
+    {
+        return get(getIndex().extensionPoints, extensionPointId);
+    }
+
+    /**
+     * @param id the identifier of the UI extension
+     * @return the UI extensions with the passed identifier available in the current context
+     */
+    public List<UIExtension> getById(String id)
+    {
+        return get(getIndex().identifiers, id);
+    }
+
+    private List<UIExtension> get(Map<String, List<UIExtension>> map, String key)
+    {
+        List<UIExtension> extensions = map.get(key);
+
+        return extensions != null ? new ArrayList<>(extensions) : new ArrayList<UIExtension>();
+    }
+
+    /**
+     * Forget all the indexes after a UI extension has been registered or unregistered.
+     *
+     * @param namespace the namespace of the component manager in which the UI extension has been registered or
+     *            unregistered, null for the root component manager
+     */
+    public void invalidate(String namespace)
+    {
+        if (namespace != null) {
+            int index = namespace.indexOf(':');
+            if (index > 0) {
+                this.scopes.add(namespace.substring(0, index));
+            }
+        }
+
+        this.version.incrementAndGet();
+        this.indexes.clear();
+    }
+
+    private Index getIndex()
+    {
+        String key = getKey();
+
+        Index index = this.indexes.get(key);
+        if (index == null) {
+            long currentVersion = this.version.get();
+
+            ComponentManager componentManager = this.contextComponentManagerProvider.get();
+
+            List<UIExtension> extensions;
+            try {
+                extensions = componentManager.getInstanceList(UIExtension.class);
+            } catch (ComponentLookupException e) {
+                this.logger.error("Failed to lookup UIExtension instances, error: [{}]", e);
+
+                return new Index(Collections.<UIExtension>emptyList());
+            }
+
+            index = new Index(extensions);
+
+            // Per lookup UI extensions must be created for each call
+            if (isSingletons(componentManager) && this.version.get() == currentVersion) {
+                if (this.indexes.size() >= MAX_INDEXES) {
+                    this.indexes.clear();
+                }
+                this.indexes.put(key, index);
+            }
+        }
+
+        return index;
+    }
+
+    private boolean isSingletons(ComponentManager componentManager)
+    {
+        for (ComponentDescriptor<UIExtension> descriptor : componentManager
+            .<UIExtension>getComponentDescriptorList(UIExtension.class)) {
+            if (descriptor.getInstantiationStrategy() == ComponentInstantiationStrategy.PER_LOOKUP) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the key of the component managers providing the UI extensions in the current context
+     */
+    private String getKey()
+    {
+        StringBuilder key = new StringBuilder();
+
+        EntityReference currentEntity = this.modelContext.getCurrentEntityReference();
+        if (currentEntity != null) {
+            key.append(currentEntity.extractReference(EntityType.WIKI).getName());
+        }
+
+        // Only take into account the scopes which actually contain UI extensions
+        if (this.scopes.contains(SpaceNamespace.TYPE)) {
+            key.append(KEY_SEPARATOR).append(this.currentSpaceProvider.get());
+        }
+        if (this.scopes.contains(DocumentNamespace.TYPE)) {
+            key.append(KEY_SEPARATOR).append(this.currentDocumentProvider.get());
+        }
+        if (this.scopes.contains(UserNamespace.TYPE)) {
+            key.append(KEY_SEPARATOR).append(this.documentAccessBridge.getCurrentUserReference());
+        }
+
+        return key.toString();
+    }
+}
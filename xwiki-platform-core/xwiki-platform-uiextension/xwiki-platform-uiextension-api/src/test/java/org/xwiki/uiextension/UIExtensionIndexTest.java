@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.uiextension;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.internal.ContextComponentManagerProvider;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.uiextension.internal.UIExtensionIndex;
+
+/**
+ * Unit tests for {@link UIExtensionIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentList(ContextComponentManagerProvider.class)
+public class UIExtensionIndexTest
+{
+    @Rule
+    public MockitoComponentMockingRule<UIExtensionIndex> mocker =
+        new MockitoComponentMockingRule<UIExtensionIndex>(UIExtensionIndex.class);
+
+    private UIExtension uix1;
+
+    private UIExtension uix2;
+
+    private UIExtension otheruix;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ModelContext modelContext = this.mocker.getInstance(ModelContext.class);
+        when(modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        this.uix1 = registerUIExtension("uix1", "extensionpoint");
+        this.uix2 = registerUIExtension("uix2", "extensionpoint");
+        this.otheruix = registerUIExtension("otheruix", "otherextensionpoint");
+    }
+
+    private UIExtension registerUIExtension(String id, String extensionPointId) throws Exception
+    {
+        UIExtension extension = this.mocker.registerMockComponent(UIExtension.class, id);
+        when(extension.getId()).thenReturn(id);
+        when(extension.getExtensionPointId()).thenReturn(extensionPointId);
+
+        return extension;
+    }
+
+    @Test
+    public void getByExtensionPoint() throws Exception
+    {
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+        assertEquals(Arrays.asList(this.otheruix),
+            this.mocker.getComponentUnderTest().getByExtensionPoint("otherextensionpoint"));
+        assertEquals(Arrays.asList(), this.mocker.getComponentUnderTest().getByExtensionPoint("unknown"));
+    }
+
+    @Test
+    public void getById() throws Exception
+    {
+        assertEquals(Arrays.asList(this.uix2), this.mocker.getComponentUnderTest().getById("uix2"));
+        assertEquals(Arrays.asList(), this.mocker.getComponentUnderTest().getById("unknown"));
+    }
+
+    @Test
+    public void invalidate() throws Exception
+    {
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+
+        UIExtension uix3 = registerUIExtension("uix3", "extensionpoint");
+
+        // The index is kept until it's invalidated
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+
+        this.mocker.getComponentUnderTest().invalidate(null);
+
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2, uix3)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+    }
+
+    @Test
+    public void userScope() throws Exception
+    {
+        DocumentAccessBridge bridge = this.mocker.getInstance(DocumentAccessBridge.class);
+        when(bridge.getCurrentUserReference()).thenReturn(new DocumentReference("wiki", "XWiki", "user1"));
+
+        this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint");
+
+        // No UI extension registered for a specific user yet
+        verify(bridge, never()).getCurrentUserReference();
+
+        UIExtension uix3 = registerUIExtension("uix3", "extensionpoint");
+        this.mocker.getComponentUnderTest().invalidate("user:wiki:XWiki.user1");
+
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2, uix3)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+
+        // Another user gets its own index
+        when(bridge.getCurrentUserReference()).thenReturn(new DocumentReference("wiki", "XWiki", "user2"));
+        this.mocker.unregisterComponent(UIExtension.class, "uix3");
+
+        assertEquals(new HashSet<>(Arrays.asList(this.uix1, this.uix2)),
+            new HashSet<>(this.mocker.getComponentUnderTest().getByExtensionPoint("extensionpoint")));
+    }
+}
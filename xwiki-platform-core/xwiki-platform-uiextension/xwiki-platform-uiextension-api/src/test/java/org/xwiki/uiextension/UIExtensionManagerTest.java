@@ -20,19 +20,17 @@
 package org.xwiki.uiextension;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
-import java.util.HashSet;
 
 import org.junit.Rule;
 import org.junit.Test;
-import org.xwiki.component.internal.ContextComponentManagerProvider;
-import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 import org.xwiki.uiextension.internal.DefaultUIExtensionManager;
+import org.xwiki.uiextension.internal.UIExtensionIndex;
 
-@ComponentList(ContextComponentManagerProvider.class)
 public class UIExtensionManagerTest
 {
     @Rule
@@ -42,18 +40,17 @@
     @Test
     public void testGet() throws Exception
     {
-        assertEquals(Arrays.asList(), this.mocker.getComponentUnderTest().get("extensionpoint"));
+        UIExtensionIndex index = this.mocker.getInstance(UIExtensionIndex.class);
+
+        when(index.getByExtensionPoint("extensionpoint")).thenReturn(Arrays.<UIExtension>asList());
 
-        UIExtension uix1 = mocker.registerMockComponent(UIExtension.class, "uix1");
-        when(uix1.getExtensionPointId()).thenReturn("extensionpoint");
+        assertEquals(Arrays.asList(), this.mocker.getComponentUnderTest().get("extensionpoint"));
 
-        UIExtension uix2 = mocker.registerMockComponent(UIExtension.class, "uix2");
-        when(uix2.getExtensionPointId()).thenReturn("extensionpoint");
+        UIExtension uix1 = mock(UIExtension.class, "uix1");
+        UIExtension uix2 = mock(UIExtension.class, "uix2");
 
-        UIExtension notuix = mocker.registerMockComponent(UIExtension.class, "notuix");
-        when(notuix.getExtensionPointId()).thenReturn("notuix");
+        when(index.getByExtensionPoint("extensionpoint")).thenReturn(Arrays.asList(uix1, uix2));
 
-        assertEquals(new HashSet<UIExtension>(Arrays.asList(uix1, uix2)), new HashSet<UIExtension>(this.mocker
-            .getComponentUnderTest().get("extensionpoint")));
+        assertEquals(Arrays.asList(uix1, uix2), this.mocker.getComponentUnderTest().get("extensionpoint"));
     }
 }